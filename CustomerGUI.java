@@ -3,20 +3,26 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.*;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import auth.UserDAO;
+import database.SchemaMigrator;
+import payment.PaymentMethod;
 import java.sql.SQLException;
 import java.sql.Timestamp;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.Statement;
+import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.function.Consumer;
 
 public class CustomerGUI extends JFrame {
     
@@ -30,6 +36,8 @@ public class CustomerGUI extends JFrame {
     private CardLayout cardLayout;
     private JPanel cardPanel;
     private UserRole currentRole = UserRole.CUSTOMER;
+    private final UserDAO userDAO = new UserDAO();
+    private String sessionToken; // Admin or employee session, checked locally on every view switch
     
     // Different view panels
     private JPanel customerHomePanel;
@@ -43,6 +51,13 @@ public class CustomerGUI extends JFrame {
     // Employee components
     private BookingDAO bookingDAO;
     
+    // Customer components
+    private static final DecimalFormat PRICE_FORMAT = new DecimalFormat("$0.00");
+    private static final int DEFAULT_SEAT_COUNT = 20; // Used when the aircraft capacity cannot be loaded
+    private static final String MAIL_SPOOL_DIR = "mail-spool"; // Where confirmation emails are written
+    private final BookingCheckoutService checkoutService = new BookingCheckoutService();
+    private final SeatInventoryDAO seatInventoryDAO = new SeatInventoryDAO();
+    
     public CustomerGUI() {
         super("Flight Management System");
         initializeGUI();
@@ -205,52 +220,54 @@ public class CustomerGUI extends JFrame {
     }
     
     private void showAllFlights() {
-        try {
-            List<FlightRecord> flights = flightDAO.getAllFlights();
-            
-            if (flights.isEmpty()) {
-                JOptionPane.showMessageDialog(this, 
-                    "No flights found in the system.", 
-                    "Flights", 
-                    JOptionPane.INFORMATION_MESSAGE);
-                return;
+        // Create a table to display flights (without aircraft column)
+        // Rows are fetched page by page as they scroll into view; click a header to sort
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        // Fares of the fetched rows, quoted with each page as in the search results
+        Map<Integer, PricingEngine.Quote> fares = new ConcurrentHashMap<>();
+        PagedTableModel<FlightRecord> model = new PagedTableModel<FlightRecord>(this)
+            .addColumn("ID", FlightRecord::getFlightId, "flightID")
+            .addColumn("Flight #", FlightRecord::getFlightNumber, "flightNumber")
+            .addColumn("Airline", FlightRecord::getAirlineName, "airline")
+            .addColumn("Origin", FlightRecord::getOrigin, "origin")
+            .addColumn("Destination", FlightRecord::getDestination, "destination")
+            .addColumn("Departure", FlightRecord::getDepartureTime, "departureTime", dateFormat)
+            .addColumn("Arrival", FlightRecord::getArrivalTime, "arrivalTime", dateFormat)
+            .addColumn("Price", f -> fareOf(f, fares), "fare", PRICE_FORMAT);
+        
+        JTable table = new JTable(model);
+        PagedTableModel.install(table);
+        table.setFillsViewportHeight(true);
+        table.setRowHeight(25);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(1000, 400));
+        JLabel statusLabel = new JLabel("Loading flights...");
+        
+        model.load(new PagedTableModel.RowSource<FlightRecord>() {
+            @Override
+            public int count() throws SQLException {
+                return flightDAO.countFlights();
             }
             
-            // Create a table to display flights (without aircraft column)
-            String[] columnNames = {"ID", "Flight #", "Airline", "Origin", "Destination", 
-                                   "Departure", "Arrival", "Price"};
-            DefaultTableModel model = new DefaultTableModel(columnNames, 0);
-            
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-            
-            for (FlightRecord f : flights) {
-                Object[] row = {
-                    f.getFlightId(),
-                    f.getFlightNumber(),
-                    f.getAirlineName(),
-                    f.getOrigin(),
-                    f.getDestination(),
-                    dateFormat.format(f.getDepartureTime()),
-                    dateFormat.format(f.getArrivalTime()),
-                    String.format("$%.2f", f.getPrice())
-                };
-                model.addRow(row);
+            @Override
+            public List<FlightRecord> fetch(int offset, int limit, String sortKey, boolean ascending)
+                    throws SQLException {
+                return quoted(flightDAO.getFlightsPage(offset, limit, sortKey, ascending), fares);
             }
-            
-            JTable table = new JTable(model);
-            table.setFillsViewportHeight(true);
-            table.setRowHeight(25);
-            JScrollPane scrollPane = new JScrollPane(table);
-            scrollPane.setPreferredSize(new Dimension(1000, 400));
-            
-            JOptionPane.showMessageDialog(this, scrollPane, "All Flights", 
-                JOptionPane.INFORMATION_MESSAGE);
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, 
-                "Database error: " + e.getMessage(), 
-                "Error", 
-                JOptionPane.ERROR_MESSAGE);
-        }
+        }, total -> statusLabel.setText(total == 0 ? "No flights found in the system." : total + " flights"));
+        
+        JOptionPane.showMessageDialog(this, tableWithStatus(scrollPane, statusLabel), "All Flights", 
+            JOptionPane.INFORMATION_MESSAGE);
+    }
+    
+    /**
+     * A table with a status line underneath, used while rows are still loading.
+     */
+    private JPanel tableWithStatus(JScrollPane scrollPane, JLabel statusLabel) {
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(statusLabel, BorderLayout.SOUTH);
+        return panel;
     }
     
     private void showAddFlightDialog() {
@@ -490,172 +507,163 @@ public class CustomerGUI extends JFrame {
     }
     
     private void showUpdateFlightDialog() {
-        try {
-            List<FlightRecord> flights = flightDAO.getAllFlights();
-            
-            if (flights.isEmpty()) {
-                JOptionPane.showMessageDialog(this, 
-                    "No flights found to update.", 
-                    "Update Flight", 
-                    JOptionPane.INFORMATION_MESSAGE);
-                return;
-            }
-            
-            // Show flights and let user select
-            String[] flightOptions = new String[flights.size()];
-            for (int i = 0; i < flights.size(); i++) {
-                FlightRecord f = flights.get(i);
-                flightOptions[i] = String.format("ID: %d - %s (%s to %s)", 
-                    f.getFlightId(), f.getFlightNumber(), f.getOrigin(), f.getDestination());
-            }
-            
-            String selected = (String) JOptionPane.showInputDialog(this,
-                "Select flight to update:",
-                "Update Flight",
-                JOptionPane.QUESTION_MESSAGE,
-                null,
-                flightOptions,
-                flightOptions[0]);
-            
-            if (selected == null) return;
-            
-            // Extract flight ID
-            int flightId = Integer.parseInt(selected.substring(4, selected.indexOf(" -")));
-            FlightRecord existing = null;
-            for (FlightRecord f : flights) {
-                if (f.getFlightId() == flightId) {
-                    existing = f;
-                    break;
-                }
-            }
-            
-            if (existing == null) return;
-            
-            final FlightRecord finalExisting = existing;
-            
-            // Show update dialog
-            JDialog dialog = new JDialog(this, "Update Flight", true);
-            dialog.setSize(500, 300);
-            dialog.setLocationRelativeTo(this);
-            dialog.setLayout(new BorderLayout(10, 10));
-            
-            JPanel formPanel = new JPanel(new GridBagLayout());
-            formPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
-            GridBagConstraints gbc = new GridBagConstraints();
-            gbc.insets = new Insets(10, 10, 10, 10);
-            gbc.anchor = GridBagConstraints.WEST;
-            
-            gbc.gridx = 0; gbc.gridy = 0;
-            formPanel.add(new JLabel("Flight Number:"), gbc);
-            JTextField flightNumberField = new JTextField(finalExisting.getFlightNumber(), 20);
-            gbc.gridx = 1;
-            formPanel.add(flightNumberField, gbc);
-            
-            dialog.add(formPanel, BorderLayout.CENTER);
-            
-            JPanel buttonPanel = new JPanel(new FlowLayout());
-            JButton updateBtn = new JButton("Update");
-            JButton cancelBtn = new JButton("Cancel");
-            
-            updateBtn.addActionListener(e -> {
-                try {
-                    FlightRecord updated = new FlightRecord(
-                        finalExisting.getFlightId(),
-                        flightNumberField.getText().trim(),
-                        finalExisting.getAirlineId(),
-                        finalExisting.getAirlineName(),
-                        finalExisting.getOrigin(),
-                        finalExisting.getDestination(),
-                        finalExisting.getDepartureTime(),
-                        finalExisting.getArrivalTime(),
-                        finalExisting.getPrice(),
-                        finalExisting.getAircraftId(),
-                        finalExisting.getAircraftModel()
-                    );
-                    flightDAO.updateFlight(updated);
-                    JOptionPane.showMessageDialog(dialog, "Flight updated successfully!", 
-                        "Success", JOptionPane.INFORMATION_MESSAGE);
-                    dialog.dispose();
-                } catch (SQLException ex) {
-                    JOptionPane.showMessageDialog(dialog, 
-                        "Database error: " + ex.getMessage(), 
-                        "Error", 
-                        JOptionPane.ERROR_MESSAGE);
-                }
-            });
-            
-            cancelBtn.addActionListener(e -> dialog.dispose());
-            buttonPanel.add(updateBtn);
-            buttonPanel.add(cancelBtn);
-            dialog.add(buttonPanel, BorderLayout.SOUTH);
-            dialog.setVisible(true);
-            
-        } catch (SQLException e) {
+        BackgroundLoader.run(this, flightDAO::getAllFlights, this::showUpdateFlightDialog);
+    }
+    
+    private void showUpdateFlightDialog(List<FlightRecord> flights) {
+        if (flights.isEmpty()) {
             JOptionPane.showMessageDialog(this, 
-                "Database error: " + e.getMessage(), 
-                "Error", 
-                JOptionPane.ERROR_MESSAGE);
+                "No flights found to update.", 
+                "Update Flight", 
+                JOptionPane.INFORMATION_MESSAGE);
+            return;
         }
+        
+        // Show flights and let user select
+        String[] flightOptions = new String[flights.size()];
+        for (int i = 0; i < flights.size(); i++) {
+            FlightRecord f = flights.get(i);
+            flightOptions[i] = String.format("ID: %d - %s (%s to %s)", 
+                f.getFlightId(), f.getFlightNumber(), f.getOrigin(), f.getDestination());
+        }
+        
+        String selected = (String) JOptionPane.showInputDialog(this,
+            "Select flight to update:",
+            "Update Flight",
+            JOptionPane.QUESTION_MESSAGE,
+            null,
+            flightOptions,
+            flightOptions[0]);
+        
+        if (selected == null) return;
+        
+        // Extract flight ID
+        int flightId = Integer.parseInt(selected.substring(4, selected.indexOf(" -")));
+        FlightRecord existing = null;
+        for (FlightRecord f : flights) {
+            if (f.getFlightId() == flightId) {
+                existing = f;
+                break;
+            }
+        }
+        
+        if (existing == null) return;
+        
+        final FlightRecord finalExisting = existing;
+        
+        // Show update dialog
+        JDialog dialog = new JDialog(this, "Update Flight", true);
+        dialog.setSize(500, 300);
+        dialog.setLocationRelativeTo(this);
+        dialog.setLayout(new BorderLayout(10, 10));
+        
+        JPanel formPanel = new JPanel(new GridBagLayout());
+        formPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(10, 10, 10, 10);
+        gbc.anchor = GridBagConstraints.WEST;
+        
+        gbc.gridx = 0; gbc.gridy = 0;
+        formPanel.add(new JLabel("Flight Number:"), gbc);
+        JTextField flightNumberField = new JTextField(finalExisting.getFlightNumber(), 20);
+        gbc.gridx = 1;
+        formPanel.add(flightNumberField, gbc);
+        
+        dialog.add(formPanel, BorderLayout.CENTER);
+        
+        JPanel buttonPanel = new JPanel(new FlowLayout());
+        JButton updateBtn = new JButton("Update");
+        JButton cancelBtn = new JButton("Cancel");
+        
+        updateBtn.addActionListener(e -> {
+            try {
+                FlightRecord updated = new FlightRecord(
+                    finalExisting.getFlightId(),
+                    flightNumberField.getText().trim(),
+                    finalExisting.getAirlineId(),
+                    finalExisting.getAirlineName(),
+                    finalExisting.getOrigin(),
+                    finalExisting.getDestination(),
+                    finalExisting.getDepartureTime(),
+                    finalExisting.getArrivalTime(),
+                    finalExisting.getPrice(),
+                    finalExisting.getAircraftId(),
+                    finalExisting.getAircraftModel()
+                );
+                flightDAO.updateFlight(updated);
+                JOptionPane.showMessageDialog(dialog, "Flight updated successfully!", 
+                    "Success", JOptionPane.INFORMATION_MESSAGE);
+                dialog.dispose();
+            } catch (SQLException ex) {
+                JOptionPane.showMessageDialog(dialog, 
+                    "Database error: " + ex.getMessage(), 
+                    "Error", 
+                    JOptionPane.ERROR_MESSAGE);
+            }
+        });
+        
+        cancelBtn.addActionListener(e -> dialog.dispose());
+        buttonPanel.add(updateBtn);
+        buttonPanel.add(cancelBtn);
+        dialog.add(buttonPanel, BorderLayout.SOUTH);
+        dialog.setVisible(true);
     }
     
     private void showDeleteFlightDialog() {
-        try {
-            List<FlightRecord> flights = flightDAO.getAllFlights();
-            
-            if (flights.isEmpty()) {
-                JOptionPane.showMessageDialog(this, 
-                    "No flights found to delete.", 
-                    "Delete Flight", 
-                    JOptionPane.INFORMATION_MESSAGE);
-                return;
-            }
-            
-            String[] flightOptions = new String[flights.size()];
-            for (int i = 0; i < flights.size(); i++) {
-                FlightRecord f = flights.get(i);
-                flightOptions[i] = String.format("ID: %d - %s (%s to %s)", 
-                    f.getFlightId(), f.getFlightNumber(), f.getOrigin(), f.getDestination());
-            }
-            
-            String selected = (String) JOptionPane.showInputDialog(this,
-                "Select flight to delete:",
-                "Delete Flight",
-                JOptionPane.QUESTION_MESSAGE,
-                null,
-                flightOptions,
-                flightOptions[0]);
-            
-            if (selected == null) return;
-            
-            int flightId = Integer.parseInt(selected.substring(4, selected.indexOf(" -")));
-            FlightRecord toDelete = null;
-            for (FlightRecord f : flights) {
-                if (f.getFlightId() == flightId) {
-                    toDelete = f;
-                    break;
-                }
+        BackgroundLoader.run(this, flightDAO::getAllFlights, this::showDeleteFlightDialog);
+    }
+    
+    private void showDeleteFlightDialog(List<FlightRecord> flights) {
+        if (flights.isEmpty()) {
+            JOptionPane.showMessageDialog(this, 
+                "No flights found to delete.", 
+                "Delete Flight", 
+                JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        
+        String[] flightOptions = new String[flights.size()];
+        for (int i = 0; i < flights.size(); i++) {
+            FlightRecord f = flights.get(i);
+            flightOptions[i] = String.format("ID: %d - %s (%s to %s)", 
+                f.getFlightId(), f.getFlightNumber(), f.getOrigin(), f.getDestination());
+        }
+        
+        String selected = (String) JOptionPane.showInputDialog(this,
+            "Select flight to delete:",
+            "Delete Flight",
+            JOptionPane.QUESTION_MESSAGE,
+            null,
+            flightOptions,
+            flightOptions[0]);
+        
+        if (selected == null) return;
+        
+        int flightId = Integer.parseInt(selected.substring(4, selected.indexOf(" -")));
+        FlightRecord toDelete = null;
+        for (FlightRecord f : flights) {
+            if (f.getFlightId() == flightId) {
+                toDelete = f;
+                break;
             }
-            
-            if (toDelete == null) return;
-            
-            int confirm = JOptionPane.showConfirmDialog(this,
-                "Are you sure you want to delete flight " + toDelete.getFlightNumber() + "?",
-                "Confirm Delete",
-                JOptionPane.YES_NO_OPTION,
-                JOptionPane.WARNING_MESSAGE);
-            
-            if (confirm == JOptionPane.YES_OPTION) {
+        }
+        
+        if (toDelete == null) return;
+        
+        int confirm = JOptionPane.showConfirmDialog(this,
+            "Are you sure you want to delete flight " + toDelete.getFlightNumber() + "?",
+            "Confirm Delete",
+            JOptionPane.YES_NO_OPTION,
+            JOptionPane.WARNING_MESSAGE);
+        
+        if (confirm == JOptionPane.YES_OPTION) {
+            BackgroundLoader.run(this, () -> {
                 flightDAO.deleteFlight(flightId);
-                JOptionPane.showMessageDialog(this, 
-                    "Flight deleted successfully!", 
-                    "Success", 
-                    JOptionPane.INFORMATION_MESSAGE);
-            }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, 
-                "Database error: " + e.getMessage(), 
-                "Error", 
-                JOptionPane.ERROR_MESSAGE);
+                return null;
+            }, done -> JOptionPane.showMessageDialog(this, 
+                "Flight deleted successfully!", 
+                "Success", 
+                JOptionPane.INFORMATION_MESSAGE));
         }
     }
     
@@ -740,202 +748,198 @@ public class CustomerGUI extends JFrame {
     }
     
     private void showAllBookings() {
-        try {
-            List<BookingDAO.BookingRecord> bookings = bookingDAO.getAllBookings();
-            
-            if (bookings.isEmpty()) {
-                JOptionPane.showMessageDialog(this, 
-                    "No bookings found.", 
-                    "Bookings", 
-                    JOptionPane.INFORMATION_MESSAGE);
-                return;
+        // Create a table to display bookings
+        PagedTableModel<BookingDAO.BookingRecord> model = new PagedTableModel<BookingDAO.BookingRecord>(this)
+            .addColumn("Booking ID", BookingDAO.BookingRecord::getBookingId, "bookingID")
+            .addColumn("Flight ID", BookingDAO.BookingRecord::getFlightId, "flightID")
+            .addColumn("Passenger Name", BookingDAO.BookingRecord::getPassengerName, "passengerName")
+            .addColumn("Email", BookingDAO.BookingRecord::getPassengerEmail, "passengerEmail")
+            .addColumn("Booking Time", BookingDAO.BookingRecord::getBookingTime, "bookingTime",
+                new SimpleDateFormat("yyyy-MM-dd HH:mm"))
+            .addColumn("Status", BookingDAO.BookingRecord::getStatus, "status");
+        
+        JTable table = new JTable(model);
+        PagedTableModel.install(table);
+        table.setFillsViewportHeight(true);
+        table.setRowHeight(25);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(900, 400));
+        JLabel statusLabel = new JLabel("Loading bookings...");
+        
+        model.load(new PagedTableModel.RowSource<BookingDAO.BookingRecord>() {
+            @Override
+            public int count() throws SQLException {
+                return bookingDAO.countBookings();
             }
             
-            // Create a table to display bookings
-            String[] columnNames = {"Booking ID", "Flight ID", "Passenger Name", "Email", 
-                                   "Booking Time", "Status"};
-            DefaultTableModel model = new DefaultTableModel(columnNames, 0);
-            
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-            
-            for (BookingDAO.BookingRecord b : bookings) {
-                Object[] row = {
-                    b.getBookingId(),
-                    b.getFlightId(),
-                    b.getPassengerName(),
-                    b.getPassengerEmail(),
-                    dateFormat.format(b.getBookingTime()),
-                    b.getStatus()
-                };
-                model.addRow(row);
+            @Override
+            public List<BookingDAO.BookingRecord> fetch(int offset, int limit, String sortKey, boolean ascending)
+                    throws SQLException {
+                return bookingDAO.getBookingsPage(offset, limit, sortKey, ascending);
             }
-            
-            JTable table = new JTable(model);
-            table.setFillsViewportHeight(true);
-            table.setRowHeight(25);
-            JScrollPane scrollPane = new JScrollPane(table);
-            scrollPane.setPreferredSize(new Dimension(900, 400));
-            
-            JOptionPane.showMessageDialog(this, scrollPane, "All Bookings", 
-                JOptionPane.INFORMATION_MESSAGE);
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, 
-                "Database error: " + e.getMessage(), 
-                "Error", 
-                JOptionPane.ERROR_MESSAGE);
-        }
+        }, total -> statusLabel.setText(total == 0 ? "No bookings found." : total + " bookings"));
+        
+        JOptionPane.showMessageDialog(this, tableWithStatus(scrollPane, statusLabel), "All Bookings", 
+            JOptionPane.INFORMATION_MESSAGE);
+    }
+    
+    /**
+     * Streams every booking in bookingID order, keeping a running count in the status label.
+     */
+    private BackgroundLoader.Load streamBookings(JLabel statusLabel,
+                                                 Consumer<List<BookingDAO.BookingRecord>> addRows) {
+        int[] loaded = {0};
+        return BackgroundLoader.<BookingDAO.BookingRecord>stream(this, BookingDAO.DEFAULT_PAGE_SIZE,
+            last -> bookingDAO.getBookingsPage(last == null ? 0 : last.getBookingId(), BookingDAO.DEFAULT_PAGE_SIZE),
+            page -> {
+                addRows.accept(page);
+                loaded[0] += page.size();
+                statusLabel.setText("Loading bookings... " + loaded[0] + " loaded");
+            },
+            total -> statusLabel.setText(total == 0 ? "No bookings found." : total + " bookings"));
     }
     
     private void showModifyBookingDialog() {
-        try {
-            List<BookingDAO.BookingRecord> bookings = bookingDAO.getAllBookings();
-            
-            if (bookings.isEmpty()) {
-                JOptionPane.showMessageDialog(this, 
-                    "No bookings found to modify.", 
-                    "Modify Booking", 
-                    JOptionPane.INFORMATION_MESSAGE);
-                return;
-            }
-            
-            // Show bookings and let user select
-            String[] bookingOptions = new String[bookings.size()];
-            for (int i = 0; i < bookings.size(); i++) {
-                BookingDAO.BookingRecord b = bookings.get(i);
-                bookingOptions[i] = String.format("ID: %d - %s (%s) - %s", 
-                    b.getBookingId(), b.getPassengerName(), b.getPassengerEmail(), b.getStatus());
+        BackgroundLoader.run(this, bookingDAO::getAllBookings, this::showModifyBookingDialog);
+    }
+    
+    private void showModifyBookingDialog(List<BookingDAO.BookingRecord> bookings) {
+        if (bookings.isEmpty()) {
+            JOptionPane.showMessageDialog(this, 
+                "No bookings found to modify.", 
+                "Modify Booking", 
+                JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        
+        // Show bookings and let user select
+        String[] bookingOptions = new String[bookings.size()];
+        for (int i = 0; i < bookings.size(); i++) {
+            BookingDAO.BookingRecord b = bookings.get(i);
+            bookingOptions[i] = String.format("ID: %d - %s (%s) - %s", 
+                b.getBookingId(), b.getPassengerName(), b.getPassengerEmail(), b.getStatus());
+        }
+        
+        String selected = (String) JOptionPane.showInputDialog(this,
+            "Select booking to modify:",
+            "Modify Booking",
+            JOptionPane.QUESTION_MESSAGE,
+            null,
+            bookingOptions,
+            bookingOptions[0]);
+        
+        if (selected == null) return;
+        
+        // Extract booking ID
+        int bookingId = Integer.parseInt(selected.substring(4, selected.indexOf(" -")));
+        BookingDAO.BookingRecord existing = null;
+        for (BookingDAO.BookingRecord b : bookings) {
+            if (b.getBookingId() == bookingId) {
+                existing = b;
+                break;
             }
-            
-            String selected = (String) JOptionPane.showInputDialog(this,
-                "Select booking to modify:",
-                "Modify Booking",
-                JOptionPane.QUESTION_MESSAGE,
-                null,
-                bookingOptions,
-                bookingOptions[0]);
-            
-            if (selected == null) return;
-            
-            // Extract booking ID
-            int bookingId = Integer.parseInt(selected.substring(4, selected.indexOf(" -")));
-            BookingDAO.BookingRecord existing = null;
-            for (BookingDAO.BookingRecord b : bookings) {
-                if (b.getBookingId() == bookingId) {
-                    existing = b;
-                    break;
+        }
+        
+        if (existing == null) return;
+        
+        // Show modify dialog
+        JDialog dialog = new JDialog(this, "Modify Booking", true);
+        dialog.setSize(500, 350);
+        dialog.setLocationRelativeTo(this);
+        dialog.setLayout(new BorderLayout(10, 10));
+        
+        JPanel formPanel = new JPanel(new GridBagLayout());
+        formPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(10, 10, 10, 10);
+        gbc.anchor = GridBagConstraints.WEST;
+        
+        // Passenger Name
+        gbc.gridx = 0; gbc.gridy = 0;
+        formPanel.add(new JLabel("Passenger Name:"), gbc);
+        JTextField nameField = new JTextField(existing.getPassengerName(), 20);
+        gbc.gridx = 1;
+        formPanel.add(nameField, gbc);
+        
+        // Passenger Email
+        gbc.gridx = 0; gbc.gridy = 1;
+        formPanel.add(new JLabel("Passenger Email:"), gbc);
+        JTextField emailField = new JTextField(existing.getPassengerEmail(), 20);
+        gbc.gridx = 1;
+        formPanel.add(emailField, gbc);
+        
+        // Status
+        gbc.gridx = 0; gbc.gridy = 2;
+        formPanel.add(new JLabel("Status:"), gbc);
+        JComboBox<String> statusCombo = new JComboBox<>(new String[]{"CONFIRMED", "CANCELLED", "MODIFIED"});
+        statusCombo.setSelectedItem(existing.getStatus());
+        gbc.gridx = 1;
+        formPanel.add(statusCombo, gbc);
+        
+        dialog.add(formPanel, BorderLayout.CENTER);
+        
+        JPanel buttonPanel = new JPanel(new FlowLayout());
+        JButton updateBtn = new JButton("Update");
+        JButton cancelBtn = new JButton("Cancel");
+        
+        final BookingDAO.BookingRecord finalExisting = existing;
+        updateBtn.addActionListener(e -> {
+            try {
+                String name = nameField.getText().trim();
+                String email = emailField.getText().trim();
+                String status = (String) statusCombo.getSelectedItem();
+                
+                if (name.isEmpty() || email.isEmpty()) {
+                    JOptionPane.showMessageDialog(dialog, 
+                        "Name and email are required.", 
+                        "Validation Error", 
+                        JOptionPane.ERROR_MESSAGE);
+                    return;
                 }
-            }
-            
-            if (existing == null) return;
-            
-            // Show modify dialog
-            JDialog dialog = new JDialog(this, "Modify Booking", true);
-            dialog.setSize(500, 350);
-            dialog.setLocationRelativeTo(this);
-            dialog.setLayout(new BorderLayout(10, 10));
-            
-            JPanel formPanel = new JPanel(new GridBagLayout());
-            formPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
-            GridBagConstraints gbc = new GridBagConstraints();
-            gbc.insets = new Insets(10, 10, 10, 10);
-            gbc.anchor = GridBagConstraints.WEST;
-            
-            // Passenger Name
-            gbc.gridx = 0; gbc.gridy = 0;
-            formPanel.add(new JLabel("Passenger Name:"), gbc);
-            JTextField nameField = new JTextField(existing.getPassengerName(), 20);
-            gbc.gridx = 1;
-            formPanel.add(nameField, gbc);
-            
-            // Passenger Email
-            gbc.gridx = 0; gbc.gridy = 1;
-            formPanel.add(new JLabel("Passenger Email:"), gbc);
-            JTextField emailField = new JTextField(existing.getPassengerEmail(), 20);
-            gbc.gridx = 1;
-            formPanel.add(emailField, gbc);
-            
-            // Status
-            gbc.gridx = 0; gbc.gridy = 2;
-            formPanel.add(new JLabel("Status:"), gbc);
-            JComboBox<String> statusCombo = new JComboBox<>(new String[]{"CONFIRMED", "CANCELLED", "MODIFIED"});
-            statusCombo.setSelectedItem(existing.getStatus());
-            gbc.gridx = 1;
-            formPanel.add(statusCombo, gbc);
-            
-            dialog.add(formPanel, BorderLayout.CENTER);
-            
-            JPanel buttonPanel = new JPanel(new FlowLayout());
-            JButton updateBtn = new JButton("Update");
-            JButton cancelBtn = new JButton("Cancel");
-            
-            final BookingDAO.BookingRecord finalExisting = existing;
-            updateBtn.addActionListener(e -> {
-                try {
-                    String name = nameField.getText().trim();
-                    String email = emailField.getText().trim();
-                    String status = (String) statusCombo.getSelectedItem();
-                    
-                    if (name.isEmpty() || email.isEmpty()) {
-                        JOptionPane.showMessageDialog(dialog, 
-                            "Name and email are required.", 
-                            "Validation Error", 
-                            JOptionPane.ERROR_MESSAGE);
-                        return;
-                    }
-                    
-                    if (!email.contains("@")) {
-                        JOptionPane.showMessageDialog(dialog, 
-                            "Please enter a valid email address.", 
-                            "Validation Error", 
-                            JOptionPane.ERROR_MESSAGE);
-                        return;
-                    }
-                    
-                    bookingDAO.updateBookingDetails(finalExisting.getBookingId(), finalExisting.getFlightId(), name, email);
-                    bookingDAO.updateBookingStatus(finalExisting.getBookingId(), status);
-                    
-                    JOptionPane.showMessageDialog(dialog, "Booking updated successfully!", 
-                        "Success", JOptionPane.INFORMATION_MESSAGE);
-                    dialog.dispose();
-                } catch (SQLException ex) {
+                
+                if (!email.contains("@")) {
                     JOptionPane.showMessageDialog(dialog, 
-                        "Database error: " + ex.getMessage(), 
-                        "Error", 
+                        "Please enter a valid email address.", 
+                        "Validation Error", 
                         JOptionPane.ERROR_MESSAGE);
+                    return;
                 }
-            });
-            
-            cancelBtn.addActionListener(e -> dialog.dispose());
-            buttonPanel.add(updateBtn);
-            buttonPanel.add(cancelBtn);
-            dialog.add(buttonPanel, BorderLayout.SOUTH);
-            dialog.setVisible(true);
-            
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, 
-                "Database error: " + e.getMessage(), 
-                "Error", 
-                JOptionPane.ERROR_MESSAGE);
-        }
+                
+                bookingDAO.updateBookingDetails(finalExisting.getBookingId(), finalExisting.getFlightId(), name, email);
+                bookingDAO.updateBookingStatus(finalExisting.getBookingId(), status);
+                
+                JOptionPane.showMessageDialog(dialog, "Booking updated successfully!", 
+                    "Success", JOptionPane.INFORMATION_MESSAGE);
+                dialog.dispose();
+            } catch (SQLException ex) {
+                JOptionPane.showMessageDialog(dialog, 
+                    "Database error: " + ex.getMessage(), 
+                    "Error", 
+                    JOptionPane.ERROR_MESSAGE);
+            }
+        });
+        
+        cancelBtn.addActionListener(e -> dialog.dispose());
+        buttonPanel.add(updateBtn);
+        buttonPanel.add(cancelBtn);
+        dialog.add(buttonPanel, BorderLayout.SOUTH);
+        dialog.setVisible(true);
     }
     
     private void showManageCustomersDialog() {
-        try {
-            List<BookingDAO.BookingRecord> bookings = bookingDAO.getAllBookings();
-            
-            if (bookings.isEmpty()) {
-                JOptionPane.showMessageDialog(this, 
-                    "No customer data found.", 
-                    "Manage Customers", 
-                    JOptionPane.INFORMATION_MESSAGE);
-                return;
-            }
-            
-            // Create a table with customer data
-            String[] columnNames = {"Booking ID", "Customer Name", "Email", "Flight ID", "Status"};
-            DefaultTableModel model = new DefaultTableModel(columnNames, 0);
-            
-            for (BookingDAO.BookingRecord b : bookings) {
+        // Create a table with customer data
+        String[] columnNames = {"Booking ID", "Customer Name", "Email", "Flight ID", "Status"};
+        DefaultTableModel model = new DefaultTableModel(columnNames, 0);
+        
+        JTable table = new JTable(model);
+        table.setFillsViewportHeight(true);
+        table.setRowHeight(25);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(800, 400));
+        JLabel statusLabel = new JLabel("Loading customer data...");
+        
+        BackgroundLoader.Load load = streamBookings(statusLabel, page -> {
+            for (BookingDAO.BookingRecord b : page) {
                 Object[] row = {
                     b.getBookingId(),
                     b.getPassengerName(),
@@ -945,21 +949,11 @@ public class CustomerGUI extends JFrame {
                 };
                 model.addRow(row);
             }
-            
-            JTable table = new JTable(model);
-            table.setFillsViewportHeight(true);
-            table.setRowHeight(25);
-            JScrollPane scrollPane = new JScrollPane(table);
-            scrollPane.setPreferredSize(new Dimension(800, 400));
-            
-            JOptionPane.showMessageDialog(this, scrollPane, "Customer Data", 
-                JOptionPane.INFORMATION_MESSAGE);
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, 
-                "Database error: " + e.getMessage(), 
-                "Error", 
-                JOptionPane.ERROR_MESSAGE);
-        }
+        });
+        
+        JOptionPane.showMessageDialog(this, tableWithStatus(scrollPane, statusLabel), "Customer Data", 
+            JOptionPane.INFORMATION_MESSAGE);
+        load.cancel();
     }
     
     // Customer features
@@ -1040,6 +1034,18 @@ public class CustomerGUI extends JFrame {
                 return;
             }
             
+            if (!date.isEmpty()) {
+                try {
+                    LocalDate.parse(date);
+                } catch (DateTimeParseException ex) {
+                    JOptionPane.showMessageDialog(dialog, 
+                        "Date must be in YYYY-MM-DD format if provided.", 
+                        "Validation Error", 
+                        JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+            }
+            
             dialog.dispose();
             searchFlights(origin, destination, date, airline);
         });
@@ -1052,49 +1058,38 @@ public class CustomerGUI extends JFrame {
     }
     
     private void searchFlights(String origin, String destination, String date, String airline) {
-        try {
-            List<FlightRecord> allFlights = flightDAO.getAllFlights();
-            List<FlightRecord> matchingFlights = new ArrayList<>();
-            
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-            
-            for (FlightRecord f : allFlights) {
-                boolean matches = true;
-                
-                // Filter by origin if provided
-                if (!origin.isEmpty() && !f.getOrigin().equals(origin)) {
-                    matches = false;
-                }
-                
-                // Filter by destination if provided
-                if (!destination.isEmpty() && !f.getDestination().equals(destination)) {
-                    matches = false;
-                }
-                
-                // Filter by date if provided
-                if (!date.isEmpty()) {
-                    String flightDate = dateFormat.format(f.getDepartureTime());
-                    if (!flightDate.equals(date)) {
-                        matches = false;
-                    }
-                }
-                
-                // Filter by airline if provided
-                if (!airline.isEmpty() && !f.getAirlineName().toLowerCase().contains(airline.toLowerCase())) {
-                    matches = false;
-                }
-                
-                if (matches) {
-                    matchingFlights.add(f);
-                }
-            }
-            
+        LocalDate departureDate = date.isEmpty() ? null : LocalDate.parse(date);
+        // Fares of the listed flights, quoted in the background with each page
+        Map<Integer, PricingEngine.Quote> fares = new ConcurrentHashMap<>();
+        BackgroundLoader.run(this,
+            () -> quoted(flightDAO.searchFlights(origin, destination, departureDate, airline,
+                null, FlightManagementDAO.DEFAULT_PAGE_SIZE), fares),
+            firstPage -> showSearchResults(origin, destination, date, departureDate, airline,
+                new ArrayList<>(firstPage), fares));
+    }
+    
+    /**
+     * Adds the current PricingEngine quote of each flight to fares, so the listed
+     * price is the one the booking dialog will charge.
+     */
+    private static List<FlightRecord> quoted(List<FlightRecord> flights, Map<Integer, PricingEngine.Quote> fares)
+            throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        for (FlightRecord f : flights) ids.add(f.getFlightId());
+        fares.putAll(PricingEngine.getInstance().getQuotes(ids));
+        return flights;
+    }
+    
+    private void showSearchResults(String origin, String destination, String date, LocalDate departureDate,
+                                   String airline, List<FlightRecord> matchingFlights,
+                                   Map<Integer, PricingEngine.Quote> fares) {
+        {
             if (matchingFlights.isEmpty()) {
-                JOptionPane.showMessageDialog(this, 
-                    "No flights found for " + origin + " to " + destination + 
-                    (date.isEmpty() ? "" : " on " + date) + ".", 
-                    "Search Results", 
-                    JOptionPane.INFORMATION_MESSAGE);
+                if (!origin.isEmpty() && !destination.isEmpty()) {
+                    searchConnections(origin, destination, date, departureDate);
+                    return;
+                }
+                showNoFlightsFound(origin, destination, date);
                 return;
             }
             
@@ -1109,21 +1104,7 @@ public class CustomerGUI extends JFrame {
             };
             
             SimpleDateFormat dateTimeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-            
-            for (FlightRecord f : matchingFlights) {
-                Object[] row = {
-                    f.getFlightId(),
-                    f.getFlightNumber(),
-                    f.getAirlineName(),
-                    f.getOrigin(),
-                    f.getDestination(),
-                    dateTimeFormat.format(f.getDepartureTime()),
-                    dateTimeFormat.format(f.getArrivalTime()),
-                    String.format("$%.2f", f.getPrice()),
-                    "Book"
-                };
-                model.addRow(row);
-            }
+            addFlightRows(model, matchingFlights, fares, dateTimeFormat);
             
             JTable table = new JTable(model);
             table.setRowHeight(25);
@@ -1133,20 +1114,162 @@ public class CustomerGUI extends JFrame {
             JScrollPane scrollPane = new JScrollPane(table);
             scrollPane.setPreferredSize(new Dimension(1000, 400));
             
+            // Fetch the next page when the user scrolls near the bottom
+            loadMoreOnScroll(scrollPane, table, matchingFlights, FlightManagementDAO.DEFAULT_PAGE_SIZE,
+                last -> quoted(flightDAO.searchFlights(origin, destination, departureDate,
+                    airline, last, FlightManagementDAO.DEFAULT_PAGE_SIZE), fares),
+                page -> addFlightRows(model, page, fares, dateTimeFormat));
+            
             String title = "Search Results";
             if (!origin.isEmpty() || !destination.isEmpty()) {
                 title += ": " + (origin.isEmpty() ? "Any" : origin) + " to " + (destination.isEmpty() ? "Any" : destination);
             }
             JOptionPane.showMessageDialog(this, scrollPane, title, 
                 JOptionPane.INFORMATION_MESSAGE);
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, 
-                "Database error: " + e.getMessage(), 
-                "Error", 
-                JOptionPane.ERROR_MESSAGE);
         }
     }
     
+    private void showNoFlightsFound(String origin, String destination, String date) {
+        JOptionPane.showMessageDialog(this, 
+            "No flights found for " + origin + " to " + destination + 
+            (date.isEmpty() ? "" : " on " + date) + ".", 
+            "Search Results", 
+            JOptionPane.INFORMATION_MESSAGE);
+    }
+    
+    /**
+     * No direct flight: look for itineraries with connections departing on the
+     * chosen day (or in the next 24 hours when no date was given).
+     */
+    private void searchConnections(String origin, String destination, String date, LocalDate departureDate) {
+        Timestamp from = departureDate != null
+            ? Timestamp.valueOf(departureDate.atStartOfDay())
+            : new Timestamp(System.currentTimeMillis());
+        Timestamp to = new Timestamp(from.getTime() + 24 * 60 * 60_000L);
+        Map<Integer, PricingEngine.Quote> fares = new ConcurrentHashMap<>();
+        BackgroundLoader.run(this,
+            () -> {
+                List<RouteGraph.Itinerary> itineraries = RouteGraph.getInstance().search(origin, destination,
+                    from, to, RouteGraph.Objective.EARLIEST_ARRIVAL, 20);
+                for (RouteGraph.Itinerary it : itineraries) {
+                    quoted(it.getLegs(), fares);
+                }
+                return itineraries;
+            },
+            itineraries -> {
+                if (itineraries.isEmpty()) {
+                    showNoFlightsFound(origin, destination, date);
+                } else {
+                    showConnections(origin, destination, itineraries, fares);
+                }
+            });
+    }
+    
+    /**
+     * One header row per itinerary followed by its legs; each leg is booked on its own.
+     */
+    private void showConnections(String origin, String destination, List<RouteGraph.Itinerary> itineraries,
+                                 Map<Integer, PricingEngine.Quote> fares) {
+        String[] columnNames = {"ID", "Flight #", "Airline", "Origin", "Destination", 
+                               "Departure", "Arrival", "Price", "Action"};
+        DefaultTableModel model = new DefaultTableModel(columnNames, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return column == 8 && !"".equals(getValueAt(row, column));
+            }
+        };
+        
+        SimpleDateFormat dateTimeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        // Row-aligned with the table; null for the itinerary header rows
+        List<FlightRecord> rowFlights = new ArrayList<>();
+        int option = 1;
+        for (RouteGraph.Itinerary it : itineraries) {
+            long hours = it.getDurationMinutes() / 60;
+            long minutes = it.getDurationMinutes() % 60;
+            double totalFare = 0;
+            for (FlightRecord leg : it.getLegs()) {
+                totalFare += fareOf(leg, fares);
+            }
+            model.addRow(new Object[] {
+                "", "Option " + option++,
+                it.getStops() + (it.getStops() == 1 ? " stop" : " stops") + ", " + hours + "h " + minutes + "m",
+                "", "", dateTimeFormat.format(it.getDepartureTime()), dateTimeFormat.format(it.getArrivalTime()),
+                String.format("$%.2f", totalFare), ""
+            });
+            rowFlights.add(null);
+            addFlightRows(model, it.getLegs(), fares, dateTimeFormat);
+            rowFlights.addAll(it.getLegs());
+        }
+        
+        JTable table = new JTable(model);
+        table.setRowHeight(25);
+        table.getColumn("Action").setCellRenderer(new ButtonRenderer());
+        table.getColumn("Action").setCellEditor(new ButtonEditor(new JCheckBox(), rowFlights));
+        
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(1000, 400));
+        JOptionPane.showMessageDialog(this, scrollPane,
+            "No direct flights: connections from " + origin + " to " + destination,
+            JOptionPane.INFORMATION_MESSAGE);
+    }
+    
+    /**
+     * Fetches another page in the background whenever the table is scrolled close to its end.
+     * @param loaded rows shown so far; the last one is the cursor for the next page
+     */
+    private <T> void loadMoreOnScroll(JScrollPane scrollPane, JTable table, List<T> loaded, int pageSize,
+                                      BackgroundLoader.PageQuery<T> query, Consumer<List<T>> addRows) {
+        final boolean[] exhausted = {loaded.size() < pageSize};
+        final boolean[] loading = {false};
+        scrollPane.getVerticalScrollBar().addAdjustmentListener(e -> {
+            JScrollBar bar = (JScrollBar) e.getAdjustable();
+            if (exhausted[0] || loading[0] || e.getValueIsAdjusting()
+                    || bar.getValue() + bar.getVisibleAmount() < bar.getMaximum() - table.getRowHeight() * 5) {
+                return;
+            }
+            loading[0] = true;
+            T last = loaded.get(loaded.size() - 1);
+            BackgroundLoader.run(scrollPane, BackgroundLoader.DEFAULT_TIMEOUT_MILLIS, () -> query.nextPage(last),
+                page -> {
+                    loading[0] = false;
+                    exhausted[0] = page.size() < pageSize;
+                    loaded.addAll(page);
+                    addRows.accept(page);
+                },
+                ex -> {
+                    loading[0] = false;
+                    exhausted[0] = true;
+                    System.err.println("Error loading next page: " + ex.getMessage());
+                });
+        });
+    }
+    
+    private void addFlightRows(DefaultTableModel model, List<FlightRecord> flights,
+                               Map<Integer, PricingEngine.Quote> fares, SimpleDateFormat dateTimeFormat) {
+        for (FlightRecord f : flights) {
+            Object[] row = {
+                f.getFlightId(),
+                f.getFlightNumber(),
+                f.getAirlineName(),
+                f.getOrigin(),
+                f.getDestination(),
+                dateTimeFormat.format(f.getDepartureTime()),
+                dateTimeFormat.format(f.getArrivalTime()),
+                String.format("$%.2f", fareOf(f, fares)),
+                "Book"
+            };
+            model.addRow(row);
+        }
+    }
+    
+    /**
+     * @return the quoted fare, or the base fare if the flight could not be quoted
+     */
+    private static double fareOf(FlightRecord flight, Map<Integer, PricingEngine.Quote> fares) {
+        PricingEngine.Quote quote = fares.get(flight.getFlightId());
+        return quote != null ? quote.getPrice() : flight.getPrice();
+    }
+    
     private void showCustomerBookings() {
         JDialog emailDialog = new JDialog(this, "View My Bookings", true);
         emailDialog.setSize(550, 180);
@@ -1200,16 +1323,13 @@ public class CustomerGUI extends JFrame {
     }
     
     private void displayCustomerBookings(String email) {
-        try {
-            List<BookingDAO.BookingRecord> allBookings = bookingDAO.getAllBookings();
-            List<BookingDAO.BookingRecord> customerBookings = new ArrayList<>();
-            
-            for (BookingDAO.BookingRecord b : allBookings) {
-                if (b.getPassengerEmail().equalsIgnoreCase(email)) {
-                    customerBookings.add(b);
-                }
-            }
-            
+        BackgroundLoader.run(this,
+            () -> bookingDAO.findByEmail(email, 0, BookingDAO.DEFAULT_PAGE_SIZE),
+            firstPage -> displayCustomerBookings(email, new ArrayList<>(firstPage)));
+    }
+    
+    private void displayCustomerBookings(String email, List<BookingDAO.BookingRecord> customerBookings) {
+        {
             if (customerBookings.isEmpty()) {
                 JOptionPane.showMessageDialog(this, 
                     "No bookings found for " + email + ".", 
@@ -1229,18 +1349,7 @@ public class CustomerGUI extends JFrame {
             };
             
             SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-            
-            for (BookingDAO.BookingRecord b : customerBookings) {
-                Object[] row = {
-                    b.getBookingId(),
-                    b.getFlightId(),
-                    b.getPassengerName(),
-                    dateFormat.format(b.getBookingTime()),
-                    b.getStatus(),
-                    "Manage"
-                };
-                model.addRow(row);
-            }
+            addCustomerBookingRows(model, customerBookings, dateFormat);
             
             JTable table = new JTable(model);
             table.setRowHeight(25);
@@ -1250,13 +1359,28 @@ public class CustomerGUI extends JFrame {
             JScrollPane scrollPane = new JScrollPane(table);
             scrollPane.setPreferredSize(new Dimension(900, 400));
             
+            // Frequent flyers: page through the rest of their bookings on scroll
+            loadMoreOnScroll(scrollPane, table, customerBookings, BookingDAO.DEFAULT_PAGE_SIZE,
+                last -> bookingDAO.findByEmail(email, last.getBookingId(), BookingDAO.DEFAULT_PAGE_SIZE),
+                page -> addCustomerBookingRows(model, page, dateFormat));
+            
             JOptionPane.showMessageDialog(this, scrollPane, "My Bookings", 
                 JOptionPane.INFORMATION_MESSAGE);
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, 
-                "Database error: " + e.getMessage(), 
-                "Error", 
-                JOptionPane.ERROR_MESSAGE);
+        }
+    }
+    
+    private void addCustomerBookingRows(DefaultTableModel model, List<BookingDAO.BookingRecord> bookings,
+                                        SimpleDateFormat dateFormat) {
+        for (BookingDAO.BookingRecord b : bookings) {
+            Object[] row = {
+                b.getBookingId(),
+                b.getFlightId(),
+                b.getPassengerName(),
+                dateFormat.format(b.getBookingTime()),
+                b.getStatus(),
+                "Manage"
+            };
+            model.addRow(row);
         }
     }
     
@@ -1287,7 +1411,7 @@ public class CustomerGUI extends JFrame {
             button.setOpaque(true);
             button.addActionListener(e -> {
                 if (isPushed) {
-                    if (currentRow >= 0 && currentRow < flights.size()) {
+                    if (currentRow >= 0 && currentRow < flights.size() && flights.get(currentRow) != null) {
                         FlightRecord flight = flights.get(currentRow);
                         showBookingDialog(flight);
                     }
@@ -1359,7 +1483,36 @@ public class CustomerGUI extends JFrame {
         }
     }
     
+    /** The fare quoted when the booking dialog opens, and the seats booked at that time. */
+    private static class BookingOffer {
+        final PricingEngine.Quote quote;
+        final SeatBitmap bookedSeats;
+        
+        BookingOffer(PricingEngine.Quote quote, SeatBitmap bookedSeats) {
+            this.quote = quote;
+            this.bookedSeats = bookedSeats;
+        }
+    }
+    
     private void showBookingDialog(FlightRecord flight) {
+        // The fare comes from the pricing engine and the booked seats from the shared
+        // seat cache; either may need a database round trip
+        BackgroundLoader.run(this, () -> {
+            PricingEngine.Quote quote = PricingEngine.getInstance().getQuote(flight.getFlightId());
+            SeatBitmap bookedSeats = null;
+            try {
+                bookedSeats = SeatAvailabilityCache.getInstance().getSeatMap(flight.getFlightId());
+            } catch (SQLException e) {
+                System.err.println("Error loading booked seats: " + e.getMessage());
+            }
+            return new BookingOffer(quote, bookedSeats);
+        }, offer -> showBookingDialog(flight, offer.quote, offer.bookedSeats));
+    }
+    
+    private void showBookingDialog(FlightRecord flight, PricingEngine.Quote quote, SeatBitmap bookedSeats) {
+        // The customer pays the fare shown here, even if it changes while the dialog is open
+        double price = quote.getPrice();
+        String fareClass = quote.getBucket() != null ? " (" + quote.getBucket().getName() + ")" : "";
         JDialog dialog = new JDialog(this, "Book Flight", true);
         dialog.setSize(650, 750);
         dialog.setLocationRelativeTo(this);
@@ -1378,7 +1531,7 @@ public class CustomerGUI extends JFrame {
         gbc.gridx = 0; gbc.gridy = 0; gbc.gridwidth = 2;
         topPanel.add(new JLabel("<html><b>Flight: " + flight.getFlightNumber() + 
             " (" + flight.getOrigin() + " to " + flight.getDestination() + ")</b><br>" +
-            "Price: <b>$" + String.format("%.2f", flight.getPrice()) + "</b></html>"), gbc);
+            "Price: <b>$" + String.format("%.2f", price) + "</b>" + fareClass + "</html>"), gbc);
         gbc.gridwidth = 1;
         
         // Passenger Name
@@ -1401,59 +1554,56 @@ public class CustomerGUI extends JFrame {
         JPanel seatPanel = new JPanel(new BorderLayout());
         seatPanel.setBorder(BorderFactory.createTitledBorder("Select Seat (Green = Available, Red = Booked)"));
         
-        JPanel seatGrid = new JPanel(new GridLayout(4, 5, 5, 5));
-        seatGrid.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-        
-        // Get booked seats for this flight
-        java.util.Set<Integer> bookedSeats = new java.util.HashSet<>();
-        try {
-            String sql = "SELECT seatNumber FROM Bookings WHERE flightID = ? AND status != 'CANCELLED' AND seatNumber IS NOT NULL";
-            try (Connection conn = database.DatabaseConnectivity.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setInt(1, flight.getFlightId());
-                try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        bookedSeats.add(rs.getInt("seatNumber"));
-                    }
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("Error loading booked seats: " + e.getMessage());
+        // Seats held by other customers are reported when clicked
+        if (bookedSeats == null) {
+            bookedSeats = new SeatBitmap(DEFAULT_SEAT_COUNT);
         }
+        SeatMapPanel seatMap = new SeatMapPanel(
+            CabinLayout.forAircraft(flight.getAircraftModel(), bookedSeats.getCapacity()), bookedSeats);
         
-        JButton[] seatButtons = new JButton[20];
         final int[] selectedSeat = {0}; // Use array to make it effectively final
+        final SeatHold[] seatHold = {null}; // Hold on the selected seat while the customer pays
         
-        for (int i = 1; i <= 20; i++) {
-            final int seatNum = i;
-            JButton seatBtn = new JButton(String.valueOf(seatNum));
-            seatBtn.setPreferredSize(new Dimension(50, 50));
+        seatMap.addSeatSelectionListener(seatNum -> {
+            if (selectedSeat[0] == seatNum) return;
             
-            if (bookedSeats.contains(seatNum)) {
-                seatBtn.setBackground(Color.RED);
-                seatBtn.setEnabled(false);
-                seatBtn.setToolTipText("Seat " + seatNum + " - Booked");
-            } else {
-                seatBtn.setBackground(Color.GREEN);
-                seatBtn.setEnabled(true);
-                seatBtn.setToolTipText("Seat " + seatNum + " - Available");
-                
-                seatBtn.addActionListener(e -> {
-                    // Reset previous selection
-                    if (selectedSeat[0] > 0 && !bookedSeats.contains(selectedSeat[0])) {
-                        seatButtons[selectedSeat[0] - 1].setBackground(Color.GREEN);
-                    }
-                    // Highlight selected seat
-                    selectedSeat[0] = seatNum;
-                    seatBtn.setBackground(new Color(0, 150, 0)); // Darker green for selected
-                });
+            // Hold the new seat before giving up the old one
+            SeatHold newHold;
+            try {
+                newHold = seatInventoryDAO.placeHold(flight.getFlightId(), seatNum,
+                    SeatInventoryDAO.DEFAULT_HOLD_SECONDS);
+            } catch (SeatUnavailableException ex) {
+                seatMap.markUnavailable(seatNum);
+                JOptionPane.showMessageDialog(dialog, 
+                    "Seat " + seatMap.seatLabel(seatNum) + " was just taken. Please choose another seat.", 
+                    "Seat Unavailable", 
+                    JOptionPane.WARNING_MESSAGE);
+                return;
+            } catch (SQLException ex) {
+                JOptionPane.showMessageDialog(dialog, 
+                    "Database error: " + ex.getMessage(), 
+                    "Error", 
+                    JOptionPane.ERROR_MESSAGE);
+                return;
             }
-            
-            seatButtons[i - 1] = seatBtn;
-            seatGrid.add(seatBtn);
-        }
+            releaseSeatHold(seatHold[0]);
+            seatHold[0] = newHold;
+            selectedSeat[0] = seatNum;
+            seatMap.setSelectedSeat(seatNum);
+        });
+        
+        // Give the seat back if the customer walks away without paying
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                releaseSeatHold(seatHold[0]);
+                seatHold[0] = null;
+            }
+        });
         
-        seatPanel.add(seatGrid, BorderLayout.CENTER);
+        JScrollPane seatScroll = new JScrollPane(seatMap);
+        seatScroll.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        seatPanel.add(seatScroll, BorderLayout.CENTER);
         mainPanel.add(seatPanel, BorderLayout.CENTER);
         
         // Payment panel
@@ -1563,60 +1713,22 @@ public class CustomerGUI extends JFrame {
             }
             
             try {
-                Connection conn = database.DatabaseConnectivity.getConnection();
-                
-                // Create booking first
-                String bookingSql = "INSERT INTO Bookings (flightID, passengerName, passengerEmail, seatNumber, status) VALUES (?, ?, ?, ?, ?)";
-                int bookingId = 0;
-                try (PreparedStatement ps = conn.prepareStatement(bookingSql, Statement.RETURN_GENERATED_KEYS)) {
-                    ps.setInt(1, flight.getFlightId());
-                    ps.setString(2, name);
-                    ps.setString(3, email);
-                    ps.setInt(4, selectedSeat[0]);
-                    ps.setString(5, "CONFIRMED");
-                    ps.executeUpdate();
-                    
-                    // Get the generated booking ID
-                    try (ResultSet rs = ps.getGeneratedKeys()) {
-                        if (rs.next()) {
-                            bookingId = rs.getInt(1);
-                        }
-                    }
-                }
-                
-                // Process payment and link to booking
-                String cardLast4 = cardNumber.length() >= 4 ? 
-                    cardNumber.substring(cardNumber.length() - 4) : cardNumber;
-                
-                String paymentSql = "INSERT INTO Payments (bookingID, amount, method, status, cardLast4) VALUES (?, ?, ?, ?, ?)";
-                try (PreparedStatement ps = conn.prepareStatement(paymentSql)) {
-                    ps.setInt(1, bookingId);
-                    ps.setDouble(2, flight.getPrice());
-                    ps.setString(3, paymentMethod);
-                    ps.setString(4, "PAID");
-                    ps.setString(5, cardLast4);
-                    ps.executeUpdate();
-                }
-                
-                conn.close();
-                
-                // Generate confirmation
-                String confirmation = "=== Booking Confirmation ===\n" +
-                    "Booking ID: " + bookingId + "\n" +
-                    "Flight: " + flight.getFlightNumber() + "\n" +
-                    "Route: " + flight.getOrigin() + " to " + flight.getDestination() + "\n" +
-                    "Passenger: " + name + "\n" +
-                    "Email: " + email + "\n" +
-                    "Seat: " + selectedSeat[0] + "\n" +
-                    "Amount Paid: $" + String.format("%.2f", flight.getPrice()) + "\n" +
-                    "Payment Method: " + paymentMethod + "\n" +
-                    "Card (last 4): " + cardLast4 + "\n" +
-                    "Status: CONFIRMED\n" +
-                    "============================";
-                
-                JOptionPane.showMessageDialog(dialog, confirmation, 
+                BookingCheckoutService.CheckoutResult result = checkoutService.checkout(
+                    flight.getFlightId(), name, email, selectedSeat[0], seatHold[0],
+                    price, PaymentMethod.valueOf(paymentMethod), cardNumber);
+                seatHold[0] = null; // Converted into the booking
+                // The full confirmation was written to the outbox with the booking and is emailed from there
+                JOptionPane.showMessageDialog(dialog,
+                    "Booking " + result.getBookingId() + " is confirmed: flight " + flight.getFlightNumber() +
+                    ", seat " + seatMap.seatLabel(selectedSeat[0]) + ", $" + String.format("%.2f", price) + " paid.\n" +
+                    "A confirmation will be emailed to " + email + ".",
                     "Booking & Payment Confirmed!", JOptionPane.INFORMATION_MESSAGE);
                 dialog.dispose();
+            } catch (SeatUnavailableException ex) {
+                JOptionPane.showMessageDialog(dialog, 
+                    "Sorry, seat " + ex.getSeatNumber() + " was just booked by someone else. Please choose another seat.", 
+                    "Seat Unavailable", 
+                    JOptionPane.WARNING_MESSAGE);
             } catch (SQLException ex) {
                 JOptionPane.showMessageDialog(dialog, 
                     "Database error: " + ex.getMessage(), 
@@ -1632,6 +1744,16 @@ public class CustomerGUI extends JFrame {
         dialog.setVisible(true);
     }
     
+    private void releaseSeatHold(SeatHold hold) {
+        if (hold == null) return;
+        try {
+            seatInventoryDAO.releaseHold(hold);
+        } catch (SQLException e) {
+            // The hold expires on its own
+            System.err.println("Error releasing seat hold: " + e.getMessage());
+        }
+    }
+    
     private void showManageCustomerBookingDialog(BookingDAO.BookingRecord booking) {
         JDialog dialog = new JDialog(this, "Manage Booking", true);
         dialog.setSize(400, 250);
@@ -1689,6 +1811,14 @@ public class CustomerGUI extends JFrame {
     }
     
     private void switchToView(UserRole role) {
+        if (role == UserRole.CUSTOMER) {
+            // Leaving the staff views ends the session
+            userDAO.logout(sessionToken);
+            sessionToken = null;
+        } else if (!userDAO.hasRole(sessionToken, toUserDAORole(role))) {
+            showLoginDialog(role);
+            return;
+        }
         currentRole = role;
         switch(role) {
             case CUSTOMER:
@@ -1841,7 +1971,16 @@ public class CustomerGUI extends JFrame {
         });
     }
     
+    private static UserDAO.UserRole toUserDAORole(UserRole role) {
+        return role == UserRole.ADMIN ? UserDAO.UserRole.ADMIN : UserDAO.UserRole.EMPLOYEE;
+    }
+    
     private void showLoginDialog(UserRole role) {
+        // Still logged in with this role: no need to ask again
+        if (userDAO.hasRole(sessionToken, toUserDAORole(role))) {
+            switchToView(role);
+            return;
+        }
         String roleName = role == UserRole.ADMIN ? "Admin" : "Employee";
         JDialog loginDialog = new JDialog(this, roleName + " Login", true);
         loginDialog.setSize(400, 200);
@@ -1887,20 +2026,29 @@ public class CustomerGUI extends JFrame {
                 return;
             }
             
-            // Authenticate with database
-            UserDAO userDAO = new UserDAO();
-            UserDAO.UserRole dbRole = role == UserRole.ADMIN ? UserDAO.UserRole.ADMIN : UserDAO.UserRole.EMPLOYEE;
-            
-            if (userDAO.authenticate(username, password, dbRole)) {
-                // Authentication successful
-                switchToView(role);
-                loginDialog.dispose();
-            } else {
-                JOptionPane.showMessageDialog(loginDialog, 
-                    "Invalid username or password. Please try again.", 
-                    "Login Failed", 
-                    JOptionPane.ERROR_MESSAGE);
-            }
+            // Authenticate with database; password hashing is deliberately slow, so off the EDT
+            loginBtn.setEnabled(false);
+            BackgroundLoader.run(loginDialog, BackgroundLoader.DEFAULT_TIMEOUT_MILLIS,
+                () -> userDAO.login(username, password, toUserDAORole(role)),
+                session -> {
+                    loginBtn.setEnabled(true);
+                    if (session != null) {
+                        // Authentication successful
+                        userDAO.logout(sessionToken);
+                        sessionToken = session.getToken();
+                        switchToView(role);
+                        loginDialog.dispose();
+                    } else {
+                        JOptionPane.showMessageDialog(loginDialog, 
+                            "Invalid username or password. Please try again.", 
+                            "Login Failed", 
+                            JOptionPane.ERROR_MESSAGE);
+                    }
+                },
+                ex -> {
+                    loginBtn.setEnabled(true);
+                    BackgroundLoader.showError(loginDialog, ex);
+                });
         });
         
         cancelBtn.addActionListener(e -> loginDialog.dispose());
@@ -1920,6 +2068,23 @@ public class CustomerGUI extends JFrame {
             // Use default look and feel if system L&F fails
         }
         
+        try {
+            SchemaMigrator.migrate();
+        } catch (SQLException e) {
+            JOptionPane.showMessageDialog(null, "Database migration failed: " + e.getMessage(),
+                    "Error", JOptionPane.ERROR_MESSAGE);
+        }
+        
+        // Keeps the Flights.bookedSeats counters honest (first run fixes any drift at startup)
+        FlightSeatCounter.scheduleReconciliation(FlightSeatCounter.DEFAULT_RECONCILE_PERIOD_MINUTES);
+        
+        // Sends the confirmations written to NotificationOutbox by bookings
+        try {
+            NotificationDispatcher.startDefault(new FileSpoolSink(Paths.get(MAIL_SPOOL_DIR)));
+        } catch (IOException e) {
+            System.err.println("Confirmation emails disabled: " + e.getMessage());
+        }
+        
         SwingUtilities.invokeLater(() -> {
             new CustomerGUI().setVisible(true);
         });
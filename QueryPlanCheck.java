@@ -0,0 +1,105 @@
+import auth.UserDAO;
+import database.DatabaseConnectivity;
+import payment.RevenueDAO;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs EXPLAIN on the application's hot queries and reports any that read a
+ * table without an index (access type ALL). The statements are the DAOs' own
+ * SQL constants and builders, so the check follows any change to them.
+ *
+ * The optimizer may scan tiny tables even when an index exists, so run this
+ * against a database with realistic row counts.
+ *
+ * Usage: java QueryPlanCheck  (exit status 1 if any query scans)
+ */
+public class QueryPlanCheck {
+
+    private static class Query {
+        final String name;
+        final String sql;
+        final Object[] params;
+
+        Query(String name, String sql, Object... params) {
+            this.name = name;
+            this.sql = sql;
+            this.params = params;
+        }
+    }
+
+    private static final LocalDate DAY = LocalDate.of(2025, 12, 1);
+    private static final int PAGE = 50;
+
+    /**
+     * The DAOs' own statements, with sample parameters.
+     */
+    private static List<Query> queries() throws SQLException {
+        List<Query> queries = new ArrayList<>();
+        queries.add(new Query("UserDAO.authenticate", UserDAO.AUTHENTICATE_SQL, "admin"));
+        queries.add(new Query("BookingDAO.findByEmail", BookingDAO.FIND_BY_EMAIL_SQL, "someone@example.com", 0, PAGE));
+        queries.add(new Query("BookingDAO.getBookingsPage", BookingDAO.BOOKINGS_PAGE_SQL, 0, PAGE));
+        queries.add(new Query("SeatInventoryDAO.getUnavailableSeats", SeatInventoryDAO.UNAVAILABLE_SEATS_SQL, 1, 1, ""));
+        queries.add(new Query("FlightSeatCounter.recount", FlightSeatCounter.recountSql(1), 1));
+
+        List<Object> params = new ArrayList<>();
+        String sql = FlightSearchDAO.pageSql("ATL", "MCO", DAY, "All Airlines", 0, PAGE, null, true, params);
+        queries.add(new Query("FlightSearchDAO.searchFlights", sql, params.toArray()));
+        params = new ArrayList<>();
+        sql = FlightManagementDAO.searchSql(null, null, DAY, null, null, PAGE,
+                ReferenceDataCache.getInstance().snapshot(), params);
+        queries.add(new Query("FlightManagementDAO.searchFlights (date)", sql, params.toArray()));
+
+        queries.add(new Query("RevenueDAO.moveBooking payments", RevenueDAO.PAID_BY_BOOKING_SQL, 1, "PAID"));
+        queries.add(new Query("RevenueDAO.getRevenueByDay", RevenueDAO.REVENUE_BY_DAY_SQL,
+                Date.valueOf(DAY), Date.valueOf(DAY.plusDays(30))));
+        queries.add(new Query("Waitlist queue", Waitlist.QUEUE_SQL, 1));
+        queries.add(new Query("Waitlist.lockHead", Waitlist.LOCK_HEAD_SQL, 1, 1));
+        queries.add(new Query("NotificationOutbox.claim", NotificationOutbox.CLAIM_SQL, PAGE));
+        queries.add(new Query("CustomerDAO.searchCustomers", CustomerDAO.SEARCH_SQL, "smi%", "smi%", "smi%", PAGE));
+        return queries;
+    }
+
+    /**
+     * @return one line per table access that does not use an index, empty if all do
+     */
+    public static List<String> findFullScans() throws SQLException {
+        List<String> problems = new ArrayList<>();
+        List<Query> queries = queries();
+        try (Connection conn = DatabaseConnectivity.getConnection()) {
+            for (Query q : queries) {
+                try (PreparedStatement ps = conn.prepareStatement("EXPLAIN " + q.sql)) {
+                    for (int i = 0; i < q.params.length; i++) {
+                        ps.setObject(i + 1, q.params[i]);
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            String type = rs.getString("type");
+                            if ("ALL".equals(type)) {
+                                problems.add(q.name + ": full scan of " + rs.getString("table") +
+                                        " (~" + rs.getLong("rows") + " rows)");
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return problems;
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> problems = findFullScans();
+        if (problems.isEmpty()) {
+            System.out.println("All " + queries().size() + " queries use an index.");
+            return;
+        }
+        problems.forEach(System.out::println);
+        System.exit(1);
+    }
+}
@@ -0,0 +1,76 @@
+package auth;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Measures password verification cost at several PBKDF2 iteration counts, one
+ * thread and all threads at once, against a target login rate. The hash should be
+ * as slow as possible (to resist offline guessing) while still sustaining the
+ * target rate, so the benchmark recommends the highest count that meets it.
+ *
+ * Usage: java auth.LoginBenchmark [targetLoginsPerSecond] [threads] [secondsPerRun]
+ */
+public class LoginBenchmark {
+
+    private static final int[] ITERATION_COUNTS = {50_000, 100_000, 210_000, 310_000, 600_000};
+
+    public static void main(String[] args) throws Exception {
+        double target = args.length > 0 ? Double.parseDouble(args[0]) : 20;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        double seconds = args.length > 2 ? Double.parseDouble(args[2]) : 2;
+
+        // Warm up so the first row is not paying for JIT compilation
+        run(new PasswordHasher(ITERATION_COUNTS[0]), threads, 1);
+
+        System.out.printf("target %.0f logins/s, %d threads%n", target, threads);
+        System.out.printf("%-12s %14s %16s%n", "iterations", "ms/login (1t)", "logins/s (" + threads + "t)");
+        int recommended = 0;
+        for (int iterations : ITERATION_COUNTS) {
+            PasswordHasher hasher = new PasswordHasher(iterations);
+            double single = run(hasher, 1, seconds);
+            double parallel = run(hasher, threads, seconds);
+            System.out.printf("%-12d %14.1f %16.1f%s%n", iterations, 1000 / single, parallel,
+                    iterations == PasswordHasher.DEFAULT_ITERATIONS ? "  <- default" : "");
+            if (parallel >= target) recommended = iterations;
+        }
+
+        if (recommended == 0) {
+            System.out.println("No tested iteration count reaches the target; add CPU or lower the target.");
+        } else {
+            System.out.println("Highest tested iteration count meeting the target: " + recommended);
+        }
+    }
+
+    /**
+     * @return verifications per second
+     */
+    private static double run(PasswordHasher hasher, int threads, double seconds) throws InterruptedException {
+        char[] password = "correct horse battery staple".toCharArray();
+        String stored = hasher.hash(password);
+        long deadline = System.nanoTime() + (long) (seconds * 1e9);
+        AtomicLong done = new AtomicLong();
+        CountDownLatch finished = new CountDownLatch(threads);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        if (!hasher.verify(password, stored)) throw new IllegalStateException("verify failed");
+                        done.incrementAndGet();
+                    }
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    finished.countDown();
+                }
+            });
+            worker.start();
+        }
+        finished.await();
+        if (failure.get() != null) throw failure.get();
+        return done.get() / ((System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,171 @@
+package auth;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process store of logged-in staff sessions. Lookups are a single
+ * ConcurrentHashMap read, so views can check a token on every navigation
+ * without touching the database.
+ *
+ * A session ends on logout, after idleTimeout without a lookup, or maxAge after
+ * login, whichever comes first. Every lookup checks expiry itself; a hashed
+ * time wheel only reclaims sessions nobody asks about any more. Each tick
+ * handles one bucket. Entries whose deadline moved (the session was used since)
+ * are put back in the bucket for their new deadline instead of being touched on
+ * every lookup.
+ */
+public class SessionStore {
+
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 15 * 60_000;
+    public static final long DEFAULT_MAX_AGE_MILLIS = 8 * 60 * 60_000;
+    public static final long DEFAULT_TICK_MILLIS = 1_000;
+    private static final int WHEEL_SIZE = 512;
+
+    private static final SessionStore DEFAULT = new SessionStore(
+            DEFAULT_IDLE_TIMEOUT_MILLIS, DEFAULT_MAX_AGE_MILLIS, DEFAULT_TICK_MILLIS);
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    public static class Session {
+        private final String token;
+        private final String username;
+        private final UserDAO.UserRole role;
+        private final long createdNanos;
+        private volatile long lastAccessNanos;
+
+        Session(String token, String username, UserDAO.UserRole role, long now) {
+            this.token = token;
+            this.username = username;
+            this.role = role;
+            this.createdNanos = now;
+            this.lastAccessNanos = now;
+        }
+
+        public String getToken() { return token; }
+        public String getUsername() { return username; }
+        public UserDAO.UserRole getRole() { return role; }
+    }
+
+    private final long idleTimeoutNanos;
+    private final long maxAgeNanos;
+    private final long tickNanos;
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Queue<String>[] wheel;
+    // Last tick processed; written only by the ticker thread
+    private volatile long currentTick;
+    private final ScheduledExecutorService ticker;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public SessionStore(long idleTimeoutMillis, long maxAgeMillis, long tickMillis) {
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.wheel = new Queue[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-expiry");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The store shared by UserDAO instances created with the default constructor.
+     */
+    public static SessionStore getDefault() {
+        return DEFAULT;
+    }
+
+    public Session create(String username, UserDAO.UserRole role) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        Session session = new Session(token, username, role, System.nanoTime());
+        sessions.put(token, session);
+        schedule(token, deadline(session));
+        return session;
+    }
+
+    /**
+     * Looks a session up and resets its idle timer.
+     * @return the session, or null if the token is unknown, logged out or expired
+     */
+    public Session get(String token) {
+        if (token == null) return null;
+        Session session = sessions.get(token);
+        if (session == null) return null;
+        long now = System.nanoTime();
+        if (now - deadline(session) >= 0) {
+            sessions.remove(token, session);
+            return null;
+        }
+        session.lastAccessNanos = now;
+        return session;
+    }
+
+    public boolean hasRole(String token, UserDAO.UserRole role) {
+        Session session = get(token);
+        return session != null && session.getRole() == role;
+    }
+
+    public void logout(String token) {
+        if (token != null) sessions.remove(token);
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Stops the expiry thread. Lookups still check expiry afterwards.
+     */
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    private long deadline(Session s) {
+        return Math.min(s.lastAccessNanos + idleTimeoutNanos, s.createdNanos + maxAgeNanos);
+    }
+
+    private void schedule(String token, long deadlineNanos) {
+        long tick = Math.max(currentTick + 1, (deadlineNanos - startNanos + tickNanos - 1) / tickNanos);
+        wheel[(int) (tick % WHEEL_SIZE)].add(token);
+    }
+
+    private void tick() {
+        long tick = (System.nanoTime() - startNanos) / tickNanos;
+        // Catch up if the thread was delayed
+        while (currentTick < tick) {
+            long next = currentTick + 1;
+            currentTick = next;
+            expireBucket(wheel[(int) (next % WHEEL_SIZE)]);
+        }
+    }
+
+    private void expireBucket(Queue<String> bucket) {
+        long now = System.nanoTime();
+        // Only what was there when the tick started; rescheduled entries may land back in this bucket
+        for (int n = bucket.size(); n > 0; n--) {
+            String token = bucket.poll();
+            if (token == null) break;
+            Session session = sessions.get(token);
+            if (session == null) continue; // logged out
+            long deadline = deadline(session);
+            if (now - deadline >= 0) {
+                sessions.remove(token, session);
+            } else {
+                schedule(token, deadline);
+            }
+        }
+    }
+}
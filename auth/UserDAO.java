@@ -1,13 +1,30 @@
 package auth;
 import database.DatabaseConnectivity;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.sql.*;
 
 public class UserDAO {
-    
+
     public enum UserRole {
         ADMIN, EMPLOYEE
     }
-    
+
+    // Public so QueryPlanCheck can EXPLAIN the exact statement
+    public static final String AUTHENTICATE_SQL = "SELECT userID, password, role FROM Users WHERE username = ?";
+
+    private final PasswordHasher hasher;
+    private final SessionStore sessions;
+
+    public UserDAO() {
+        this(new PasswordHasher(), SessionStore.getDefault());
+    }
+
+    public UserDAO(PasswordHasher hasher, SessionStore sessions) {
+        this.hasher = hasher;
+        this.sessions = sessions;
+    }
+
     /**
      * Authenticates a user with username and password
      * @param username The username
@@ -16,22 +33,81 @@ public class UserDAO {
      * @return true if authentication successful, false otherwise
      */
     public boolean authenticate(String username, String password, UserRole role) {
-        String sql = "SELECT * FROM Users WHERE username = ? AND password = ? AND role = ?";
-        
-        try (Connection conn = DatabaseConnectivity.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            
-            ps.setString(1, username);
-            ps.setString(2, password);
-            ps.setString(3, role.toString());
-            
-            try (ResultSet rs = ps.executeQuery()) {
-                return rs.next(); // Returns true if user found
+        try (Connection conn = DatabaseConnectivity.getConnection()) {
+            int userId;
+            String stored;
+            String storedRole;
+            try (PreparedStatement ps = conn.prepareStatement(AUTHENTICATE_SQL)) {
+                ps.setString(1, username);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        // Hash anyway so unknown usernames take as long as wrong passwords
+                        hasher.verify(password.toCharArray(), DummyHash.VALUE);
+                        return false;
+                    }
+                    userId = rs.getInt("userID");
+                    stored = rs.getString("password");
+                    storedRole = rs.getString("role");
+                }
             }
+
+            if (!passwordMatches(password, stored) || !role.name().equals(storedRole)) {
+                return false;
+            }
+            if (hasher.needsRehash(stored)) {
+                upgradeHash(conn, userId, stored, password);
+            }
+            return true;
         } catch (SQLException e) {
             System.err.println("Authentication error: " + e.getMessage());
             return false;
         }
     }
-}
 
+    /**
+     * Authenticates and opens a session in the session store.
+     * @return the new session, or null if authentication failed
+     */
+    public SessionStore.Session login(String username, String password, UserRole role) {
+        if (!authenticate(username, password, role)) {
+            return null;
+        }
+        return sessions.create(username, role);
+    }
+
+    /**
+     * Checks a session token against the session store only; no database access.
+     * Also resets the session's idle timer.
+     */
+    public boolean hasRole(String token, UserRole role) {
+        return sessions.hasRole(token, role);
+    }
+
+    public void logout(String token) {
+        sessions.logout(token);
+    }
+
+    private boolean passwordMatches(String password, String stored) {
+        if (PasswordHasher.isHash(stored)) {
+            return hasher.verify(password.toCharArray(), stored);
+        }
+        // Plaintext row from before hashing was introduced; replaced by a hash on success
+        return stored != null && MessageDigest.isEqual(
+                stored.getBytes(StandardCharsets.UTF_8), password.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void upgradeHash(Connection conn, int userId, String oldValue, String password) throws SQLException {
+        // Only if nobody changed the password meanwhile
+        String sql = "UPDATE Users SET password = ? WHERE userID = ? AND password = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, hasher.hash(password.toCharArray()));
+            ps.setInt(2, userId);
+            ps.setString(3, oldValue);
+            ps.executeUpdate();
+        }
+    }
+
+    private static class DummyHash {
+        static final String VALUE = new PasswordHasher().hash("not-a-password".toCharArray());
+    }
+}
@@ -8,8 +8,8 @@ public class Booking {
     private final String id;
     private final Flight flight;
     private final Customer customer;
-    private int seatCount;
-    private BookingStatus status;
+    private volatile int seatCount;
+    private volatile BookingStatus status;
     private final LocalDateTime createdAt;
 
     public Booking(String id, Flight flight, Customer customer, int seatCount) {
@@ -0,0 +1,168 @@
+import database.DatabaseConnectivity;
+import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
+import payment.Payment;
+import payment.PaymentDAO;
+import payment.PaymentMethod;
+
+/**
+ * Books a seat and records its payment as a single database transaction.
+ * Either the seat claim, booking, payment and confirmation message all commit,
+ * or none of them do.
+ */
+public class BookingCheckoutService {
+
+    /**
+     * Reads the server clock and whoever currently holds the seat, in one round trip.
+     * No rows are locked: the Bookings(flightID, activeSeatNumber) unique index
+     * rejects a concurrent claim on the same seat at insert time.
+     */
+    private static final String CLAIM_SQL =
+            "SELECT CURRENT_TIMESTAMP AS serverTime, " +
+            "       (SELECT h.holdToken FROM SeatHolds h " +
+            "        WHERE h.flightID = ? AND h.seatNumber = ? AND h.expiresAt >= CURRENT_TIMESTAMP) AS holder";
+
+    private final BookingDAO bookingDAO;
+    private final PaymentDAO paymentDAO;
+    private final SeatInventoryDAO seatInventoryDAO;
+    private final NotificationOutbox outbox = new NotificationOutbox();
+
+    public static class CheckoutResult {
+        private final int bookingId;
+        private final Payment payment;
+        private final int seatNumber;
+        private final Timestamp bookingTime;
+        private final long claimNanos;
+        private final long bookingInsertNanos;
+        private final long paymentInsertNanos;
+        private final long commitNanos;
+
+        public CheckoutResult(int bookingId, Payment payment, int seatNumber, Timestamp bookingTime,
+                              long claimNanos, long bookingInsertNanos, long paymentInsertNanos, long commitNanos) {
+            this.bookingId = bookingId;
+            this.payment = payment;
+            this.seatNumber = seatNumber;
+            this.bookingTime = bookingTime;
+            this.claimNanos = claimNanos;
+            this.bookingInsertNanos = bookingInsertNanos;
+            this.paymentInsertNanos = paymentInsertNanos;
+            this.commitNanos = commitNanos;
+        }
+
+        public int getBookingId() { return bookingId; }
+        public Payment getPayment() { return payment; }
+        public int getSeatNumber() { return seatNumber; }
+        public Timestamp getBookingTime() { return bookingTime; }
+        public long getClaimNanos() { return claimNanos; }
+        public long getBookingInsertNanos() { return bookingInsertNanos; }
+        public long getPaymentInsertNanos() { return paymentInsertNanos; }
+        public long getCommitNanos() { return commitNanos; }
+
+        public long getTotalNanos() {
+            return claimNanos + bookingInsertNanos + paymentInsertNanos + commitNanos;
+        }
+
+        public String describeTimings() {
+            return String.format("claim=%.2fms booking=%.2fms payment=%.2fms commit=%.2fms total=%.2fms",
+                    claimNanos / 1e6, bookingInsertNanos / 1e6, paymentInsertNanos / 1e6,
+                    commitNanos / 1e6, getTotalNanos() / 1e6);
+        }
+    }
+
+    public BookingCheckoutService() {
+        this(new BookingDAO(), new PaymentDAO(), new SeatInventoryDAO());
+    }
+
+    public BookingCheckoutService(BookingDAO bookingDAO, PaymentDAO paymentDAO, SeatInventoryDAO seatInventoryDAO) {
+        this.bookingDAO = bookingDAO;
+        this.paymentDAO = paymentDAO;
+        this.seatInventoryDAO = seatInventoryDAO;
+    }
+
+    /**
+     * Claims the seat, creates a CONFIRMED booking and records a PAID payment in one transaction.
+     * @throws SeatUnavailableException if the seat is booked or held by someone else
+     * @throws SQLException if the flight does not exist or any statement fails; nothing is committed
+     */
+    public CheckoutResult checkout(int flightId, String passengerName, String passengerEmail, int seatNumber,
+                                   double amount, PaymentMethod method, String cardNumber) throws SQLException {
+        return checkout(flightId, passengerName, passengerEmail, seatNumber, null, amount, method, cardNumber);
+    }
+
+    /**
+     * Same as above, converting the caller's seat hold into the booking.
+     * @param hold the caller's hold on the seat, or null if the seat was not held
+     */
+    public CheckoutResult checkout(int flightId, String passengerName, String passengerEmail, int seatNumber,
+                                   SeatHold hold, double amount, PaymentMethod method, String cardNumber)
+            throws SQLException {
+        try (Connection conn = DatabaseConnectivity.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                long t0 = System.nanoTime();
+                Timestamp serverTime = claimSeat(conn, flightId, seatNumber, hold);
+                long t1 = System.nanoTime();
+
+                int bookingId;
+                try {
+                    bookingId = bookingDAO.insertBooking(conn, flightId, passengerName, passengerEmail,
+                            seatNumber, BookingStatus.CONFIRMED.name(), serverTime);
+                } catch (SQLException e) {
+                    if (SeatInventoryDAO.isDuplicateKey(e)) {
+                        throw new SeatUnavailableException(flightId, seatNumber);
+                    }
+                    throw e;
+                }
+                long t2 = System.nanoTime();
+
+                Payment payment = paymentDAO.recordPayment(conn, bookingId, amount, method, cardNumber, serverTime);
+                if (hold != null) {
+                    seatInventoryDAO.releaseHold(conn, flightId, seatNumber, hold.getToken());
+                }
+                // Flight details are added when the message is sent
+                Map<String, String> confirmation = new HashMap<>();
+                confirmation.put("bookingId", String.valueOf(bookingId));
+                confirmation.put("flightId", String.valueOf(flightId));
+                confirmation.put("passengerName", passengerName);
+                confirmation.put("passengerEmail", passengerEmail);
+                confirmation.put("seatNumber", String.valueOf(seatNumber));
+                confirmation.put("amount", String.format("%.2f", amount));
+                confirmation.put("paymentMethod", method.name());
+                confirmation.put("cardLast4", payment.getCardLast4());
+                outbox.enqueue(conn, NotificationOutbox.BOOKING_CONFIRMED, passengerEmail, confirmation);
+                long t3 = System.nanoTime();
+
+                conn.commit();
+                long t4 = System.nanoTime();
+                SeatAvailabilityCache.getInstance().seatBooked(flightId, seatNumber);
+                FareCalendar.getInstance().seatsChanged(flightId, 1);
+                PricingEngine.getInstance().invalidate(flightId);
+                NotificationDispatcher.wakeUp();
+
+                return new CheckoutResult(bookingId, payment, seatNumber, serverTime,
+                        t1 - t0, t2 - t1, t3 - t2, t4 - t3);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private Timestamp claimSeat(Connection conn, int flightId, int seatNumber, SeatHold hold) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(CLAIM_SQL)) {
+            ps.setInt(1, flightId);
+            ps.setInt(2, seatNumber);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                String holder = rs.getString("holder");
+                if (holder != null && (hold == null || !holder.equals(hold.getToken()))) {
+                    throw new SeatUnavailableException(flightId, seatNumber);
+                }
+                return rs.getTimestamp("serverTime");
+            }
+        }
+    }
+}
@@ -1,7 +1,12 @@
 import database.DatabaseConnectivity;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import payment.RevenueDAO;
 
 /**
  * JDBC DAO for CRUD operations on Bookings table.
@@ -10,6 +15,23 @@ import java.util.List;
  */
 public class BookingDAO {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    // Also EXPLAINed by QueryPlanCheck
+    static final String BOOKINGS_PAGE_SQL =
+            "SELECT bookingID, flightID, passengerName, passengerEmail, bookingTime, status " +
+            "FROM Bookings WHERE bookingID > ? ORDER BY bookingID LIMIT ?";
+    static final String FIND_BY_EMAIL_SQL =
+            "SELECT bookingID, flightID, passengerName, passengerEmail, bookingTime, status FROM Bookings " +
+            "WHERE passengerEmailKey = ? AND bookingID > ? ORDER BY bookingID LIMIT ?";
+
+    private final NotificationOutbox outbox = new NotificationOutbox();
+    private final RevenueDAO revenueDAO = new RevenueDAO();
+
+    /** Columns getBookingsPage accepts as sort keys. */
+    public static final Set<String> SORTABLE_COLUMNS = Set.of(
+            "bookingID", "flightID", "passengerName", "passengerEmail", "bookingTime", "status");
+
     public static class BookingRecord {
         private final int bookingId;
         private final int flightId;
@@ -49,6 +71,96 @@ public class BookingDAO {
         }
     }
 
+    /**
+     * Pages through all bookings in bookingID order (keyset pagination).
+     * @param afterBookingId last bookingID of the previous page, or 0 for the first page
+     */
+    public List<BookingRecord> getBookingsPage(int afterBookingId, int pageSize) throws SQLException {
+        try (Connection conn = DatabaseConnectivity.getConnection();
+             PreparedStatement ps = conn.prepareStatement(BOOKINGS_PAGE_SQL)) {
+            ps.setInt(1, afterBookingId);
+            ps.setInt(2, pageSize);
+            try (ResultSet rs = ps.executeQuery()) {
+                List<BookingRecord> list = new ArrayList<>();
+                while (rs.next()) {
+                    list.add(mapRow(rs));
+                }
+                return list;
+            }
+        }
+    }
+
+    public int countBookings() throws SQLException {
+        try (Connection conn = DatabaseConnectivity.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM Bookings");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    /**
+     * One page of all bookings for random-access browsing, sorted by any listed
+     * column with bookingID breaking ties. Uses OFFSET since the viewer can jump
+     * anywhere in the list.
+     * @param sortKey a Bookings column from SORTABLE_COLUMNS, or null for bookingID
+     */
+    public List<BookingRecord> getBookingsPage(int offset, int limit, String sortKey, boolean ascending)
+            throws SQLException {
+        if (sortKey != null && !SORTABLE_COLUMNS.contains(sortKey)) {
+            throw new IllegalArgumentException("Cannot sort bookings by " + sortKey);
+        }
+        String direction = ascending ? " ASC" : " DESC";
+        String sql = "SELECT bookingID, flightID, passengerName, passengerEmail, bookingTime, status " +
+                     "FROM Bookings ORDER BY " + (sortKey == null ? "bookingID" : sortKey) + direction +
+                     ", bookingID" + direction + " LIMIT ? OFFSET ?";
+        try (Connection conn = DatabaseConnectivity.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, limit);
+            ps.setInt(2, offset);
+            try (ResultSet rs = ps.executeQuery()) {
+                List<BookingRecord> list = new ArrayList<>();
+                while (rs.next()) {
+                    list.add(mapRow(rs));
+                }
+                return list;
+            }
+        }
+    }
+
+    /**
+     * Inserts a booking on the caller's connection so it can take part in a larger transaction.
+     * A seatNumber of 0 books no particular seat.
+     * @return the generated bookingID
+     */
+    public int insertBooking(Connection conn, int flightId, String passengerName, String passengerEmail,
+                             int seatNumber, String status, Timestamp bookingTime) throws SQLException {
+        String sql = "INSERT INTO Bookings (flightID, passengerName, passengerEmail, seatNumber, bookingTime, status) " +
+                     "VALUES (?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            ps.setInt(1, flightId);
+            ps.setString(2, passengerName);
+            ps.setString(3, passengerEmail);
+            if (seatNumber > 0) {
+                ps.setInt(4, seatNumber);
+            } else {
+                ps.setNull(4, Types.INTEGER);
+            }
+            ps.setTimestamp(5, bookingTime);
+            ps.setString(6, status);
+            ps.executeUpdate();
+            int bookingId = 0;
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                if (rs.next()) bookingId = rs.getInt(1);
+            }
+            if (bookingId == 0) throw new SQLException("Failed to create booking record");
+            if (!BookingStatus.CANCELLED.name().equals(status)) {
+                FlightSeatCounter.adjust(conn, flightId, 1);
+            }
+            return bookingId;
+        }
+    }
+
     public BookingRecord getBookingById(int bookingId) throws SQLException {
         String sql = "SELECT bookingID, flightID, passengerName, passengerEmail, bookingTime, status FROM Bookings WHERE bookingID=?";
         try (Connection conn = DatabaseConnectivity.getConnection();
@@ -61,35 +173,275 @@ public class BookingDAO {
         return null;
     }
 
+    /**
+     * Bookings for one passenger email, matched case-insensitively through the
+     * indexed passengerEmailKey column. Paged by bookingID.
+     * @param email passenger email as typed by the customer
+     * @param afterBookingId last bookingID of the previous page, or 0 for the first page
+     * @param pageSize maximum number of rows to return
+     */
+    public List<BookingRecord> findByEmail(String email, int afterBookingId, int pageSize) throws SQLException {
+        try (Connection conn = DatabaseConnectivity.getConnection();
+             PreparedStatement ps = conn.prepareStatement(FIND_BY_EMAIL_SQL)) {
+            ps.setString(1, normalizeEmail(email));
+            ps.setInt(2, afterBookingId);
+            ps.setInt(3, pageSize);
+            try (ResultSet rs = ps.executeQuery()) {
+                List<BookingRecord> list = new ArrayList<>();
+                while (rs.next()) {
+                    list.add(mapRow(rs));
+                }
+                return list;
+            }
+        }
+    }
+
+    /**
+     * Same normalization as the generated Bookings.passengerEmailKey column.
+     */
+    public static String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
     public void updateBookingStatus(int bookingId, String status) throws SQLException {
         String sql = "UPDATE Bookings SET status=? WHERE bookingID=?";
-        try (Connection conn = DatabaseConnectivity.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, status);
-            ps.setInt(2, bookingId);
-            ps.executeUpdate();
+        // Before borrowing a connection: a reload would need a second one while row locks are held
+        ReferenceDataCache.Snapshot reference = ReferenceDataCache.getInstance().snapshot();
+        try (Connection conn = DatabaseConnectivity.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                SeatSlot before = lockSeatSlot(conn, bookingId);
+                boolean activeAfter = !BookingStatus.CANCELLED.name().equals(status);
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setString(1, status);
+                    ps.setInt(2, bookingId);
+                    ps.executeUpdate();
+                }
+                List<Promotion> promoted = List.of();
+                if (before != null) {
+                    moveCount(conn, before, before.flightId, activeAfter);
+                    promoted = promoteWaitlisted(conn, reference, before, before.flightId, activeAfter);
+                }
+                conn.commit();
+                if (before != null) {
+                    moveSeat(before, before.flightId, activeAfter);
+                    applyPromotions(before.flightId, promoted);
+                }
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
         }
     }
 
     public void updateBookingDetails(int bookingId, int flightId, String passengerName, String passengerEmail) throws SQLException {
         String sql = "UPDATE Bookings SET flightID=?, passengerName=?, passengerEmail=? WHERE bookingID=?";
-        try (Connection conn = DatabaseConnectivity.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, flightId);
-            ps.setString(2, passengerName);
-            ps.setString(3, passengerEmail);
-            ps.setInt(4, bookingId);
-            ps.executeUpdate();
+        ReferenceDataCache.Snapshot reference = ReferenceDataCache.getInstance().snapshot();
+        try (Connection conn = DatabaseConnectivity.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                SeatSlot before = lockSeatSlot(conn, bookingId);
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setInt(1, flightId);
+                    ps.setString(2, passengerName);
+                    ps.setString(3, passengerEmail);
+                    ps.setInt(4, bookingId);
+                    ps.executeUpdate();
+                }
+                List<Promotion> promoted = List.of();
+                if (before != null) {
+                    moveCount(conn, before, flightId, before.active);
+                    revenueDAO.moveBooking(conn, bookingId, before.flightId, flightId);
+                    promoted = promoteWaitlisted(conn, reference, before, flightId, before.active);
+                }
+                conn.commit();
+                if (before != null) {
+                    moveSeat(before, flightId, before.active);
+                    applyPromotions(before.flightId, promoted);
+                }
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
         }
     }
 
     public void deleteBooking(int bookingId) throws SQLException {
         String sql = "DELETE FROM Bookings WHERE bookingID = ?";
-        try (Connection conn = DatabaseConnectivity.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        ReferenceDataCache.Snapshot reference = ReferenceDataCache.getInstance().snapshot();
+        try (Connection conn = DatabaseConnectivity.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                SeatSlot before = lockSeatSlot(conn, bookingId);
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setInt(1, bookingId);
+                    ps.executeUpdate();
+                }
+                List<Promotion> promoted = List.of();
+                if (before != null) {
+                    moveCount(conn, before, before.flightId, false);
+                    promoted = promoteWaitlisted(conn, reference, before, before.flightId, false);
+                }
+                conn.commit();
+                if (before != null) {
+                    moveSeat(before, before.flightId, false);
+                    applyPromotions(before.flightId, promoted);
+                }
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Flight and seat a booking occupied before a change, used to keep the seat
+     * cache and the Flights.bookedSeats counters current.
+     */
+    private static class SeatSlot {
+        final int flightId;
+        final int seatNumber; // 0 if the booking has no seat
+        final int seatCount;
+        final boolean active;
+
+        SeatSlot(int flightId, int seatNumber, int seatCount, boolean active) {
+            this.flightId = flightId;
+            this.seatNumber = seatNumber;
+            this.seatCount = seatCount;
+            this.active = active;
+        }
+    }
+
+    private SeatSlot lockSeatSlot(Connection conn, int bookingId) throws SQLException {
+        String sql = "SELECT flightID, seatNumber, seatCount, status FROM Bookings WHERE bookingID = ? FOR UPDATE";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, bookingId);
-            ps.executeUpdate();
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return null;
+                return new SeatSlot(rs.getInt("flightID"), rs.getInt("seatNumber"), rs.getInt("seatCount"),
+                        !BookingStatus.CANCELLED.name().equals(rs.getString("status")));
+            }
+        }
+    }
+
+    /**
+     * Moves the booking's seats between flight counters inside the caller's transaction.
+     */
+    private void moveCount(Connection conn, SeatSlot before, int flightIdAfter, boolean activeAfter)
+            throws SQLException {
+        if (before.active && activeAfter && before.flightId == flightIdAfter) return;
+        if (before.active) {
+            FlightSeatCounter.adjust(conn, before.flightId, -before.seatCount);
+        }
+        if (activeAfter) {
+            FlightSeatCounter.adjust(conn, flightIdAfter, before.seatCount);
+        }
+    }
+
+    /**
+     * Applies a committed change to the shared seat cache, fare calendar and prices.
+     */
+    private void moveSeat(SeatSlot before, int flightIdAfter, boolean activeAfter) {
+        if (before.active && activeAfter && before.flightId == flightIdAfter) return;
+        FareCalendar fares = FareCalendar.getInstance();
+        PricingEngine pricing = PricingEngine.getInstance();
+        if (before.active) {
+            fares.seatsChanged(before.flightId, -before.seatCount);
+            pricing.invalidate(before.flightId);
+        }
+        if (activeAfter) {
+            fares.seatsChanged(flightIdAfter, before.seatCount);
+            pricing.invalidate(flightIdAfter);
+        }
+        if (before.seatNumber == 0) return;
+        SeatAvailabilityCache cache = SeatAvailabilityCache.getInstance();
+        if (before.active) {
+            cache.seatReleased(before.flightId, before.seatNumber);
+        }
+        if (activeAfter) {
+            cache.seatBooked(flightIdAfter, before.seatNumber);
+        }
+    }
+
+    /** A waitlisted passenger booked onto a seat freed in this transaction. */
+    private static class Promotion {
+        final Waitlist.Entry entry;
+        final int seatNumber; // 0 if no particular seat
+
+        Promotion(Waitlist.Entry entry, int seatNumber) {
+            this.entry = entry;
+            this.seatNumber = seatNumber;
+        }
+    }
+
+    /**
+     * Books the seats a change frees for the head of the old flight's waitlist,
+     * inside the caller's transaction. The first passenger gets the released seat number.
+     */
+    private List<Promotion> promoteWaitlisted(Connection conn, ReferenceDataCache.Snapshot reference, SeatSlot before,
+                                              int flightIdAfter, boolean activeAfter) throws SQLException {
+        if (!before.active || (activeAfter && before.flightId == flightIdAfter)) return List.of();
+        Waitlist waitlist = Waitlist.getInstance();
+        List<Waitlist.Entry> head = waitlist.lockHead(conn, before.flightId,
+                Math.min(before.seatCount, freeSeats(conn, reference, before.flightId, before.seatCount)));
+        List<Promotion> promoted = new ArrayList<>();
+        int seatNumber = before.seatNumber;
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        for (Waitlist.Entry entry : head) {
+            int bookingId = insertBooking(conn, before.flightId, entry.getPassengerName(), entry.getPassengerEmail(),
+                    seatNumber, BookingStatus.CONFIRMED.name(), now);
+            waitlist.markPromoted(conn, entry, bookingId);
+            Map<String, String> message = new HashMap<>();
+            message.put("bookingId", String.valueOf(bookingId));
+            message.put("flightId", String.valueOf(before.flightId));
+            message.put("passengerName", entry.getPassengerName());
+            message.put("seatNumber", seatNumber > 0 ? String.valueOf(seatNumber) : "assigned at check-in");
+            outbox.enqueue(conn, NotificationOutbox.WAITLIST_PROMOTED, entry.getPassengerEmail(), message);
+            promoted.add(new Promotion(entry, seatNumber));
+            seatNumber = 0;
+        }
+        return promoted;
+    }
+
+    /**
+     * Seats left on a flight by its counter, read on the caller's connection.
+     * @param ifUnknown returned when the aircraft capacity is not known
+     */
+    private static int freeSeats(Connection conn, ReferenceDataCache.Snapshot reference, int flightId, int ifUnknown)
+            throws SQLException {
+        String sql = "SELECT aircraftID, bookedSeats FROM Flights WHERE flightID = ? FOR UPDATE";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, flightId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return 0;
+                Aircraft aircraft = reference.getAircraft(rs.getInt("aircraftID"));
+                return aircraft != null ? aircraft.getCapacity() - rs.getInt("bookedSeats") : ifUnknown;
+            }
+        }
+    }
+
+    /**
+     * Applies committed promotions to the shared caches and the waitlist mirror.
+     */
+    private void applyPromotions(int flightId, List<Promotion> promoted) {
+        if (promoted.isEmpty()) return;
+        List<Waitlist.Entry> entries = new ArrayList<>();
+        for (Promotion p : promoted) {
+            if (p.seatNumber > 0) {
+                SeatAvailabilityCache.getInstance().seatBooked(flightId, p.seatNumber);
+            }
+            FareCalendar.getInstance().seatsChanged(flightId, 1);
+            entries.add(p.entry);
         }
+        PricingEngine.getInstance().invalidate(flightId);
+        Waitlist.getInstance().promoted(entries);
+        NotificationDispatcher.wakeUp();
     }
 
     private BookingRecord mapRow(ResultSet rs) throws SQLException {
@@ -2,20 +2,37 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import booking.customer.Customer;
 
 /**
- * In-memory booking orchestration service.
+ * In-memory booking orchestration service. Safe to share between threads:
+ * seat counts are claimed with compare-and-set on the flight, so bookings for
+ * different flights never contend and a flight can never be oversold.
+ * Given a BookingWriteBehind, every change is also journaled and written to
+ * the Bookings table in the background.
  */
 public class BookingService {
 
-    private final Map<String, Flight> flights = new HashMap<>();
-    private final Map<String, Customer> customers = new HashMap<>();
-    private final Map<String, Booking> bookings = new HashMap<>();
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+    private final Map<String, Customer> customers = new ConcurrentHashMap<>();
+    private final Map<String, Booking> bookings = new ConcurrentHashMap<>();
+    private final BookingWriteBehind writeBehind;
 
     public BookingService(Collection<Flight> flights, Collection<Customer> customers) {
+        this(flights, customers, null);
+    }
+
+    /**
+     * @param writeBehind durable store for bookings, or null to keep them in memory only;
+     *                    flight ids must then be database flightIDs
+     */
+    public BookingService(Collection<Flight> flights, Collection<Customer> customers,
+                          BookingWriteBehind writeBehind) {
+        this.writeBehind = writeBehind;
         if (flights != null) {
             for (Flight f : flights) {
+                if (writeBehind != null) BookingWriteBehind.flightIdOf(f);
                 this.flights.put(f.getId(), f);
             }
         }
@@ -30,34 +47,88 @@ public class BookingService {
         Flight flight = requireFlight(flightId);
         Customer customer = requireCustomer(customerId);
 
-        flight.bookSeats(seatCount);
-
-        String id = UUID.randomUUID().toString();
-        Booking booking = new Booking(id, flight, customer, seatCount);
-        bookings.put(id, booking);
-        return booking;
+        reserveStore();
+        boolean recorded = false;
+        try {
+            flight.bookSeats(seatCount);
+
+            String id = UUID.randomUUID().toString();
+            Booking booking = new Booking(id, flight, customer, seatCount);
+            try {
+                // Journaled before it is visible, so no later change to it can be journaled first
+                recorded = record(booking);
+            } catch (RuntimeException e) {
+                flight.releaseSeats(seatCount);
+                throw e;
+            }
+            bookings.put(id, booking);
+            return booking;
+        } finally {
+            if (!recorded) releaseStore();
+        }
     }
 
     public Booking modifyBooking(String bookingId, int newSeatCount) {
         if (newSeatCount <= 0) throw new IllegalArgumentException("newSeatCount must be > 0");
         Booking booking = getBookingOrThrow(bookingId);
-        int delta = newSeatCount - booking.getSeatCount();
-
-        if (delta > 0) {
-            booking.getFlight().bookSeats(delta);
-        } else if (delta < 0) {
-            booking.getFlight().releaseSeats(-delta);
+        reserveStore();
+        boolean recorded = false;
+        try {
+            // Only changes to the same booking are serialised; the flight counter itself is lock-free
+            synchronized (booking) {
+                if (booking.getStatus() == BookingStatus.CANCELLED) {
+                    throw new IllegalStateException("Booking already cancelled: " + bookingId);
+                }
+                int oldSeatCount = booking.getSeatCount();
+                BookingStatus oldStatus = booking.getStatus();
+                int delta = newSeatCount - oldSeatCount;
+
+                // Claim extra seats before journaling, give seats back only once it is journaled
+                if (delta > 0) {
+                    booking.getFlight().bookSeats(delta);
+                }
+                booking.setSeatCount(newSeatCount);
+                booking.setStatus(BookingStatus.MODIFIED);
+                try {
+                    recorded = record(booking);
+                } catch (RuntimeException e) {
+                    booking.setSeatCount(oldSeatCount);
+                    booking.setStatus(oldStatus);
+                    if (delta > 0) booking.getFlight().releaseSeats(delta);
+                    throw e;
+                }
+                if (delta < 0) {
+                    booking.getFlight().releaseSeats(-delta);
+                }
+            }
+            return booking;
+        } finally {
+            if (!recorded) releaseStore();
         }
-
-        booking.setSeatCount(newSeatCount);
-        booking.setStatus(BookingStatus.MODIFIED);
-        return booking;
     }
 
     public void cancelBooking(String bookingId) {
         Booking booking = getBookingOrThrow(bookingId);
-        booking.getFlight().releaseSeats(booking.getSeatCount());
-        booking.setStatus(BookingStatus.CANCELLED);
+        reserveStore();
+        boolean recorded = false;
+        try {
+            synchronized (booking) {
+                if (booking.getStatus() == BookingStatus.CANCELLED) {
+                    throw new IllegalStateException("Booking already cancelled: " + bookingId);
+                }
+                BookingStatus oldStatus = booking.getStatus();
+                booking.setStatus(BookingStatus.CANCELLED);
+                try {
+                    recorded = record(booking);
+                } catch (RuntimeException e) {
+                    booking.setStatus(oldStatus);
+                    throw e;
+                }
+                booking.getFlight().releaseSeats(booking.getSeatCount());
+            }
+        } finally {
+            if (!recorded) releaseStore();
+        }
     }
 
     public Booking getBookingOrThrow(String bookingId) {
@@ -68,23 +139,41 @@ public class BookingService {
         return booking;
     }
 
+    /**
+     * Renders the booking with the same template as the message the write-behind
+     * sends through NotificationOutbox.
+     */
     public String generateConfirmation(String bookingId) {
         Booking booking = getBookingOrThrow(bookingId);
 
-        StringBuilder sb = new StringBuilder();
-        sb.append("===== BOOKING CONFIRMATION =====\n");
-        sb.append("Booking ID: ").append(booking.getId()).append("\n");
-        sb.append("Status: ").append(booking.getStatus()).append("\n");
-        sb.append("Customer: ").append(booking.getCustomer().getName())
-          .append(" <").append(booking.getCustomer().getEmail()).append(">").append("\n");
-        sb.append("Flight: ").append(booking.getFlight().getId())
-          .append(" ").append(booking.getFlight().getOrigin())
-          .append(" → ").append(booking.getFlight().getDestination()).append("\n");
-        sb.append("Departure: ").append(booking.getFlight().getDepartureTime()).append("\n");
-        sb.append("Seats: ").append(booking.getSeatCount()).append("\n");
-        sb.append("============================\n");
-
-        return sb.toString();
+        Map<String, String> variables = new HashMap<>();
+        variables.put("bookingId", booking.getId());
+        variables.put("status", booking.getStatus().name());
+        variables.put("passengerName", booking.getCustomer().getName());
+        variables.put("passengerEmail", booking.getCustomer().getEmail());
+        variables.put("flightNumber", booking.getFlight().getId());
+        variables.put("origin", booking.getFlight().getOrigin());
+        variables.put("destination", booking.getFlight().getDestination());
+        variables.put("departureTime", String.valueOf(booking.getFlight().getDepartureTime()));
+        variables.put("seatCount", String.valueOf(booking.getSeatCount()));
+        return NotificationTemplates.render(NotificationOutbox.BOOKING_UPDATED, variables).getBody();
+    }
+
+    private void reserveStore() {
+        if (writeBehind != null) writeBehind.reserve();
+    }
+
+    private void releaseStore() {
+        if (writeBehind != null) writeBehind.cancelReservation();
+    }
+
+    /**
+     * @return true if the change now owns its write-behind slot
+     */
+    private boolean record(Booking booking) {
+        if (writeBehind == null) return false;
+        writeBehind.record(booking);
+        return true;
     }
 
     private Flight requireFlight(String id) {
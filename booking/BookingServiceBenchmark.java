@@ -0,0 +1,136 @@
+import booking.customer.Customer;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures in-memory BookingService throughput from one thread up to N, with
+ * every thread on the same flight (hot) and spread over many flights (cold).
+ * Each operation books one seat and cancels it again. Before timing, a sell-out
+ * race checks that a flight never hands out more seats than it has.
+ *
+ * Usage: java BookingServiceBenchmark [maxThreads] [opsPerRun] [coldFlights]
+ */
+public class BookingServiceBenchmark {
+
+    private static final int OVERSELL_CAPACITY = 1000;
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int opsPerRun = args.length > 1 ? Integer.parseInt(args[1]) : 400_000;
+        int coldFlights = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        checkNoOverselling(Math.max(2, maxThreads));
+
+        // Warm up so the first timed run is not paying for JIT compilation
+        run(maxThreads, opsPerRun, 1);
+        run(maxThreads, opsPerRun, coldFlights);
+
+        System.out.printf("%-8s %16s %16s%n", "threads", "hot bookings/s", "cold bookings/s");
+        for (int threads : threadCounts(maxThreads)) {
+            double hot = run(threads, opsPerRun, 1);
+            double cold = run(threads, opsPerRun, coldFlights);
+            System.out.printf("%-8d %16.0f %16.0f%n", threads, hot, cold);
+        }
+    }
+
+    private static List<Integer> threadCounts(int maxThreads) {
+        List<Integer> counts = new ArrayList<>();
+        for (int t = 1; t < maxThreads; t *= 2) {
+            counts.add(t);
+        }
+        counts.add(maxThreads);
+        return counts;
+    }
+
+    /**
+     * @return bookings per second
+     */
+    private static double run(int threads, int opsPerRun, int flightCount) throws InterruptedException {
+        List<Flight> flights = new ArrayList<>();
+        for (int i = 0; i < flightCount; i++) {
+            flights.add(newFlight("F" + i, opsPerRun));
+        }
+        BookingService service = new BookingService(flights,
+                Collections.singletonList(new Customer("C1", "Bench Customer", "bench@example.com")));
+
+        int opsPerThread = opsPerRun / threads;
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < opsPerThread; i++) {
+                        String flightId = "F" + random.nextInt(flightCount);
+                        Booking booking = service.createBooking(flightId, "C1", 1);
+                        service.cancelBooking(booking.getId());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "booker-" + t);
+            worker.start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+
+        for (Flight f : flights) {
+            if (f.getAvailableSeats() != f.getCapacity()) {
+                throw new IllegalStateException("Seat count drifted on flight " + f.getId()
+                        + ": " + f.getAvailableSeats() + " of " + f.getCapacity());
+            }
+        }
+        return (long) opsPerThread * threads / (elapsed / 1e9);
+    }
+
+    /**
+     * Lets many threads race to sell out one flight and fails if more seats are sold than exist.
+     */
+    private static void checkNoOverselling(int threads) throws InterruptedException {
+        Flight flight = newFlight("HOT", OVERSELL_CAPACITY);
+        BookingService service = new BookingService(Collections.singletonList(flight),
+                Collections.singletonList(new Customer("C1", "Bench Customer", "bench@example.com")));
+        AtomicInteger sold = new AtomicInteger();
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                while (true) {
+                    try {
+                        service.createBooking("HOT", "C1", 1);
+                        sold.incrementAndGet();
+                    } catch (IllegalStateException soldOut) {
+                        return;
+                    }
+                }
+            }, "seller-" + t);
+            workers[t].start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+
+        if (sold.get() != OVERSELL_CAPACITY || flight.getAvailableSeats() != 0) {
+            throw new IllegalStateException("Oversold: " + sold.get() + " bookings for "
+                    + OVERSELL_CAPACITY + " seats, " + flight.getAvailableSeats() + " left");
+        }
+        System.out.printf("oversell check: %d threads sold exactly %d of %d seats%n",
+                threads, sold.get(), OVERSELL_CAPACITY);
+    }
+
+    private static Flight newFlight(String id, int capacity) {
+        return new Flight(id, "NYC", "LAX", LocalDateTime.now().plusDays(30), capacity, new BigDecimal("199.99"));
+    }
+}
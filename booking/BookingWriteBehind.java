@@ -0,0 +1,432 @@
+import database.DatabaseConnectivity;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Durable mode for BookingService. Every change is first appended to a
+ * BookingJournal, then a single background thread writes it to the Bookings
+ * table in batched transactions, in journal order. At most queueCapacity
+ * changes may be waiting; past that, callers block (backpressure) and give up
+ * with an IllegalStateException after the offer timeout.
+ *
+ * Rows are keyed by Bookings.bookingRef and written as upserts carrying the full
+ * booking state, so replaying the journal after a crash is harmless.
+ *
+ * A batch that keeps failing is split and written one change at a time, like
+ * FlightScheduleImporter does with a refused chunk. A change MySQL rejects
+ * outright (a data or constraint error, e.g. an unknown flightID) goes to the
+ * journal's dead-letter file and is checkpointed past, so one bad change cannot
+ * hold up the queue or stop the next start.
+ */
+public class BookingWriteBehind implements Closeable {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final long DEFAULT_OFFER_TIMEOUT_MILLIS = 5_000;
+    private static final long MAX_RETRY_DELAY_MILLIS = 30_000;
+    // Failed attempts at a batch before it is written one change at a time
+    private static final int SPLIT_AFTER_FAILURES = 3;
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO Bookings (bookingRef, flightID, passengerName, passengerEmail, seatCount, status, bookingTime) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE seatCount = VALUES(seatCount), status = VALUES(status)";
+
+    /**
+     * Point-in-time snapshot of write-behind statistics, for monitoring.
+     */
+    public static class Metrics {
+        private final int queueDepth;
+        private final int queueCapacity;
+        private final long journaled;
+        private final long flushed;
+        private final long rowsWritten;
+        private final long batches;
+        private final long failedFlushes;
+        private final long deadLettered;
+        private final long backpressureTimeouts;
+        private final long lastFlushMillis;
+        private final long maxFlushMillis;
+        private final long maxLagMillis;
+
+        Metrics(int queueDepth, int queueCapacity, long journaled, long flushed, long rowsWritten,
+                long batches, long failedFlushes, long deadLettered, long backpressureTimeouts,
+                long lastFlushMillis, long maxFlushMillis, long maxLagMillis) {
+            this.queueDepth = queueDepth;
+            this.queueCapacity = queueCapacity;
+            this.journaled = journaled;
+            this.flushed = flushed;
+            this.rowsWritten = rowsWritten;
+            this.batches = batches;
+            this.failedFlushes = failedFlushes;
+            this.deadLettered = deadLettered;
+            this.backpressureTimeouts = backpressureTimeouts;
+            this.lastFlushMillis = lastFlushMillis;
+            this.maxFlushMillis = maxFlushMillis;
+            this.maxLagMillis = maxLagMillis;
+        }
+
+        /** Changes journaled but not yet committed to MySQL. */
+        public int getQueueDepth() { return queueDepth; }
+        public int getQueueCapacity() { return queueCapacity; }
+        public long getJournaled() { return journaled; }
+        public long getFlushed() { return flushed; }
+        /** Rows written after coalescing repeated changes to the same booking. */
+        public long getRowsWritten() { return rowsWritten; }
+        public long getBatches() { return batches; }
+        public long getFailedFlushes() { return failedFlushes; }
+        /** Changes MySQL refused, moved to the journal's dead-letter file. */
+        public long getDeadLettered() { return deadLettered; }
+        public long getBackpressureTimeouts() { return backpressureTimeouts; }
+        /** Duration of the last flush transaction. */
+        public long getLastFlushMillis() { return lastFlushMillis; }
+        public long getMaxFlushMillis() { return maxFlushMillis; }
+        /** Longest time a change has waited between journal and commit. */
+        public long getMaxLagMillis() { return maxLagMillis; }
+
+        @Override
+        public String toString() {
+            return String.format("queue=%d/%d journaled=%d flushed=%d rows=%d batches=%d failed=%d " +
+                            "deadLettered=%d backpressureTimeouts=%d flush(last=%dms max=%dms) maxLag=%dms",
+                    queueDepth, queueCapacity, journaled, flushed, rowsWritten, batches, failedFlushes,
+                    deadLettered, backpressureTimeouts, lastFlushMillis, maxFlushMillis, maxLagMillis);
+        }
+    }
+
+    private final BookingJournal journal;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final long offerTimeoutMillis;
+    // Permits = free queue slots; taken before a change, given back once it is committed
+    private final Semaphore capacity;
+    private final LinkedBlockingQueue<BookingJournal.Entry> queue = new LinkedBlockingQueue<>();
+    private final NotificationOutbox outbox = new NotificationOutbox();
+    private final Thread flusher;
+    private volatile boolean closed;
+
+    private final AtomicLong journaled = new AtomicLong();
+    private final AtomicLong flushed = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private final AtomicLong backpressureTimeouts = new AtomicLong();
+    private volatile long lastFlushMillis;
+    private volatile long maxFlushMillis;
+    private volatile long maxLagMillis;
+
+    public BookingWriteBehind(Path journalFile) throws IOException, SQLException {
+        this(journalFile, DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_OFFER_TIMEOUT_MILLIS, true);
+    }
+
+    /**
+     * Opens the journal, writes any changes left over from a previous run to
+     * MySQL, then starts the background flusher.
+     * @throws SQLException if the leftover changes cannot be written for now (e.g. MySQL is down);
+     *                      they stay in the journal
+     */
+    public BookingWriteBehind(Path journalFile, int queueCapacity, int batchSize,
+                              long offerTimeoutMillis, boolean syncEachWrite) throws IOException, SQLException {
+        if (queueCapacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("queueCapacity and batchSize must be positive");
+        }
+        this.journal = new BookingJournal(journalFile, syncEachWrite);
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.capacity = new Semaphore(queueCapacity);
+
+        try {
+            recover();
+        } catch (IOException | SQLException e) {
+            journal.close();
+            throw e;
+        }
+
+        this.flusher = new Thread(this::runFlusher, "booking-write-behind");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    private void recover() throws IOException, SQLException {
+        List<BookingJournal.Entry> pending = journal.pendingEntries();
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            List<BookingJournal.Entry> batch =
+                    new ArrayList<>(pending.subList(from, Math.min(from + batchSize, pending.size())));
+            try {
+                writeBatch(batch);
+                journal.checkpoint(batch.get(batch.size() - 1).getSequence());
+            } catch (SQLException e) {
+                writeOneByOne(batch);
+            }
+        }
+        if (!pending.isEmpty()) {
+            System.out.println("Recovered " + pending.size() + " unwritten booking changes from the journal");
+        }
+    }
+
+    /**
+     * Reserves a queue slot, blocking while the queue is full.
+     * Call before changing in-memory state; follow with record() or cancelReservation().
+     * @throws IllegalStateException if no slot frees up within the offer timeout
+     */
+    public void reserve() {
+        if (closed) throw new IllegalStateException("Booking write-behind is closed");
+        try {
+            if (!capacity.tryAcquire(offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                backpressureTimeouts.incrementAndGet();
+                throw new IllegalStateException("Booking store is busy, please try again");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the booking store", e);
+        }
+    }
+
+    public void cancelReservation() {
+        capacity.release();
+    }
+
+    /**
+     * Journals the current state of a booking and queues it for MySQL, using a slot
+     * taken by reserve(). Changes to one booking must be recorded in the order they happen.
+     * @throws IllegalStateException if the journal cannot be written; the slot is still held
+     */
+    public void record(Booking booking) {
+        try {
+            synchronized (journal) {
+                BookingJournal.Entry entry = journal.append(booking.getId(), flightIdOf(booking.getFlight()),
+                        booking.getCustomer().getName(), booking.getCustomer().getEmail(),
+                        booking.getSeatCount(), booking.getStatus().name(), booking.getCreatedAt());
+                // Same lock as append, so the queue is in sequence order for checkpointing
+                queue.add(entry);
+            }
+            journaled.incrementAndGet();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not journal booking " + booking.getId() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * In-memory flights must use their Flights.flightID as id to be persisted.
+     */
+    static int flightIdOf(Flight flight) {
+        try {
+            return Integer.parseInt(flight.getId());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Flight id must be a database flightID: " + flight.getId());
+        }
+    }
+
+    public Metrics getMetrics() {
+        return new Metrics(queueCapacity - capacity.availablePermits(), queueCapacity,
+                journaled.get(), flushed.get(), rowsWritten.get(), batches.get(), failedFlushes.get(),
+                deadLettered.get(), backpressureTimeouts.get(), lastFlushMillis, maxFlushMillis, maxLagMillis);
+    }
+
+    /**
+     * Blocks until everything recorded so far is committed, or the timeout passes.
+     * @return true if the queue drained in time
+     */
+    public boolean awaitFlushed(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (capacity.availablePermits() < queueCapacity) {
+            if (System.currentTimeMillis() >= deadline) return false;
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    /**
+     * Stops accepting changes and gives the flusher up to 30 seconds to drain.
+     * Anything still unwritten stays in the journal for the next start.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            flusher.join(30_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (flusher.isAlive()) {
+            flusher.interrupt();
+            System.err.println("Booking write-behind closed with " + queue.size() + " changes left in the journal");
+        }
+        journal.close();
+    }
+
+    private void runFlusher() {
+        List<BookingJournal.Entry> batch = new ArrayList<>(batchSize);
+        long retryDelay = 500;
+        int failures = 0;
+        while (true) {
+            try {
+                if (batch.isEmpty()) {
+                    BookingJournal.Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        if (closed) return;
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                }
+
+                long start = System.nanoTime();
+                long oldestNanos = batch.get(0).getJournaledAtNanos();
+                int size = batch.size();
+                try {
+                    if (failures < SPLIT_AFTER_FAILURES) {
+                        writeBatch(batch);
+                        journal.checkpoint(batch.get(batch.size() - 1).getSequence());
+                        batch.clear();
+                    } else {
+                        writeOneByOne(batch);
+                    }
+                } finally {
+                    // Written or dead-lettered changes are checkpointed, even if the rest failed
+                    int done = size - batch.size();
+                    flushed.addAndGet(done);
+                    capacity.release(done);
+                }
+                long now = System.nanoTime();
+
+                lastFlushMillis = (now - start) / 1_000_000;
+                maxFlushMillis = Math.max(maxFlushMillis, lastFlushMillis);
+                maxLagMillis = Math.max(maxLagMillis, (now - oldestNanos) / 1_000_000);
+                batches.incrementAndGet();
+                failures = 0;
+                retryDelay = 500;
+            } catch (InterruptedException e) {
+                return;
+            } catch (SQLException | IOException | RuntimeException e) {
+                // Keep the batch and retry it, so order is preserved and nothing is dropped
+                failures++;
+                failedFlushes.incrementAndGet();
+                System.err.println("Booking write-behind flush failed, retrying in " + retryDelay + "ms: " + e.getMessage());
+                try {
+                    Thread.sleep(retryDelay);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Writes a batch one change at a time, in order, checkpointing and removing each
+     * from the front of the list as it goes. A change MySQL refuses outright is
+     * dead-lettered instead.
+     * @throws SQLException on the first failure that may go away on retry; that change
+     *                      and the ones after it are left in the list
+     */
+    private void writeOneByOne(List<BookingJournal.Entry> batch) throws SQLException, IOException {
+        while (!batch.isEmpty()) {
+            BookingJournal.Entry entry = batch.get(0);
+            try {
+                writeBatch(List.of(entry));
+            } catch (SQLException e) {
+                if (!isPermanent(e)) throw e;
+                journal.deadLetter(entry, e.getMessage());
+                deadLettered.incrementAndGet();
+                System.err.println("Booking change " + entry.getSequence() + " for " + entry.getBookingRef()
+                        + " refused by MySQL, moved to " + journal.getDeadLetterFile() + ": " + e.getMessage());
+            }
+            journal.checkpoint(entry.getSequence());
+            batch.remove(0);
+        }
+    }
+
+    /**
+     * Data errors (SQLSTATE class 22) and constraint violations (class 23) mean the
+     * row will never be accepted; anything else may succeed on retry.
+     */
+    static boolean isPermanent(SQLException e) {
+        // A BatchUpdateException may carry the state only on its cause
+        for (Throwable t = e; t instanceof SQLException; t = t.getCause()) {
+            String state = ((SQLException) t).getSQLState();
+            if (state != null) return state.startsWith("22") || state.startsWith("23");
+        }
+        return false;
+    }
+
+    /**
+     * Writes one batch in a single transaction. Several changes to the same booking
+     * collapse into its latest state.
+     */
+    private void writeBatch(List<BookingJournal.Entry> batch) throws SQLException {
+        Map<String, BookingJournal.Entry> latest = new LinkedHashMap<>();
+        for (BookingJournal.Entry e : batch) {
+            latest.put(e.getBookingRef(), e);
+        }
+        Set<Integer> flightIds = new HashSet<>();
+        for (BookingJournal.Entry e : latest.values()) {
+            flightIds.add(e.getFlightId());
+        }
+
+        try (Connection conn = DatabaseConnectivity.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(UPSERT_SQL)) {
+                for (BookingJournal.Entry e : latest.values()) {
+                    ps.setString(1, e.getBookingRef());
+                    ps.setInt(2, e.getFlightId());
+                    ps.setString(3, e.getPassengerName());
+                    ps.setString(4, e.getPassengerEmail());
+                    ps.setInt(5, e.getSeatCount());
+                    ps.setString(6, e.getStatus());
+                    ps.setTimestamp(7, Timestamp.valueOf(e.getBookingTime()));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                // The previous state of each row is unknown here, so recount the touched flights
+                FlightSeatCounter.recount(conn, flightIds);
+                // One message per booking with its latest state; flight details are added when sent
+                List<NotificationOutbox.Draft> messages = new ArrayList<>();
+                for (BookingJournal.Entry e : latest.values()) {
+                    Map<String, String> variables = new HashMap<>();
+                    variables.put("bookingId", e.getBookingRef());
+                    variables.put("status", e.getStatus());
+                    variables.put("passengerName", e.getPassengerName());
+                    variables.put("passengerEmail", e.getPassengerEmail());
+                    variables.put("flightId", String.valueOf(e.getFlightId()));
+                    variables.put("seatCount", String.valueOf(e.getSeatCount()));
+                    // Replays and split retries write the same entry again; the key keeps it one message
+                    messages.add(new NotificationOutbox.Draft(NotificationOutbox.BOOKING_UPDATED,
+                            e.getPassengerEmail(), variables, e.getBookingRef() + "#" + e.getSequence()));
+                }
+                outbox.enqueue(conn, messages);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        rowsWritten.addAndGet(latest.size());
+        NotificationDispatcher.wakeUp();
+        for (int flightId : flightIds) {
+            PricingEngine.getInstance().invalidate(flightId);
+        }
+        try {
+            FareCalendar.getInstance().refreshFlights(flightIds);
+        } catch (SQLException e) {
+            // The batch is committed; just make the calendar reload rather than retry it
+            FareCalendar.getInstance().invalidate();
+        }
+    }
+}
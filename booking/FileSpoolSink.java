@@ -0,0 +1,33 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Writes each message to &lt;spool dir&gt;/&lt;messageId&gt;.eml for a mail relay
+ * (or a developer) to pick up. The file is written under a temporary name and
+ * renamed, so readers never see half a message, and a redelivery replaces the
+ * earlier copy instead of adding a duplicate.
+ */
+public class FileSpoolSink implements NotificationSink {
+
+    private final Path spoolDir;
+
+    public FileSpoolSink(Path spoolDir) throws IOException {
+        this.spoolDir = Files.createDirectories(spoolDir);
+    }
+
+    @Override
+    public void deliver(long messageId, String recipient, String subject, String body) throws IOException {
+        Path target = spoolDir.resolve(messageId + ".eml");
+        Path temp = spoolDir.resolve(messageId + ".eml.tmp");
+        Files.write(temp, NotificationSink.format(messageId, recipient, subject, body)
+                .getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public Path getSpoolDir() {
+        return spoolDir;
+    }
+}
@@ -1,8 +1,10 @@
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Simple in-memory flight entity with seat tracking.
+ * Seat counts are updated with compare-and-set, so concurrent bookings can never oversell.
  */
 public class Flight {
     private final String id;
@@ -10,7 +12,7 @@ public class Flight {
     private final String destination;
     private final LocalDateTime departureTime;
     private final int capacity;
-    private int availableSeats;
+    private final AtomicInteger availableSeats;
     private final BigDecimal price;
 
     public Flight(String id,
@@ -30,7 +32,7 @@ public class Flight {
         this.destination = destination;
         this.departureTime = departureTime;
         this.capacity = capacity;
-        this.availableSeats = capacity;
+        this.availableSeats = new AtomicInteger(capacity);
         this.price = price;
     }
 
@@ -55,7 +57,7 @@ public class Flight {
     }
 
     public int getAvailableSeats() {
-        return availableSeats;
+        return availableSeats.get();
     }
 
     public BigDecimal getPrice() {
@@ -66,19 +68,25 @@ public class Flight {
         if (count <= 0) {
             throw new IllegalArgumentException("Seat count must be positive.");
         }
-        if (availableSeats < count) {
-            throw new IllegalStateException("Not enough seats available for flight " + id);
-        }
-        availableSeats -= count;
+        int current;
+        do {
+            current = availableSeats.get();
+            if (current < count) {
+                throw new IllegalStateException("Not enough seats available for flight " + id);
+            }
+        } while (!availableSeats.compareAndSet(current, current - count));
     }
 
     public void releaseSeats(int count) {
         if (count <= 0) {
             throw new IllegalArgumentException("Seat count must be positive.");
         }
-        if (availableSeats + count > capacity) {
-            throw new IllegalStateException("Releasing more seats than flight capacity.");
-        }
-        availableSeats += count;
+        int current;
+        do {
+            current = availableSeats.get();
+            if (current + count > capacity) {
+                throw new IllegalStateException("Releasing more seats than flight capacity.");
+            }
+        } while (!availableSeats.compareAndSet(current, current + count));
     }
 }
@@ -0,0 +1,302 @@
+import database.DatabaseConnectivity;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains NotificationOutbox: a pool of worker threads claims due messages in
+ * batches, renders them with NotificationTemplates and hands them to a
+ * NotificationSink.
+ *
+ * A failed delivery is retried with exponential backoff and jitter, up to
+ * MAX_ATTEMPTS, after which the row is marked FAILED. A message is marked SENT
+ * only after the sink accepted it, so a crash in between means it is sent
+ * again: delivery is at least once. Workers poll, and wakeUp() lets a
+ * committing transaction skip the wait.
+ */
+public class NotificationDispatcher {
+
+    public static final int DEFAULT_WORKERS = 2;
+    public static final int DEFAULT_BATCH_SIZE = 50;
+    public static final long DEFAULT_POLL_MILLIS = 1_000;
+    public static final int LEASE_SECONDS = 60;
+    public static final int MAX_ATTEMPTS = 8;
+    private static final long BASE_RETRY_DELAY_MILLIS = 2_000;
+    private static final long MAX_RETRY_DELAY_MILLIS = 10 * 60_000;
+    // Dispatch lags kept for the percentiles in getMetrics()
+    private static final int LAG_WINDOW = 1024;
+
+    private static final Object WAKE_UP = new Object();
+    private static NotificationDispatcher defaultDispatcher;
+
+    /** Counters since start, and dispatch lag over the last LAG_WINDOW deliveries. */
+    public static class Metrics {
+        private final long delivered;
+        private final long retried;
+        private final long failed;
+        private final long batches;
+        private final double lagP50Millis;
+        private final double lagP99Millis;
+        private final double lagMaxMillis;
+
+        Metrics(long delivered, long retried, long failed, long batches,
+                double lagP50Millis, double lagP99Millis, double lagMaxMillis) {
+            this.delivered = delivered;
+            this.retried = retried;
+            this.failed = failed;
+            this.batches = batches;
+            this.lagP50Millis = lagP50Millis;
+            this.lagP99Millis = lagP99Millis;
+            this.lagMaxMillis = lagMaxMillis;
+        }
+
+        public long getDelivered() { return delivered; }
+        public long getRetried() { return retried; }
+        /** Messages given up on after MAX_ATTEMPTS or with no template. */
+        public long getFailed() { return failed; }
+        public long getBatches() { return batches; }
+        /** Time from the outbox write to the sink accepting the message. */
+        public double getLagP50Millis() { return lagP50Millis; }
+        public double getLagP99Millis() { return lagP99Millis; }
+        public double getLagMaxMillis() { return lagMaxMillis; }
+
+        @Override
+        public String toString() {
+            return String.format("delivered=%d retried=%d failed=%d batches=%d lag p50=%.1fms p99=%.1fms max=%.1fms",
+                    delivered, retried, failed, batches, lagP50Millis, lagP99Millis, lagMaxMillis);
+        }
+    }
+
+    private final NotificationOutbox outbox;
+    private final NotificationSink sink;
+    private final int workerCount;
+    private final int batchSize;
+    private final long pollMillis;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final long[] lagNanos = new long[LAG_WINDOW];
+    private long lagCount;
+
+    public NotificationDispatcher(NotificationSink sink) {
+        this(new NotificationOutbox(), sink, DEFAULT_WORKERS, DEFAULT_BATCH_SIZE, DEFAULT_POLL_MILLIS);
+    }
+
+    public NotificationDispatcher(NotificationOutbox outbox, NotificationSink sink,
+                                  int workerCount, int batchSize, long pollMillis) {
+        this.outbox = outbox;
+        this.sink = sink;
+        this.workerCount = workerCount;
+        this.batchSize = batchSize;
+        this.pollMillis = pollMillis;
+    }
+
+    /**
+     * Starts the process-wide dispatcher. Calling it again has no effect.
+     */
+    public static synchronized NotificationDispatcher startDefault(NotificationSink sink) {
+        if (defaultDispatcher == null) {
+            defaultDispatcher = new NotificationDispatcher(sink);
+            defaultDispatcher.start();
+        }
+        return defaultDispatcher;
+    }
+
+    /**
+     * Tells idle workers that new messages have been committed.
+     */
+    public static void wakeUp() {
+        synchronized (WAKE_UP) {
+            WAKE_UP.notifyAll();
+        }
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            Thread t = new Thread(this::runWorker, "outbox-dispatcher-" + i);
+            t.setDaemon(true);
+            workers.add(t);
+            t.start();
+        }
+    }
+
+    /**
+     * Stops the workers after their current batch.
+     */
+    public synchronized void stop() throws InterruptedException {
+        running = false;
+        wakeUp();
+        for (Thread t : workers) {
+            t.join();
+        }
+        workers.clear();
+    }
+
+    private void runWorker() {
+        long errorDelay = pollMillis;
+        while (running) {
+            try {
+                int processed = drainOnce();
+                errorDelay = pollMillis;
+                if (processed == batchSize) continue; // more may be waiting
+                waitForWork(pollMillis);
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("Outbox dispatch failed: " + e.getMessage());
+                waitForWork(errorDelay);
+                errorDelay = Math.min(errorDelay * 2, MAX_RETRY_DELAY_MILLIS);
+            }
+        }
+    }
+
+    private void waitForWork(long millis) {
+        synchronized (WAKE_UP) {
+            if (!running) return;
+            try {
+                WAKE_UP.wait(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+        }
+    }
+
+    /**
+     * Claims and delivers one batch.
+     * @return the number of messages claimed
+     */
+    public int drainOnce() throws SQLException {
+        List<NotificationOutbox.Message> batch = outbox.claim(batchSize, LEASE_SECONDS);
+        if (batch.isEmpty()) return 0;
+        long claimedAt = System.nanoTime();
+        batches.incrementAndGet();
+        addFlightDetails(batch);
+
+        List<Long> sent = new ArrayList<>();
+        for (NotificationOutbox.Message m : batch) {
+            NotificationTemplates.Rendered message;
+            try {
+                message = NotificationTemplates.render(m.getEventType(), m.getVariables());
+            } catch (IllegalArgumentException e) {
+                outbox.markFailed(m.getOutboxId(), e.getMessage());
+                failed.incrementAndGet();
+                continue;
+            }
+            try {
+                sink.deliver(m.getOutboxId(), m.getRecipient(), message.getSubject(), message.getBody());
+                sent.add(m.getOutboxId());
+                recordLag(m.getAgeMicros() * 1000 + (System.nanoTime() - claimedAt));
+            } catch (IOException | RuntimeException e) {
+                int attempts = m.getAttempts() + 1;
+                if (attempts >= MAX_ATTEMPTS) {
+                    outbox.markFailed(m.getOutboxId(), e.toString());
+                    failed.incrementAndGet();
+                } else {
+                    outbox.retryLater(m.getOutboxId(), retryDelayMillis(attempts), e.toString());
+                    retried.incrementAndGet();
+                }
+            }
+        }
+        outbox.markSent(sent);
+        delivered.addAndGet(sent.size());
+        return batch.size();
+    }
+
+    /**
+     * Exponential backoff with jitter, so failed messages do not retry in lockstep.
+     */
+    static long retryDelayMillis(int attempts) {
+        long delay = Math.min(MAX_RETRY_DELAY_MILLIS, BASE_RETRY_DELAY_MILLIS << Math.min(attempts - 1, 20));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    /**
+     * Fills in flight number, route and departure for messages that carry a
+     * flightId, with one query per batch.
+     */
+    private void addFlightDetails(List<NotificationOutbox.Message> batch) throws SQLException {
+        Set<Integer> flightIds = new HashSet<>();
+        for (NotificationOutbox.Message m : batch) {
+            String id = m.getVariables().get("flightId");
+            if (id != null && id.matches("\\d+")) flightIds.add(Integer.parseInt(id));
+        }
+        if (flightIds.isEmpty()) return;
+
+        Map<String, Map<String, String>> flights = new HashMap<>();
+        String sql = "SELECT flightID, flightNumber, origin, destination, departureTime FROM Flights " +
+                     "WHERE flightID IN (" + String.join(", ", Collections.nCopies(flightIds.size(), "?")) + ")";
+        try (Connection conn = DatabaseConnectivity.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            int i = 1;
+            for (int id : flightIds) {
+                ps.setInt(i++, id);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Map<String, String> details = new HashMap<>();
+                    details.put("flightNumber", rs.getString("flightNumber"));
+                    details.put("origin", rs.getString("origin"));
+                    details.put("destination", rs.getString("destination"));
+                    details.put("departureTime", String.valueOf(rs.getTimestamp("departureTime")));
+                    flights.put(String.valueOf(rs.getInt("flightID")), details);
+                }
+            }
+        }
+        for (NotificationOutbox.Message m : batch) {
+            Map<String, String> details = flights.get(m.getVariables().get("flightId"));
+            if (details == null) continue;
+            for (Map.Entry<String, String> e : details.entrySet()) {
+                m.getVariables().putIfAbsent(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    private synchronized void recordLag(long nanos) {
+        lagNanos[(int) (lagCount++ % LAG_WINDOW)] = nanos;
+    }
+
+    public Metrics getMetrics() {
+        long[] lags;
+        synchronized (this) {
+            lags = Arrays.copyOf(lagNanos, (int) Math.min(lagCount, LAG_WINDOW));
+        }
+        Arrays.sort(lags);
+        double p50 = lags.length == 0 ? 0 : lags[lags.length / 2] / 1e6;
+        double p99 = lags.length == 0 ? 0 : lags[Math.min(lags.length - 1, (int) (lags.length * 0.99))] / 1e6;
+        double max = lags.length == 0 ? 0 : lags[lags.length - 1] / 1e6;
+        return new Metrics(delivered.get(), retried.get(), failed.get(), batches.get(), p50, p99, max);
+    }
+
+    /**
+     * Runs a dispatcher in this process and prints metrics every 10 seconds.
+     * Usage: java NotificationDispatcher [spoolDir | smtp host port]
+     */
+    public static void main(String[] args) throws Exception {
+        NotificationSink sink = args.length >= 3 && "smtp".equals(args[0])
+                ? new SmtpSink(args[1], Integer.parseInt(args[2]))
+                : new FileSpoolSink(Paths.get(args.length > 0 ? args[0] : "mail-spool"));
+        NotificationDispatcher dispatcher = startDefault(sink);
+        NotificationOutbox outbox = new NotificationOutbox();
+        while (true) {
+            Thread.sleep(10_000);
+            long[] backlog = outbox.backlog();
+            System.out.println(dispatcher.getMetrics() + " pending=" + backlog[0] +
+                    " oldestPending=" + backlog[1] + "ms");
+        }
+    }
+}
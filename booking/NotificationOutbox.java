@@ -0,0 +1,272 @@
+import database.DatabaseConnectivity;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC DAO for the NotificationOutbox table: messages to passengers, written in
+ * the same transaction as the booking change they describe, so a committed
+ * booking always has its message and a rolled-back one never does.
+ * NotificationDispatcher drains the table.
+ *
+ * A draft may carry a dedupe key, unique in the table. Enqueueing it again,
+ * e.g. when a journaled change is replayed, leaves the first row in place, so
+ * the passenger gets one message with one outboxID.
+ *
+ * A row is PENDING until delivered (SENT) or given up on (FAILED). Claiming a
+ * row leases it by pushing nextAttemptAt into the future; if the claiming
+ * process dies, the lease runs out and another worker delivers it again.
+ */
+public class NotificationOutbox {
+
+    public static final String BOOKING_CONFIRMED = "BOOKING_CONFIRMED";
+    public static final String BOOKING_UPDATED = "BOOKING_UPDATED";
+    public static final String WAITLIST_PROMOTED = "WAITLIST_PROMOTED";
+
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    // Claim query; QueryPlanCheck checks its plan
+    static final String CLAIM_SQL = "SELECT outboxID, eventType, recipient, payload, attempts, " +
+            "TIMESTAMPDIFF(MICROSECOND, createdAt, NOW(3)) AS ageMicros " +
+            "FROM NotificationOutbox WHERE status = 'PENDING' AND nextAttemptAt <= NOW(3) " +
+            "ORDER BY nextAttemptAt, outboxID LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    /** A message to be written to the outbox. */
+    public static class Draft {
+        private final String eventType;
+        private final String recipient;
+        private final Map<String, String> variables;
+        private final String dedupeKey;
+
+        public Draft(String eventType, String recipient, Map<String, String> variables) {
+            this(eventType, recipient, variables, null);
+        }
+
+        /**
+         * @param dedupeKey identifies the change the message is about; null if it cannot repeat
+         */
+        public Draft(String eventType, String recipient, Map<String, String> variables, String dedupeKey) {
+            this.eventType = eventType;
+            this.recipient = recipient;
+            this.variables = variables;
+            this.dedupeKey = dedupeKey;
+        }
+    }
+
+    /** A claimed outbox row. */
+    public static class Message {
+        private final long outboxId;
+        private final String eventType;
+        private final String recipient;
+        private final Map<String, String> variables;
+        private final int attempts;
+        private final long ageMicros;
+
+        Message(long outboxId, String eventType, String recipient, Map<String, String> variables,
+                int attempts, long ageMicros) {
+            this.outboxId = outboxId;
+            this.eventType = eventType;
+            this.recipient = recipient;
+            this.variables = variables;
+            this.attempts = attempts;
+            this.ageMicros = ageMicros;
+        }
+
+        public long getOutboxId() { return outboxId; }
+        public String getEventType() { return eventType; }
+        public String getRecipient() { return recipient; }
+        /** Template variables; modifiable so the dispatcher can add flight details. */
+        public Map<String, String> getVariables() { return variables; }
+        /** Failed deliveries so far. */
+        public int getAttempts() { return attempts; }
+        /** Time since the row was written, by the database clock, when it was claimed. */
+        public long getAgeMicros() { return ageMicros; }
+    }
+
+    /**
+     * Writes a message on the caller's connection, inside the caller's transaction.
+     */
+    public void enqueue(Connection conn, String eventType, String recipient, Map<String, String> variables)
+            throws SQLException {
+        enqueue(conn, List.of(new Draft(eventType, recipient, variables)));
+    }
+
+    /**
+     * Writes several messages as one JDBC batch on the caller's connection.
+     * A draft whose dedupe key is already in the table is skipped.
+     */
+    public void enqueue(Connection conn, Collection<Draft> drafts) throws SQLException {
+        if (drafts.isEmpty()) return;
+        // A no-op update rather than INSERT IGNORE, which would also hide errors other than the duplicate key
+        String sql = "INSERT INTO NotificationOutbox (eventType, recipient, payload, dedupeKey) VALUES (?, ?, ?, ?) " +
+                     "ON DUPLICATE KEY UPDATE outboxID = outboxID";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (Draft d : drafts) {
+                ps.setString(1, d.eventType);
+                ps.setString(2, d.recipient);
+                ps.setString(3, encode(d.variables));
+                ps.setString(4, d.dedupeKey);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Claims up to limit due messages, oldest first, and leases them for leaseSeconds.
+     * Rows claimed by other workers are skipped rather than waited for.
+     */
+    public List<Message> claim(int limit, int leaseSeconds) throws SQLException {
+        List<Message> claimed = new ArrayList<>();
+        try (Connection conn = DatabaseConnectivity.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement ps = conn.prepareStatement(CLAIM_SQL)) {
+                    ps.setInt(1, limit);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            claimed.add(new Message(rs.getLong("outboxID"), rs.getString("eventType"),
+                                    rs.getString("recipient"), decode(rs.getString("payload")),
+                                    rs.getInt("attempts"), rs.getLong("ageMicros")));
+                        }
+                    }
+                }
+                if (!claimed.isEmpty()) {
+                    List<Long> ids = new ArrayList<>();
+                    for (Message m : claimed) ids.add(m.outboxId);
+                    try (PreparedStatement ps = conn.prepareStatement(
+                            "UPDATE NotificationOutbox SET nextAttemptAt = TIMESTAMPADD(SECOND, ?, NOW(3)) " +
+                            "WHERE outboxID IN (" + placeholders(ids.size()) + ")")) {
+                        ps.setInt(1, leaseSeconds);
+                        bindIds(ps, 2, ids);
+                        ps.executeUpdate();
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        return claimed;
+    }
+
+    public void markSent(Collection<Long> outboxIds) throws SQLException {
+        if (outboxIds.isEmpty()) return;
+        String sql = "UPDATE NotificationOutbox SET status = 'SENT', sentAt = NOW(3), lastError = NULL " +
+                     "WHERE outboxID IN (" + placeholders(outboxIds.size()) + ")";
+        try (Connection conn = DatabaseConnectivity.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            bindIds(ps, 1, outboxIds);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Records a failed delivery and schedules the next attempt.
+     */
+    public void retryLater(long outboxId, long delayMillis, String error) throws SQLException {
+        String sql = "UPDATE NotificationOutbox SET attempts = attempts + 1, " +
+                     "nextAttemptAt = TIMESTAMPADD(MICROSECOND, ?, NOW(3)), lastError = ? WHERE outboxID = ?";
+        try (Connection conn = DatabaseConnectivity.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, delayMillis * 1000);
+            ps.setString(2, truncate(error));
+            ps.setLong(3, outboxId);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Gives up on a message; it stays in the table as FAILED for inspection.
+     */
+    public void markFailed(long outboxId, String error) throws SQLException {
+        String sql = "UPDATE NotificationOutbox SET status = 'FAILED', attempts = attempts + 1, lastError = ? " +
+                     "WHERE outboxID = ?";
+        try (Connection conn = DatabaseConnectivity.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, truncate(error));
+            ps.setLong(2, outboxId);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * @return {pending messages, age in milliseconds of the oldest one (0 if none)}
+     */
+    public long[] backlog() throws SQLException {
+        String sql = "SELECT COUNT(*), COALESCE(TIMESTAMPDIFF(MICROSECOND, MIN(createdAt), NOW(3)), 0) " +
+                     "FROM NotificationOutbox WHERE status = 'PENDING'";
+        try (Connection conn = DatabaseConnectivity.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return new long[] {rs.getLong(1), rs.getLong(2) / 1000};
+        }
+    }
+
+    /**
+     * Stores variables as key=value lines, with backslash, CR and LF escaped in values.
+     */
+    static String encode(Map<String, String> variables) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> e : variables.entrySet()) {
+            sb.append(e.getKey()).append('=');
+            String value = e.getValue() == null ? "" : e.getValue();
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '\\': sb.append("\\\\"); break;
+                    case '\n': sb.append("\\n"); break;
+                    case '\r': sb.append("\\r"); break;
+                    default: sb.append(c);
+                }
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    static Map<String, String> decode(String payload) {
+        Map<String, String> variables = new LinkedHashMap<>();
+        if (payload == null) return variables;
+        for (String line : payload.split("\n")) {
+            int eq = line.indexOf('=');
+            if (eq <= 0) continue;
+            StringBuilder value = new StringBuilder();
+            for (int i = eq + 1; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (c == '\\' && i + 1 < line.length()) {
+                    char next = line.charAt(++i);
+                    value.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+                } else {
+                    value.append(c);
+                }
+            }
+            variables.put(line.substring(0, eq), value.toString());
+        }
+        return variables;
+    }
+
+    private static String placeholders(int n) {
+        return String.join(", ", Collections.nCopies(n, "?"));
+    }
+
+    private static void bindIds(PreparedStatement ps, int first, Collection<Long> ids) throws SQLException {
+        int i = first;
+        for (long id : ids) {
+            ps.setLong(i++, id);
+        }
+    }
+
+    private static String truncate(String error) {
+        if (error == null) return null;
+        return error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -0,0 +1,36 @@
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Where NotificationDispatcher delivers rendered messages.
+ *
+ * Delivery is at least once: the same message may be delivered again after a
+ * crash or a failed acknowledgement, always with the same messageId, which
+ * sinks pass on (file name, Message-ID header) so duplicates can be spotted.
+ */
+public interface NotificationSink {
+
+    String FROM_ADDRESS = "bookings@flightdb.example";
+
+    /**
+     * @throws IOException if the message was not accepted; it will be retried
+     */
+    void deliver(long messageId, String recipient, String subject, String body) throws IOException;
+
+    /**
+     * The message as RFC 5322 text with CRLF line endings.
+     */
+    static String format(long messageId, String recipient, String subject, String body) {
+        StringBuilder sb = new StringBuilder(body.length() + 256);
+        sb.append("Message-ID: <outbox-").append(messageId).append("@flightdb.example>\r\n");
+        sb.append("Date: ").append(DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now())).append("\r\n");
+        sb.append("From: ").append(FROM_ADDRESS).append("\r\n");
+        sb.append("To: ").append(recipient).append("\r\n");
+        sb.append("Subject: ").append(subject).append("\r\n");
+        sb.append("Content-Type: text/plain; charset=UTF-8\r\n");
+        sb.append("\r\n");
+        sb.append(body.replace("\r\n", "\n").replace("\n", "\r\n"));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,121 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Message templates for each outbox event type. A template is parsed once
+ * into literal text and variable slots, so rendering is a single pass that
+ * appends to one StringBuilder. Variables are written {{name}}; a variable
+ * with no value renders as empty text.
+ */
+public class NotificationTemplates {
+
+    /** A rendered message. */
+    public static class Rendered {
+        private final String subject;
+        private final String body;
+
+        Rendered(String subject, String body) {
+            this.subject = subject;
+            this.body = body;
+        }
+
+        public String getSubject() { return subject; }
+        public String getBody() { return body; }
+    }
+
+    /** A parsed template: literals[i], then the value of names[i], ..., then the last literal. */
+    static class Template {
+        private final String[] literals;
+        private final String[] names;
+        private final int sizeHint;
+
+        Template(String text) {
+            List<String> literalList = new ArrayList<>();
+            List<String> nameList = new ArrayList<>();
+            int pos = 0;
+            while (true) {
+                int open = text.indexOf("{{", pos);
+                int close = open < 0 ? -1 : text.indexOf("}}", open + 2);
+                if (close < 0) break;
+                literalList.add(text.substring(pos, open));
+                nameList.add(text.substring(open + 2, close).trim());
+                pos = close + 2;
+            }
+            literalList.add(text.substring(pos));
+            this.literals = literalList.toArray(new String[0]);
+            this.names = nameList.toArray(new String[0]);
+            this.sizeHint = text.length() + names.length * 16;
+        }
+
+        String render(Map<String, String> variables) {
+            StringBuilder sb = new StringBuilder(sizeHint);
+            for (int i = 0; i < names.length; i++) {
+                sb.append(literals[i]);
+                String value = variables.get(names[i]);
+                if (value != null) sb.append(value);
+            }
+            return sb.append(literals[names.length]).toString();
+        }
+    }
+
+    private static class MessageTemplate {
+        final Template subject;
+        final Template body;
+
+        MessageTemplate(String subject, String body) {
+            this.subject = new Template(subject);
+            this.body = new Template(body);
+        }
+    }
+
+    private static final Map<String, MessageTemplate> TEMPLATES = Map.of(
+            NotificationOutbox.BOOKING_CONFIRMED, new MessageTemplate(
+                    "Booking {{bookingId}} confirmed: {{flightNumber}} {{origin}} to {{destination}}",
+                    "=== Booking Confirmation ===\n" +
+                    "Booking ID: {{bookingId}}\n" +
+                    "Flight: {{flightNumber}}\n" +
+                    "Route: {{origin}} to {{destination}}\n" +
+                    "Departure: {{departureTime}}\n" +
+                    "Passenger: {{passengerName}}\n" +
+                    "Email: {{passengerEmail}}\n" +
+                    "Seat: {{seatNumber}}\n" +
+                    "Amount Paid: ${{amount}}\n" +
+                    "Payment Method: {{paymentMethod}}\n" +
+                    "Card (last 4): {{cardLast4}}\n" +
+                    "Status: CONFIRMED\n" +
+                    "============================\n"),
+            NotificationOutbox.WAITLIST_PROMOTED, new MessageTemplate(
+                    "A seat opened up: you are booked on {{flightNumber}} {{origin}} to {{destination}}",
+                    "=== Waitlist Booking Confirmation ===\n" +
+                    "A seat became available and has been booked for you.\n" +
+                    "Booking ID: {{bookingId}}\n" +
+                    "Flight: {{flightNumber}}\n" +
+                    "Route: {{origin}} to {{destination}}\n" +
+                    "Departure: {{departureTime}}\n" +
+                    "Passenger: {{passengerName}}\n" +
+                    "Seat: {{seatNumber}}\n" +
+                    "Status: CONFIRMED\n" +
+                    "============================\n"),
+            NotificationOutbox.BOOKING_UPDATED, new MessageTemplate(
+                    "Booking {{bookingId}} {{status}}",
+                    "===== BOOKING CONFIRMATION =====\n" +
+                    "Booking ID: {{bookingId}}\n" +
+                    "Status: {{status}}\n" +
+                    "Customer: {{passengerName}} <{{passengerEmail}}>\n" +
+                    "Flight: {{flightNumber}} {{origin}} → {{destination}}\n" +
+                    "Departure: {{departureTime}}\n" +
+                    "Seats: {{seatCount}}\n" +
+                    "============================\n"));
+
+    /**
+     * @throws IllegalArgumentException if there is no template for the event type
+     */
+    public static Rendered render(String eventType, Map<String, String> variables) {
+        MessageTemplate t = TEMPLATES.get(eventType);
+        if (t == null) {
+            throw new IllegalArgumentException("No template for event type " + eventType);
+        }
+        return new Rendered(t.subject.render(variables), t.body.render(variables));
+    }
+}
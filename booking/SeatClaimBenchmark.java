@@ -0,0 +1,75 @@
+import database.DatabaseConnectivity;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures seat-hold claim throughput when many threads fight over one flight.
+ * Needs a running database; every hold taken is released again straight away.
+ *
+ * Usage: java SeatClaimBenchmark [flightId] [threads] [seconds] [seats]
+ */
+public class SeatClaimBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int flightId = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        // Few seats = hot contention
+        int seats = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+
+        SeatInventoryDAO dao = new SeatInventoryDAO();
+        AtomicLong claimed = new AtomicLong();
+        AtomicLong conflicts = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        long[][] latencies = new long[threads][];
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int index = t;
+            workers[t] = new Thread(() -> {
+                long[] samples = new long[1 << 16];
+                int count = 0;
+                while (System.nanoTime() < deadline) {
+                    int seat = 1 + ThreadLocalRandom.current().nextInt(seats);
+                    long start = System.nanoTime();
+                    try {
+                        SeatHold hold = dao.placeHold(flightId, seat, 30);
+                        claimed.incrementAndGet();
+                        dao.releaseHold(hold);
+                    } catch (SeatUnavailableException e) {
+                        conflicts.incrementAndGet();
+                    } catch (SQLException e) {
+                        errors.incrementAndGet();
+                    }
+                    if (count == samples.length) {
+                        samples = Arrays.copyOf(samples, count * 2);
+                    }
+                    samples[count++] = System.nanoTime() - start;
+                }
+                latencies[index] = Arrays.copyOf(samples, count);
+            }, "claim-" + t);
+            workers[t].start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("flight=%d threads=%d seats=%d duration=%ds%n", flightId, threads, seats, seconds);
+        System.out.printf("claims: %d (%.1f/s)  conflicts: %d (%.1f/s)  errors: %d%n",
+                claimed.get(), claimed.get() / (double) seconds,
+                conflicts.get(), conflicts.get() / (double) seconds, errors.get());
+        if (all.length > 0) {
+            System.out.printf("attempt latency: p50=%.2fms p99=%.2fms max=%.2fms%n",
+                    percentile(all, 0.50) / 1e6, percentile(all, 0.99) / 1e6, all[all.length - 1] / 1e6);
+        }
+        System.out.println("pool: " + DatabaseConnectivity.getPoolMetrics());
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+    }
+}
@@ -0,0 +1,35 @@
+import java.sql.Timestamp;
+
+/**
+ * A temporary claim on one seat, identified by a random token.
+ * Only the holder of the token can turn the hold into a booking before it expires.
+ */
+public class SeatHold {
+    private final int flightId;
+    private final int seatNumber;
+    private final String token;
+    private final Timestamp expiresAt;
+
+    public SeatHold(int flightId, int seatNumber, String token, Timestamp expiresAt) {
+        this.flightId = flightId;
+        this.seatNumber = seatNumber;
+        this.token = token;
+        this.expiresAt = expiresAt;
+    }
+
+    public int getFlightId() {
+        return flightId;
+    }
+
+    public int getSeatNumber() {
+        return seatNumber;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public Timestamp getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -0,0 +1,128 @@
+import database.DatabaseConnectivity;
+import java.sql.*;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Seat availability and short-lived seat holds.
+ * Uniqueness is enforced by the database (SeatHolds primary key and the
+ * Bookings(flightID, activeSeatNumber) unique index), so a conflicting claim
+ * fails immediately instead of waiting on a lock.
+ */
+public class SeatInventoryDAO {
+
+    public static final int DEFAULT_HOLD_SECONDS = 600;
+
+    // Shared with QueryPlanCheck, which EXPLAINs it
+    static final String UNAVAILABLE_SEATS_SQL =
+            "SELECT activeSeatNumber AS seatNumber FROM Bookings " +
+            "WHERE flightID = ? AND activeSeatNumber IS NOT NULL " +
+            "UNION " +
+            "SELECT seatNumber FROM SeatHolds " +
+            "WHERE flightID = ? AND expiresAt >= CURRENT_TIMESTAMP AND holdToken <> ?";
+
+    // MySQL ER_DUP_ENTRY
+    private static final int DUPLICATE_KEY_ERROR = 1062;
+
+    /**
+     * Places a hold on a seat for the given number of seconds.
+     * An expired hold on the same seat is replaced.
+     * @throws SeatUnavailableException if the seat is booked or held by someone else
+     */
+    public SeatHold placeHold(int flightId, int seatNumber, int holdSeconds) throws SQLException {
+        String purgeSql = "DELETE FROM SeatHolds WHERE flightID = ? AND seatNumber = ? AND expiresAt < CURRENT_TIMESTAMP";
+        String holdSql = "INSERT INTO SeatHolds (flightID, seatNumber, holdToken, expiresAt) " +
+                         "SELECT ?, ?, ?, CURRENT_TIMESTAMP + INTERVAL ? SECOND FROM DUAL " +
+                         "WHERE NOT EXISTS (SELECT 1 FROM Bookings WHERE flightID = ? AND activeSeatNumber = ?)";
+        String token = UUID.randomUUID().toString();
+
+        try (Connection conn = DatabaseConnectivity.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(purgeSql)) {
+                ps.setInt(1, flightId);
+                ps.setInt(2, seatNumber);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = conn.prepareStatement(holdSql)) {
+                ps.setInt(1, flightId);
+                ps.setInt(2, seatNumber);
+                ps.setString(3, token);
+                ps.setInt(4, holdSeconds);
+                ps.setInt(5, flightId);
+                ps.setInt(6, seatNumber);
+                if (ps.executeUpdate() == 0) {
+                    // Already booked
+                    throw new SeatUnavailableException(flightId, seatNumber);
+                }
+            } catch (SQLException e) {
+                if (isDuplicateKey(e)) {
+                    // Already held by someone else
+                    throw new SeatUnavailableException(flightId, seatNumber);
+                }
+                throw e;
+            }
+        }
+        return new SeatHold(flightId, seatNumber, token,
+                new Timestamp(System.currentTimeMillis() + holdSeconds * 1000L));
+    }
+
+    /**
+     * Removes the caller's hold. A hold that expired and was replaced by someone
+     * else's is left alone.
+     */
+    public void releaseHold(SeatHold hold) throws SQLException {
+        try (Connection conn = DatabaseConnectivity.getConnection()) {
+            releaseHold(conn, hold.getFlightId(), hold.getSeatNumber(), hold.getToken());
+        }
+    }
+
+    /**
+     * Removes the hold with the given token using the caller's connection, e.g. as part of a checkout transaction.
+     */
+    public void releaseHold(Connection conn, int flightId, int seatNumber, String holdToken) throws SQLException {
+        String sql = "DELETE FROM SeatHolds WHERE flightID = ? AND seatNumber = ? AND holdToken = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, flightId);
+            ps.setInt(2, seatNumber);
+            ps.setString(3, holdToken);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Seats that cannot be selected: actively booked, or held by anyone other than ownHold.
+     * @param ownHold the caller's current hold, or null
+     */
+    public Set<Integer> getUnavailableSeats(int flightId, SeatHold ownHold) throws SQLException {
+        Set<Integer> seats = new HashSet<>();
+        try (Connection conn = DatabaseConnectivity.getConnection();
+             PreparedStatement ps = conn.prepareStatement(UNAVAILABLE_SEATS_SQL)) {
+            ps.setInt(1, flightId);
+            ps.setInt(2, flightId);
+            ps.setString(3, ownHold == null ? "" : ownHold.getToken());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    seats.add(rs.getInt("seatNumber"));
+                }
+            }
+        }
+        return seats;
+    }
+
+    /**
+     * Deletes every expired hold. Holds are also replaced lazily when someone
+     * claims the seat, so this only keeps the table small.
+     * @return number of holds removed
+     */
+    public int purgeExpiredHolds() throws SQLException {
+        String sql = "DELETE FROM SeatHolds WHERE expiresAt < CURRENT_TIMESTAMP";
+        try (Connection conn = DatabaseConnectivity.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            return ps.executeUpdate();
+        }
+    }
+
+    static boolean isDuplicateKey(SQLException e) {
+        return e.getErrorCode() == DUPLICATE_KEY_ERROR;
+    }
+}
@@ -0,0 +1,24 @@
+import java.sql.SQLException;
+
+/**
+ * Thrown when a seat is already taken by another active booking.
+ */
+public class SeatUnavailableException extends SQLException {
+
+    private final int flightId;
+    private final int seatNumber;
+
+    public SeatUnavailableException(int flightId, int seatNumber) {
+        super("Seat " + seatNumber + " on flight " + flightId + " is no longer available.", "23000");
+        this.flightId = flightId;
+        this.seatNumber = seatNumber;
+    }
+
+    public int getFlightId() {
+        return flightId;
+    }
+
+    public int getSeatNumber() {
+        return seatNumber;
+    }
+}
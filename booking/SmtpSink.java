@@ -0,0 +1,75 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sends each message over plain SMTP, one connection per message. Meant for a
+ * local SMTP server or test catcher (e.g. MailHog on port 1025); there is no
+ * TLS or authentication.
+ */
+public class SmtpSink implements NotificationSink {
+
+    private static final int TIMEOUT_MILLIS = 10_000;
+
+    private final String host;
+    private final int port;
+
+    public SmtpSink(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    @Override
+    public void deliver(long messageId, String recipient, String subject, String body) throws IOException {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(host, port), TIMEOUT_MILLIS);
+            socket.setSoTimeout(TIMEOUT_MILLIS);
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+
+            expect(in, 220);
+            command(out, in, "HELO localhost", 250);
+            command(out, in, "MAIL FROM:<" + FROM_ADDRESS + ">", 250);
+            command(out, in, "RCPT TO:<" + recipient + ">", 250);
+            command(out, in, "DATA", 354);
+            String message = NotificationSink.format(messageId, recipient, subject, body);
+            // Dot-stuffing: a line starting with "." gets a second one
+            out.write(message.replace("\r\n.", "\r\n.."));
+            command(out, in, "\r\n.", 250);
+            command(out, in, "QUIT", 221);
+        }
+    }
+
+    private static void command(Writer out, BufferedReader in, String line, int expected) throws IOException {
+        out.write(line + "\r\n");
+        out.flush();
+        expect(in, expected);
+    }
+
+    /**
+     * Reads a (possibly multi-line) reply and checks its code.
+     */
+    private static void expect(BufferedReader in, int expected) throws IOException {
+        String line;
+        do {
+            line = in.readLine();
+            if (line == null) throw new IOException("SMTP server closed the connection");
+        } while (line.length() > 3 && line.charAt(3) == '-');
+        int code;
+        try {
+            code = Integer.parseInt(line.substring(0, Math.min(3, line.length())));
+        } catch (NumberFormatException e) {
+            throw new IOException("Unexpected SMTP reply: " + line);
+        }
+        // 251 (user not local, will forward) is as good as 250
+        if (code != expected && !(expected == 250 && code == 251)) {
+            throw new IOException("SMTP server replied " + line);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+import database.DatabaseConnectivity;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how long a cancellation takes when it also promotes the next
+ * waitlisted passenger, with many cancellations on one flight at once.
+ * Needs a running database. The bookings and waitlist entries it creates are
+ * deleted again at the end, and the flight's seat counter is recounted.
+ *
+ * Usage: java WaitlistBenchmark [flightId] [cancellations] [threads]
+ */
+public class WaitlistBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int flightId = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        int cancellations = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+
+        // Tags everything this run creates so it can be cleaned up
+        String emailDomain = "@waitlist-bench-" + UUID.randomUUID().toString().substring(0, 8) + ".example";
+        BookingDAO bookingDAO = new BookingDAO();
+        Waitlist waitlist = Waitlist.getInstance();
+
+        ConcurrentLinkedQueue<Integer> toCancel = new ConcurrentLinkedQueue<>();
+        try (Connection conn = DatabaseConnectivity.getConnection()) {
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            for (int i = 0; i < cancellations; i++) {
+                toCancel.add(bookingDAO.insertBooking(conn, flightId, "Booked " + i, "booked" + i + emailDomain,
+                        0, BookingStatus.CONFIRMED.name(), now));
+            }
+        }
+        for (int i = 0; i < cancellations; i++) {
+            // Every tenth passenger has priority and should be promoted first
+            waitlist.join(flightId, "Waiting " + i, "waiting" + i + emailDomain,
+                    i % 10 == 0 ? 1 : Waitlist.PRIORITY_STANDARD);
+        }
+        int queuedBefore = waitlist.size(flightId);
+
+        AtomicLong errors = new AtomicLong();
+        long[][] latencies = new long[threads][];
+        CountDownLatch startSignal = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int index = t;
+            workers[t] = new Thread(() -> {
+                long[] samples = new long[cancellations];
+                int count = 0;
+                try {
+                    startSignal.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                Integer bookingId;
+                while ((bookingId = toCancel.poll()) != null) {
+                    long start = System.nanoTime();
+                    try {
+                        bookingDAO.updateBookingStatus(bookingId, BookingStatus.CANCELLED.name());
+                        samples[count++] = System.nanoTime() - start;
+                    } catch (SQLException e) {
+                        errors.incrementAndGet();
+                    }
+                }
+                latencies[index] = Arrays.copyOf(samples, count);
+            }, "cancel-" + t);
+            workers[t].start();
+        }
+        long burstStart = System.nanoTime();
+        startSignal.countDown();
+        for (Thread w : workers) {
+            w.join();
+        }
+        double seconds = (System.nanoTime() - burstStart) / 1e9;
+
+        int[] promoted = countPromotions(flightId, emailDomain);
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("flight=%d cancellations=%d threads=%d waiting=%d%n",
+                flightId, cancellations, threads, queuedBefore);
+        System.out.printf("burst: %.2fs (%.1f cancellations/s), errors: %d%n",
+                seconds, all.length / seconds, errors.get());
+        System.out.printf("promoted: %d (priority passengers among the first %d: %d), still waiting: %d%n",
+                promoted[0], cancellations / 10, promoted[1], waitlist.size(flightId));
+        if (all.length > 0) {
+            System.out.printf("cancel+promote latency: p50=%.2fms p99=%.2fms max=%.2fms%n",
+                    percentile(all, 0.50) / 1e6, percentile(all, 0.99) / 1e6, all[all.length - 1] / 1e6);
+        }
+        System.out.println("pool: " + DatabaseConnectivity.getPoolMetrics());
+
+        cleanUp(flightId, emailDomain);
+        waitlist.invalidate(flightId);
+    }
+
+    /**
+     * @return {promoted entries, priority entries among the first tenth promoted}
+     */
+    private static int[] countPromotions(int flightId, String emailDomain) throws SQLException {
+        String sql = "SELECT priority FROM Waitlist WHERE flightID = ? AND passengerEmail LIKE ? " +
+                     "AND status = 'PROMOTED' ORDER BY bookingID";
+        List<Integer> priorities = new ArrayList<>();
+        try (Connection conn = DatabaseConnectivity.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, flightId);
+            ps.setString(2, "%" + emailDomain);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    priorities.add(rs.getInt(1));
+                }
+            }
+        }
+        int firstTenth = Math.min(priorities.size(), Math.max(1, priorities.size() / 10));
+        int priorityFirst = 0;
+        for (int i = 0; i < firstTenth; i++) {
+            if (priorities.get(i) > Waitlist.PRIORITY_STANDARD) priorityFirst++;
+        }
+        return new int[] {priorities.size(), priorityFirst};
+    }
+
+    private static void cleanUp(int flightId, String emailDomain) throws SQLException {
+        try (Connection conn = DatabaseConnectivity.getConnection()) {
+            for (String sql : new String[] {
+                    "DELETE FROM Waitlist WHERE flightID = ? AND passengerEmail LIKE ?",
+                    "DELETE FROM Bookings WHERE flightID = ? AND passengerEmail LIKE ?"}) {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setInt(1, flightId);
+                    ps.setString(2, "%" + emailDomain);
+                    ps.executeUpdate();
+                }
+            }
+            FlightSeatCounter.recount(conn, List.of(flightId));
+        }
+        SeatAvailabilityCache.getInstance().invalidate(flightId);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+    }
+}
@@ -11,6 +11,7 @@ import java.util.regex.Pattern;
 public class CustomerController {
 
     private final CustomerDAO customerDAO;
+    private final CustomerSearchIndex searchIndex = new CustomerSearchIndex();
     private final Pattern emailPattern = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
     private final Pattern phonePattern = Pattern.compile("^[+]?[-0-9()\\s]{7,20}$");
 
@@ -24,20 +25,40 @@ public class CustomerController {
 
     public CustomerProfile addCustomer(CustomerProfile customer) throws SQLException {
         validateOrThrow(customer);
-        return customerDAO.addCustomer(customer);
+        CustomerProfile added = customerDAO.addCustomer(customer);
+        if (searchIndex.isLoaded()) searchIndex.put(added);
+        return added;
     }
 
     public void updateCustomer(CustomerProfile customer) throws SQLException {
         validateOrThrow(customer);
         customerDAO.updateCustomer(customer);
+        if (searchIndex.isLoaded()) searchIndex.put(customer);
     }
 
     public CustomerProfile getCustomerById(int id) throws SQLException {
         return customerDAO.getCustomerById(id);
     }
 
+    /**
+     * Also (re)builds the in-memory search index from the loaded list.
+     */
     public List<CustomerProfile> getAllCustomers() throws SQLException {
-        return customerDAO.getAllCustomers();
+        List<CustomerProfile> customers = customerDAO.getAllCustomers();
+        searchIndex.rebuild(customers);
+        return customers;
+    }
+
+    /**
+     * Prefix search over name, email and phone. Served from the in-memory index
+     * once getAllCustomers has loaded it, otherwise from the database.
+     */
+    public List<CustomerProfile> searchCustomers(String query, int limit) throws SQLException {
+        if (searchIndex.isLoaded()) {
+            return searchIndex.search(query, limit);
+        }
+        String prefix = emptyToNull(query);
+        return prefix == null ? new ArrayList<>() : customerDAO.searchCustomers(prefix, limit);
     }
 
     public List<String> validate(CustomerProfile customer) {
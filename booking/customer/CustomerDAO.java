@@ -12,11 +12,15 @@ import java.util.List;
 
 /**
  * Data access object for persisting customers.
- * TODO: Confirm table/column names with the actual schema.
+ * The Customers table is created by database.sql or by SchemaMigrator (migration 1).
  */
 public class CustomerDAO {
 
-    private static final String TABLE_NAME = "Customers"; // TODO adjust if the schema differs
+    private static final String TABLE_NAME = "Customers";
+    // QueryPlanCheck EXPLAINs this exact statement
+    static final String SEARCH_SQL = "SELECT customerID, fullName, email, phone, address, dateOfBirth " +
+            "FROM " + TABLE_NAME + " WHERE fullName LIKE ? OR email LIKE ? OR phone LIKE ? " +
+            "ORDER BY fullName LIMIT ?";
 
     public CustomerProfile addCustomer(CustomerProfile customer) throws SQLException {
         String sql = "INSERT INTO " + TABLE_NAME +
@@ -88,6 +92,31 @@ public class CustomerDAO {
         }
     }
 
+    /**
+     * Prefix search straight against the table, for when the in-memory index is
+     * not loaded. Uses the fullName, email and phone indexes (LIKE 'prefix%').
+     */
+    public List<CustomerProfile> searchCustomers(String prefix, int limit) throws SQLException {
+        String pattern = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+
+        try (Connection conn = DatabaseConnectivity.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SEARCH_SQL)) {
+
+            ps.setString(1, pattern);
+            ps.setString(2, pattern);
+            ps.setString(3, pattern);
+            ps.setInt(4, limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                List<CustomerProfile> list = new ArrayList<>();
+                while (rs.next()) {
+                    list.add(mapRow(rs));
+                }
+                return list;
+            }
+        }
+    }
+
     private void fillStatement(PreparedStatement ps, CustomerProfile c) throws SQLException {
         ps.setString(1, c.getFullName());
         ps.setString(2, c.getEmail());
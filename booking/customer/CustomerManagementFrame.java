@@ -1,17 +1,33 @@
+import database.SchemaMigrator;
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Customer management window (list + add/edit/view).
  * GUI talks only to CustomerController; persistence is abstracted away.
+ * The full list (and the search index built from it) is loaded once in the
+ * background; adds and edits then update the list, table and index in place.
  */
 public class CustomerManagementFrame extends JFrame {
 
     private final CustomerController controller;
+    private static final int SEARCH_LIMIT = 200;
+
     private final CustomerTableModel tableModel = new CustomerTableModel();
     private JTable table;
+    private JTextField searchField;
+    // null until the background load has finished
+    private List<CustomerProfile> allCustomers;
+    private BackgroundLoader.Load load;
+    // A change was saved while the list was loading, so the loaded list may not have it
+    private boolean reloadWhenLoaded;
+    // Runs the search once typing pauses
+    private final Timer searchTimer = new Timer(150, e -> applySearch());
 
     public CustomerManagementFrame() {
         this(new CustomerController());
@@ -21,7 +37,7 @@ public class CustomerManagementFrame extends JFrame {
         super("Customer Management");
         this.controller = controller;
         buildUi();
-        refreshCustomers();
+        loadCustomers();
     }
 
     private void buildUi() {
@@ -45,18 +61,81 @@ public class CustomerManagementFrame extends JFrame {
         buttons.add(btnAdd);
         buttons.add(btnEdit);
         buttons.add(btnView);
+        searchTimer.setRepeats(false);
+        searchField = new JTextField(20);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { searchTimer.restart(); }
+            @Override public void removeUpdate(DocumentEvent e) { searchTimer.restart(); }
+            @Override public void changedUpdate(DocumentEvent e) { searchTimer.restart(); }
+        });
+        buttons.add(new JLabel("Search (name, email, phone):"));
+        buttons.add(searchField);
         add(buttons, BorderLayout.NORTH);
 
-        setSize(700, 400);
+        setSize(900, 400);
         setLocationRelativeTo(null);
     }
 
-    private void refreshCustomers() {
+    /**
+     * Loads every customer and rebuilds the search index off the EDT.
+     */
+    private void loadCustomers() {
+        reloadWhenLoaded = false;
+        load = BackgroundLoader.run(this, BackgroundLoader.DEFAULT_TIMEOUT_MILLIS, controller::getAllCustomers,
+                customers -> {
+                    load = null;
+                    if (reloadWhenLoaded) {
+                        loadCustomers();
+                        return;
+                    }
+                    allCustomers = new ArrayList<>(customers);
+                    applySearch();
+                },
+                ex -> {
+                    load = null;
+                    showError("Failed to load customers: " + ex.getMessage());
+                });
+    }
+
+    /**
+     * Shows a saved customer without reloading the list; the controller has
+     * already updated the search index.
+     */
+    private void customerSaved(CustomerProfile saved, boolean isNew) {
+        if (allCustomers == null) {
+            if (load != null) reloadWhenLoaded = true;
+            return;
+        }
+        if (isNew) {
+            allCustomers.add(saved);
+        } else {
+            for (int i = 0; i < allCustomers.size(); i++) {
+                if (saved.getId().equals(allCustomers.get(i).getId())) {
+                    allCustomers.set(i, saved);
+                    break;
+                }
+            }
+        }
+        if (!searchField.getText().isBlank()) {
+            // Search results come from the index, so this is cheap
+            applySearch();
+        } else if (isNew) {
+            tableModel.addCustomer(saved);
+        } else {
+            tableModel.replaceCustomer(saved);
+        }
+    }
+
+    private void applySearch() {
+        String query = searchField.getText();
+        if (query.isBlank()) {
+            tableModel.setCustomers(allCustomers);
+            return;
+        }
         try {
-            List<CustomerProfile> customers = controller.getAllCustomers();
-            tableModel.setCustomers(customers);
+            tableModel.setCustomers(controller.searchCustomers(query, SEARCH_LIMIT));
         } catch (SQLException ex) {
-            showError("Failed to load customers: " + ex.getMessage());
+            showError("Search failed: " + ex.getMessage());
         }
     }
 
@@ -73,8 +152,7 @@ public class CustomerManagementFrame extends JFrame {
         }
 
         try {
-            controller.addCustomer(result);
-            refreshCustomers();
+            customerSaved(controller.addCustomer(result), true);
         } catch (SQLException ex) {
             showError("Unable to add customer: " + ex.getMessage());
         }
@@ -103,7 +181,7 @@ public class CustomerManagementFrame extends JFrame {
 
         try {
             controller.updateCustomer(updated);
-            refreshCustomers();
+            customerSaved(updated, false);
         } catch (SQLException ex) {
             showError("Unable to update customer: " + ex.getMessage());
         }
@@ -133,6 +211,12 @@ public class CustomerManagementFrame extends JFrame {
     }
 
     public static void main(String[] args) {
+        try {
+            SchemaMigrator.migrate();
+        } catch (SQLException e) {
+            JOptionPane.showMessageDialog(null, "Database migration failed: " + e.getMessage(),
+                    "Error", JOptionPane.ERROR_MESSAGE);
+        }
         SwingUtilities.invokeLater(() -> new CustomerManagementFrame().setVisible(true));
     }
 }
@@ -0,0 +1,281 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory search index over customer names, emails and phone numbers.
+ *
+ * Each customer contributes a few tokens: every word of the name, the email,
+ * the words before its @ and the domain after it, the phone digits from each
+ * digit group on, and the last four digits. A query word matches a customer when
+ * it is a prefix of one of its tokens, so "smi", "gmail", "john.smith@ex",
+ * "555 123" and "4567" all find John Smith. With several words, every word must
+ * match.
+ *
+ * Tokens live in a sorted array (a flattened trie). A prefix lookup is one
+ * binary search plus a scan of the matching range. Adds and edits go into a
+ * small sorted delta instead of shifting the array. The delta is merged into the
+ * array once it reaches MAX_DELTA entries.
+ */
+public class CustomerSearchIndex {
+
+    private static final int MAX_DELTA = 50_000;
+    private static final Pattern WORD_SPLIT = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern PHONE_QUERY = Pattern.compile("[+]?[-0-9()\\s]*[0-9][-0-9()\\s]*");
+
+    private final Map<Integer, CustomerProfile> customers = new HashMap<>();
+    // Sorted by key, then id; baseKeys[i] is a token of customer baseIds[i]
+    private String[] baseKeys = new String[0];
+    private int[] baseIds = new int[0];
+    // Tokens added since the base was built, keyed token + '\0' + id
+    private final TreeMap<String, Integer> delta = new TreeMap<>();
+    // Customers whose base tokens are out of date (their current ones are in delta)
+    private final Set<Integer> stale = new HashSet<>();
+    private boolean loaded;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Replaces the index contents with the given customers.
+     */
+    public void rebuild(Collection<CustomerProfile> all) {
+        lock.writeLock().lock();
+        try {
+            customers.clear();
+            for (CustomerProfile c : all) {
+                if (c.getId() != null) customers.put(c.getId(), c);
+            }
+            rebuildBase();
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a new customer or re-indexes an edited one.
+     */
+    public void put(CustomerProfile customer) {
+        if (customer.getId() == null) return;
+        lock.writeLock().lock();
+        try {
+            int id = customer.getId();
+            CustomerProfile old = customers.put(id, customer);
+            if (old != null) {
+                for (String token : tokens(old)) {
+                    delta.remove(token + '\0' + id);
+                }
+                stale.add(id);
+            }
+            for (String token : tokens(customer)) {
+                delta.put(token + '\0' + id, id);
+            }
+            if (delta.size() >= MAX_DELTA) {
+                rebuildBase();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * False until rebuild has been called.
+     */
+    public boolean isLoaded() {
+        lock.readLock().lock();
+        try {
+            return loaded;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return up to limit customers matching every word of the query, in order
+     *         of the matching token (so exact matches come first); empty for a blank query
+     */
+    public List<CustomerProfile> search(String query, int limit) {
+        List<String> words = queryWords(query);
+        if (words.isEmpty() || limit <= 0) return new ArrayList<>();
+
+        // Look up the longest word, it has the fewest matches; check the rest per customer
+        String lookup = words.get(0);
+        for (String w : words) {
+            if (w.length() > lookup.length()) lookup = w;
+        }
+
+        lock.readLock().lock();
+        try {
+            Set<Integer> ids = new LinkedHashSet<>();
+            int i = lowerBound(baseKeys, lookup);
+            Map.Entry<String, Integer> d = delta.ceilingEntry(lookup);
+            while (ids.size() < limit) {
+                boolean baseHas = i < baseKeys.length && baseKeys[i].startsWith(lookup);
+                boolean deltaHas = d != null && d.getKey().startsWith(lookup);
+                if (!baseHas && !deltaHas) break;
+
+                int id;
+                if (baseHas && (!deltaHas || baseKeys[i].compareTo(d.getKey()) <= 0)) {
+                    id = baseIds[i++];
+                    if (stale.contains(id)) continue;
+                } else {
+                    id = d.getValue();
+                    d = delta.higherEntry(d.getKey());
+                }
+                if (words.size() == 1 || matchesAll(customers.get(id), words)) {
+                    ids.add(id);
+                }
+            }
+
+            List<CustomerProfile> result = new ArrayList<>(ids.size());
+            for (int id : ids) {
+                result.add(customers.get(id));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void rebuildBase() {
+        int n = 0;
+        String[][] perCustomer = new String[customers.size()][];
+        int[] idOf = new int[customers.size()];
+        int c = 0;
+        for (CustomerProfile p : customers.values()) {
+            perCustomer[c] = tokens(p).toArray(new String[0]);
+            idOf[c] = p.getId();
+            n += perCustomer[c].length;
+            c++;
+        }
+
+        Entry[] entries = new Entry[n];
+        int e = 0;
+        for (c = 0; c < perCustomer.length; c++) {
+            for (String token : perCustomer[c]) {
+                entries[e++] = new Entry(token, idOf[c]);
+            }
+        }
+        Arrays.parallelSort(entries);
+
+        String[] keys = new String[n];
+        int[] ids = new int[n];
+        for (e = 0; e < n; e++) {
+            keys[e] = entries[e].key;
+            ids[e] = entries[e].id;
+        }
+        baseKeys = keys;
+        baseIds = ids;
+        delta.clear();
+        stale.clear();
+    }
+
+    private static boolean matchesAll(CustomerProfile c, List<String> words) {
+        Set<String> tokens = tokens(c);
+        for (String w : words) {
+            boolean found = false;
+            for (String t : tokens) {
+                if (t.startsWith(w)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    static Set<String> tokens(CustomerProfile c) {
+        Set<String> tokens = new LinkedHashSet<>();
+        addWords(tokens, c.getFullName());
+        if (c.getEmail() != null && !c.getEmail().isBlank()) {
+            String email = c.getEmail().trim().toLowerCase(Locale.ROOT);
+            tokens.add(email);
+            int at = email.indexOf('@');
+            addWords(tokens, at >= 0 ? email.substring(0, at) : email);
+            if (at >= 0 && at < email.length() - 1) tokens.add(email.substring(at + 1));
+        }
+        String digits = digits(c.getPhone());
+        if (!digits.isEmpty()) {
+            // "+1 555 123 4567" -> 15551234567, 5551234567, 1234567, 4567
+            String[] groups = c.getPhone().trim().split("[^0-9]+");
+            int offset = 0;
+            for (String g : groups) {
+                if (offset < digits.length()) tokens.add(digits.substring(offset));
+                offset += g.length();
+            }
+            if (digits.length() > 4) tokens.add(digits.substring(digits.length() - 4));
+        }
+        return tokens;
+    }
+
+    static List<String> queryWords(String query) {
+        List<String> words = new ArrayList<>();
+        if (query == null || query.isBlank()) return words;
+        if (PHONE_QUERY.matcher(query.trim()).matches()) {
+            words.add(digits(query));
+            return words;
+        }
+        for (String part : query.trim().toLowerCase(Locale.ROOT).split("\\s+")) {
+            if (part.indexOf('@') >= 0) {
+                words.add(part); // matched against the whole email
+            } else {
+                addWords(words, part);
+            }
+        }
+        return words;
+    }
+
+    private static void addWords(Collection<String> out, String text) {
+        if (text == null) return;
+        for (String w : WORD_SPLIT.split(text.toLowerCase(Locale.ROOT))) {
+            if (!w.isEmpty()) out.add(w);
+        }
+    }
+
+    private static String digits(String s) {
+        if (s == null) return "";
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch >= '0' && ch <= '9') sb.append(ch);
+        }
+        return sb.toString();
+    }
+
+    private static int lowerBound(String[] keys, String key) {
+        int lo = 0, hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid].compareTo(key) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static class Entry implements Comparable<Entry> {
+        final String key;
+        final int id;
+
+        Entry(String key, int id) {
+            this.key = key;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Entry o) {
+            int cmp = key.compareTo(o.key);
+            return cmp != 0 ? cmp : Integer.compare(id, o.id);
+        }
+    }
+}
@@ -41,6 +41,24 @@ public class CustomerTableModel extends AbstractTableModel {
         return data.get(row);
     }
 
+    public void addCustomer(CustomerProfile customer) {
+        data.add(customer);
+        fireTableRowsInserted(data.size() - 1, data.size() - 1);
+    }
+
+    /**
+     * Replaces the row with the same id, if it is shown.
+     */
+    public void replaceCustomer(CustomerProfile customer) {
+        for (int row = 0; row < data.size(); row++) {
+            if (customer.getId().equals(data.get(row).getId())) {
+                data.set(row, customer);
+                fireTableRowsUpdated(row, row);
+                return;
+            }
+        }
+    }
+
     public void setCustomers(List<CustomerProfile> customers) {
         data.clear();
         if (customers != null) {
@@ -1,4 +1,12 @@
 
+DROP TABLE IF EXISTS SchemaVersion;
+DROP TABLE IF EXISTS Customers;
+DROP TABLE IF EXISTS Waitlist;
+DROP TABLE IF EXISTS NotificationOutbox;
+DROP TABLE IF EXISTS RevenueByFlight;
+DROP TABLE IF EXISTS RevenueByAirline;
+DROP TABLE IF EXISTS RevenueByDay;
+DROP TABLE IF EXISTS SeatHolds;
 DROP TABLE IF EXISTS Payments; -- If you added this earlier
 DROP TABLE IF EXISTS Bookings; -- If you added this earlier
 DROP TABLE IF EXISTS Flights;
@@ -32,8 +40,14 @@ CREATE TABLE Flights (
     arrivalTime DATETIME,
     price DECIMAL(10, 2),
     aircraftID INT,             -- Foreign Key
+    -- Seats held by non-cancelled bookings, maintained by FlightSeatCounter
+    bookedSeats INT NOT NULL DEFAULT 0,
     FOREIGN KEY (airlineID) REFERENCES Airlines(airlineID),
-    FOREIGN KEY (aircraftID) REFERENCES Aircrafts(aircraftID)
+    FOREIGN KEY (aircraftID) REFERENCES Aircrafts(aircraftID),
+    -- Route search: origin/destination equality + departureTime range, ordered by departureTime
+    INDEX idx_flights_route_departure (origin, destination, departureTime, flightID),
+    -- Searches without a route filter (date-only, schedule listing)
+    INDEX idx_flights_departure (departureTime, flightID)
 );
 
 -- 3. INSERT DATA
@@ -84,9 +98,26 @@ CREATE TABLE Bookings (
     passengerName VARCHAR(100) NOT NULL,
     passengerEmail VARCHAR(100) NOT NULL,
     seatNumber INT,
+    -- Seats held by a booking made through the in-memory BookingService
+    seatCount INT NOT NULL DEFAULT 1,
+    -- BookingService booking id; lets its write-behind replay changes idempotently
+    bookingRef CHAR(36),
     bookingTime TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     status VARCHAR(20) NOT NULL,
-    FOREIGN KEY (flightID) REFERENCES Flights(flightID)
+    -- Normalized email used for "My Bookings" lookups
+    passengerEmailKey VARCHAR(100) COLLATE utf8mb4_0900_ai_ci
+        GENERATED ALWAYS AS (LOWER(TRIM(passengerEmail))) STORED,
+    -- Seat occupied by this booking; NULL once cancelled so the seat can be resold
+    activeSeatNumber INT
+        GENERATED ALWAYS AS (CASE WHEN status <> 'CANCELLED' THEN seatNumber END) STORED,
+    FOREIGN KEY (flightID) REFERENCES Flights(flightID),
+    -- Per-flight seat recount (covers SUM(seatCount)) and booking lists by status
+    INDEX idx_bookings_flight_status (flightID, status, seatCount),
+    -- At most one active booking per seat; concurrent double-booking fails with a duplicate key
+    UNIQUE INDEX uq_bookings_flight_seat (flightID, activeSeatNumber),
+    UNIQUE INDEX uq_bookings_ref (bookingRef),
+    -- Covering index for BookingDAO.findByEmail (no table lookups needed)
+    INDEX idx_bookings_email (passengerEmailKey, bookingID, flightID, bookingTime, status, passengerName, passengerEmail)
 );
 
 -- Table: Payments (references Bookings, so must be created after)
@@ -98,19 +129,113 @@ CREATE TABLE Payments (
     status VARCHAR(20) NOT NULL,
     cardLast4 VARCHAR(4),
     transactionTime TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    FOREIGN KEY (bookingID) REFERENCES Bookings(bookingID)
+    FOREIGN KEY (bookingID) REFERENCES Bookings(bookingID),
+    INDEX idx_payments_booking_status (bookingID, status)
+);
+
+-- Revenue rollups: running totals of PAID payments, updated in the payment
+-- transaction by RevenueDAO and rebuilt from Payments with "java payment.RevenueDAO rebuild"
+CREATE TABLE RevenueByFlight (
+    flightID INT PRIMARY KEY,
+    paymentCount INT NOT NULL DEFAULT 0,
+    totalAmount DECIMAL(14,2) NOT NULL DEFAULT 0
+);
+
+CREATE TABLE RevenueByAirline (
+    airlineID INT PRIMARY KEY,
+    paymentCount INT NOT NULL DEFAULT 0,
+    totalAmount DECIMAL(14,2) NOT NULL DEFAULT 0
+);
+
+CREATE TABLE RevenueByDay (
+    revenueDate DATE PRIMARY KEY,
+    paymentCount INT NOT NULL DEFAULT 0,
+    totalAmount DECIMAL(14,2) NOT NULL DEFAULT 0
+);
+
+-- Table: SeatHolds (short-lived seat reservations while a customer is checking out)
+CREATE TABLE SeatHolds (
+    flightID INT NOT NULL,
+    seatNumber INT NOT NULL,
+    holdToken CHAR(36) NOT NULL,
+    expiresAt TIMESTAMP NOT NULL,
+    PRIMARY KEY (flightID, seatNumber),
+    INDEX idx_seatholds_expires (expiresAt),
+    FOREIGN KEY (flightID) REFERENCES Flights(flightID) ON DELETE CASCADE
+);
+
+-- Table: Waitlist (passengers waiting for a seat on a full flight, see flight/Waitlist.java)
+CREATE TABLE Waitlist (
+    waitlistID INT PRIMARY KEY AUTO_INCREMENT,
+    flightID INT NOT NULL,
+    passengerName VARCHAR(100) NOT NULL,
+    passengerEmail VARCHAR(100) NOT NULL,
+    -- Higher goes first; equal priorities are served in order of joining
+    priority INT NOT NULL DEFAULT 0,
+    status VARCHAR(20) NOT NULL DEFAULT 'WAITING',
+    -- Booking created when the passenger was promoted
+    bookingID INT,
+    createdAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    promotedAt TIMESTAMP NULL,
+    -- Email while the entry is waiting, NULL afterwards; a passenger waits at most once per flight
+    waitingEmail VARCHAR(100)
+        GENERATED ALWAYS AS (CASE WHEN status = 'WAITING' THEN passengerEmail END) STORED,
+    UNIQUE INDEX uq_waitlist_waiting (flightID, waitingEmail),
+    -- Head of a flight's queue
+    INDEX idx_waitlist_queue (flightID, status, priority DESC, waitlistID),
+    FOREIGN KEY (flightID) REFERENCES Flights(flightID) ON DELETE CASCADE
+);
+
+-- Table: NotificationOutbox (passenger messages written in the booking transaction,
+-- delivered by booking/NotificationDispatcher.java)
+CREATE TABLE NotificationOutbox (
+    outboxID BIGINT PRIMARY KEY AUTO_INCREMENT,
+    eventType VARCHAR(40) NOT NULL,
+    recipient VARCHAR(100) NOT NULL,
+    -- Template variables as key=value lines
+    payload TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    -- Next retry, or the end of a worker's lease on the row
+    nextAttemptAt TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    createdAt TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    sentAt TIMESTAMP(3) NULL,
+    lastError VARCHAR(255),
+    -- bookingRef#journal sequence for write-behind messages, so a replay does not send twice; NULL otherwise
+    dedupeKey VARCHAR(64) NULL,
+    UNIQUE INDEX uq_outbox_dedupe (dedupeKey),
+    -- Due messages, oldest first
+    INDEX idx_outbox_due (status, nextAttemptAt, outboxID)
+);
+
+-- Table: Customers (customer directory, see booking/customer/CustomerDAO.java)
+CREATE TABLE Customers (
+    customerID INT PRIMARY KEY AUTO_INCREMENT,
+    fullName VARCHAR(100) NOT NULL,
+    email VARCHAR(100) NOT NULL,
+    phone VARCHAR(20),
+    address VARCHAR(255),
+    dateOfBirth DATE,
+    createdAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    -- Prefix search (LIKE 'abc%') on each field
+    INDEX idx_customers_name (fullName),
+    INDEX idx_customers_email (email),
+    INDEX idx_customers_phone (phone)
 );
 
 -- Table: Users (for authentication)
 CREATE TABLE Users (
     userID INT PRIMARY KEY AUTO_INCREMENT,
     username VARCHAR(50) NOT NULL UNIQUE,
-    password VARCHAR(50) NOT NULL,
+    -- PBKDF2 hash from auth.PasswordHasher (plaintext rows are upgraded on next login)
+    password VARCHAR(255) NOT NULL,
     role VARCHAR(20) NOT NULL
 );
 
--- Insert default admin and employee accounts
+-- Insert default admin and employee accounts (passwords admin123 and emp123)
 INSERT INTO Users (username, password, role) VALUES
-('admin', 'admin123', 'ADMIN'),
-('employee', 'emp123', 'EMPLOYEE');
+('admin', 'pbkdf2-sha256$210000$lHBgYsj9v4ps7fSdNlRt7A$4HbVopRMzwwxEsFaErjgaKsV1jEyy7vY0GlBQ0oTtAw', 'ADMIN'),
+('employee', 'pbkdf2-sha256$210000$5N2Vrb1FMBZA/1DXoIRY2g$NZ9w9S1yOFSVuzbTwlA9OtxKYQVCUzkwUkbMd46RFKw', 'EMPLOYEE');
 
+-- Existing databases are upgraded by database.SchemaMigrator at startup; it
+-- records applied versions in SchemaVersion and skips anything already present here.
@@ -0,0 +1,232 @@
+import java.awt.Component;
+import java.awt.Cursor;
+import java.awt.Window;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+
+/**
+ * Runs database calls off the Event Dispatch Thread so a slow query never
+ * freezes the UI. Work runs on a small shared pool; results, pages and errors
+ * are delivered back on the EDT. Every load can be cancelled and is cancelled
+ * automatically after a timeout. The owner window shows a wait cursor meanwhile.
+ */
+public final class BackgroundLoader {
+
+    public static final long DEFAULT_TIMEOUT_MILLIS = 30_000;
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(4, r -> {
+        Thread t = new Thread(r, "db-loader-" + THREAD_COUNT.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    @FunctionalInterface
+    public interface Query<T> {
+        T run() throws Exception;
+    }
+
+    /**
+     * Fetches the page after the given row (null for the first page), keyset style.
+     */
+    @FunctionalInterface
+    public interface PageQuery<V> {
+        List<V> nextPage(V last) throws Exception;
+    }
+
+    /**
+     * A running load. Cancelling stops further callbacks; a query already in
+     * MySQL runs to completion but its result is dropped.
+     */
+    public static final class Load {
+        private final SwingWorker<?, ?> worker;
+        private Timer timer;
+
+        private Load(SwingWorker<?, ?> worker) {
+            this.worker = worker;
+        }
+
+        public void cancel() {
+            worker.cancel(true);
+        }
+
+        public boolean isDone() {
+            return worker.isDone();
+        }
+    }
+
+    private BackgroundLoader() {
+    }
+
+    /**
+     * Runs one query and hands the result to onSuccess. Failures are shown as a
+     * "Database error" message relative to the owner.
+     */
+    public static <T> Load run(Component owner, Query<T> query, Consumer<T> onSuccess) {
+        return run(owner, DEFAULT_TIMEOUT_MILLIS, query, onSuccess, e -> showError(owner, e));
+    }
+
+    public static <T> Load run(Component owner, long timeoutMillis, Query<T> query,
+                               Consumer<T> onSuccess, Consumer<Exception> onError) {
+        BusyCursor cursor = new BusyCursor(owner);
+        boolean[] timedOut = {false};
+        SwingWorker<T, Void> worker = new SwingWorker<>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                return query.run();
+            }
+
+            @Override
+            protected void done() {
+                cursor.restore();
+                if (isCancelled()) {
+                    if (timedOut[0]) onError.accept(timeout(timeoutMillis));
+                    return;
+                }
+                try {
+                    onSuccess.accept(get());
+                } catch (ExecutionException e) {
+                    onError.accept(unwrap(e));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        return start(worker, timeoutMillis, timedOut);
+    }
+
+    /**
+     * Streams a keyset-paged query: each page is passed to onPage as soon as it
+     * arrives, until a short page ends the stream. onDone gets the total row
+     * count; it is not called if the load fails or is cancelled. The timeout
+     * applies to each page, not to the whole stream.
+     */
+    public static <V> Load stream(Component owner, int pageSize, PageQuery<V> query,
+                                  Consumer<List<V>> onPage, IntConsumer onDone) {
+        BusyCursor cursor = new BusyCursor(owner);
+        boolean[] timedOut = {false};
+        Timer[] pageTimer = new Timer[1];
+        SwingWorker<Integer, List<V>> worker = new SwingWorker<>() {
+            @Override
+            protected Integer doInBackground() throws Exception {
+                int total = 0;
+                V last = null;
+                while (!isCancelled()) {
+                    List<V> page = query.nextPage(last);
+                    if (!page.isEmpty()) {
+                        total += page.size();
+                        last = page.get(page.size() - 1);
+                        publish(page);
+                        // Restart the per-page timeout
+                        SwingUtilities.invokeLater(() -> pageTimer[0].restart());
+                    }
+                    if (page.size() < pageSize) break;
+                }
+                return total;
+            }
+
+            @Override
+            protected void process(List<List<V>> pages) {
+                if (isCancelled()) return;
+                for (List<V> page : pages) {
+                    onPage.accept(page);
+                }
+            }
+
+            @Override
+            protected void done() {
+                cursor.restore();
+                if (isCancelled()) {
+                    if (timedOut[0]) showError(owner, timeout(DEFAULT_TIMEOUT_MILLIS));
+                    return;
+                }
+                try {
+                    onDone.accept(get());
+                } catch (ExecutionException e) {
+                    showError(owner, unwrap(e));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        Load load = start(worker, DEFAULT_TIMEOUT_MILLIS, timedOut);
+        pageTimer[0] = load.timer;
+        return load;
+    }
+
+    private static Load start(SwingWorker<?, ?> worker, long timeoutMillis, boolean[] timedOut) {
+        Timer timer = new Timer((int) Math.min(timeoutMillis, Integer.MAX_VALUE), e -> {
+            if (!worker.isDone()) {
+                timedOut[0] = true;
+                worker.cancel(true);
+            }
+        });
+        timer.setRepeats(false);
+        worker.addPropertyChangeListener(e -> {
+            if ("state".equals(e.getPropertyName()) && e.getNewValue() == SwingWorker.StateValue.DONE) {
+                timer.stop();
+            }
+        });
+        timer.start();
+        EXECUTOR.execute(worker);
+        Load load = new Load(worker);
+        load.timer = timer;
+        return load;
+    }
+
+    private static Exception unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        return cause instanceof Exception ? (Exception) cause : e;
+    }
+
+    private static TimeoutException timeout(long timeoutMillis) {
+        return new TimeoutException("The database did not answer within " + timeoutMillis / 1000 + " seconds.");
+    }
+
+    /**
+     * The standard error dialog used by the GUIs for failed loads.
+     */
+    public static void showError(Component owner, Exception e) {
+        String message = e instanceof TimeoutException ? e.getMessage() : "Database error: " + e.getMessage();
+        JOptionPane.showMessageDialog(owner, message, "Error", JOptionPane.ERROR_MESSAGE);
+    }
+
+    /**
+     * Wait cursor on the owner's window while at least one load for it is running.
+     * Only touched on the EDT.
+     */
+    private static final class BusyCursor {
+        private static final Map<Window, Integer> RUNNING = new WeakHashMap<>();
+        private final Window window;
+        private boolean restored;
+
+        BusyCursor(Component owner) {
+            this.window = owner == null ? null
+                    : owner instanceof Window ? (Window) owner : SwingUtilities.getWindowAncestor(owner);
+            if (window != null && RUNNING.merge(window, 1, Integer::sum) == 1) {
+                window.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+            }
+        }
+
+        void restore() {
+            if (window == null || restored) return;
+            restored = true;
+            if (RUNNING.merge(window, -1, Integer::sum) == 0) {
+                RUNNING.remove(window);
+                window.setCursor(Cursor.getDefaultCursor());
+            }
+        }
+    }
+}
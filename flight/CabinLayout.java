@@ -0,0 +1,145 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Seat layout of an aircraft: cabins made of rows, each row split into seat
+ * groups by aisles (e.g. 3-4-3). Seat numbers run 1..capacity front to back,
+ * left to right, which is what Bookings.seatNumber stores.
+ */
+public class CabinLayout {
+
+    private static final String SEAT_LETTERS = "ABCDEFGHJK";
+
+    public static class Cabin {
+        private final String name;
+        private final int[] seatGroups;
+        private final int seatsPerRow;
+        private final int firstRow;
+        private final int rows;
+        private final int firstSeatNumber;
+        private final int seatCount;
+
+        Cabin(String name, int[] seatGroups, int firstRow, int firstSeatNumber, int seatCount) {
+            this.name = name;
+            this.seatGroups = seatGroups;
+            int perRow = 0;
+            for (int g : seatGroups) perRow += g;
+            this.seatsPerRow = perRow;
+            this.firstRow = firstRow;
+            this.rows = (seatCount + perRow - 1) / perRow;
+            this.firstSeatNumber = firstSeatNumber;
+            this.seatCount = seatCount;
+        }
+
+        public String getName() { return name; }
+        public int[] getSeatGroups() { return seatGroups.clone(); }
+        public int getSeatsPerRow() { return seatsPerRow; }
+        public int getFirstRow() { return firstRow; }
+        public int getRows() { return rows; }
+        public int getFirstSeatNumber() { return firstSeatNumber; }
+        public int getSeatCount() { return seatCount; }
+
+        public boolean contains(int seatNumber) {
+            return seatNumber >= firstSeatNumber && seatNumber < firstSeatNumber + seatCount;
+        }
+    }
+
+    private final int capacity;
+    private final List<Cabin> cabins;
+
+    private CabinLayout(int capacity, List<Cabin> cabins) {
+        this.capacity = capacity;
+        this.cabins = Collections.unmodifiableList(cabins);
+    }
+
+    /**
+     * Picks a layout for an aircraft model, sized to its capacity.
+     * Unknown models get a single economy cabin whose width depends on capacity.
+     */
+    public static CabinLayout forAircraft(String model, int capacity) {
+        String m = model == null ? "" : model.toUpperCase();
+        Builder b = new Builder(capacity);
+        if (m.contains("A380")) {
+            b.cabin("First", 14, 1, 2, 1).cabin("Business", 76, 1, 2, 1).rest("Economy", 3, 4, 3);
+        } else if (m.contains("777")) {
+            b.cabin("Business", 42, 2, 2, 2).rest("Economy", 3, 4, 3);
+        } else if (m.contains("787")) {
+            b.cabin("Business", 30, 2, 2, 2).rest("Economy", 3, 3, 3);
+        } else if (m.contains("737") || m.contains("A320")) {
+            b.cabin("Business", 16, 2, 2).rest("Economy", 3, 3);
+        } else if (capacity > 300) {
+            b.rest("Economy", 3, 4, 3);
+        } else if (capacity > 200) {
+            b.rest("Economy", 3, 3, 3);
+        } else if (capacity > 60) {
+            b.rest("Economy", 3, 3);
+        } else {
+            b.rest("Economy", 2, 2);
+        }
+        return b.build();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public List<Cabin> getCabins() {
+        return cabins;
+    }
+
+    public Cabin cabinOf(int seatNumber) {
+        for (Cabin c : cabins) {
+            if (c.contains(seatNumber)) return c;
+        }
+        return null;
+    }
+
+    /**
+     * Passenger-facing label, e.g. seat 17 in a 2-2 business cabin is "5A".
+     */
+    public String seatLabel(int seatNumber) {
+        Cabin c = cabinOf(seatNumber);
+        if (c == null) return String.valueOf(seatNumber);
+        int offset = seatNumber - c.firstSeatNumber;
+        int row = c.firstRow + offset / c.seatsPerRow;
+        return row + String.valueOf(SEAT_LETTERS.charAt(offset % c.seatsPerRow));
+    }
+
+    private static class Builder {
+        private final int capacity;
+        private final List<Cabin> cabins = new ArrayList<>();
+        private int nextSeat = 1;
+        private int nextRow = 1;
+
+        Builder(int capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * Adds a premium cabin, skipped if it would leave no room for the rest of the aircraft.
+         */
+        Builder cabin(String name, int seats, int... groups) {
+            if (nextSeat - 1 + seats >= capacity) return this;
+            add(name, seats, groups);
+            return this;
+        }
+
+        Builder rest(String name, int... groups) {
+            int remaining = capacity - (nextSeat - 1);
+            if (remaining > 0) add(name, remaining, groups);
+            return this;
+        }
+
+        private void add(String name, int seats, int[] groups) {
+            Cabin c = new Cabin(name, groups, nextRow, nextSeat, seats);
+            cabins.add(c);
+            nextSeat += seats;
+            nextRow += c.rows;
+        }
+
+        CabinLayout build() {
+            return new CabinLayout(capacity, cabins);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+import database.DatabaseConnectivity;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.util.Locale;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Dumps the Bookings or Payments table to CSV or JSON Lines, gzip'd when the
+ * file name ends in .gz. Rows are streamed from MySQL one at a time (forward-only
+ * result set with fetch size Integer.MIN_VALUE) and written through a buffer, so
+ * memory use does not depend on the table size. The dump is written to a .part
+ * file and renamed when complete.
+ */
+public class DataExporter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long PROGRESS_INTERVAL_ROWS = 100_000;
+
+    public enum Table {
+        BOOKINGS("SELECT bookingID, flightID, passengerName, passengerEmail, seatNumber, seatCount, " +
+                 "bookingRef, bookingTime, status FROM Bookings ORDER BY bookingID"),
+        PAYMENTS("SELECT paymentID, bookingID, amount, method, status, cardLast4, transactionTime " +
+                 "FROM Payments ORDER BY paymentID");
+
+        private final String sql;
+
+        Table(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    public enum Format {
+        CSV, JSON_LINES;
+
+        /**
+         * JSON Lines for *.jsonl[.gz] and *.ndjson[.gz], CSV otherwise.
+         */
+        public static Format forFile(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".gz")) name = name.substring(0, name.length() - 3);
+            return name.endsWith(".jsonl") || name.endsWith(".ndjson") ? JSON_LINES : CSV;
+        }
+    }
+
+    public static class ExportResult {
+        private final long rows;
+        private final long bytesWritten;
+        private final long elapsedNanos;
+
+        ExportResult(long rows, long bytesWritten, long elapsedNanos) {
+            this.rows = rows;
+            this.bytesWritten = bytesWritten;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getRows() { return rows; }
+        /** Size of the output file, after compression. */
+        public long getBytesWritten() { return bytesWritten; }
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rows / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rows exported in %.2fs (%.0f rows/s), %.1f MB written",
+                    rows, elapsedNanos / 1e9, getRowsPerSecond(), bytesWritten / 1e6);
+        }
+    }
+
+    /**
+     * @param progress called with the running row count every 100,000 rows; may be null
+     */
+    public ExportResult export(Table table, Path file, LongConsumer progress) throws IOException, SQLException {
+        Format format = Format.forFile(file);
+        boolean gzip = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz");
+        Path part = file.resolveSibling(file.getFileName() + ".part");
+        long start = System.nanoTime();
+        long rows = 0;
+
+        try (Connection conn = DatabaseConnectivity.getConnection();
+             PreparedStatement ps = conn.prepareStatement(table.sql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+             FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            // Makes Connector/J stream rows instead of reading the whole result into memory
+            ps.setFetchSize(Integer.MIN_VALUE);
+
+            OutputStream out = Channels.newOutputStream(channel);
+            if (gzip) out = new GZIPOutputStream(out, BUFFER_SIZE);
+            try (ResultSet rs = ps.executeQuery();
+                 Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+
+                ResultSetMetaData meta = rs.getMetaData();
+                int columns = meta.getColumnCount();
+                String[] names = new String[columns];
+                boolean[] numeric = new boolean[columns];
+                for (int i = 0; i < columns; i++) {
+                    names[i] = meta.getColumnLabel(i + 1);
+                    numeric[i] = isNumeric(meta.getColumnType(i + 1));
+                }
+
+                if (format == Format.CSV) {
+                    for (int i = 0; i < columns; i++) {
+                        if (i > 0) writer.write(',');
+                        writeCsv(writer, names[i]);
+                    }
+                    writer.write('\n');
+                }
+
+                while (rs.next()) {
+                    if (format == Format.CSV) {
+                        for (int i = 0; i < columns; i++) {
+                            if (i > 0) writer.write(',');
+                            String value = rs.getString(i + 1);
+                            if (value != null) writeCsv(writer, value);
+                        }
+                    } else {
+                        writer.write('{');
+                        for (int i = 0; i < columns; i++) {
+                            if (i > 0) writer.write(',');
+                            writeJsonString(writer, names[i]);
+                            writer.write(':');
+                            String value = rs.getString(i + 1);
+                            if (value == null) {
+                                writer.write("null");
+                            } else if (numeric[i]) {
+                                writer.write(value);
+                            } else {
+                                writeJsonString(writer, value);
+                            }
+                        }
+                        writer.write('}');
+                    }
+                    writer.write('\n');
+                    rows++;
+                    if (progress != null && rows % PROGRESS_INTERVAL_ROWS == 0) {
+                        progress.accept(rows);
+                    }
+                }
+
+                // Closing the writer also closes the channel, so sync to disk first
+                writer.flush();
+                if (out instanceof GZIPOutputStream) ((GZIPOutputStream) out).finish();
+                channel.force(false);
+            }
+        } catch (IOException | SQLException | RuntimeException e) {
+            Files.deleteIfExists(part);
+            throw e;
+        }
+
+        long bytes = Files.size(part);
+        Files.move(part, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new ExportResult(rows, bytes, System.nanoTime() - start);
+    }
+
+    private static boolean isNumeric(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void writeCsv(Writer w, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            w.write(value);
+            return;
+        }
+        w.write('"');
+        w.write(value.replace("\"", "\"\""));
+        w.write('"');
+    }
+
+    private static void writeJsonString(Writer w, String value) throws IOException {
+        w.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': w.write("\\\""); break;
+                case '\\': w.write("\\\\"); break;
+                case '\n': w.write("\\n"); break;
+                case '\r': w.write("\\r"); break;
+                case '\t': w.write("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        w.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        w.write(c);
+                    }
+            }
+        }
+        w.write('"');
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: java DataExporter <bookings|payments> <file.csv[.gz]|file.jsonl[.gz]>");
+            System.exit(1);
+        }
+        Table table = Table.valueOf(args[0].toUpperCase(Locale.ROOT));
+        ExportResult result = new DataExporter().export(table, Path.of(args[1]),
+                rows -> System.err.println("  " + rows + " rows..."));
+        System.out.println(result);
+    }
+}
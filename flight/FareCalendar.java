@@ -0,0 +1,416 @@
+import database.DatabaseConnectivity;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lowest fare and seats left per route and departure day, for flexible-date
+ * shopping. A whole month for one route is one map lookup plus an array slice.
+ *
+ * Each route keeps an array of DayFare summaries indexed by day. Readers take
+ * the array without locking, and a change copies it and swaps the new one in.
+ * Flight edits come from FlightManagementDAO. Seat changes come from the booking
+ * DAOs once their transaction has committed. Everything is reloaded after a TTL,
+ * to pick up changes made by other processes. Only flights departing today or
+ * later are loaded. Fares follow each seat change; a change of fare buckets
+ * shows after the next reload.
+ *
+ * Rows are read from the database without holding the calendar's lock. A change
+ * that commits during such a read may or may not be in the row, so flights
+ * changed while a read was running are read again rather than trusted.
+ */
+public class FareCalendar {
+
+    public static final long DEFAULT_TTL_MILLIS = 5 * 60_000;
+    private static final int MAX_READ_ATTEMPTS = 3;
+
+    private static final FareCalendar INSTANCE = new FareCalendar(DEFAULT_TTL_MILLIS);
+
+    private static final String SELECT =
+            "SELECT flightID, origin, destination, departureTime, price, aircraftID, bookedSeats FROM Flights ";
+
+    /**
+     * One route on one day. lowestFare is over flights that still have seats, at
+     * the PricingEngine fare for each flight's current load factor.
+     */
+    public static final class DayFare {
+        private final LocalDate date;
+        private final double lowestFare;
+        private final int seatsAvailable;
+        private final int flightCount;
+
+        DayFare(LocalDate date, double lowestFare, int seatsAvailable, int flightCount) {
+            this.date = date;
+            this.lowestFare = lowestFare;
+            this.seatsAvailable = seatsAvailable;
+            this.flightCount = flightCount;
+        }
+
+        public LocalDate getDate() { return date; }
+        /** Double.NaN when every flight that day is full. */
+        public double getLowestFare() { return lowestFare; }
+        public int getSeatsAvailable() { return seatsAvailable; }
+        public int getFlightCount() { return flightCount; }
+        public boolean isSoldOut() { return seatsAvailable == 0; }
+    }
+
+    /** Writer-side state of one flight. */
+    private static final class Fare {
+        final int flightId;
+        final String route;
+        final int day;
+        // Flights.price; the fare shown is this scaled by PricingEngine's bucket for the load factor
+        final double price;
+        final int capacity;
+        int booked;
+
+        Fare(int flightId, String route, int day, double price, int capacity, int booked) {
+            this.flightId = flightId;
+            this.route = route;
+            this.day = day;
+            this.price = price;
+            this.capacity = capacity;
+            this.booked = booked;
+        }
+
+        int seatsLeft() {
+            return Math.max(0, capacity - booked);
+        }
+
+        double fare() {
+            return PricingEngine.getInstance().priceOf(new PricingEngine.FlightLoad(flightId, price, capacity, booked));
+        }
+    }
+
+    private static final class Route {
+        // days[i] summarises epoch day firstDay + i; null if nothing flies that day
+        final int firstDay;
+        final DayFare[] days;
+
+        Route(int firstDay, DayFare[] days) {
+            this.firstDay = firstDay;
+            this.days = days;
+        }
+    }
+
+    private final long ttlNanos;
+    // What readers see; replaced as a whole on reload so they never see a half-built calendar
+    private volatile Map<String, Route> routes = new ConcurrentHashMap<>();
+    private volatile long loadedAtNanos;
+    private volatile boolean loaded;
+    // Writer side, guarded by this; writeRoutes is routes except while a reload is being built
+    private Map<String, Route> writeRoutes = routes;
+    private Map<Integer, Fare> fares = new HashMap<>();
+    private Map<String, Map<Integer, List<Fare>>> faresByRouteDay = new HashMap<>();
+    // Also guarded by this: while reads are running, the change sequence number each flight last changed at
+    private long changeSeq;
+    private int readsRunning;
+    private final Map<Integer, Long> changedAt = new HashMap<>();
+    // Held while a full reload reads the database, so only one runs at a time
+    private final Object reloadLock = new Object();
+
+    /**
+     * @param ttlMillis how long loaded data is used before reloading; Long.MAX_VALUE for never
+     */
+    public FareCalendar(long ttlMillis) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    public static FareCalendar getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return one entry per day of the month, null for days with no flight on the route
+     */
+    public DayFare[] getMonth(String origin, String destination, YearMonth month) throws SQLException {
+        ensureLoaded();
+        DayFare[] result = new DayFare[month.lengthOfMonth()];
+        Route route = routes.get(routeKey(origin, destination));
+        if (route == null) return result;
+        int first = (int) month.atDay(1).toEpochDay();
+        int from = Math.max(first, route.firstDay);
+        int to = Math.min(first + result.length, route.firstDay + route.days.length);
+        if (from < to) {
+            System.arraycopy(route.days, from - route.firstDay, result, from - first, to - from);
+        }
+        return result;
+    }
+
+    /**
+     * Records a new or edited flight. bookedSeats is its current Flights.bookedSeats.
+     */
+    public void flightSaved(int flightId, String origin, String destination, Timestamp departureTime,
+                            double price, int aircraftId, int bookedSeats) throws SQLException {
+        // Recorded even when not loaded, in case a reload is reading the table right now
+        ReferenceDataCache.Snapshot reference = ReferenceDataCache.getInstance().snapshot();
+        synchronized (this) {
+            changed(flightId);
+            if (loaded) {
+                put(new Row(flightId, origin, destination, departureTime, price, aircraftId, bookedSeats), reference);
+            }
+        }
+    }
+
+    public synchronized void flightDeleted(int flightId) {
+        changed(flightId);
+        if (loaded) remove(flightId);
+    }
+
+    /**
+     * Applies a committed change in a flight's booked seats (negative for releases).
+     */
+    public synchronized void seatsChanged(int flightId, int delta) {
+        changed(flightId);
+        Fare fare = fares.get(flightId);
+        if (fare == null) return;
+        fare.booked += delta;
+        summarize(fare.route, fare.day);
+    }
+
+    /**
+     * Re-reads the given flights, for changes whose effect on the counters is not known
+     * (e.g. a bulk recount).
+     */
+    public void refreshFlights(Collection<Integer> flightIds) throws SQLException {
+        if (!loaded || flightIds.isEmpty()) return;
+        List<Integer> ids = new ArrayList<>(flightIds);
+        for (int attempt = 0; !ids.isEmpty(); attempt++) {
+            if (attempt == MAX_READ_ATTEMPTS) {
+                // Changing faster than it can be read; start over from a full reload
+                invalidate();
+                return;
+            }
+            long since = beginRead();
+            List<Row> rows;
+            ReferenceDataCache.Snapshot reference;
+            try {
+                rows = readFlights(ids);
+                reference = ReferenceDataCache.getInstance().snapshot();
+            } catch (SQLException | RuntimeException e) {
+                endRead(since);
+                throw e;
+            }
+            synchronized (this) {
+                Set<Integer> stale = endRead(since);
+                if (!loaded) return;
+                for (Integer id : ids) {
+                    if (!stale.contains(id)) remove(id);
+                }
+                for (Row row : rows) {
+                    if (!stale.contains(row.flightId)) put(row, reference);
+                }
+                ids.retainAll(stale);
+            }
+        }
+    }
+
+    private static List<Row> readFlights(List<Integer> ids) throws SQLException {
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        try (Connection conn = DatabaseConnectivity.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SELECT + "WHERE flightID IN (" + placeholders + ")")) {
+            for (int i = 0; i < ids.size(); i++) {
+                ps.setInt(i + 1, ids.get(i));
+            }
+            List<Row> rows = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new Row(rs));
+                }
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * Forces a full reload on the next read.
+     */
+    public void invalidate() {
+        loaded = false;
+    }
+
+    private void ensureLoaded() throws SQLException {
+        if (loaded && System.nanoTime() - loadedAtNanos < ttlNanos) return;
+        Set<Integer> stale;
+        synchronized (reloadLock) {
+            if (loaded && System.nanoTime() - loadedAtNanos < ttlNanos) return;
+            long since = beginRead();
+            List<Row> rows = new ArrayList<>();
+            ReferenceDataCache.Snapshot reference;
+            try {
+                try (Connection conn = DatabaseConnectivity.getConnection();
+                     PreparedStatement ps = conn.prepareStatement(SELECT + "WHERE departureTime >= CURDATE()");
+                     ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        rows.add(new Row(rs));
+                    }
+                }
+                reference = ReferenceDataCache.getInstance().snapshot();
+            } catch (SQLException | RuntimeException e) {
+                endRead(since);
+                throw e;
+            }
+
+            synchronized (this) {
+                // Changes made during the read went to the old maps; the flights they touched are re-read below
+                stale = endRead(since);
+                fares = new HashMap<>();
+                faresByRouteDay = new HashMap<>();
+                writeRoutes = new ConcurrentHashMap<>();
+                for (Row row : rows) {
+                    Fare fare = toFare(row, reference);
+                    if (fare != null) index(fare);
+                }
+                for (Map.Entry<String, Map<Integer, List<Fare>>> route : faresByRouteDay.entrySet()) {
+                    for (Integer day : route.getValue().keySet()) {
+                        summarize(route.getKey(), day);
+                    }
+                }
+                routes = writeRoutes;
+                loadedAtNanos = System.nanoTime();
+                loaded = true;
+            }
+        }
+        refreshFlights(stale);
+    }
+
+    /**
+     * Starts a database read whose rows are applied later.
+     * @return the change sequence number to pass to endRead
+     */
+    private synchronized long beginRead() {
+        readsRunning++;
+        return changeSeq;
+    }
+
+    /**
+     * @return the flights changed since the matching beginRead, whose rows may be out of date
+     */
+    private synchronized Set<Integer> endRead(long since) {
+        Set<Integer> stale = new HashSet<>();
+        for (Map.Entry<Integer, Long> e : changedAt.entrySet()) {
+            if (e.getValue() > since) stale.add(e.getKey());
+        }
+        if (--readsRunning == 0) changedAt.clear();
+        return stale;
+    }
+
+    /** Called under this for every change to a flight. */
+    private void changed(int flightId) {
+        changeSeq++;
+        if (readsRunning > 0) changedAt.put(flightId, changeSeq);
+    }
+
+    /** A Flights row as read from the database. */
+    private static final class Row {
+        final int flightId;
+        final String origin;
+        final String destination;
+        final Timestamp departureTime;
+        final double price;
+        final int aircraftId;
+        final int bookedSeats;
+
+        Row(ResultSet rs) throws SQLException {
+            flightId = rs.getInt("flightID");
+            origin = rs.getString("origin");
+            destination = rs.getString("destination");
+            departureTime = rs.getTimestamp("departureTime");
+            price = rs.getDouble("price");
+            aircraftId = rs.getInt("aircraftID");
+            bookedSeats = rs.getInt("bookedSeats");
+        }
+
+        Row(int flightId, String origin, String destination, Timestamp departureTime,
+            double price, int aircraftId, int bookedSeats) {
+            this.flightId = flightId;
+            this.origin = origin;
+            this.destination = destination;
+            this.departureTime = departureTime;
+            this.price = price;
+            this.aircraftId = aircraftId;
+            this.bookedSeats = bookedSeats;
+        }
+    }
+
+    /**
+     * @return null for flights the calendar does not cover (departed, or missing route or time)
+     */
+    private static Fare toFare(Row row, ReferenceDataCache.Snapshot reference) {
+        if (row.origin == null || row.destination == null || row.departureTime == null) return null;
+        int day = (int) row.departureTime.toLocalDateTime().toLocalDate().toEpochDay();
+        if (day < LocalDate.now().toEpochDay()) return null;
+        Aircraft aircraft = reference.getAircraft(row.aircraftId);
+        return new Fare(row.flightId, routeKey(row.origin, row.destination), day, row.price,
+                aircraft != null ? aircraft.getCapacity() : 0, row.bookedSeats);
+    }
+
+    private void put(Row row, ReferenceDataCache.Snapshot reference) {
+        remove(row.flightId);
+        Fare fare = toFare(row, reference);
+        if (fare == null) return;
+        index(fare);
+        summarize(fare.route, fare.day);
+    }
+
+    private void index(Fare fare) {
+        fares.put(fare.flightId, fare);
+        faresByRouteDay.computeIfAbsent(fare.route, k -> new HashMap<>())
+                .computeIfAbsent(fare.day, k -> new ArrayList<>()).add(fare);
+    }
+
+    private void remove(int flightId) {
+        Fare old = fares.remove(flightId);
+        if (old == null) return;
+        List<Fare> sameDay = faresByRouteDay.get(old.route).get(old.day);
+        sameDay.remove(old);
+        summarize(old.route, old.day);
+    }
+
+    /**
+     * Recomputes one day of one route and publishes a new array for the route.
+     */
+    private void summarize(String routeKey, int day) {
+        List<Fare> sameDay = faresByRouteDay.getOrDefault(routeKey, Map.of()).getOrDefault(day, List.of());
+        DayFare summary = null;
+        if (!sameDay.isEmpty()) {
+            double lowest = Double.NaN;
+            int seats = 0;
+            for (Fare f : sameDay) {
+                int left = f.seatsLeft();
+                seats += left;
+                if (left > 0) {
+                    double fare = f.fare();
+                    if (Double.isNaN(lowest) || fare < lowest) lowest = fare;
+                }
+            }
+            summary = new DayFare(LocalDate.ofEpochDay(day), lowest, seats, sameDay.size());
+        }
+
+        Route route = writeRoutes.get(routeKey);
+        if (route == null) {
+            if (summary != null) writeRoutes.put(routeKey, new Route(day, new DayFare[] {summary}));
+            return;
+        }
+        int first = Math.min(route.firstDay, day);
+        int end = Math.max(route.firstDay + route.days.length, day + 1);
+        DayFare[] days = new DayFare[end - first];
+        System.arraycopy(route.days, 0, days, route.firstDay - first, route.days.length);
+        days[day - first] = summary;
+        writeRoutes.put(routeKey, new Route(first, days));
+    }
+
+    private static String routeKey(String origin, String destination) {
+        return origin + "-" + destination;
+    }
+}
@@ -1,9 +1,13 @@
+import database.SchemaMigrator;
 import java.awt.*;
 import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.List;
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 
 public class FlightManagementAdminGUI {
 
@@ -18,6 +22,13 @@ public class FlightManagementAdminGUI {
     private JComboBox<Aircraft> aircraftComboBox;
 
     public static void main(String[] args) {
+        try {
+            SchemaMigrator.migrate();
+        } catch (SQLException e) {
+            JOptionPane.showMessageDialog(null, "Database migration failed: " + e.getMessage(),
+                    "Error", JOptionPane.ERROR_MESSAGE);
+        }
+        FlightSeatCounter.scheduleReconciliation(FlightSeatCounter.DEFAULT_RECONCILE_PERIOD_MINUTES);
         SwingUtilities.invokeLater(() -> new FlightManagementAdminGUI().run());
     }
 
@@ -38,24 +49,17 @@ public class FlightManagementAdminGUI {
         airlineComboBox = new JComboBox<>();
         aircraftComboBox = new JComboBox<>();
 
-        try {
-            List<Airline> airlines = lookupDAO.getAllAirlines();
+        // Fill the selectors in the background so the window opens immediately
+        BackgroundLoader.run(frame, lookupDAO::getAllAirlines, airlines -> {
             for (Airline a : airlines) {
                 airlineComboBox.addItem(a);
             }
-
-            List<Aircraft> aircrafts = lookupDAO.getAllAircrafts();
+        });
+        BackgroundLoader.run(frame, lookupDAO::getAllAircrafts, aircrafts -> {
             for (Aircraft ac : aircrafts) {
                 aircraftComboBox.addItem(ac);
             }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(
-                    frame,
-                    "Database error: " + e.getMessage(),
-                    "Lookup",
-                    JOptionPane.ERROR_MESSAGE
-            );
-        }
+        });
     }
 
     private void showGUI() {
@@ -96,6 +100,8 @@ public class FlightManagementAdminGUI {
                 + "2) Add new flight<br>"
                 + "3) Update existing flight<br>"
                 + "4) Delete flight<br>"
+                + "5) Import flight schedule (CSV/JSON)<br>"
+                + "6) Export bookings or payments<br>"
                 + "0) Exit"
                 + "</html>");
         field.setText("");
@@ -117,6 +123,8 @@ public class FlightManagementAdminGUI {
                 case 2 -> addFlight();
                 case 3 -> updateFlight();
                 case 4 -> deleteFlight();
+                case 5 -> importSchedule();
+                case 6 -> exportData();
                 case 0 -> {
                     JOptionPane.showMessageDialog(frame, "Goodbye.");
                     frame.dispose();
@@ -129,30 +137,28 @@ public class FlightManagementAdminGUI {
     }
 
     private void listFlights() {
-        try {
-            List<FlightRecord> flights = flightDAO.getAllFlights();
-            StringBuilder output = new StringBuilder(
-                    "FlightID\tFlightNumber\tAirlineID\tAirlineName\tOrigin\tDestination\tDeparture\tArrival\tPrice\tAircraftID\tAircraftModel\n"
-            );
-            for (FlightRecord f : flights) {
-                output.append(String.format("%d\t%s\t%d\t%s\t%s\t%s\t%s\t%s\t%.2f\t%d\t%s%n",
-                        f.getFlightId(),
-                        f.getFlightNumber(),
-                        f.getAirlineId(),
-                        f.getAirlineName(),
-                        f.getOrigin(),
-                        f.getDestination(),
-                        f.getDepartureTime(),
-                        f.getArrivalTime(),
-                        f.getPrice(),
-                        f.getAircraftId(),
-                        f.getAircraftModel()));
-            }
-            JOptionPane.showMessageDialog(frame, output.toString(), "Flights", JOptionPane.INFORMATION_MESSAGE);
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(frame, "Database error: " + e.getMessage(), "Flights",
-                    JOptionPane.ERROR_MESSAGE);
+        BackgroundLoader.run(frame, flightDAO::getAllFlights, this::listFlights);
+    }
+
+    private void listFlights(List<FlightRecord> flights) {
+        StringBuilder output = new StringBuilder(
+                "FlightID\tFlightNumber\tAirlineID\tAirlineName\tOrigin\tDestination\tDeparture\tArrival\tPrice\tAircraftID\tAircraftModel\n"
+        );
+        for (FlightRecord f : flights) {
+            output.append(String.format("%d\t%s\t%d\t%s\t%s\t%s\t%s\t%s\t%.2f\t%d\t%s%n",
+                    f.getFlightId(),
+                    f.getFlightNumber(),
+                    f.getAirlineId(),
+                    f.getAirlineName(),
+                    f.getOrigin(),
+                    f.getDestination(),
+                    f.getDepartureTime(),
+                    f.getArrivalTime(),
+                    f.getPrice(),
+                    f.getAircraftId(),
+                    f.getAircraftModel()));
         }
+        JOptionPane.showMessageDialog(frame, output.toString(), "Flights", JOptionPane.INFORMATION_MESSAGE);
     }
 
     private void addFlight() {
@@ -251,159 +257,216 @@ public class FlightManagementAdminGUI {
     }
 
     private void updateFlight() {
-        try {
-            final List<FlightRecord> flights = flightDAO.getAllFlights();
-            StringBuilder output = new StringBuilder(
-                    "FlightID\tFlightNumber\tAirlineID\tAirlineName\tOrigin\tDestination\tDeparture\tArrival\tPrice\tAircraftID\tAircraftModel\n"
-            );
-            for (FlightRecord f : flights) {
-                output.append(String.format("%d\t%s\t%d\t%s\t%s\t%s\t%s\t%s\t%.2f\t%d\t%s%n",
-                        f.getFlightId(),
-                        f.getFlightNumber(),
-                        f.getAirlineId(),
-                        f.getAirlineName(),
-                        f.getOrigin(),
-                        f.getDestination(),
-                        f.getDepartureTime(),
-                        f.getArrivalTime(),
-                        f.getPrice(),
-                        f.getAircraftId(),
-                        f.getAircraftModel()));
+        BackgroundLoader.run(frame, flightDAO::getAllFlights, this::updateFlight);
+    }
+
+    private void updateFlight(List<FlightRecord> flights) {
+        StringBuilder output = new StringBuilder(
+                "FlightID\tFlightNumber\tAirlineID\tAirlineName\tOrigin\tDestination\tDeparture\tArrival\tPrice\tAircraftID\tAircraftModel\n"
+        );
+        for (FlightRecord f : flights) {
+            output.append(String.format("%d\t%s\t%d\t%s\t%s\t%s\t%s\t%s\t%.2f\t%d\t%s%n",
+                    f.getFlightId(),
+                    f.getFlightNumber(),
+                    f.getAirlineId(),
+                    f.getAirlineName(),
+                    f.getOrigin(),
+                    f.getDestination(),
+                    f.getDepartureTime(),
+                    f.getArrivalTime(),
+                    f.getPrice(),
+                    f.getAircraftId(),
+                    f.getAircraftModel()));
+        }
+        JOptionPane.showMessageDialog(frame, output.toString(), "Flights", JOptionPane.INFORMATION_MESSAGE);
+
+        label.setText("Enter flight ID to update:");
+        field.setText("");
+        button.setText("Update flight");
+
+        setButtonAction(e -> {
+            int id;
+            try {
+                id = Integer.parseInt(field.getText().trim());
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(frame, "Please enter a valid flight ID.", "Update flight",
+                        JOptionPane.ERROR_MESSAGE);
+                return;
             }
-            JOptionPane.showMessageDialog(frame, output.toString(), "Flights", JOptionPane.INFORMATION_MESSAGE);
 
-            label.setText("Enter flight ID to update:");
-            field.setText("");
-            button.setText("Update flight");
+            FlightRecord existing = flights.stream()
+                    .filter(f -> f.getFlightId() == id)
+                    .findFirst()
+                    .orElse(null);
 
-            setButtonAction(e -> {
-                int id;
-                try {
-                    id = Integer.parseInt(field.getText().trim());
-                } catch (NumberFormatException ex) {
-                    JOptionPane.showMessageDialog(frame, "Please enter a valid flight ID.", "Update flight",
-                            JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
+            if (existing == null) {
+                JOptionPane.showMessageDialog(frame, "Flight ID not found.", "Update flight",
+                        JOptionPane.ERROR_MESSAGE);
+                return;
+            }
 
-                FlightRecord existing = flights.stream()
-                        .filter(f -> f.getFlightId() == id)
-                        .findFirst()
-                        .orElse(null);
+            label.setText("Enter new flight number (leave empty to keep current):");
+            field.setText(existing.getFlightNumber());
+            button.setText("Save");
 
-                if (existing == null) {
-                    JOptionPane.showMessageDialog(frame, "Flight ID not found.", "Update flight",
-                            JOptionPane.ERROR_MESSAGE);
-                    return;
+            setButtonAction(event -> {
+                String flightNumber = field.getText().trim();
+                if (flightNumber.isEmpty()) {
+                    flightNumber = existing.getFlightNumber();
                 }
 
-                label.setText("Enter new flight number (leave empty to keep current):");
-                field.setText(existing.getFlightNumber());
-                button.setText("Save");
-
-                setButtonAction(event -> {
-                    String flightNumber = field.getText().trim();
-                    if (flightNumber.isEmpty()) {
-                        flightNumber = existing.getFlightNumber();
-                    }
-
-                    try {
-                        FlightRecord updated = new FlightRecord(
-                                existing.getFlightId(),
-                                flightNumber,
-                                existing.getAirlineId(),
-                                existing.getAirlineName(),
-                                existing.getOrigin(),
-                                existing.getDestination(),
-                                existing.getDepartureTime(),
-                                existing.getArrivalTime(),
-                                existing.getPrice(),
-                                existing.getAircraftId(),
-                                existing.getAircraftModel()
-                        );
-                        flightDAO.updateFlight(updated);
-                        JOptionPane.showMessageDialog(frame, "Flight updated successfully.", "Update flight",
-                                JOptionPane.INFORMATION_MESSAGE);
-                        showMenu();
-                    } catch (SQLException ex) {
-                        JOptionPane.showMessageDialog(frame, "Database error: " + ex.getMessage(),
-                                "Update flight", JOptionPane.ERROR_MESSAGE);
-                    }
-                });
+                try {
+                    FlightRecord updated = new FlightRecord(
+                            existing.getFlightId(),
+                            flightNumber,
+                            existing.getAirlineId(),
+                            existing.getAirlineName(),
+                            existing.getOrigin(),
+                            existing.getDestination(),
+                            existing.getDepartureTime(),
+                            existing.getArrivalTime(),
+                            existing.getPrice(),
+                            existing.getAircraftId(),
+                            existing.getAircraftModel()
+                    );
+                    flightDAO.updateFlight(updated);
+                    JOptionPane.showMessageDialog(frame, "Flight updated successfully.", "Update flight",
+                            JOptionPane.INFORMATION_MESSAGE);
+                    showMenu();
+                } catch (SQLException ex) {
+                    JOptionPane.showMessageDialog(frame, "Database error: " + ex.getMessage(),
+                            "Update flight", JOptionPane.ERROR_MESSAGE);
+                }
             });
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(frame, "Database error: " + e.getMessage(), "Update flight",
-                    JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
 
     private void deleteFlight() {
-        try {
-            final List<FlightRecord> flights = flightDAO.getAllFlights();
-            StringBuilder output = new StringBuilder(
-                    "FlightID\tFlightNumber\tAirlineID\tAirlineName\tOrigin\tDestination\tDeparture\tArrival\tPrice\tAircraftID\tAircraftModel\n"
-            );
+        BackgroundLoader.run(frame, flightDAO::getAllFlights, this::deleteFlight);
+    }
+
+    private void deleteFlight(List<FlightRecord> flights) {
+        StringBuilder output = new StringBuilder(
+                "FlightID\tFlightNumber\tAirlineID\tAirlineName\tOrigin\tDestination\tDeparture\tArrival\tPrice\tAircraftID\tAircraftModel\n"
+        );
+        for (FlightRecord f : flights) {
+            output.append(String.format("%d\t%s\t%d\t%s\t%s\t%s\t%s\t%s\t%.2f\t%d\t%s%n",
+                    f.getFlightId(),
+                    f.getFlightNumber(),
+                    f.getAirlineId(),
+                    f.getAirlineName(),
+                    f.getOrigin(),
+                    f.getDestination(),
+                    f.getDepartureTime(),
+                    f.getArrivalTime(),
+                    f.getPrice(),
+                    f.getAircraftId(),
+                    f.getAircraftModel()));
+        }
+        JOptionPane.showMessageDialog(frame, output.toString(), "Flights", JOptionPane.INFORMATION_MESSAGE);
+
+        label.setText("Enter flight ID to delete:");
+        field.setText("");
+        button.setText("Delete flight");
+
+        setButtonAction(e -> {
+            int id;
+            try {
+                id = Integer.parseInt(field.getText().trim());
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(frame, "Please enter a valid flight ID.", "Delete flight",
+                        JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            FlightRecord existing = null;
             for (FlightRecord f : flights) {
-                output.append(String.format("%d\t%s\t%d\t%s\t%s\t%s\t%s\t%s\t%.2f\t%d\t%s%n",
-                        f.getFlightId(),
-                        f.getFlightNumber(),
-                        f.getAirlineId(),
-                        f.getAirlineName(),
-                        f.getOrigin(),
-                        f.getDestination(),
-                        f.getDepartureTime(),
-                        f.getArrivalTime(),
-                        f.getPrice(),
-                        f.getAircraftId(),
-                        f.getAircraftModel()));
+                if (f.getFlightId() == id) {
+                    existing = f;
+                    break;
+                }
             }
-            JOptionPane.showMessageDialog(frame, output.toString(), "Flights", JOptionPane.INFORMATION_MESSAGE);
 
-            label.setText("Enter flight ID to delete:");
-            field.setText("");
-            button.setText("Delete flight");
+            if (existing == null) {
+                JOptionPane.showMessageDialog(frame, "Flight ID not found.", "Delete flight",
+                        JOptionPane.ERROR_MESSAGE);
+                return;
+            }
 
-            setButtonAction(e -> {
-                int id;
+            int confirm = JOptionPane.showConfirmDialog(frame, "Are you sure?", "Delete flight",
+                    JOptionPane.YES_NO_OPTION);
+            if (confirm == JOptionPane.YES_OPTION) {
                 try {
-                    id = Integer.parseInt(field.getText().trim());
-                } catch (NumberFormatException ex) {
-                    JOptionPane.showMessageDialog(frame, "Please enter a valid flight ID.", "Delete flight",
+                    flightDAO.deleteFlight(id);
+                    JOptionPane.showMessageDialog(frame, "Flight deleted successfully.", "Delete flight",
+                            JOptionPane.INFORMATION_MESSAGE);
+                    showMenu();
+                } catch (SQLException ex) {
+                    JOptionPane.showMessageDialog(frame, "Database error: " + ex.getMessage(), "Delete flight",
                             JOptionPane.ERROR_MESSAGE);
-                    return;
                 }
+            }
+        });
+    }
 
-                FlightRecord existing = null;
-                for (FlightRecord f : flights) {
-                    if (f.getFlightId() == id) {
-                        existing = f;
-                        break;
-                    }
-                }
+    private void importSchedule() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import flight schedule");
+        chooser.setFileFilter(new FileNameExtensionFilter("Schedule (CSV, JSON)", "csv", "json"));
+        if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
 
-                if (existing == null) {
-                    JOptionPane.showMessageDialog(frame, "Flight ID not found.", "Delete flight",
+        // Large schedules can take minutes, so no timeout here
+        BackgroundLoader.run(frame, Long.MAX_VALUE,
+                () -> new FlightScheduleImporter().importFile(chooser.getSelectedFile().toPath()),
+                this::showImportResult,
+                e -> {
+                    String message = e instanceof IOException ? "Could not read file: " : "Database error: ";
+                    JOptionPane.showMessageDialog(frame, message + e.getMessage(), "Import schedule",
                             JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
+                });
+    }
 
-                int confirm = JOptionPane.showConfirmDialog(frame, "Are you sure?", "Delete flight",
-                        JOptionPane.YES_NO_OPTION);
-                if (confirm == JOptionPane.YES_OPTION) {
-                    try {
-                        flightDAO.deleteFlight(id);
-                        JOptionPane.showMessageDialog(frame, "Flight deleted successfully.", "Delete flight",
-                                JOptionPane.INFORMATION_MESSAGE);
-                        showMenu();
-                    } catch (SQLException ex) {
-                        JOptionPane.showMessageDialog(frame, "Database error: " + ex.getMessage(), "Delete flight",
-                                JOptionPane.ERROR_MESSAGE);
-                    }
-                }
-            });
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(frame, "Database error: " + e.getMessage(), "Delete flight",
-                    JOptionPane.ERROR_MESSAGE);
+    private void showImportResult(FlightScheduleImporter.ImportResult result) {
+        StringBuilder output = new StringBuilder(result.toString());
+        List<FlightScheduleImporter.RejectedRow> rejected = result.getRejected();
+        int shown = Math.min(rejected.size(), 20);
+        for (int i = 0; i < shown; i++) {
+            output.append("\n  ").append(rejected.get(i));
+        }
+        if (rejected.size() > shown) {
+            output.append("\n  ... and ").append(rejected.size() - shown).append(" more");
         }
+        JOptionPane.showMessageDialog(frame, output.toString(), "Import schedule",
+                rejected.isEmpty() ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+    }
+
+    private void exportData() {
+        DataExporter.Table[] tables = DataExporter.Table.values();
+        int choice = JOptionPane.showOptionDialog(frame, "Which table do you want to export?", "Export",
+                JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, tables, tables[0]);
+        if (choice < 0) {
+            return;
+        }
+        DataExporter.Table table = tables[choice];
+
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Export " + table.name().toLowerCase());
+        chooser.setSelectedFile(new File(table.name().toLowerCase() + ".csv.gz"));
+        if (chooser.showSaveDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        // A full dump can take minutes, so no timeout here
+        BackgroundLoader.run(frame, Long.MAX_VALUE,
+                () -> new DataExporter().export(table, chooser.getSelectedFile().toPath(), null),
+                result -> JOptionPane.showMessageDialog(frame, result.toString(), "Export",
+                        JOptionPane.INFORMATION_MESSAGE),
+                e -> {
+                    String message = e instanceof IOException ? "Could not write file: " : "Database error: ";
+                    JOptionPane.showMessageDialog(frame, message + e.getMessage(), "Export",
+                            JOptionPane.ERROR_MESSAGE);
+                });
     }
 }
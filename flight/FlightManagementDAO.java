@@ -1,21 +1,25 @@
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import database.DatabaseConnectivity;
 public class FlightManagementDAO {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    // Airline and aircraft names come from ReferenceDataCache rather than a join
     private static final String BASE_SELECT =
-            "SELECT f.flightID, f.flightNumber, " +
-            "       f.airlineID, a.airlineName, " +
+            "SELECT f.flightID, f.flightNumber, f.airlineID, " +
             "       f.origin, f.destination, " +
             "       f.departureTime, f.arrivalTime, " +
-            "       f.price, f.aircraftID, ac.model AS aircraftModel " +
-            "FROM Flights f " +
-            "JOIN Airlines a  ON f.airlineID = a.airlineID " +
-            "JOIN Aircrafts ac ON f.aircraftID = ac.aircraftID ";
+            "       f.price, f.aircraftID " +
+            "FROM Flights f ";
 
     public List<FlightRecord> getAllFlights() throws SQLException {
         String sql = BASE_SELECT + "ORDER BY f.departureTime";
+        ReferenceDataCache.Snapshot reference = ReferenceDataCache.getInstance().snapshot();
 
         try (Connection conn = DatabaseConnectivity.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql);
@@ -23,32 +27,232 @@ public class FlightManagementDAO {
 
             List<FlightRecord> list = new ArrayList<>();
             while (rs.next()) {
-                list.add(mapRow(rs));
+                list.add(mapRow(rs, reference));
             }
             return list;
         }
     }
 
-    public void insertFlight(FlightRecord f) throws SQLException {
-        String sql = "INSERT INTO Flights " +
-                     "(flightNumber, airlineID, origin, destination, " +
-                     " departureTime, arrivalTime, price, aircraftID) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    /**
+     * Searches flights with all filtering done in SQL, one page at a time.
+     * Every filter is optional (null or empty means "any"). The date filter is
+     * a half-open range on departureTime so the (origin, destination,
+     * departureTime) index can be used. The airline filter is resolved to ids
+     * through ReferenceDataCache. Results are ordered by departure time
+     * and paged with a keyset cursor rather than OFFSET.
+     * @param origin 3-letter origin code
+     * @param destination 3-letter destination code
+     * @param date departure date
+     * @param airline case-insensitive fragment of the airline name
+     * @param after last flight of the previous page, or null for the first page
+     * @param pageSize maximum number of rows to return
+     * @return up to pageSize flights; fewer means there are no more pages
+     */
+    public List<FlightRecord> searchFlights(String origin, String destination, LocalDate date,
+                                            String airline, FlightRecord after, int pageSize)
+            throws SQLException {
+        List<Object> params = new ArrayList<>();
+        ReferenceDataCache.Snapshot reference = ReferenceDataCache.getInstance().snapshot();
+        String sql = searchSql(origin, destination, date, airline, after, pageSize, reference, params);
+        if (sql == null) {
+            return new ArrayList<>();
+        }
 
         try (Connection conn = DatabaseConnectivity.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
-            ps.setString(1, f.getFlightNumber());
-            ps.setInt(2, f.getAirlineId());
-            ps.setString(3, f.getOrigin());
-            ps.setString(4, f.getDestination());
-            ps.setTimestamp(5, f.getDepartureTime());
-            ps.setTimestamp(6, f.getArrivalTime());
-            ps.setDouble(7, f.getPrice());
-            ps.setInt(8, f.getAircraftId());
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+
+            try (ResultSet rs = ps.executeQuery()) {
+                List<FlightRecord> list = new ArrayList<>();
+                while (rs.next()) {
+                    list.add(mapRow(rs, reference));
+                }
+                return list;
+            }
+        }
+    }
+
+    public int countFlights() throws SQLException {
+        try (Connection conn = DatabaseConnectivity.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM Flights");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    /**
+     * The statement searchFlights runs, with its parameters added to params;
+     * QueryPlanCheck EXPLAINs it too.
+     * @return null if the airline fragment matches no airline, so nothing can match
+     */
+    static String searchSql(String origin, String destination, LocalDate date, String airline,
+                            FlightRecord after, int pageSize, ReferenceDataCache.Snapshot reference,
+                            List<Object> params) {
+        StringBuilder sql = new StringBuilder(BASE_SELECT).append("WHERE 1=1 ");
+
+        if (origin != null && !origin.isEmpty()) {
+            sql.append("AND f.origin = ? ");
+            params.add(origin);
+        }
+        if (destination != null && !destination.isEmpty()) {
+            sql.append("AND f.destination = ? ");
+            params.add(destination);
+        }
+        if (date != null) {
+            sql.append("AND f.departureTime >= ? AND f.departureTime < ? ");
+            params.add(Timestamp.valueOf(date.atStartOfDay()));
+            params.add(Timestamp.valueOf(date.plusDays(1).atStartOfDay()));
+        }
+        if (airline != null && !airline.isEmpty()) {
+            // Match names in the cached airline list, then filter by id
+            String fragment = airline.toLowerCase(Locale.ROOT);
+            List<Integer> airlineIds = new ArrayList<>();
+            for (Airline a : reference.getAirlines()) {
+                if (a.getAirlineName().toLowerCase(Locale.ROOT).contains(fragment)) {
+                    airlineIds.add(a.getAirlineId());
+                }
+            }
+            if (airlineIds.isEmpty()) {
+                return null;
+            }
+            sql.append("AND f.airlineID IN (")
+               .append(String.join(", ", Collections.nCopies(airlineIds.size(), "?")))
+               .append(") ");
+            params.addAll(airlineIds);
+        }
+        if (after != null) {
+            sql.append("AND (f.departureTime > ? OR (f.departureTime = ? AND f.flightID > ?)) ");
+            params.add(after.getDepartureTime());
+            params.add(after.getDepartureTime());
+            params.add(after.getFlightId());
+        }
+        sql.append("ORDER BY f.departureTime, f.flightID LIMIT ?");
+        params.add(pageSize);
+        return sql.toString();
+    }
+
+    /**
+     * One page of all flights for random-access browsing (PagedTableModel).
+     * Uses OFFSET because the viewer can jump anywhere in the list; flightID
+     * breaks ties so pages never overlap.
+     * @param sortKey flightID, flightNumber, airline, origin, destination,
+     *                departureTime, arrivalTime, price (base fare) or fare (the
+     *                PricingEngine quote); null for departure time
+     */
+    public List<FlightRecord> getFlightsPage(int offset, int limit, String sortKey, boolean ascending)
+            throws SQLException {
+        String direction = ascending ? " ASC" : " DESC";
+        String sql = BASE_SELECT + "ORDER BY " + orderExpression(sortKey) + direction
+                + ", f.flightID" + direction + " LIMIT ? OFFSET ?";
+        ReferenceDataCache.Snapshot reference = ReferenceDataCache.getInstance().snapshot();
+
+        try (Connection conn = DatabaseConnectivity.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setInt(1, limit);
+            ps.setInt(2, offset);
+            try (ResultSet rs = ps.executeQuery()) {
+                List<FlightRecord> list = new ArrayList<>();
+                while (rs.next()) {
+                    list.add(mapRow(rs, reference));
+                }
+                return list;
+            }
+        }
+    }
+
+    private static String orderExpression(String sortKey) throws SQLException {
+        if (sortKey == null) return "f.departureTime";
+        switch (sortKey) {
+            case "flightID":
+            case "flightNumber":
+            case "origin":
+            case "destination":
+            case "departureTime":
+            case "arrivalTime":
+            case "price":
+                return "f." + sortKey;
+            case "fare": {
+                // The quoted fare, which is what the Price column shows
+                String capacity = ReferenceDataCache.getInstance().snapshot().aircraftCapacity("f.aircraftID");
+                return PricingEngine.getInstance().fareOrder("f.price", "f.bookedSeats", capacity);
+            }
+            case "airline":
+                return ReferenceDataCache.getInstance().snapshot().airlineNameOrder("f.airlineID");
+            default:
+                throw new IllegalArgumentException("Cannot sort flights by " + sortKey);
+        }
+    }
+
+    private static final String INSERT_SQL =
+            "INSERT INTO Flights " +
+            "(flightNumber, airlineID, origin, destination, " +
+            " departureTime, arrivalTime, price, aircraftID) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    public void insertFlight(FlightRecord f) throws SQLException {
+        int flightId = 0;
+        try (Connection conn = DatabaseConnectivity.getConnection();
+             PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
 
+            bindInsert(ps, f);
             ps.executeUpdate();
+
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                if (keys.next()) flightId = keys.getInt(1);
+            }
         }
+        // The row is committed and the connection returned; the caches may need one of their own
+        if (flightId == 0) {
+            RouteGraph.getInstance().invalidate();
+            FareCalendar.getInstance().invalidate();
+            return;
+        }
+        RouteGraph.getInstance().flightSaved(withId(f, flightId));
+        try {
+            FareCalendar.getInstance().flightSaved(flightId, f.getOrigin(), f.getDestination(),
+                    f.getDepartureTime(), f.getPrice(), f.getAircraftId(), 0);
+        } catch (SQLException e) {
+            // Reporting this would make the caller retry an insert that succeeded
+            FareCalendar.getInstance().invalidate();
+        }
+    }
+
+    private static FlightRecord withId(FlightRecord f, int flightId) {
+        return new FlightRecord(flightId, f.getFlightNumber(), f.getAirlineId(), f.getAirlineName(),
+                f.getOrigin(), f.getDestination(), f.getDepartureTime(), f.getArrivalTime(),
+                f.getPrice(), f.getAircraftId(), f.getAircraftModel());
+    }
+
+    /**
+     * Inserts many flights as one JDBC batch on the caller's connection, which
+     * the driver rewrites into multi-row INSERTs (rewriteBatchedStatements).
+     * Transaction handling is left to the caller, and so is telling RouteGraph
+     * and FareCalendar (invalidate them once the batch is committed).
+     */
+    public void insertFlights(Connection conn, List<FlightRecord> flights) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL)) {
+            for (FlightRecord f : flights) {
+                bindInsert(ps, f);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static void bindInsert(PreparedStatement ps, FlightRecord f) throws SQLException {
+        ps.setString(1, f.getFlightNumber());
+        ps.setInt(2, f.getAirlineId());
+        ps.setString(3, f.getOrigin());
+        ps.setString(4, f.getDestination());
+        ps.setTimestamp(5, f.getDepartureTime());
+        ps.setTimestamp(6, f.getArrivalTime());
+        ps.setDouble(7, f.getPrice());
+        ps.setInt(8, f.getAircraftId());
     }
 
     public void updateFlight(FlightRecord f) throws SQLException {
@@ -72,6 +276,17 @@ public class FlightManagementDAO {
 
             ps.executeUpdate();
         }
+        // The aircraft (and so the capacity) may have changed
+        SeatAvailabilityCache.getInstance().invalidate(f.getFlightId());
+        RouteGraph.getInstance().flightSaved(f);
+        PricingEngine.getInstance().invalidate(f.getFlightId());
+        // bookedSeats is not part of FlightRecord, so re-read the row
+        try {
+            FareCalendar.getInstance().refreshFlights(List.of(f.getFlightId()));
+        } catch (SQLException e) {
+            // The update is committed; just make the calendar reload rather than report a failure
+            FareCalendar.getInstance().invalidate();
+        }
     }
 
     public void deleteFlight(int flightId) throws SQLException {
@@ -83,21 +298,33 @@ public class FlightManagementDAO {
             ps.setInt(1, flightId);
             ps.executeUpdate();
         }
+        SeatAvailabilityCache.getInstance().invalidate(flightId);
+        RouteGraph.getInstance().flightDeleted(flightId);
+        FareCalendar.getInstance().flightDeleted(flightId);
+        PricingEngine.getInstance().invalidate(flightId);
     }
 
-    private FlightRecord mapRow(ResultSet rs) throws SQLException {
+    /**
+     * @param reference taken before the connection was borrowed, so a reference
+     *                  reload never waits for a second pooled connection
+     */
+    private static FlightRecord mapRow(ResultSet rs, ReferenceDataCache.Snapshot reference) throws SQLException {
+        int airlineId = rs.getInt("airlineID");
+        int aircraftId = rs.getInt("aircraftID");
+        Airline airline = reference.getAirline(airlineId);
+        Aircraft aircraft = reference.getAircraft(aircraftId);
         return new FlightRecord(
                 rs.getInt("flightID"),
                 rs.getString("flightNumber"),
-                rs.getInt("airlineID"),
-                rs.getString("airlineName"),
+                airlineId,
+                airline != null ? airline.getAirlineName() : null,
                 rs.getString("origin"),
                 rs.getString("destination"),
                 rs.getTimestamp("departureTime"),
                 rs.getTimestamp("arrivalTime"),
                 rs.getDouble("price"),
-                rs.getInt("aircraftID"),
-                rs.getString("aircraftModel")
+                aircraftId,
+                aircraft != null ? aircraft.getModel() : null
         );
     }
 }
@@ -0,0 +1,511 @@
+import database.DatabaseConnectivity;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bulk-loads a flight schedule from a CSV or JSON file into Flights.
+ *
+ * Both formats use the fields flightNumber, airline (IATA code), origin,
+ * destination, departureTime, arrivalTime (yyyy-MM-dd HH:mm[:ss]), price and
+ * aircraft (model name). CSV needs a header row with those names; JSON is an
+ * array of objects. Airlines and aircraft are looked up once per import, rows
+ * are inserted as JDBC batches and committed every chunkSize rows. Bad rows are
+ * skipped and reported instead of failing the whole file; if the database itself
+ * fails, the import stops and the chunks already committed stay.
+ */
+public class FlightScheduleImporter {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private static final String[] FIELDS = {
+            "flightNumber", "airline", "origin", "destination",
+            "departureTime", "arrivalTime", "price", "aircraft"
+    };
+
+    public static class RejectedRow {
+        private final int rowNumber;
+        private final String reason;
+
+        RejectedRow(int rowNumber, String reason) {
+            this.rowNumber = rowNumber;
+            this.reason = reason;
+        }
+
+        /** Line number for CSV, 1-based object index for JSON. */
+        public int getRowNumber() { return rowNumber; }
+        public String getReason() { return reason; }
+
+        @Override
+        public String toString() {
+            return "row " + rowNumber + ": " + reason;
+        }
+    }
+
+    public static class ImportResult {
+        private final int rowsRead;
+        private final int rowsImported;
+        private final int chunksCommitted;
+        private final List<RejectedRow> rejected;
+        private final long elapsedNanos;
+
+        ImportResult(int rowsRead, int rowsImported, int chunksCommitted,
+                     List<RejectedRow> rejected, long elapsedNanos) {
+            this.rowsRead = rowsRead;
+            this.rowsImported = rowsImported;
+            this.chunksCommitted = chunksCommitted;
+            this.rejected = Collections.unmodifiableList(rejected);
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getRowsRead() { return rowsRead; }
+        public int getRowsImported() { return rowsImported; }
+        public int getChunksCommitted() { return chunksCommitted; }
+        public List<RejectedRow> getRejected() { return rejected; }
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rowsImported / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d of %d rows imported in %.2fs (%.0f rows/s, %d chunks), %d rejected",
+                    rowsImported, rowsRead, elapsedNanos / 1e9, getRowsPerSecond(),
+                    chunksCommitted, rejected.size());
+        }
+    }
+
+    private final FlightManagementDAO flightDAO;
+    private final LookupDAO lookupDAO;
+    private final int chunkSize;
+
+    public FlightScheduleImporter() {
+        this(new FlightManagementDAO(), new LookupDAO(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public FlightScheduleImporter(FlightManagementDAO flightDAO, LookupDAO lookupDAO, int chunkSize) {
+        if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize must be positive");
+        this.flightDAO = flightDAO;
+        this.lookupDAO = lookupDAO;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports a .json file as JSON and anything else as CSV.
+     */
+    public ImportResult importFile(Path file) throws IOException, SQLException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".json") ? importJson(file) : importCsv(file);
+    }
+
+    public ImportResult importCsv(Path file) throws IOException, SQLException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null) {
+                throw new IOException("Empty file: " + file);
+            }
+            List<String> columns = splitCsv(header.replace("\uFEFF", ""));
+            int[] index = new int[FIELDS.length];
+            for (int i = 0; i < FIELDS.length; i++) {
+                index[i] = indexOfIgnoreCase(columns, FIELDS[i]);
+                if (index[i] < 0) {
+                    throw new IOException("Missing column '" + FIELDS[i] + "' in header of " + file);
+                }
+            }
+
+            Batch batch = startBatch();
+            try {
+                String line;
+                int lineNo = 1;
+                while ((line = reader.readLine()) != null) {
+                    lineNo++;
+                    if (line.isBlank()) continue;
+                    List<String> cells = splitCsv(line);
+                    Map<String, String> row = new HashMap<>();
+                    for (int i = 0; i < FIELDS.length; i++) {
+                        row.put(FIELDS[i], index[i] < cells.size() ? cells.get(index[i]) : null);
+                    }
+                    batch.add(lineNo, row);
+                }
+                return batch.finish();
+            } finally {
+                batch.close();
+            }
+        }
+    }
+
+    public ImportResult importJson(Path file) throws IOException, SQLException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            JsonObjectReader json = new JsonObjectReader(reader);
+            Batch batch = startBatch();
+            try {
+                int objectNo = 0;
+                Map<String, String> object;
+                while ((object = json.next()) != null) {
+                    batch.add(++objectNo, object);
+                }
+                return batch.finish();
+            } finally {
+                batch.close();
+            }
+        }
+    }
+
+    private Batch startBatch() throws SQLException {
+        Map<String, Airline> airlines = new HashMap<>();
+        for (Airline a : lookupDAO.getAllAirlines()) {
+            airlines.put(a.getIataCode().toUpperCase(Locale.ROOT), a);
+        }
+        Map<String, Aircraft> aircrafts = new HashMap<>();
+        for (Aircraft ac : lookupDAO.getAllAircrafts()) {
+            aircrafts.put(ac.getModel().toLowerCase(Locale.ROOT), ac);
+        }
+        return new Batch(airlines, aircrafts);
+    }
+
+    /**
+     * One import run: validates rows, buffers up to chunkSize and commits each chunk.
+     */
+    private final class Batch {
+        private final Map<String, Airline> airlines;
+        private final Map<String, Aircraft> aircrafts;
+        private final Connection conn;
+        private final long start = System.nanoTime();
+        private final List<FlightRecord> pending = new ArrayList<>(chunkSize);
+        private final List<Integer> pendingRows = new ArrayList<>(chunkSize);
+        private final List<RejectedRow> rejected = new ArrayList<>();
+        private int rowsRead;
+        private int rowsImported;
+        private int chunks;
+
+        Batch(Map<String, Airline> airlines, Map<String, Aircraft> aircrafts) throws SQLException {
+            this.airlines = airlines;
+            this.aircrafts = aircrafts;
+            this.conn = DatabaseConnectivity.getConnection();
+            conn.setAutoCommit(false);
+        }
+
+        void add(int rowNumber, Map<String, String> row) throws SQLException {
+            rowsRead++;
+            try {
+                pending.add(toFlight(row));
+                pendingRows.add(rowNumber);
+            } catch (IllegalArgumentException e) {
+                rejected.add(new RejectedRow(rowNumber, e.getMessage()));
+                return;
+            }
+            if (pending.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        ImportResult finish() throws SQLException {
+            flush();
+            return new ImportResult(rowsRead, rowsImported, chunks, rejected, System.nanoTime() - start);
+        }
+
+        private void flush() throws SQLException {
+            if (pending.isEmpty()) return;
+            try {
+                flightDAO.insertFlights(conn, pending);
+                conn.commit();
+                rowsImported += pending.size();
+            } catch (BatchUpdateException e) {
+                // Something in the chunk was refused by MySQL; redo it row by row to find out what
+                conn.rollback();
+                insertOneByOne();
+            }
+            chunks++;
+            pending.clear();
+            pendingRows.clear();
+        }
+
+        private void insertOneByOne() throws SQLException {
+            for (int i = 0; i < pending.size(); i++) {
+                try {
+                    flightDAO.insertFlights(conn, Collections.singletonList(pending.get(i)));
+                    rowsImported++;
+                } catch (BatchUpdateException e) {
+                    rejected.add(new RejectedRow(pendingRows.get(i), "database: " + e.getMessage()));
+                }
+            }
+            conn.commit();
+        }
+
+        void close() throws SQLException {
+            try {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            } finally {
+                conn.close();
+                // Committed chunks are not in the route graph or fare calendar yet
+                if (rowsImported > 0) {
+                    RouteGraph.getInstance().invalidate();
+                    FareCalendar.getInstance().invalidate();
+                }
+            }
+        }
+
+        private FlightRecord toFlight(Map<String, String> row) {
+            String flightNumber = required(row, "flightNumber");
+            if (flightNumber.length() > 10) {
+                throw new IllegalArgumentException("flightNumber longer than 10 characters: " + flightNumber);
+            }
+            Airline airline = airlines.get(required(row, "airline").toUpperCase(Locale.ROOT));
+            if (airline == null) {
+                throw new IllegalArgumentException("unknown airline IATA code: " + row.get("airline"));
+            }
+            Aircraft aircraft = aircrafts.get(required(row, "aircraft").toLowerCase(Locale.ROOT));
+            if (aircraft == null) {
+                throw new IllegalArgumentException("unknown aircraft model: " + row.get("aircraft"));
+            }
+            String origin = airportCode(row, "origin");
+            String destination = airportCode(row, "destination");
+            if (origin.equals(destination)) {
+                throw new IllegalArgumentException("origin and destination are both " + origin);
+            }
+            Timestamp departure = timestamp(row, "departureTime");
+            Timestamp arrival = timestamp(row, "arrivalTime");
+            if (!arrival.after(departure)) {
+                throw new IllegalArgumentException("arrivalTime is not after departureTime");
+            }
+            double price;
+            try {
+                price = Double.parseDouble(required(row, "price"));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("invalid price: " + row.get("price"));
+            }
+            if (price < 0 || Double.isNaN(price) || Double.isInfinite(price)) {
+                throw new IllegalArgumentException("invalid price: " + row.get("price"));
+            }
+            return new FlightRecord(0, flightNumber, airline.getAirlineId(), airline.getAirlineName(),
+                    origin, destination, departure, arrival, price,
+                    aircraft.getAircraftId(), aircraft.getModel());
+        }
+    }
+
+    private static String required(Map<String, String> row, String field) {
+        String value = row.get(field);
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException(field + " is required");
+        }
+        return value.trim();
+    }
+
+    private static String airportCode(Map<String, String> row, String field) {
+        String code = required(row, field).toUpperCase(Locale.ROOT);
+        if (!code.matches("[A-Z]{3}")) {
+            throw new IllegalArgumentException(field + " must be a 3-letter airport code: " + code);
+        }
+        return code;
+    }
+
+    private static Timestamp timestamp(Map<String, String> row, String field) {
+        String value = required(row, field).replace('T', ' ');
+        if (value.length() == 16) {
+            value += ":00";
+        }
+        try {
+            return Timestamp.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(field + " must be yyyy-MM-dd HH:mm[:ss]: " + row.get(field));
+        }
+    }
+
+    private static int indexOfIgnoreCase(List<String> columns, String name) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).trim().equalsIgnoreCase(name)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Splits one CSV line, honouring double-quoted cells with "" escapes.
+     */
+    static List<String> splitCsv(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString());
+        return cells;
+    }
+
+    /**
+     * Reads a JSON array of flat objects one object at a time, so large files
+     * are never held in memory. Values are returned as strings; null stays null.
+     */
+    static final class JsonObjectReader {
+        private final Reader in;
+        private int peeked = -2;
+        private boolean started;
+
+        JsonObjectReader(Reader in) {
+            this.in = in;
+        }
+
+        /**
+         * @return the next object, or null at the end of the array
+         */
+        Map<String, String> next() throws IOException {
+            if (!started) {
+                expect('[');
+                started = true;
+                if (peekToken() == ']') {
+                    read();
+                    return null;
+                }
+            } else {
+                int c = readToken();
+                if (c == ']') return null;
+                if (c != ',') throw error("expected ',' or ']'");
+            }
+            expect('{');
+            Map<String, String> object = new LinkedHashMap<>();
+            if (peekToken() == '}') {
+                read();
+                return object;
+            }
+            while (true) {
+                expect('"');
+                String key = readString();
+                expect(':');
+                object.put(key, readValue());
+                int c = readToken();
+                if (c == '}') return object;
+                if (c != ',') throw error("expected ',' or '}'");
+            }
+        }
+
+        private String readValue() throws IOException {
+            int c = peekToken();
+            if (c == '"') {
+                read();
+                return readString();
+            }
+            StringBuilder sb = new StringBuilder();
+            while ((c = peek()) != -1 && c != ',' && c != '}' && !Character.isWhitespace(c)) {
+                sb.append((char) read());
+            }
+            String literal = sb.toString();
+            if (literal.isEmpty() || literal.startsWith("{") || literal.startsWith("[")) {
+                throw error("unsupported value");
+            }
+            return literal.equals("null") ? null : literal;
+        }
+
+        private String readString() throws IOException {
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                int c = read();
+                if (c == -1) throw error("unterminated string");
+                if (c == '"') return sb.toString();
+                if (c == '\\') {
+                    int e = read();
+                    switch (e) {
+                        case 'n' -> sb.append('\n');
+                        case 't' -> sb.append('\t');
+                        case 'r' -> sb.append('\r');
+                        case 'b' -> sb.append('\b');
+                        case 'f' -> sb.append('\f');
+                        case 'u' -> {
+                            char[] hex = new char[4];
+                            for (int i = 0; i < 4; i++) hex[i] = (char) read();
+                            sb.append((char) Integer.parseInt(new String(hex), 16));
+                        }
+                        case -1 -> throw error("unterminated string");
+                        default -> sb.append((char) e);
+                    }
+                } else {
+                    sb.append((char) c);
+                }
+            }
+        }
+
+        private void expect(char expected) throws IOException {
+            if (readToken() != expected) throw error("expected '" + expected + "'");
+        }
+
+        private int readToken() throws IOException {
+            int c;
+            do {
+                c = read();
+            } while (c != -1 && Character.isWhitespace(c));
+            return c;
+        }
+
+        private int peekToken() throws IOException {
+            while (peek() != -1 && Character.isWhitespace(peek())) {
+                read();
+            }
+            return peek();
+        }
+
+        private int peek() throws IOException {
+            if (peeked == -2) peeked = in.read();
+            return peeked;
+        }
+
+        private int read() throws IOException {
+            int c = peek();
+            peeked = -2;
+            return c;
+        }
+
+        private IOException error(String message) {
+            return new IOException("Malformed JSON: " + message);
+        }
+    }
+
+    /**
+     * Usage: java FlightScheduleImporter <schedule.csv|schedule.json> [chunkSize]
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: java FlightScheduleImporter <schedule.csv|schedule.json> [chunkSize]");
+            System.exit(1);
+        }
+        int chunkSize = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CHUNK_SIZE;
+        FlightScheduleImporter importer =
+                new FlightScheduleImporter(new FlightManagementDAO(), new LookupDAO(), chunkSize);
+        ImportResult result = importer.importFile(Path.of(args[0]));
+        System.out.println(result);
+        for (RejectedRow r : result.getRejected()) {
+            System.out.println("  rejected " + r);
+        }
+    }
+}
@@ -1,10 +1,17 @@
 import database.DatabaseConnectivity;
 import java.awt.*;
 import java.sql.*;
+import java.text.DecimalFormat;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.time.format.TextStyle;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 public class FlightSearchView {
     
     private JFrame frame;
@@ -13,7 +20,7 @@ public class FlightSearchView {
     private JTextField dateField;
     private JComboBox<String> airlineComboBox;
     private JTable resultsTable;
-    private DefaultTableModel tableModel;
+    private PagedTableModel<FlightSearchResult> tableModel;
     private FlightSearchDAO searchDAO;
     
     public FlightSearchView() {
@@ -65,21 +72,30 @@ public class FlightSearchView {
         
         gbc.gridx = 0;
         gbc.gridy = 2;
-        gbc.gridwidth = 4;
+        gbc.gridwidth = 2;
         JButton searchButton = new JButton("Search Flights");
         searchButton.addActionListener(e -> searchFlights());
         searchPanel.add(searchButton, gbc);
         
-        String[] columnNames = {"Flight #", "Airline", "Origin", "Destination", 
-                               "Departure", "Arrival", "Price", "Aircraft", 
-                               "Total Seats", "Available Seats"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        gbc.gridx = 2;
+        JButton calendarButton = new JButton("Fare Calendar");
+        calendarButton.addActionListener(e -> showFareCalendar());
+        searchPanel.add(calendarButton, gbc);
+        
+        // Results are paged in as they scroll into view and sorted in SQL on header click
+        tableModel = new PagedTableModel<FlightSearchResult>(frame)
+                .addColumn("Flight #", FlightSearchResult::getFlightNumber, "flightNumber")
+                .addColumn("Airline", FlightSearchResult::getAirlineName, "airline")
+                .addColumn("Origin", FlightSearchResult::getOrigin, "origin")
+                .addColumn("Destination", FlightSearchResult::getDestination, "destination")
+                .addColumn("Departure", FlightSearchResult::getDepartureTime, "departureTime")
+                .addColumn("Arrival", FlightSearchResult::getArrivalTime, "arrivalTime")
+                .addColumn("Price", FlightSearchResult::getPrice, "fare", new DecimalFormat("$0.00"))
+                .addColumn("Aircraft", FlightSearchResult::getAircraftModel, "aircraft")
+                .addColumn("Total Seats", FlightSearchResult::getTotalSeats, null)
+                .addColumn("Available Seats", FlightSearchResult::getAvailableSeats, null);
         resultsTable = new JTable(tableModel);
+        PagedTableModel.install(resultsTable);
         resultsTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         resultsTable.setAutoResizeMode(JTable.AUTO_RESIZE_ALL_COLUMNS);
         JScrollPane scrollPane = new JScrollPane(resultsTable);
@@ -130,38 +146,104 @@ public class FlightSearchView {
                     "Input Error", JOptionPane.WARNING_MESSAGE);
             return;
         }
-        
+        LocalDate departureDate;
         try {
-            List<FlightSearchResult> results = searchDAO.searchFlights(origin, destination, date, airline);
-            
-            tableModel.setRowCount(0);
+            departureDate = LocalDate.parse(date);
+        } catch (DateTimeParseException ex) {
+            JOptionPane.showMessageDialog(frame, "Departure date must be in YYYY-MM-DD format",
+                    "Input Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        
+        tableModel.load(new PagedTableModel.RowSource<FlightSearchResult>() {
+            @Override
+            public int count() throws SQLException {
+                return searchDAO.countFlights(origin, destination, departureDate, airline);
+            }
             
-            if (results.isEmpty()) {
+            @Override
+            public List<FlightSearchResult> fetch(int offset, int limit, String sortKey, boolean ascending)
+                    throws SQLException {
+                return searchDAO.searchFlights(origin, destination, departureDate, airline,
+                        offset, limit, sortKey, ascending);
+            }
+        }, count -> {
+            if (count == 0) {
                 JOptionPane.showMessageDialog(frame, "No flights found matching your criteria",
                         "Search Results", JOptionPane.INFORMATION_MESSAGE);
-                return;
             }
-            
-            for (FlightSearchResult result : results) {
-                Object[] row = {
-                    result.getFlightNumber(),
-                    result.getAirlineName(),
-                    result.getOrigin(),
-                    result.getDestination(),
-                    result.getDepartureTime(),
-                    result.getArrivalTime(),
-                    "$" + String.format("%.2f", result.getPrice()),
-                    result.getAircraftModel(),
-                    result.getTotalSeats(),
-                    result.getAvailableSeats()
-                };
-                tableModel.addRow(row);
+        });
+    }
+    
+    /**
+     * Shows the lowest fare for each day of the month in dateField (this month if
+     * empty). Picking a day searches that date.
+     */
+    private void showFareCalendar() {
+        String origin = originField.getText().trim().toUpperCase();
+        String destination = destinationField.getText().trim().toUpperCase();
+        if (origin.isEmpty() || destination.isEmpty()) {
+            JOptionPane.showMessageDialog(frame, "Please enter origin and destination airport codes",
+                    "Input Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        YearMonth month;
+        try {
+            String date = dateField.getText().trim();
+            month = date.isEmpty() ? YearMonth.now() : YearMonth.from(LocalDate.parse(date));
+        } catch (DateTimeParseException ex) {
+            JOptionPane.showMessageDialog(frame, "Departure date must be in YYYY-MM-DD format",
+                    "Input Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        
+        BackgroundLoader.run(frame, () -> FareCalendar.getInstance().getMonth(origin, destination, month),
+                days -> showFareCalendar(origin, destination, month, days));
+    }
+    
+    private void showFareCalendar(String origin, String destination, YearMonth month, FareCalendar.DayFare[] days) {
+        JDialog dialog = new JDialog(frame, "Fares " + origin + " to " + destination + ", " +
+                month.getMonth().getDisplayName(TextStyle.FULL, Locale.getDefault()) + " " + month.getYear(), true);
+        JPanel grid = new JPanel(new GridLayout(0, 7, 4, 4));
+        grid.setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+        for (DayOfWeek dow : DayOfWeek.values()) {
+            grid.add(new JLabel(dow.getDisplayName(TextStyle.SHORT, Locale.getDefault()), SwingConstants.CENTER));
+        }
+        for (int i = 1; i < month.atDay(1).getDayOfWeek().getValue(); i++) {
+            grid.add(new JLabel());
+        }
+        
+        DecimalFormat money = new DecimalFormat("$0");
+        LocalDate today = LocalDate.now();
+        for (int d = 1; d <= days.length; d++) {
+            LocalDate date = month.atDay(d);
+            FareCalendar.DayFare fare = days[d - 1];
+            String text;
+            if (fare == null) {
+                text = "<html><center>" + d + "<br>&nbsp;</center></html>";
+            } else if (fare.isSoldOut()) {
+                text = "<html><center>" + d + "<br><font color='gray'>sold out</font></center></html>";
+            } else {
+                text = "<html><center>" + d + "<br><b>" + money.format(fare.getLowestFare()) + "</b></center></html>";
             }
-            
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(frame, "Database error: " + ex.getMessage(),
-                    "Error", JOptionPane.ERROR_MESSAGE);
+            JButton cell = new JButton(text);
+            cell.setMargin(new Insets(2, 2, 2, 2));
+            cell.setEnabled(fare != null && !fare.isSoldOut() && !date.isBefore(today));
+            if (fare != null) {
+                cell.setToolTipText(fare.getFlightCount() + " flight(s), " + fare.getSeatsAvailable() + " seat(s) left");
+            }
+            cell.addActionListener(e -> {
+                dialog.dispose();
+                dateField.setText(date.toString());
+                searchFlights();
+            });
+            grid.add(cell);
         }
+        
+        dialog.add(grid);
+        dialog.pack();
+        dialog.setLocationRelativeTo(frame);
+        dialog.setVisible(true);
     }
     
     private void bookSelectedFlight() {
@@ -172,12 +254,17 @@ public class FlightSearchView {
             return;
         }
         
-        String flightNumber = (String) tableModel.getValueAt(selectedRow, 0);
-        int availableSeats = Integer.parseInt(tableModel.getValueAt(selectedRow, 9).toString());
+        FlightSearchResult selected = tableModel.getRow(selectedRow);
+        if (selected == null) {
+            JOptionPane.showMessageDialog(frame, "Flight details are still loading, please try again",
+                    "Selection Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        String flightNumber = selected.getFlightNumber();
+        int availableSeats = selected.getAvailableSeats();
         
         if (availableSeats <= 0) {
-            JOptionPane.showMessageDialog(frame, "This flight is fully booked",
-                    "Booking Error", JOptionPane.WARNING_MESSAGE);
+            offerWaitlist(selected);
             return;
         }
         
@@ -186,6 +273,42 @@ public class FlightSearchView {
                 "Booking", JOptionPane.INFORMATION_MESSAGE);
     }
     
+    /**
+     * Asks for the passenger's details and puts them on the flight's waitlist.
+     * They are booked automatically when a seat is cancelled.
+     */
+    private void offerWaitlist(FlightSearchResult flight) {
+        JTextField nameField = new JTextField(20);
+        JTextField emailField = new JTextField(20);
+        JPanel form = new JPanel(new GridLayout(0, 1, 4, 4));
+        form.add(new JLabel("Flight " + flight.getFlightNumber() + " is fully booked. " +
+                "Join the waitlist to be booked automatically when a seat frees up."));
+        form.add(new JLabel("Passenger Name:"));
+        form.add(nameField);
+        form.add(new JLabel("Email:"));
+        form.add(emailField);
+        
+        int choice = JOptionPane.showConfirmDialog(frame, form, "Join Waitlist",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE);
+        if (choice != JOptionPane.OK_OPTION) return;
+        String name = nameField.getText().trim();
+        String email = emailField.getText().trim();
+        if (name.isEmpty() || !email.contains("@")) {
+            JOptionPane.showMessageDialog(frame, "Please enter a passenger name and a valid email address",
+                    "Input Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        
+        BackgroundLoader.run(frame, () -> {
+            Waitlist waitlist = Waitlist.getInstance();
+            Waitlist.Entry entry = waitlist.join(flight.getFlightId(), name, email, Waitlist.PRIORITY_STANDARD);
+            return waitlist.position(entry);
+        }, position -> JOptionPane.showMessageDialog(frame, position > 0
+                ? name + " is number " + position + " on the waitlist for flight " + flight.getFlightNumber() + "."
+                : "A seat on flight " + flight.getFlightNumber() + " has already been booked for " + name + ".",
+                "Waitlist", JOptionPane.INFORMATION_MESSAGE));
+    }
+    
     public static void main(String[] args) {
         SwingUtilities.invokeLater(() -> new FlightSearchView());
     }
@@ -193,68 +316,171 @@ public class FlightSearchView {
 
 class FlightSearchDAO {
     
-    public List<FlightSearchResult> searchFlights(String origin, String destination, 
-                                                   String date, String airline) throws SQLException {
+    // Airline names, models and capacities come from ReferenceDataCache rather than joins;
+    // bookedSeats is the counter kept by FlightSeatCounter, so no Bookings rows are read
+    private static final String SELECT = "SELECT f.flightID, f.flightNumber, f.airlineID, f.origin, " +
+                "f.destination, f.departureTime, f.arrivalTime, f.price, f.aircraftID, " +
+                "f.bookedSeats " +
+                "FROM Flights f ";
+    
+    public int countFlights(String origin, String destination, LocalDate date, String airline)
+            throws SQLException {
+        List<Object> params = new ArrayList<>();
+        String where = whereClause(origin, destination, date, airline, params);
+        if (where == null) {
+            return 0;
+        }
+        try (Connection conn = DatabaseConnectivity.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM Flights f " + where)) {
+            bind(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+    
+    /**
+     * One page of matching flights. sortKey is one of flightNumber, airline, origin,
+     * destination, departureTime, arrivalTime, price (base fare), fare (quoted fare)
+     * or aircraft; null sorts by departure. Each row's price is the PricingEngine
+     * quote, i.e. what booking it costs now.
+     */
+    public List<FlightSearchResult> searchFlights(String origin, String destination, LocalDate date,
+                                                   String airline, int offset, int limit,
+                                                   String sortKey, boolean ascending) throws SQLException {
         List<FlightSearchResult> results = new ArrayList<>();
+        // Taken before borrowing a connection, so a reload never needs a second one
+        ReferenceDataCache.Snapshot refData = ReferenceDataCache.getInstance().snapshot();
         
-        String sql = "SELECT f.flightID, f.flightNumber, a.airlineName, f.origin, " +
-                    "f.destination, f.departureTime, f.arrivalTime, f.price, " +
-                    "ac.model, ac.capacity, " +
-                    "(SELECT COUNT(*) FROM Bookings WHERE flightID = f.flightID) AS bookedSeats " +
-                    "FROM Flights f " +
-                    "JOIN Airlines a ON f.airlineID = a.airlineID " +
-                    "JOIN Aircrafts ac ON f.aircraftID = ac.aircraftID " +
-                    "WHERE f.origin = ? AND f.destination = ? AND DATE(f.departureTime) = ?";
-        
-        if (airline != null && !airline.equals("All Airlines")) {
-            sql += " AND a.airlineName = ?";
+        List<Object> params = new ArrayList<>();
+        String sql = pageSql(origin, destination, date, airline, offset, limit, sortKey, ascending, params);
+        if (sql == null) {
+            return results;
         }
         
-        sql += " ORDER BY f.departureTime";
-        
         try (Connection conn = DatabaseConnectivity.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             
-            ps.setString(1, origin);
-            ps.setString(2, destination);
-            ps.setString(3, date);
-            
-            if (airline != null && !airline.equals("All Airlines")) {
-                ps.setString(4, airline);
-            }
+            bind(ps, params);
             
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
+                    Airline a = refData.getAirline(rs.getInt("airlineID"));
+                    Aircraft ac = refData.getAircraft(rs.getInt("aircraftID"));
                     FlightSearchResult result = new FlightSearchResult(
                             rs.getInt("flightID"),
                             rs.getString("flightNumber"),
-                            rs.getString("airlineName"),
+                            a != null ? a.getAirlineName() : null,
                             rs.getString("origin"),
                             rs.getString("destination"),
                             rs.getTimestamp("departureTime"),
                             rs.getTimestamp("arrivalTime"),
                             rs.getDouble("price"),
-                            rs.getString("model"),
-                            rs.getInt("capacity"),
+                            ac != null ? ac.getModel() : null,
+                            ac != null ? ac.getCapacity() : 0,
                             rs.getInt("bookedSeats")
                     );
                     results.add(result);
                 }
             }
         }
+        
+        List<Integer> ids = new ArrayList<>();
+        for (FlightSearchResult r : results) ids.add(r.getFlightId());
+        Map<Integer, PricingEngine.Quote> quotes = PricingEngine.getInstance().getQuotes(ids);
+        for (FlightSearchResult r : results) {
+            PricingEngine.Quote quote = quotes.get(r.getFlightId());
+            if (quote != null) r.setPrice(quote.getPrice());
+        }
         return results;
     }
     
+    /**
+     * The statement searchFlights runs, with its parameters added to params;
+     * QueryPlanCheck EXPLAINs it too.
+     * @return null if the airline name matches no airline, so nothing can match
+     */
+    static String pageSql(String origin, String destination, LocalDate date, String airline,
+                          int offset, int limit, String sortKey, boolean ascending,
+                          List<Object> params) throws SQLException {
+        String where = whereClause(origin, destination, date, airline, params);
+        if (where == null) {
+            return null;
+        }
+        String direction = ascending ? " ASC" : " DESC";
+        params.add(limit);
+        params.add(offset);
+        return SELECT + where + "ORDER BY " + orderExpression(sortKey) + direction +
+               ", f.flightID" + direction + " LIMIT ? OFFSET ?";
+    }
+    
+    /**
+     * @return the WHERE clause, with its parameters added to params, or null if
+     *         the airline name matches no airline so nothing can match
+     */
+    private static String whereClause(String origin, String destination, LocalDate date, String airline,
+                               List<Object> params) throws SQLException {
+        // Half-open range instead of DATE(departureTime) so the index on departureTime is usable
+        String where = "WHERE f.origin = ? AND f.destination = ? " +
+                       "AND f.departureTime >= ? AND f.departureTime < ? ";
+        params.add(origin);
+        params.add(destination);
+        params.add(Timestamp.valueOf(date.atStartOfDay()));
+        params.add(Timestamp.valueOf(date.plusDays(1).atStartOfDay()));
+        
+        if (airline != null && !airline.equals("All Airlines")) {
+            Integer airlineId = null;
+            for (Airline a : ReferenceDataCache.getInstance().snapshot().getAirlines()) {
+                if (a.getAirlineName().equals(airline)) {
+                    airlineId = a.getAirlineId();
+                    break;
+                }
+            }
+            if (airlineId == null) {
+                return null;
+            }
+            where += "AND f.airlineID = ? ";
+            params.add(airlineId);
+        }
+        return where;
+    }
+    
+    private static String orderExpression(String sortKey) throws SQLException {
+        if (sortKey == null) return "f.departureTime";
+        switch (sortKey) {
+            case "flightNumber":
+            case "origin":
+            case "destination":
+            case "departureTime":
+            case "arrivalTime":
+            case "price":
+                return "f." + sortKey;
+            case "fare": {
+                // The quoted fare, which is what the Price column shows
+                String capacity = ReferenceDataCache.getInstance().snapshot().aircraftCapacity("f.aircraftID");
+                return PricingEngine.getInstance().fareOrder("f.price", "f.bookedSeats", capacity);
+            }
+            case "airline":
+                return ReferenceDataCache.getInstance().snapshot().airlineNameOrder("f.airlineID");
+            case "aircraft":
+                return ReferenceDataCache.getInstance().snapshot().aircraftModelOrder("f.aircraftID");
+            default:
+                throw new IllegalArgumentException("Cannot sort flights by " + sortKey);
+        }
+    }
+    
+    private static void bind(PreparedStatement ps, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            ps.setObject(i + 1, params.get(i));
+        }
+    }
+    
     public List<String> getAllAirlineNames() throws SQLException {
         List<String> airlines = new ArrayList<>();
-        String sql = "SELECT DISTINCT airlineName FROM Airlines ORDER BY airlineName";
-        
-        try (Connection conn = DatabaseConnectivity.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            
-            while (rs.next()) {
-                airlines.add(rs.getString("airlineName"));
+        for (Airline a : ReferenceDataCache.getInstance().snapshot().getAirlines()) {
+            if (!airlines.contains(a.getAirlineName())) {
+                airlines.add(a.getAirlineName());
             }
         }
         return airlines;
@@ -299,6 +525,7 @@ class FlightSearchResult {
     public Timestamp getDepartureTime() { return departureTime; }
     public Timestamp getArrivalTime() { return arrivalTime; }
     public double getPrice() { return price; }
+    void setPrice(double price) { this.price = price; }
     public String getAircraftModel() { return aircraftModel; }
     public int getTotalSeats() { return totalSeats; }
     public int getAvailableSeats() { return availableSeats; }
@@ -0,0 +1,115 @@
+import database.DatabaseConnectivity;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maintains Flights.bookedSeats, the number of seats held by non-cancelled
+ * bookings, so searches can show availability without counting Bookings rows.
+ *
+ * Writers adjust the counter on their own connection, inside the transaction
+ * that changes the booking, so both commit or roll back together. To avoid
+ * deadlocks, lock the Bookings row first and update Flights second.
+ * reconcile() recomputes the counters from Bookings and repairs any drift,
+ * e.g. from rows edited by hand.
+ */
+public class FlightSeatCounter {
+
+    public static final long DEFAULT_RECONCILE_PERIOD_MINUTES = 60;
+
+    private static final String RECOUNT =
+            "UPDATE Flights f SET f.bookedSeats = (" +
+            "SELECT COALESCE(SUM(b.seatCount), 0) FROM Bookings b " +
+            "WHERE b.flightID = f.flightID AND b.status <> 'CANCELLED') ";
+
+    private static ScheduledExecutorService reconciler;
+
+    /**
+     * Adds delta (negative to release) to a flight's booked seats on the caller's connection.
+     */
+    public static void adjust(Connection conn, int flightId, int delta) throws SQLException {
+        if (delta == 0) return;
+        String sql = "UPDATE Flights SET bookedSeats = bookedSeats + ? WHERE flightID = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, delta);
+            ps.setInt(2, flightId);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * The recount statement for that many flight ids; QueryPlanCheck EXPLAINs it too.
+     */
+    static String recountSql(int flights) {
+        return RECOUNT + "WHERE f.flightID IN (" + String.join(", ", Collections.nCopies(flights, "?")) + ")";
+    }
+
+    /**
+     * Recomputes the counters of the given flights from Bookings on the caller's
+     * connection. For writers that do not know the previous booking state.
+     */
+    public static void recount(Connection conn, Collection<Integer> flightIds) throws SQLException {
+        if (flightIds.isEmpty()) return;
+        String sql = recountSql(flightIds.size());
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int i = 1;
+            for (int id : flightIds) {
+                ps.setInt(i++, id);
+            }
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Repairs every counter that no longer matches Bookings.
+     * @return ids of the flights that were corrected
+     */
+    public List<Integer> reconcile() throws SQLException {
+        String driftSql = "SELECT f.flightID FROM Flights f LEFT JOIN (" +
+                "SELECT flightID, SUM(seatCount) AS seats FROM Bookings " +
+                "WHERE status <> 'CANCELLED' GROUP BY flightID) b ON b.flightID = f.flightID " +
+                "WHERE f.bookedSeats <> COALESCE(b.seats, 0)";
+
+        List<Integer> drifted = new ArrayList<>();
+        try (Connection conn = DatabaseConnectivity.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(driftSql);
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    drifted.add(rs.getInt(1));
+                }
+            }
+            // Recount rather than write the values read above, which may be stale by now
+            recount(conn, drifted);
+        }
+        return drifted;
+    }
+
+    /**
+     * Starts reconciling in the background, once right away and then every
+     * periodMinutes. Calling it again has no effect.
+     */
+    public static synchronized void scheduleReconciliation(long periodMinutes) {
+        if (reconciler != null) return;
+        reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "seat-counter-reconciler");
+            t.setDaemon(true);
+            return t;
+        });
+        FlightSeatCounter counter = new FlightSeatCounter();
+        reconciler.scheduleWithFixedDelay(() -> {
+            try {
+                List<Integer> fixed = counter.reconcile();
+                if (!fixed.isEmpty()) {
+                    System.err.println("Corrected booked seat counters for flights " + fixed);
+                }
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("Seat counter reconciliation failed: " + e.getMessage());
+            }
+        }, 0, periodMinutes, TimeUnit.MINUTES);
+    }
+}
@@ -5,7 +5,21 @@ import database.DatabaseConnectivity; // issue here
 
 public class LookupDAO {
 
+    /**
+     * Airlines ordered by name, served from ReferenceDataCache.
+     */
     public List<Airline> getAllAirlines() throws SQLException {
+        return ReferenceDataCache.getInstance().snapshot().getAirlines();
+    }
+
+    /**
+     * Aircraft ordered by model, served from ReferenceDataCache.
+     */
+    public List<Aircraft> getAllAircrafts() throws SQLException {
+        return ReferenceDataCache.getInstance().snapshot().getAircrafts();
+    }
+
+    List<Airline> queryAirlines() throws SQLException {
         String sql = "SELECT airlineID, airlineName, iataCode FROM Airlines ORDER BY airlineName";
 
         try (Connection conn = DatabaseConnectivity.getConnection();
@@ -24,7 +38,7 @@ public class LookupDAO {
         }
     }
 
-    public List<Aircraft> getAllAircrafts() throws SQLException {
+    List<Aircraft> queryAircrafts() throws SQLException {
         String sql = "SELECT aircraftID, model, capacity FROM Aircrafts ORDER BY model";
 
         try (Connection conn = DatabaseConnectivity.getConnection();
@@ -0,0 +1,265 @@
+import java.awt.Component;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.text.Format;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import javax.swing.JTable;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.JTableHeader;
+
+/**
+ * Table model for result sets too large to load up front. Only the row count is
+ * fetched eagerly; rows are fetched a page at a time, in the background, when the
+ * table first asks for a cell on that page (i.e. when it scrolls into view). At
+ * most maxPages pages are kept, least recently used pages are dropped and fetched
+ * again if needed.
+ *
+ * Cells hold the raw record values; formatting happens in the renderer installed
+ * by {@link #install(JTable)}, so only visible cells are ever formatted. Clicking
+ * a sortable column header re-sorts in SQL and reloads.
+ */
+public class PagedTableModel<R> extends AbstractTableModel {
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int DEFAULT_MAX_PAGES = 20;
+
+    /**
+     * Where the rows come from. Sort keys are the ones given to addColumn;
+     * a null sort key means the source's default order.
+     */
+    public interface RowSource<R> {
+        int count() throws Exception;
+
+        List<R> fetch(int offset, int limit, String sortKey, boolean ascending) throws Exception;
+    }
+
+    private static final class Column<R> {
+        final String name;
+        final Function<? super R, ?> value;
+        final String sortKey;
+        final Format format;
+
+        Column(String name, Function<? super R, ?> value, String sortKey, Format format) {
+            this.name = name;
+            this.value = value;
+            this.sortKey = sortKey;
+            this.format = format;
+        }
+    }
+
+    private final Component owner;
+    private final int pageSize;
+    private final List<Column<R>> columns = new ArrayList<>();
+    private final Map<Integer, List<R>> pages;
+    private final Set<Integer> loading = new HashSet<>();
+    private RowSource<R> source;
+    private IntConsumer onCount;
+    private int rowCount;
+    private int sortColumn = -1;
+    private boolean ascending = true;
+    // Bumped on every reload so late pages from an older query are dropped
+    private int generation;
+    private boolean failed;
+
+    public PagedTableModel(Component owner) {
+        this(owner, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+    }
+
+    public PagedTableModel(Component owner, int pageSize, int maxPages) {
+        this.owner = owner;
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<R>> eldest) {
+                return size() > maxPages;
+            }
+        };
+    }
+
+    public PagedTableModel<R> addColumn(String name, Function<? super R, ?> value, String sortKey) {
+        return addColumn(name, value, sortKey, null);
+    }
+
+    /**
+     * @param sortKey passed to RowSource.fetch when sorting by this column; null if not sortable
+     * @param format applied when the cell is rendered; null to show the value as is
+     */
+    public PagedTableModel<R> addColumn(String name, Function<? super R, ?> value, String sortKey, Format format) {
+        columns.add(new Column<>(name, value, sortKey, format));
+        return this;
+    }
+
+    /**
+     * Switches to a new source and loads its row count. onCount is called on
+     * the EDT with the count after this and every later reload.
+     */
+    public void load(RowSource<R> source, IntConsumer onCount) {
+        this.source = source;
+        this.onCount = onCount;
+        reload();
+    }
+
+    private void reload() {
+        int gen = ++generation;
+        pages.clear();
+        loading.clear();
+        failed = false;
+        rowCount = 0;
+        fireTableDataChanged();
+        if (source == null) return;
+
+        RowSource<R> current = source;
+        BackgroundLoader.run(owner, BackgroundLoader.DEFAULT_TIMEOUT_MILLIS, current::count,
+                count -> {
+                    if (gen != generation) return;
+                    rowCount = count;
+                    fireTableDataChanged();
+                    if (onCount != null) onCount.accept(count);
+                },
+                e -> {
+                    if (gen != generation) return;
+                    failed = true;
+                    BackgroundLoader.showError(owner, e);
+                });
+    }
+
+    /**
+     * Sorts by the given column, or flips the direction if already sorted by it.
+     * Ignored for columns without a sort key.
+     */
+    public void sortBy(int column) {
+        if (source == null || columns.get(column).sortKey == null) return;
+        ascending = column != sortColumn || !ascending;
+        sortColumn = column;
+        reload();
+    }
+
+    /**
+     * @return the record at the row, or null if its page is not loaded yet
+     */
+    public R getRow(int row) {
+        List<R> page = pages.get(row / pageSize);
+        if (page == null) {
+            requestPage(row / pageSize);
+            return null;
+        }
+        int i = row % pageSize;
+        return i < page.size() ? page.get(i) : null;
+    }
+
+    public boolean isRowLoaded(int row) {
+        return pages.containsKey(row / pageSize);
+    }
+
+    private void requestPage(int page) {
+        if (failed || source == null || !loading.add(page)) return;
+
+        int gen = generation;
+        RowSource<R> current = source;
+        String sortKey = sortColumn < 0 ? null : columns.get(sortColumn).sortKey;
+        boolean asc = ascending;
+        BackgroundLoader.run(owner, BackgroundLoader.DEFAULT_TIMEOUT_MILLIS,
+                () -> current.fetch(page * pageSize, pageSize, sortKey, asc),
+                rows -> {
+                    if (gen != generation) return;
+                    loading.remove(page);
+                    pages.put(page, rows);
+                    int first = page * pageSize;
+                    int last = Math.min(first + pageSize, rowCount) - 1;
+                    if (last >= first) fireTableRowsUpdated(first, last);
+                },
+                e -> {
+                    if (gen != generation) return;
+                    loading.remove(page);
+                    // Stop fetching until the next reload instead of retrying on every repaint
+                    failed = true;
+                    BackgroundLoader.showError(owner, e);
+                });
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.size();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        String name = columns.get(column).name;
+        if (column != sortColumn) return name;
+        return name + (ascending ? " \u25B2" : " \u25BC");
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        R record = getRow(row);
+        return record == null ? null : columns.get(column).value.apply(record);
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    private String format(int column, Object value) {
+        if (value == null) return "";
+        Format format = columns.get(column).format;
+        return format != null ? format.format(value) : value.toString();
+    }
+
+    /**
+     * Installs the lazy cell renderer and header-click sorting on a table. Works
+     * with whichever PagedTableModel the table holds at the time, so it is
+     * installed once even if the model is replaced.
+     */
+    public static void install(JTable table) {
+        table.setDefaultRenderer(Object.class, new LazyCellRenderer());
+        JTableHeader header = table.getTableHeader();
+        header.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (!(table.getModel() instanceof PagedTableModel)) return;
+                int viewColumn = header.columnAtPoint(e.getPoint());
+                if (viewColumn < 0) return;
+                PagedTableModel<?> model = (PagedTableModel<?>) table.getModel();
+                model.sortBy(table.convertColumnIndexToModel(viewColumn));
+                // Header values are copied from the model when columns are created
+                for (int i = 0; i < table.getColumnCount(); i++) {
+                    table.getColumnModel().getColumn(i)
+                            .setHeaderValue(model.getColumnName(table.convertColumnIndexToModel(i)));
+                }
+                header.repaint();
+            }
+        });
+    }
+
+    private static class LazyCellRenderer extends DefaultTableCellRenderer {
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                       boolean hasFocus, int row, int column) {
+            if (table.getModel() instanceof PagedTableModel) {
+                PagedTableModel<?> model = (PagedTableModel<?>) table.getModel();
+                int modelRow = table.convertRowIndexToModel(row);
+                int modelColumn = table.convertColumnIndexToModel(column);
+                if (!model.isRowLoaded(modelRow)) {
+                    value = modelColumn == 0 ? "Loading..." : "";
+                } else {
+                    value = model.format(modelColumn, value);
+                }
+            }
+            return super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+        }
+    }
+}
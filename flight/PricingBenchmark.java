@@ -0,0 +1,71 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Times PricingEngine on synthetic flights: parallel repricing batches with 1 to
+ * N threads, then cached quote reads before and after a rules change. No
+ * database needed, since batches are fed the flights directly and every read
+ * is a cache hit.
+ *
+ * Usage: java PricingBenchmark [flights] [maxThreads] [reads]
+ */
+public class PricingBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int flights = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        int reads = args.length > 2 ? Integer.parseInt(args[2]) : 200_000;
+
+        Random random = new Random(42);
+        List<PricingEngine.FlightLoad> loads = new ArrayList<>(flights);
+        for (int id = 1; id <= flights; id++) {
+            int capacity = 50 + random.nextInt(300);
+            loads.add(new PricingEngine.FlightLoad(id, 50 + random.nextInt(900), capacity,
+                    random.nextInt(capacity + 1)));
+        }
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            PricingEngine engine = new PricingEngine(Long.MAX_VALUE, threads);
+            engine.reprice(loads); // warm up
+            System.out.println("batch: " + engine.reprice(loads));
+        }
+
+        PricingEngine engine = new PricingEngine(Long.MAX_VALUE, maxThreads);
+        engine.reprice(loads);
+        report("cached quote", readAll(engine, flights, reads, new Random(1)));
+
+        List<PricingEngine.FareBucket> tighter = new ArrayList<>();
+        for (PricingEngine.FareBucket b : engine.getBuckets()) {
+            tighter.add(new PricingEngine.FareBucket(b.getName(), b.getMinLoadFactor(), b.getMultiplier() * 1.1));
+        }
+        engine.setBuckets(tighter);
+        report("quote after rules change", readAll(engine, flights, reads, new Random(2)));
+        System.out.println("after rules change, batch: " + engine.reprice(loads));
+        System.out.println(engine.getStats());
+    }
+
+    /**
+     * @return time per read in nanoseconds
+     */
+    private static long[] readAll(PricingEngine engine, int flights, int reads, Random random) throws Exception {
+        long[] nanos = new long[reads];
+        for (int i = 0; i < reads; i++) {
+            int flightId = 1 + random.nextInt(flights);
+            long t = System.nanoTime();
+            engine.getQuote(flightId);
+            nanos[i] = System.nanoTime() - t;
+        }
+        return nanos;
+    }
+
+    private static void report(String what, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        double mean = Arrays.stream(sorted).average().orElse(0);
+        System.out.printf("%-26s mean %8.2f us   p50 %8.2f us   p99 %8.2f us%n", what,
+                mean / 1e3, sorted[sorted.length / 2] / 1e3, sorted[(int) (sorted.length * 0.99)] / 1e3);
+    }
+}
@@ -0,0 +1,507 @@
+import database.DatabaseConnectivity;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prices flights from their load factor (Flights.bookedSeats over aircraft
+ * capacity). Flights.price is the base fare. The fare bucket the load factor
+ * falls in scales it.
+ *
+ * Quotes are cached per flight. A committed seat change drops the flight's
+ * quote, so the next read sees the new load factor. Quotes older than the max
+ * age are re-read too, to pick up bookings made by other processes. After a
+ * rules change, a cached quote is repriced from its cached inputs when it is
+ * next read. repriceAll() re-reads and reprices every upcoming flight in
+ * parallel, e.g. to warm the cache.
+ */
+public class PricingEngine {
+
+    public static final long DEFAULT_MAX_AGE_MILLIS = 60_000;
+    private static final int BATCH_CHUNK = 1_000;
+
+    private static final String SELECT = "SELECT flightID, price, aircraftID, bookedSeats FROM Flights ";
+
+    /**
+     * Fares for load factors from minLoadFactor up to the next bucket's.
+     */
+    public static final class FareBucket {
+        private final String name;
+        private final double minLoadFactor;
+        private final double multiplier;
+
+        public FareBucket(String name, double minLoadFactor, double multiplier) {
+            this.name = name;
+            this.minLoadFactor = minLoadFactor;
+            this.multiplier = multiplier;
+        }
+
+        public String getName() { return name; }
+        public double getMinLoadFactor() { return minLoadFactor; }
+        public double getMultiplier() { return multiplier; }
+    }
+
+    public static final List<FareBucket> DEFAULT_BUCKETS = List.of(
+            new FareBucket("Saver", 0.0, 0.85),
+            new FareBucket("Standard", 0.4, 1.0),
+            new FareBucket("Flex", 0.7, 1.25),
+            new FareBucket("Premium", 0.9, 1.6));
+
+    // After DEFAULT_BUCKETS, which the constructor reads
+    private static final PricingEngine INSTANCE = new PricingEngine(DEFAULT_MAX_AGE_MILLIS,
+            Runtime.getRuntime().availableProcessors());
+
+    /** The pricing inputs of one flight. */
+    public static final class FlightLoad {
+        private final int flightId;
+        private final double basePrice;
+        private final int capacity;
+        private final int bookedSeats;
+
+        public FlightLoad(int flightId, double basePrice, int capacity, int bookedSeats) {
+            this.flightId = flightId;
+            this.basePrice = basePrice;
+            this.capacity = capacity;
+            this.bookedSeats = bookedSeats;
+        }
+
+        public int getFlightId() { return flightId; }
+        public double getBasePrice() { return basePrice; }
+        public int getCapacity() { return capacity; }
+        public int getBookedSeats() { return bookedSeats; }
+
+        /** 0 when the capacity is unknown. */
+        public double getLoadFactor() {
+            return capacity > 0 ? Math.min(1.0, (double) bookedSeats / capacity) : 0;
+        }
+    }
+
+    public static final class Quote {
+        private final FlightLoad load;
+        private final FareBucket bucket;
+        private final double price;
+        private final long rulesVersion;
+        private final long readAtNanos;
+
+        Quote(FlightLoad load, FareBucket bucket, double price, long rulesVersion, long readAtNanos) {
+            this.load = load;
+            this.bucket = bucket;
+            this.price = price;
+            this.rulesVersion = rulesVersion;
+            this.readAtNanos = readAtNanos;
+        }
+
+        public int getFlightId() { return load.flightId; }
+        public double getPrice() { return price; }
+        public double getBasePrice() { return load.basePrice; }
+        public double getLoadFactor() { return load.getLoadFactor(); }
+        public int getBookedSeats() { return load.bookedSeats; }
+        public int getCapacity() { return load.capacity; }
+        /** null if the capacity is unknown and the base fare was used. */
+        public FareBucket getBucket() { return bucket; }
+    }
+
+    private static final class Rules {
+        final long version;
+        final FareBucket[] buckets;
+
+        Rules(long version, FareBucket[] buckets) {
+            this.version = version;
+            this.buckets = buckets;
+        }
+    }
+
+    /** Outcome of one repricing batch. */
+    public static final class BatchStats {
+        private final int flights;
+        private final int threads;
+        private final long elapsedNanos;
+        private final long rulesLagNanos;
+
+        BatchStats(int flights, int threads, long elapsedNanos, long rulesLagNanos) {
+            this.flights = flights;
+            this.threads = threads;
+            this.elapsedNanos = elapsedNanos;
+            this.rulesLagNanos = rulesLagNanos;
+        }
+
+        public int getFlights() { return flights; }
+        public int getThreads() { return threads; }
+        public double getElapsedMillis() { return elapsedNanos / 1e6; }
+        public double getFlightsPerSecond() { return elapsedNanos > 0 ? flights * 1e9 / elapsedNanos : 0; }
+        /** Time from the last rules change (or startup) to the end of this batch; 0 if the rules changed during it. */
+        public double getRulesLagMillis() { return rulesLagNanos / 1e6; }
+
+        @Override
+        public String toString() {
+            return String.format("%d flights on %d threads in %.1f ms (%.0f flights/s), %.1f ms after the rules changed",
+                    flights, threads, getElapsedMillis(), getFlightsPerSecond(), getRulesLagMillis());
+        }
+    }
+
+    /** Cache counters since startup. */
+    public static final class Stats {
+        private final long hits;
+        private final long misses;
+        private final long repricedOnRead;
+        private final double meanQuoteAgeMillis;
+        private final double maxQuoteAgeMillis;
+        private final BatchStats lastBatch;
+
+        Stats(long hits, long misses, long repricedOnRead, double meanQuoteAgeMillis,
+              double maxQuoteAgeMillis, BatchStats lastBatch) {
+            this.hits = hits;
+            this.misses = misses;
+            this.repricedOnRead = repricedOnRead;
+            this.meanQuoteAgeMillis = meanQuoteAgeMillis;
+            this.maxQuoteAgeMillis = maxQuoteAgeMillis;
+            this.lastBatch = lastBatch;
+        }
+
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        /** Cache hits priced under older rules and repriced on the way out. */
+        public long getRepricedOnRead() { return repricedOnRead; }
+        /** Age of the seat counts behind served quotes; misses count as 0. */
+        public double getMeanQuoteAgeMillis() { return meanQuoteAgeMillis; }
+        public double getMaxQuoteAgeMillis() { return maxQuoteAgeMillis; }
+        /** null if no batch has run. */
+        public BatchStats getLastBatch() { return lastBatch; }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d misses=%d repricedOnRead=%d quoteAge mean=%.1fms max=%.1fms lastBatch=[%s]",
+                    hits, misses, repricedOnRead, meanQuoteAgeMillis, maxQuoteAgeMillis, lastBatch);
+        }
+    }
+
+    private final long maxAgeNanos;
+    private final int threads;
+    private final Map<Integer, Quote> quotes = new ConcurrentHashMap<>();
+    // flightId -> sequence number of its last invalidation; a quote read before that is not cached
+    private final Map<Integer, Long> invalidatedAt = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile long invalidatedAllAt;
+    private volatile Rules rules = new Rules(1, DEFAULT_BUCKETS.toArray(new FareBucket[0]));
+    private volatile long rulesChangedAtNanos = System.nanoTime();
+    private volatile BatchStats lastBatch;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong repricedOnRead = new AtomicLong();
+    private final AtomicLong servedAgeNanos = new AtomicLong();
+    private final AtomicLong maxServedAgeNanos = new AtomicLong();
+
+    /**
+     * @param maxAgeMillis how long a quote's seat count is trusted; Long.MAX_VALUE for ever
+     * @param threads threads used by repricing batches
+     */
+    public PricingEngine(long maxAgeMillis, int threads) {
+        this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+        this.threads = Math.max(1, threads);
+    }
+
+    public static PricingEngine getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the current fare of a flight
+     * @throws SQLException if the flight does not exist or cannot be read
+     */
+    public double getPrice(int flightId) throws SQLException {
+        return getQuote(flightId).getPrice();
+    }
+
+    public Quote getQuote(int flightId) throws SQLException {
+        long readAt = sequence.get();
+        Quote cached = cached(flightId, readAt);
+        if (cached != null) {
+            return cached;
+        }
+
+        misses.incrementAndGet();
+        recordAge(0);
+        FlightLoad load = load(flightId);
+        if (load == null) {
+            throw new SQLException("Flight " + flightId + " does not exist");
+        }
+        Quote quote = price(load, rules, System.nanoTime());
+        cache(quote, readAt);
+        return quote;
+    }
+
+    /**
+     * Quotes several flights at once, e.g. a page of search results. Cached quotes
+     * are served as getQuote() would serve them, so a listed fare is the one the
+     * booking dialog charges; the rest are read in one query.
+     * @return flight id to quote; flights that do not exist are left out
+     */
+    public Map<Integer, Quote> getQuotes(Collection<Integer> flightIds) throws SQLException {
+        long readAt = sequence.get();
+        Map<Integer, Quote> result = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (int flightId : flightIds) {
+            Quote cached = cached(flightId, readAt);
+            if (cached != null) {
+                result.put(flightId, cached);
+            } else {
+                missing.add(flightId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        misses.addAndGet(missing.size());
+        Rules current = rules;
+        ReferenceDataCache.Snapshot reference = ReferenceDataCache.getInstance().snapshot();
+        try (Connection conn = DatabaseConnectivity.getConnection()) {
+            for (int from = 0; from < missing.size(); from += BATCH_CHUNK) {
+                List<Integer> chunk = missing.subList(from, Math.min(from + BATCH_CHUNK, missing.size()));
+                String sql = SELECT + "WHERE flightID IN (" +
+                             String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        ps.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            Quote quote = price(toLoad(rs, reference), current, System.nanoTime());
+                            cache(quote, readAt);
+                            result.put(quote.getFlightId(), quote);
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * SQL expression for the fare price() would quote, so a query can sort by it:
+     * the base fare times the multiplier of the bucket the load factor falls in.
+     * capacity is an SQL expression too, 0 if unknown (base fare).
+     */
+    public String fareOrder(String priceColumn, String bookedSeatsColumn, String capacity) {
+        FareBucket[] buckets = rules.buckets;
+        capacity = "(" + capacity + ")";
+        StringBuilder sb = new StringBuilder(priceColumn).append(" * CASE");
+        for (int i = buckets.length - 1; i >= 0; i--) {
+            sb.append(" WHEN ").append(capacity).append(" > 0 AND ").append(bookedSeatsColumn).append(" >= ")
+              .append(BigDecimal.valueOf(buckets[i].minLoadFactor).toPlainString()).append(" * ").append(capacity)
+              .append(" THEN ").append(BigDecimal.valueOf(buckets[i].multiplier).toPlainString());
+        }
+        return sb.append(" ELSE 1 END").toString();
+    }
+
+    /**
+     * Prices a flight the caller has already read, with the current fare buckets.
+     * Nothing is cached, since the caller's read may predate a seat change.
+     */
+    public double priceOf(FlightLoad load) {
+        return price(load, rules, System.nanoTime()).getPrice();
+    }
+
+    /**
+     * Drops a flight's quote. Call after a committed seat change or a fare edit.
+     */
+    public void invalidate(int flightId) {
+        invalidatedAt.put(flightId, sequence.incrementAndGet());
+        quotes.remove(flightId);
+    }
+
+    public void invalidateAll() {
+        invalidatedAllAt = sequence.incrementAndGet();
+        quotes.clear();
+    }
+
+    public List<FareBucket> getBuckets() {
+        return List.of(rules.buckets);
+    }
+
+    /**
+     * Replaces the fare buckets. Cached quotes are repriced as they are read;
+     * call repriceAll() to do them all at once.
+     * @throws IllegalArgumentException unless the first bucket starts at 0 and
+     *         the rest follow in increasing order of minLoadFactor
+     */
+    public synchronized void setBuckets(List<FareBucket> buckets) {
+        if (buckets.isEmpty() || buckets.get(0).minLoadFactor != 0) {
+            throw new IllegalArgumentException("The first fare bucket must start at load factor 0");
+        }
+        for (int i = 1; i < buckets.size(); i++) {
+            if (buckets.get(i).minLoadFactor <= buckets.get(i - 1).minLoadFactor) {
+                throw new IllegalArgumentException("Fare buckets must be in increasing order of load factor");
+            }
+        }
+        rules = new Rules(rules.version + 1, buckets.toArray(new FareBucket[0]));
+        rulesChangedAtNanos = System.nanoTime();
+    }
+
+    /**
+     * Reads every flight departing from now on and reprices it in parallel.
+     */
+    public BatchStats repriceAll() throws SQLException {
+        List<FlightLoad> loads = new ArrayList<>();
+        long readAt = sequence.get();
+        ReferenceDataCache.Snapshot reference = ReferenceDataCache.getInstance().snapshot();
+        try (Connection conn = DatabaseConnectivity.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SELECT + "WHERE departureTime >= NOW()");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                loads.add(toLoad(rs, reference));
+            }
+        }
+        return reprice(loads, readAt);
+    }
+
+    /**
+     * Prices the given flights in parallel and caches the quotes.
+     */
+    public BatchStats reprice(List<FlightLoad> loads) {
+        return reprice(loads, sequence.get());
+    }
+
+    private BatchStats reprice(List<FlightLoad> loads, long readAt) {
+        long start = System.nanoTime();
+        Rules current = rules;
+        List<Callable<Void>> chunks = new ArrayList<>();
+        for (int from = 0; from < loads.size(); from += BATCH_CHUNK) {
+            List<FlightLoad> chunk = loads.subList(from, Math.min(from + BATCH_CHUNK, loads.size()));
+            chunks.add(() -> {
+                long readAtNanos = System.nanoTime();
+                for (FlightLoad load : chunk) {
+                    cache(price(load, current, readAtNanos), readAt);
+                }
+                return null;
+            });
+        }
+
+        int poolSize = Math.min(threads, Math.max(1, chunks.size()));
+        ExecutorService pool = Executors.newFixedThreadPool(poolSize, r -> {
+            Thread t = new Thread(r, "repricer");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            for (Future<Void> f : pool.invokeAll(chunks)) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Repricing interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Repricing failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long end = System.nanoTime();
+        BatchStats stats = new BatchStats(loads.size(), poolSize, end - start,
+                current.version == rules.version ? end - rulesChangedAtNanos : 0);
+        lastBatch = stats;
+        return stats;
+    }
+
+    public Stats getStats() {
+        long h = hits.get();
+        long m = misses.get();
+        long served = h + m;
+        return new Stats(h, m, repricedOnRead.get(),
+                served > 0 ? servedAgeNanos.get() / 1e6 / served : 0,
+                maxServedAgeNanos.get() / 1e6, lastBatch);
+    }
+
+    public int getCachedCount() {
+        return quotes.size();
+    }
+
+    private static Quote price(FlightLoad load, Rules rules, long readAtNanos) {
+        FareBucket bucket = null;
+        if (load.capacity > 0) {
+            double loadFactor = load.getLoadFactor();
+            for (FareBucket b : rules.buckets) {
+                if (loadFactor < b.minLoadFactor) break;
+                bucket = b;
+            }
+        }
+        double multiplier = bucket != null ? bucket.multiplier : 1.0;
+        double price = Math.round(load.basePrice * multiplier * 100) / 100.0;
+        return new Quote(load, bucket, price, rules.version, readAtNanos);
+    }
+
+    /**
+     * @return the cached quote if it is younger than the max age, repriced if the
+     *         rules changed since; null otherwise
+     */
+    private Quote cached(int flightId, long readAt) {
+        Quote cached = quotes.get(flightId);
+        long now = System.nanoTime();
+        if (cached == null || now - cached.readAtNanos >= maxAgeNanos) {
+            return null;
+        }
+        hits.incrementAndGet();
+        recordAge(now - cached.readAtNanos);
+        Rules current = rules;
+        if (cached.rulesVersion == current.version) {
+            return cached;
+        }
+        repricedOnRead.incrementAndGet();
+        Quote repriced = price(cached.load, current, cached.readAtNanos);
+        cache(repriced, readAt);
+        return repriced;
+    }
+
+    /**
+     * Caches a quote unless the flight was invalidated after readAt, i.e. the
+     * quote may be based on a seat count that has since changed.
+     */
+    private void cache(Quote quote, long readAt) {
+        int flightId = quote.getFlightId();
+        quotes.compute(flightId, (id, old) ->
+                invalidatedAllAt > readAt || invalidatedAt.getOrDefault(id, 0L) > readAt ? old : quote);
+    }
+
+    private void recordAge(long ageNanos) {
+        servedAgeNanos.addAndGet(ageNanos);
+        maxServedAgeNanos.accumulateAndGet(ageNanos, Math::max);
+    }
+
+    private FlightLoad load(int flightId) throws SQLException {
+        ReferenceDataCache.Snapshot reference = ReferenceDataCache.getInstance().snapshot();
+        try (Connection conn = DatabaseConnectivity.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SELECT + "WHERE flightID = ?")) {
+            ps.setInt(1, flightId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? toLoad(rs, reference) : null;
+            }
+        }
+    }
+
+    private static FlightLoad toLoad(ResultSet rs, ReferenceDataCache.Snapshot reference) throws SQLException {
+        Aircraft aircraft = reference.getAircraft(rs.getInt("aircraftID"));
+        return new FlightLoad(rs.getInt("flightID"), rs.getDouble("price"),
+                aircraft != null ? aircraft.getCapacity() : 0, rs.getInt("bookedSeats"));
+    }
+
+    /**
+     * Reprices every upcoming flight and prints the batch metrics.
+     */
+    public static void main(String[] args) throws Exception {
+        System.out.println(getInstance().repriceAll());
+    }
+}
@@ -0,0 +1,199 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Process-wide cache of the Airlines and Aircrafts tables. These change rarely,
+ * so DAOs look names, codes and capacities up here instead of joining them into
+ * every flight query.
+ *
+ * Readers always see one immutable Snapshot; a refresh builds a new snapshot and
+ * swaps it in. Snapshots expire after a TTL, and invalidate() forces a reload
+ * after an admin edit. Looking up an id that is not in the snapshot (a row added
+ * since) triggers at most one reload per second.
+ */
+public class ReferenceDataCache {
+
+    public static final long DEFAULT_TTL_MILLIS = 5 * 60_000;
+    private static final long MISS_RELOAD_INTERVAL_NANOS = 1_000_000_000L;
+
+    private static final ReferenceDataCache INSTANCE = new ReferenceDataCache(DEFAULT_TTL_MILLIS);
+
+    /**
+     * Immutable view of both tables. Ids are small auto-increment values, so
+     * lookups by id are plain array indexing.
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final long loadedAtNanos;
+        private final Airline[] airlinesById;
+        private final Aircraft[] aircraftsById;
+        private final List<Airline> airlines;
+        private final List<Aircraft> aircrafts;
+        private final Map<String, Airline> airlinesByIata;
+
+        Snapshot(long version, List<Airline> airlines, List<Aircraft> aircrafts) {
+            this.version = version;
+            this.loadedAtNanos = System.nanoTime();
+            this.airlines = Collections.unmodifiableList(new ArrayList<>(airlines));
+            this.aircrafts = Collections.unmodifiableList(new ArrayList<>(aircrafts));
+
+            int maxAirline = 0;
+            for (Airline a : airlines) maxAirline = Math.max(maxAirline, a.getAirlineId());
+            this.airlinesById = new Airline[maxAirline + 1];
+            Map<String, Airline> byIata = new HashMap<>();
+            for (Airline a : airlines) {
+                airlinesById[a.getAirlineId()] = a;
+                if (a.getIataCode() != null) byIata.put(a.getIataCode().toUpperCase(Locale.ROOT), a);
+            }
+            this.airlinesByIata = Collections.unmodifiableMap(byIata);
+
+            int maxAircraft = 0;
+            for (Aircraft ac : aircrafts) maxAircraft = Math.max(maxAircraft, ac.getAircraftId());
+            this.aircraftsById = new Aircraft[maxAircraft + 1];
+            for (Aircraft ac : aircrafts) {
+                aircraftsById[ac.getAircraftId()] = ac;
+            }
+        }
+
+        public long getVersion() { return version; }
+
+        /** Airlines ordered by name. */
+        public List<Airline> getAirlines() { return airlines; }
+
+        /** Aircraft ordered by model. */
+        public List<Aircraft> getAircrafts() { return aircrafts; }
+
+        public Airline getAirline(int airlineId) {
+            return airlineId >= 0 && airlineId < airlinesById.length ? airlinesById[airlineId] : null;
+        }
+
+        public Aircraft getAircraft(int aircraftId) {
+            return aircraftId >= 0 && aircraftId < aircraftsById.length ? aircraftsById[aircraftId] : null;
+        }
+
+        public Airline getAirlineByIata(String iataCode) {
+            return iataCode == null ? null : airlinesByIata.get(iataCode.trim().toUpperCase(Locale.ROOT));
+        }
+
+        /**
+         * SQL expression ordering rows by airline name through the id column alone,
+         * e.g. FIELD(f.airlineID, 3, 1, 2), so sorting needs no join.
+         */
+        public String airlineNameOrder(String idColumn) {
+            List<Integer> ids = new ArrayList<>();
+            for (Airline a : airlines) ids.add(a.getAirlineId());
+            return fieldOrder(idColumn, ids);
+        }
+
+        /**
+         * Same as airlineNameOrder, by aircraft model.
+         */
+        public String aircraftModelOrder(String idColumn) {
+            List<Integer> ids = new ArrayList<>();
+            for (Aircraft ac : aircrafts) ids.add(ac.getAircraftId());
+            return fieldOrder(idColumn, ids);
+        }
+
+        /**
+         * SQL expression for the capacity of the aircraft in idColumn, 0 if unknown,
+         * e.g. CASE f.aircraftID WHEN 1 THEN 160 ELSE 0 END, so it needs no join.
+         */
+        public String aircraftCapacity(String idColumn) {
+            if (aircrafts.isEmpty()) return "0";
+            StringBuilder sb = new StringBuilder("CASE ").append(idColumn);
+            for (Aircraft ac : aircrafts) {
+                sb.append(" WHEN ").append(ac.getAircraftId()).append(" THEN ").append(ac.getCapacity());
+            }
+            return sb.append(" ELSE 0 END").toString();
+        }
+
+        private static String fieldOrder(String idColumn, List<Integer> ids) {
+            if (ids.isEmpty()) return idColumn;
+            StringBuilder sb = new StringBuilder("FIELD(").append(idColumn);
+            for (int id : ids) sb.append(", ").append(id);
+            return sb.append(')').toString();
+        }
+    }
+
+    private final LookupDAO lookupDAO = new LookupDAO();
+    private final long ttlNanos;
+    private volatile Snapshot snapshot;
+    private long version;
+
+    ReferenceDataCache(long ttlMillis) {
+        this.ttlNanos = ttlMillis * 1_000_000L;
+    }
+
+    public static ReferenceDataCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the current snapshot, loading it first if it is missing or expired.
+     */
+    public Snapshot snapshot() throws SQLException {
+        Snapshot s = snapshot;
+        if (s != null && System.nanoTime() - s.loadedAtNanos < ttlNanos) {
+            return s;
+        }
+        return reload(s);
+    }
+
+    /**
+     * Drops the current snapshot; the next read loads a fresh one.
+     * Call after inserting, updating or deleting airlines or aircraft.
+     */
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    /**
+     * @return the airline, or null if it does not exist even after a reload
+     */
+    public Airline getAirline(int airlineId) throws SQLException {
+        Snapshot s = snapshot();
+        Airline a = s.getAirline(airlineId);
+        if (a == null && reloadAfterMiss(s)) {
+            a = snapshot().getAirline(airlineId);
+        }
+        return a;
+    }
+
+    /**
+     * @return the aircraft, or null if it does not exist even after a reload
+     */
+    public Aircraft getAircraft(int aircraftId) throws SQLException {
+        Snapshot s = snapshot();
+        Aircraft ac = s.getAircraft(aircraftId);
+        if (ac == null && reloadAfterMiss(s)) {
+            ac = snapshot().getAircraft(aircraftId);
+        }
+        return ac;
+    }
+
+    private boolean reloadAfterMiss(Snapshot s) throws SQLException {
+        if (System.nanoTime() - s.loadedAtNanos < MISS_RELOAD_INTERVAL_NANOS) {
+            return false;
+        }
+        reload(s);
+        return true;
+    }
+
+    /**
+     * Loads a new snapshot unless another thread already replaced the one the caller saw.
+     */
+    private synchronized Snapshot reload(Snapshot seen) throws SQLException {
+        Snapshot current = snapshot;
+        if (current != null && current != seen) {
+            return current;
+        }
+        Snapshot fresh = new Snapshot(++version, lookupDAO.queryAirlines(), lookupDAO.queryAircrafts());
+        snapshot = fresh;
+        return fresh;
+    }
+}
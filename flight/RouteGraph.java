@@ -0,0 +1,372 @@
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory route graph of all flights, for itineraries with connections
+ * (YYC to LHR via YVR) that a single-table search cannot find.
+ *
+ * Airports are numbered. For each airport the graph keeps its departures sorted
+ * by departure time, in parallel arrays. From a leg arriving at time t, the
+ * onward legs that respect the layover limits are one binary search and a short
+ * scan away. A search is a Dijkstra over legs: each queue entry is a leg reached
+ * with a given number of legs so far. The queue is ordered by arrival time or by
+ * total price, depending on the objective. Itineraries come out best first.
+ *
+ * Readers use an immutable Graph snapshot. Flight edits made through
+ * FlightManagementDAO copy only the departure list of the airport they touch
+ * and swap in a new snapshot. The whole graph is also reloaded after a TTL, to
+ * pick up changes made by other processes. Times are compared as stored
+ * (airport time zones are not modelled).
+ */
+public class RouteGraph {
+
+    public static final long DEFAULT_TTL_MILLIS = 5 * 60_000;
+    public static final long DEFAULT_MIN_LAYOVER_MINUTES = 45;
+    public static final long DEFAULT_MAX_LAYOVER_MINUTES = 12 * 60;
+    public static final int DEFAULT_MAX_LEGS = 3;
+
+    private static final RouteGraph INSTANCE = new RouteGraph(DEFAULT_TTL_MILLIS);
+
+    public enum Objective {
+        EARLIEST_ARRIVAL, CHEAPEST
+    }
+
+    /**
+     * One or more legs, each departing the airport the previous one arrived at.
+     */
+    public static class Itinerary {
+        private final List<FlightRecord> legs;
+        private final double totalPrice;
+
+        Itinerary(List<FlightRecord> legs, double totalPrice) {
+            this.legs = Collections.unmodifiableList(legs);
+            this.totalPrice = totalPrice;
+        }
+
+        public List<FlightRecord> getLegs() { return legs; }
+        public double getTotalPrice() { return totalPrice; }
+        public int getStops() { return legs.size() - 1; }
+        public Timestamp getDepartureTime() { return legs.get(0).getDepartureTime(); }
+        public Timestamp getArrivalTime() { return legs.get(legs.size() - 1).getArrivalTime(); }
+
+        public long getDurationMinutes() {
+            return (getArrivalTime().getTime() - getDepartureTime().getTime()) / 60_000;
+        }
+
+        /** e.g. "WS123 YYC-YVR, BA84 YVR-LHR" */
+        public String describe() {
+            StringBuilder sb = new StringBuilder();
+            for (FlightRecord f : legs) {
+                if (sb.length() > 0) sb.append(", ");
+                sb.append(f.getFlightNumber()).append(' ').append(f.getOrigin()).append('-').append(f.getDestination());
+            }
+            return sb.toString();
+        }
+    }
+
+    /** Departures from one airport, sorted by departure time. */
+    private static final class Departures {
+        static final Departures EMPTY = new Departures(new FlightRecord[0], null);
+
+        final FlightRecord[] legs;
+        final long[] departAt;
+        final long[] arriveAt;
+        final int[] destination;
+
+        Departures(FlightRecord[] legs, Map<String, Integer> airportIndex) {
+            this.legs = legs;
+            this.departAt = new long[legs.length];
+            this.arriveAt = new long[legs.length];
+            this.destination = new int[legs.length];
+            for (int i = 0; i < legs.length; i++) {
+                departAt[i] = legs[i].getDepartureTime().getTime();
+                arriveAt[i] = legs[i].getArrivalTime().getTime();
+                destination[i] = airportIndex.get(legs[i].getDestination());
+            }
+        }
+
+        /** First index departing at or after time. */
+        int firstAtOrAfter(long time) {
+            int lo = 0, hi = departAt.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (departAt[mid] < time) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    private static final class Graph {
+        final Map<String, Integer> airportIndex;
+        final Departures[] departures;
+        // Global number of departures[a].legs[0], so a leg is identified by one int
+        final int[] offset;
+        final int flightCount;
+        final long loadedAtNanos;
+
+        Graph(Map<String, Integer> airportIndex, Departures[] departures, long loadedAtNanos) {
+            this.airportIndex = airportIndex;
+            this.departures = departures;
+            this.offset = new int[departures.length];
+            int n = 0;
+            for (int a = 0; a < departures.length; a++) {
+                offset[a] = n;
+                n += departures[a].legs.length;
+            }
+            this.flightCount = n;
+            this.loadedAtNanos = loadedAtNanos;
+        }
+    }
+
+    private static final Comparator<FlightRecord> BY_DEPARTURE =
+            Comparator.comparing(FlightRecord::getDepartureTime).thenComparingInt(FlightRecord::getFlightId);
+
+    private final long ttlNanos;
+    private volatile Graph graph;
+    // Writer-side index of the current graph's flights; guarded by this
+    private final Map<Integer, FlightRecord> flightsById = new HashMap<>();
+
+    /**
+     * @param ttlMillis how long a loaded graph is used before reloading; Long.MAX_VALUE for never
+     */
+    public RouteGraph(long ttlMillis) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    public static RouteGraph getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Searches with the default layover limits and leg count.
+     */
+    public List<Itinerary> search(String origin, String destination, Timestamp departFrom, Timestamp departTo,
+                                  Objective objective, int limit) throws SQLException {
+        return search(origin, destination, departFrom, departTo, objective,
+                DEFAULT_MIN_LAYOVER_MINUTES, DEFAULT_MAX_LAYOVER_MINUTES, DEFAULT_MAX_LEGS, limit);
+    }
+
+    /**
+     * Finds itineraries whose first leg departs in [departFrom, departTo), best
+     * first by the objective (ties broken by the other measure).
+     * @param maxLegs 1 for direct flights only
+     * @param limit maximum number of itineraries; each ends with a different final leg
+     */
+    public List<Itinerary> search(String origin, String destination, Timestamp departFrom, Timestamp departTo,
+                                  Objective objective, long minLayoverMinutes, long maxLayoverMinutes,
+                                  int maxLegs, int limit) throws SQLException {
+        Graph g = current();
+        Integer from = g.airportIndex.get(origin);
+        Integer to = g.airportIndex.get(destination);
+        List<Itinerary> results = new ArrayList<>();
+        if (from == null || to == null || from.equals(to) || maxLegs < 1 || limit < 1) {
+            return results;
+        }
+        long minLayover = minLayoverMinutes * 60_000;
+        long maxLayover = maxLayoverMinutes * 60_000;
+
+        Comparator<State> order = objective == Objective.CHEAPEST
+                ? Comparator.<State>comparingDouble(s -> s.price).thenComparingLong(s -> s.arriveAt)
+                : Comparator.<State>comparingLong(s -> s.arriveAt).thenComparingDouble(s -> s.price);
+        PriorityQueue<State> queue = new PriorityQueue<>(order);
+
+        Departures first = g.departures[from];
+        long end = departTo.getTime();
+        for (int i = first.firstAtOrAfter(departFrom.getTime()); i < first.legs.length && first.departAt[i] < end; i++) {
+            queue.add(new State(from, i, 1, first.legs[i].getPrice(), first.arriveAt[i], null));
+        }
+
+        // Fewest legs with which each leg has been settled; a later state needing as many legs is no better
+        Map<Integer, Integer> settledLegs = new HashMap<>();
+        Set<Integer> finalLegs = new HashSet<>();
+        while (!queue.isEmpty() && results.size() < limit) {
+            State s = queue.poll();
+            int slot = g.offset[s.airport] + s.index;
+            Integer best = settledLegs.get(slot);
+            if (best != null && best <= s.legs) continue;
+            settledLegs.put(slot, s.legs);
+
+            int arrivedAt = g.departures[s.airport].destination[s.index];
+            if (arrivedAt == to) {
+                if (finalLegs.add(slot)) results.add(s.toItinerary(g));
+                continue;
+            }
+            if (s.legs == maxLegs) continue;
+
+            Departures next = g.departures[arrivedAt];
+            long latest = s.arriveAt + maxLayover;
+            boolean lastLeg = s.legs + 1 == maxLegs;
+            for (int i = next.firstAtOrAfter(s.arriveAt + minLayover); i < next.legs.length && next.departAt[i] <= latest; i++) {
+                int d = next.destination[i];
+                // Never back through the origin, and the last allowed leg must reach the destination
+                if (d == from || (lastLeg && d != to)) continue;
+                Integer settled = settledLegs.get(g.offset[arrivedAt] + i);
+                if (settled != null && settled <= s.legs + 1) continue;
+                queue.add(new State(arrivedAt, i, s.legs + 1, s.price + next.legs[i].getPrice(), next.arriveAt[i], s));
+            }
+        }
+        return results;
+    }
+
+    private static final class State {
+        final int airport;
+        final int index;
+        final int legs;
+        final double price;
+        final long arriveAt;
+        final State previous;
+
+        State(int airport, int index, int legs, double price, long arriveAt, State previous) {
+            this.airport = airport;
+            this.index = index;
+            this.legs = legs;
+            this.price = price;
+            this.arriveAt = arriveAt;
+            this.previous = previous;
+        }
+
+        Itinerary toItinerary(Graph g) {
+            FlightRecord[] legs = new FlightRecord[this.legs];
+            for (State s = this; s != null; s = s.previous) {
+                legs[s.legs - 1] = g.departures[s.airport].legs[s.index];
+            }
+            return new Itinerary(Arrays.asList(legs), price);
+        }
+    }
+
+    /**
+     * Records a new or edited flight. Does nothing if the graph is not loaded.
+     */
+    public synchronized void flightSaved(FlightRecord flight) {
+        Graph g = graph;
+        if (g == null) return;
+        FlightRecord old = flightsById.put(flight.getFlightId(), flight);
+
+        Map<String, Integer> airportIndex = g.airportIndex;
+        if (!airportIndex.containsKey(flight.getOrigin()) || !airportIndex.containsKey(flight.getDestination())) {
+            airportIndex = new HashMap<>(airportIndex);
+            airportIndex.putIfAbsent(flight.getOrigin(), airportIndex.size());
+            airportIndex.putIfAbsent(flight.getDestination(), airportIndex.size());
+        }
+        Departures[] departures = Arrays.copyOf(g.departures, airportIndex.size());
+        for (int a = g.departures.length; a < departures.length; a++) {
+            departures[a] = Departures.EMPTY;
+        }
+
+        if (old != null) {
+            int a = airportIndex.get(old.getOrigin());
+            departures[a] = without(departures[a], old.getFlightId(), airportIndex);
+        }
+        int a = airportIndex.get(flight.getOrigin());
+        departures[a] = with(departures[a], flight, airportIndex);
+        graph = new Graph(airportIndex, departures, g.loadedAtNanos);
+    }
+
+    /**
+     * Drops a deleted flight. Does nothing if the graph is not loaded.
+     */
+    public synchronized void flightDeleted(int flightId) {
+        Graph g = graph;
+        if (g == null) return;
+        FlightRecord old = flightsById.remove(flightId);
+        if (old == null) return;
+        Departures[] departures = g.departures.clone();
+        int a = g.airportIndex.get(old.getOrigin());
+        departures[a] = without(departures[a], flightId, g.airportIndex);
+        graph = new Graph(g.airportIndex, departures, g.loadedAtNanos);
+    }
+
+    /**
+     * Forces a full reload on the next search, e.g. after a bulk import.
+     */
+    public synchronized void invalidate() {
+        graph = null;
+        flightsById.clear();
+    }
+
+    /**
+     * Replaces the graph with the given flights.
+     */
+    public synchronized void replaceAll(Collection<FlightRecord> flights) {
+        flightsById.clear();
+        Map<String, Integer> airportIndex = new HashMap<>();
+        Map<String, List<FlightRecord>> byOrigin = new HashMap<>();
+        for (FlightRecord f : flights) {
+            if (f.getOrigin() == null || f.getDestination() == null
+                    || f.getDepartureTime() == null || f.getArrivalTime() == null) {
+                continue;
+            }
+            flightsById.put(f.getFlightId(), f);
+            airportIndex.putIfAbsent(f.getOrigin(), airportIndex.size());
+            airportIndex.putIfAbsent(f.getDestination(), airportIndex.size());
+            byOrigin.computeIfAbsent(f.getOrigin(), k -> new ArrayList<>()).add(f);
+        }
+
+        Departures[] departures = new Departures[airportIndex.size()];
+        Arrays.fill(departures, Departures.EMPTY);
+        for (Map.Entry<String, List<FlightRecord>> e : byOrigin.entrySet()) {
+            FlightRecord[] legs = e.getValue().toArray(new FlightRecord[0]);
+            Arrays.sort(legs, BY_DEPARTURE);
+            departures[airportIndex.get(e.getKey())] = new Departures(legs, airportIndex);
+        }
+        graph = new Graph(airportIndex, departures, System.nanoTime());
+    }
+
+    public int getFlightCount() {
+        Graph g = graph;
+        return g == null ? 0 : g.flightCount;
+    }
+
+    private Graph current() throws SQLException {
+        Graph g = graph;
+        if (g != null && System.nanoTime() - g.loadedAtNanos < ttlNanos) {
+            return g;
+        }
+        synchronized (this) {
+            g = graph;
+            if (g == null || System.nanoTime() - g.loadedAtNanos >= ttlNanos) {
+                replaceAll(new FlightManagementDAO().getAllFlights());
+                g = graph;
+            }
+            return g;
+        }
+    }
+
+    private static Departures with(Departures d, FlightRecord flight, Map<String, Integer> airportIndex) {
+        if (flight.getDepartureTime() == null || flight.getArrivalTime() == null) {
+            return new Departures(d.legs, airportIndex);
+        }
+        int at = Arrays.binarySearch(d.legs, flight, BY_DEPARTURE);
+        at = at < 0 ? -at - 1 : at;
+        FlightRecord[] legs = new FlightRecord[d.legs.length + 1];
+        System.arraycopy(d.legs, 0, legs, 0, at);
+        legs[at] = flight;
+        System.arraycopy(d.legs, at, legs, at + 1, d.legs.length - at);
+        return new Departures(legs, airportIndex);
+    }
+
+    private static Departures without(Departures d, int flightId, Map<String, Integer> airportIndex) {
+        for (int i = 0; i < d.legs.length; i++) {
+            if (d.legs[i].getFlightId() == flightId) {
+                FlightRecord[] legs = new FlightRecord[d.legs.length - 1];
+                System.arraycopy(d.legs, 0, legs, 0, i);
+                System.arraycopy(d.legs, i + 1, legs, i, legs.length - i);
+                return new Departures(legs, airportIndex);
+            }
+        }
+        return d;
+    }
+}
@@ -0,0 +1,108 @@
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Times RouteGraph on a synthetic network: builds it, runs connection searches
+ * with both objectives, then applies single-flight edits. No database needed.
+ *
+ * A tenth of the airports are hubs and get most of the traffic, which gives
+ * connections through them the way real networks do.
+ *
+ * Usage: java RouteGraphBenchmark [flights] [airports] [days] [queries]
+ */
+public class RouteGraphBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int flights = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int airports = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        int days = args.length > 2 ? Integer.parseInt(args[2]) : 7;
+        int queries = args.length > 3 ? Integer.parseInt(args[3]) : 2_000;
+
+        Random random = new Random(42);
+        String[] codes = new String[airports];
+        for (int i = 0; i < airports; i++) {
+            codes[i] = "" + (char) ('A' + i / 676 % 26) + (char) ('A' + i / 26 % 26) + (char) ('A' + i % 26);
+        }
+        int hubs = Math.max(1, airports / 10);
+        long start = Timestamp.valueOf("2026-01-01 00:00:00").getTime();
+
+        List<FlightRecord> network = new ArrayList<>(flights);
+        for (int id = 1; id <= flights; id++) {
+            network.add(randomFlight(id, codes, hubs, start, days, random));
+        }
+
+        long t0 = System.nanoTime();
+        RouteGraph graph = new RouteGraph(Long.MAX_VALUE);
+        graph.replaceAll(network);
+        System.out.printf("%d flights, %d airports, %d days: graph built in %.1f ms%n",
+                graph.getFlightCount(), airports, days, (System.nanoTime() - t0) / 1e6);
+
+        for (RouteGraph.Objective objective : RouteGraph.Objective.values()) {
+            // Warm up, then measure on fresh pairs
+            runQueries(graph, objective, codes, start, days, queries / 4, new Random(1), false);
+            long[] nanos = runQueries(graph, objective, codes, start, days, queries, new Random(2), true);
+            report(objective + " search", nanos);
+        }
+
+        long[] edits = new long[1_000];
+        for (int i = 0; i < edits.length; i++) {
+            FlightRecord changed = randomFlight(1 + random.nextInt(flights), codes, hubs, start, days, random);
+            long t = System.nanoTime();
+            graph.flightSaved(changed);
+            edits[i] = System.nanoTime() - t;
+        }
+        report("flight edit", edits);
+    }
+
+    private static FlightRecord randomFlight(int id, String[] codes, int hubs, long start, int days, Random random) {
+        // 70% of legs touch a hub
+        int from = random.nextInt(10) < 7 ? random.nextInt(hubs) : random.nextInt(codes.length);
+        int to;
+        do {
+            to = random.nextInt(10) < 5 ? random.nextInt(hubs) : random.nextInt(codes.length);
+        } while (to == from);
+        long departs = start + (long) (random.nextDouble() * days * 86_400_000L);
+        long arrives = departs + (45 + random.nextInt(600)) * 60_000L;
+        return new FlightRecord(id, "BM" + id, 1, "Bench Air", codes[from], codes[to],
+                new Timestamp(departs), new Timestamp(arrives), 50 + random.nextInt(900), 1, "Bench");
+    }
+
+    /**
+     * @return time per query in nanoseconds
+     */
+    private static long[] runQueries(RouteGraph graph, RouteGraph.Objective objective, String[] codes,
+                                     long start, int days, int queries, Random random,
+                                     boolean printHitRate) throws Exception {
+        long[] nanos = new long[queries];
+        int found = 0;
+        for (int q = 0; q < queries; q++) {
+            String from = codes[random.nextInt(codes.length)];
+            String to;
+            do {
+                to = codes[random.nextInt(codes.length)];
+            } while (to.equals(from));
+            long day = start + random.nextInt(days) * 86_400_000L;
+            long t = System.nanoTime();
+            List<RouteGraph.Itinerary> result = graph.search(from, to, new Timestamp(day),
+                    new Timestamp(day + 86_400_000L), objective, 5);
+            nanos[q] = System.nanoTime() - t;
+            if (!result.isEmpty()) found++;
+        }
+        if (printHitRate) {
+            System.out.printf("  %s: itineraries found for %.0f%% of %d pairs%n",
+                    objective, 100.0 * found / queries, queries);
+        }
+        return nanos;
+    }
+
+    private static void report(String what, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        double mean = Arrays.stream(sorted).average().orElse(0);
+        System.out.printf("%-26s mean %8.1f us   p50 %8.1f us   p99 %8.1f us%n", what,
+                mean / 1e3, sorted[sorted.length / 2] / 1e3, sorted[(int) (sorted.length * 0.99)] / 1e3);
+    }
+}
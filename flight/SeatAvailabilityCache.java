@@ -0,0 +1,142 @@
+import database.DatabaseConnectivity;
+import java.sql.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide cache of seat bitmaps, one per flight.
+ * A flight is loaded from the database the first time it is asked for and then
+ * kept current by the DAOs that change bookings (write-through). Deleting or
+ * editing a flight drops its entry so the next read reloads it.
+ *
+ * A change that commits while a flight is being loaded may or may not be in
+ * what the load read, and there is no entry yet to apply it to. Every change
+ * therefore bumps the flight's generation, and a load is only cached if the
+ * generation has not moved since it started; otherwise it is read again.
+ */
+public class SeatAvailabilityCache {
+
+    private static final SeatAvailabilityCache INSTANCE = new SeatAvailabilityCache();
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+
+    private final Map<Integer, SeatBitmap> seatMaps = new ConcurrentHashMap<>();
+    // Changes seen per flight; only updated inside seatMaps.compute for that flight
+    private final Map<Integer, Long> generations = new ConcurrentHashMap<>();
+    private final AtomicLong clears = new AtomicLong();
+
+    public static SeatAvailabilityCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the seat map for a flight, loading it on first use.
+     * @return the seat map, or null if the flight does not exist
+     */
+    public SeatBitmap getSeatMap(int flightId) throws SQLException {
+        SeatBitmap cached = seatMaps.get(flightId);
+        if (cached != null) {
+            return cached;
+        }
+        SeatBitmap loaded = null;
+        for (int attempt = 0; attempt < MAX_LOAD_ATTEMPTS; attempt++) {
+            long generation = generation(flightId);
+            loaded = load(flightId);
+            if (loaded == null) {
+                return null;
+            }
+            SeatBitmap candidate = loaded;
+            // Another thread may have loaded it meanwhile; keep whichever got there first.
+            // Checked under the same lock as changes, so none can slip in between.
+            SeatBitmap installed = seatMaps.compute(flightId, (id, existing) ->
+                    existing != null ? existing : generation(id) == generation ? candidate : null);
+            if (installed != null) {
+                return installed;
+            }
+        }
+        // Still changing on every read; hand out the latest read without caching it
+        return loaded;
+    }
+
+    public int availableSeatCount(int flightId) throws SQLException {
+        SeatBitmap map = getSeatMap(flightId);
+        return map == null ? 0 : map.availableCount();
+    }
+
+    public int[] firstFreeSeats(int flightId, int n) throws SQLException {
+        SeatBitmap map = getSeatMap(flightId);
+        return map == null ? new int[0] : map.firstFreeSeats(n);
+    }
+
+    /**
+     * Records a committed booking. Flights not yet cached are left alone;
+     * they will be read fresh when first needed.
+     */
+    public void seatBooked(int flightId, int seatNumber) {
+        seatMaps.compute(flightId, (id, map) -> {
+            changed(id);
+            if (map != null) map.markBooked(seatNumber);
+            return map;
+        });
+    }
+
+    /**
+     * Records a committed cancellation or a seat moving away from this flight.
+     */
+    public void seatReleased(int flightId, int seatNumber) {
+        seatMaps.compute(flightId, (id, map) -> {
+            changed(id);
+            if (map != null) map.markFree(seatNumber);
+            return map;
+        });
+    }
+
+    public void invalidate(int flightId) {
+        seatMaps.compute(flightId, (id, map) -> {
+            changed(id);
+            return null;
+        });
+    }
+
+    public void invalidateAll() {
+        clears.incrementAndGet();
+        seatMaps.clear();
+    }
+
+    /** Both counts only grow, so the sum moves whenever either does. */
+    private long generation(int flightId) {
+        return generations.getOrDefault(flightId, 0L) + clears.get();
+    }
+
+    private void changed(int flightId) {
+        generations.merge(flightId, 1L, Long::sum);
+    }
+
+    private SeatBitmap load(int flightId) throws SQLException {
+        String aircraftSql = "SELECT aircraftID FROM Flights WHERE flightID = ?";
+        String seatsSql = "SELECT activeSeatNumber FROM Bookings " +
+                          "WHERE flightID = ? AND activeSeatNumber IS NOT NULL";
+
+        ReferenceDataCache.Snapshot reference = ReferenceDataCache.getInstance().snapshot();
+        try (Connection conn = DatabaseConnectivity.getConnection()) {
+            SeatBitmap map;
+            try (PreparedStatement ps = conn.prepareStatement(aircraftSql)) {
+                ps.setInt(1, flightId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) return null;
+                    Aircraft aircraft = reference.getAircraft(rs.getInt("aircraftID"));
+                    map = new SeatBitmap(aircraft != null ? aircraft.getCapacity() : 0);
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(seatsSql)) {
+                ps.setInt(1, flightId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        map.markBooked(rs.getInt("activeSeatNumber"));
+                    }
+                }
+            }
+            return map;
+        }
+    }
+}
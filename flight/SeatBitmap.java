@@ -0,0 +1,80 @@
+import java.util.Arrays;
+
+/**
+ * Compact booked/free map for the seats of one flight.
+ * Seat n (1-based) is bit n-1; a set bit means booked. Counting and searching
+ * work a 64-seat word at a time.
+ */
+public class SeatBitmap {
+
+    private final int capacity;
+    private final long[] words;
+
+    public SeatBitmap(int capacity) {
+        if (capacity < 0) throw new IllegalArgumentException("capacity must not be negative");
+        this.capacity = capacity;
+        this.words = new long[(capacity + 63) >>> 6];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Marks a seat as booked. Seats outside 1..capacity are ignored.
+     */
+    public synchronized void markBooked(int seatNumber) {
+        if (!inRange(seatNumber)) return;
+        int bit = seatNumber - 1;
+        words[bit >>> 6] |= 1L << bit;
+    }
+
+    /**
+     * Marks a seat as free. Seats outside 1..capacity are ignored.
+     */
+    public synchronized void markFree(int seatNumber) {
+        if (!inRange(seatNumber)) return;
+        int bit = seatNumber - 1;
+        words[bit >>> 6] &= ~(1L << bit);
+    }
+
+    public synchronized boolean isBooked(int seatNumber) {
+        if (!inRange(seatNumber)) return false;
+        int bit = seatNumber - 1;
+        return (words[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    public synchronized int bookedCount() {
+        int count = 0;
+        for (long w : words) {
+            count += Long.bitCount(w);
+        }
+        return count;
+    }
+
+    public int availableCount() {
+        return capacity - bookedCount();
+    }
+
+    /**
+     * @return up to n free seat numbers in ascending order
+     */
+    public synchronized int[] firstFreeSeats(int n) {
+        int[] result = new int[Math.max(0, Math.min(n, capacity))];
+        int found = 0;
+        for (int i = 0; i < words.length && found < result.length; i++) {
+            long free = ~words[i];
+            while (free != 0 && found < result.length) {
+                int seat = (i << 6) + Long.numberOfTrailingZeros(free) + 1;
+                if (seat > capacity) break;
+                result[found++] = seat;
+                free &= free - 1;
+            }
+        }
+        return found == result.length ? result : Arrays.copyOf(result, found);
+    }
+
+    private boolean inRange(int seatNumber) {
+        return seatNumber >= 1 && seatNumber <= capacity;
+    }
+}
@@ -0,0 +1,250 @@
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntConsumer;
+import javax.swing.*;
+
+/**
+ * Seat map drawn as a single component, so even a 500-seat aircraft costs one
+ * component instead of hundreds of buttons. Only the rows inside the clip are
+ * painted, and clicks are resolved arithmetically.
+ */
+public class SeatMapPanel extends JComponent implements Scrollable {
+
+    private static final int SEAT = 30;
+    private static final int GAP = 4;
+    private static final int AISLE = 18;
+    private static final int ROW_LABEL_WIDTH = 30;
+    private static final int HEADER = 24;
+    private static final int MARGIN = 10;
+
+    private static final Color AVAILABLE = new Color(76, 175, 80);
+    private static final Color SELECTED = new Color(0, 100, 0);
+    private static final Color BOOKED = new Color(229, 57, 53);
+
+    private final CabinLayout layout;
+    private final SeatBitmap bookedSeats;
+    private final BitSet unavailable = new BitSet();
+    private final List<IntConsumer> listeners = new ArrayList<>();
+    private int selectedSeat;
+
+    // Geometry per seat (index = seat number), computed once
+    private final int[] seatX;
+    private final int[] seatY;
+    private final int width;
+    private final int height;
+
+    public SeatMapPanel(CabinLayout layout, SeatBitmap bookedSeats) {
+        this.layout = layout;
+        this.bookedSeats = bookedSeats;
+        this.seatX = new int[layout.getCapacity() + 1];
+        this.seatY = new int[layout.getCapacity() + 1];
+
+        int y = MARGIN;
+        int maxWidth = 0;
+        for (CabinLayout.Cabin cabin : layout.getCabins()) {
+            y += HEADER;
+            int[] groups = cabin.getSeatGroups();
+            for (int i = 0; i < cabin.getSeatCount(); i++) {
+                int row = i / cabin.getSeatsPerRow();
+                int col = i % cabin.getSeatsPerRow();
+                int x = MARGIN + ROW_LABEL_WIDTH + col * (SEAT + GAP) + aislesBefore(groups, col) * AISLE;
+                int seat = cabin.getFirstSeatNumber() + i;
+                seatX[seat] = x;
+                seatY[seat] = y + row * (SEAT + GAP);
+                maxWidth = Math.max(maxWidth, x + SEAT + MARGIN);
+            }
+            y += cabin.getRows() * (SEAT + GAP);
+        }
+        this.width = maxWidth;
+        this.height = y + MARGIN;
+
+        setOpaque(true);
+        setBackground(Color.WHITE);
+        setToolTipText("");
+        setFont(new Font("Arial", Font.PLAIN, 10));
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int seat = seatAt(e.getX(), e.getY());
+                if (seat > 0 && isAvailable(seat)) {
+                    for (IntConsumer l : listeners) {
+                        l.accept(seat);
+                    }
+                }
+            }
+        });
+    }
+
+    private static int aislesBefore(int[] groups, int col) {
+        int aisles = 0;
+        int end = 0;
+        for (int g = 0; g < groups.length - 1; g++) {
+            end += groups[g];
+            if (col >= end) aisles++;
+        }
+        return aisles;
+    }
+
+    /**
+     * Registers a callback for clicks on available seats.
+     */
+    public void addSeatSelectionListener(IntConsumer listener) {
+        listeners.add(listener);
+    }
+
+    public int getSelectedSeat() {
+        return selectedSeat;
+    }
+
+    public void setSelectedSeat(int seatNumber) {
+        int previous = selectedSeat;
+        selectedSeat = seatNumber;
+        repaintSeat(previous);
+        repaintSeat(seatNumber);
+    }
+
+    /**
+     * Shows a seat as taken even though it is not in the booked bitmap,
+     * e.g. one currently held by another customer.
+     */
+    public void markUnavailable(int seatNumber) {
+        unavailable.set(seatNumber);
+        if (selectedSeat == seatNumber) selectedSeat = 0;
+        repaintSeat(seatNumber);
+    }
+
+    public boolean isAvailable(int seatNumber) {
+        return seatNumber >= 1 && seatNumber <= layout.getCapacity()
+                && !unavailable.get(seatNumber)
+                && (bookedSeats == null || !bookedSeats.isBooked(seatNumber));
+    }
+
+    public String seatLabel(int seatNumber) {
+        return layout.seatLabel(seatNumber);
+    }
+
+    /**
+     * Finds the cabin by its vertical extent, the row by dividing the offset
+     * into it by the row pitch, and the column among the first row's seats.
+     */
+    private int seatAt(int x, int y) {
+        for (CabinLayout.Cabin cabin : layout.getCabins()) {
+            int first = cabin.getFirstSeatNumber();
+            int top = seatY[first];
+            if (y < top || y >= top + cabin.getRows() * (SEAT + GAP)) continue;
+            int row = (y - top) / (SEAT + GAP);
+            if (y - top - row * (SEAT + GAP) >= SEAT) return 0; // between rows
+            int columns = Math.min(cabin.getSeatsPerRow(), cabin.getSeatCount());
+            for (int col = 0; col < columns; col++) {
+                int left = seatX[first + col];
+                if (x < left) return 0; // between seats or left of the row
+                if (x < left + SEAT) {
+                    int seat = first + row * cabin.getSeatsPerRow() + col;
+                    return seat < first + cabin.getSeatCount() ? seat : 0;
+                }
+            }
+            return 0;
+        }
+        return 0;
+    }
+
+    private void repaintSeat(int seatNumber) {
+        if (seatNumber > 0 && seatNumber < seatX.length) {
+            repaint(seatX[seatNumber], seatY[seatNumber], SEAT, SEAT);
+        }
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent e) {
+        int seat = seatAt(e.getX(), e.getY());
+        if (seat == 0) return null;
+        CabinLayout.Cabin cabin = layout.cabinOf(seat);
+        return "Seat " + layout.seatLabel(seat) + " (" + cabin.getName() + ") - "
+                + (isAvailable(seat) ? "Available" : "Booked");
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setColor(getBackground() != null ? getBackground() : Color.WHITE);
+            Rectangle clip = g2.getClipBounds();
+            if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+            g2.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+            FontMetrics fm = g2.getFontMetrics();
+            for (CabinLayout.Cabin cabin : layout.getCabins()) {
+                int first = cabin.getFirstSeatNumber();
+                int headerY = seatY[first] - HEADER;
+                int cabinBottom = seatY[first] + cabin.getRows() * (SEAT + GAP);
+                if (cabinBottom < clip.y || headerY > clip.y + clip.height) {
+                    continue;
+                }
+                g2.setColor(Color.DARK_GRAY);
+                g2.drawString(cabin.getName(), MARGIN, headerY + HEADER - 8);
+
+                for (int r = 0; r < cabin.getRows(); r++) {
+                    int rowY = seatY[first] + r * (SEAT + GAP);
+                    if (rowY + SEAT < clip.y || rowY > clip.y + clip.height) continue;
+
+                    g2.setColor(Color.GRAY);
+                    String rowLabel = String.valueOf(cabin.getFirstRow() + r);
+                    g2.drawString(rowLabel, MARGIN, rowY + (SEAT + fm.getAscent()) / 2 - 2);
+
+                    int rowStart = first + r * cabin.getSeatsPerRow();
+                    int rowEnd = Math.min(rowStart + cabin.getSeatsPerRow(), first + cabin.getSeatCount());
+                    for (int seat = rowStart; seat < rowEnd; seat++) {
+                        paintSeat(g2, fm, seat);
+                    }
+                }
+            }
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    private void paintSeat(Graphics2D g2, FontMetrics fm, int seat) {
+        Color fill = seat == selectedSeat ? SELECTED : isAvailable(seat) ? AVAILABLE : BOOKED;
+        g2.setColor(fill);
+        g2.fillRoundRect(seatX[seat], seatY[seat], SEAT, SEAT, 8, 8);
+        g2.setColor(Color.WHITE);
+        String label = layout.seatLabel(seat);
+        g2.drawString(label, seatX[seat] + (SEAT - fm.stringWidth(label)) / 2,
+                seatY[seat] + (SEAT + fm.getAscent()) / 2 - 2);
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(width, height);
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return new Dimension(width, Math.min(height, 300));
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return SEAT + GAP;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return getParent() instanceof JViewport && getParent().getWidth() > width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+}
@@ -0,0 +1,252 @@
+import database.DatabaseConnectivity;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-flight waitlists for full flights, stored in the Waitlist table.
+ * Higher priority goes first, and equal priorities are served in order of
+ * joining.
+ *
+ * The table is the source of truth. Promotion locks the head of the queue
+ * inside the transaction that frees the seat (see BookingDAO), so a seat is
+ * never given to two passengers. A unique key on (flightID, waitingEmail)
+ * keeps a passenger from waiting twice for the same flight, even when two
+ * joins race.
+ *
+ * A process-wide mirror of each queue answers positions and lengths without a
+ * query. It is loaded on first use and kept current by the methods here once
+ * their changes commit. Promotions made by another process are not seen, so
+ * each flight's mirror is reloaded after a TTL.
+ */
+public class Waitlist {
+
+    public static final int PRIORITY_STANDARD = 0;
+    public static final long DEFAULT_TTL_MILLIS = 5 * 60_000;
+
+    // MySQL ER_DUP_ENTRY
+    private static final int DUPLICATE_KEY_ERROR = 1062;
+
+    private static final Waitlist INSTANCE = new Waitlist(DEFAULT_TTL_MILLIS);
+
+    private static final String COLUMNS =
+            "SELECT waitlistID, flightID, passengerName, passengerEmail, priority, createdAt FROM Waitlist ";
+    private static final String QUEUE_ORDER = "ORDER BY priority DESC, waitlistID";
+    // Queue reads, also run under EXPLAIN by QueryPlanCheck
+    static final String QUEUE_SQL = COLUMNS + "WHERE flightID = ? AND status = 'WAITING' " + QUEUE_ORDER;
+    static final String LOCK_HEAD_SQL = QUEUE_SQL + " LIMIT ? FOR UPDATE";
+
+    public static final class Entry {
+        private final int waitlistId;
+        private final int flightId;
+        private final String passengerName;
+        private final String passengerEmail;
+        private final int priority;
+        private final Timestamp createdAt;
+
+        Entry(int waitlistId, int flightId, String passengerName, String passengerEmail,
+              int priority, Timestamp createdAt) {
+            this.waitlistId = waitlistId;
+            this.flightId = flightId;
+            this.passengerName = passengerName;
+            this.passengerEmail = passengerEmail;
+            this.priority = priority;
+            this.createdAt = createdAt;
+        }
+
+        public int getWaitlistId() { return waitlistId; }
+        public int getFlightId() { return flightId; }
+        public String getPassengerName() { return passengerName; }
+        public String getPassengerEmail() { return passengerEmail; }
+        public int getPriority() { return priority; }
+        public Timestamp getCreatedAt() { return createdAt; }
+    }
+
+    private static final Comparator<Entry> QUEUE_COMPARATOR =
+            Comparator.comparingInt((Entry e) -> -e.priority).thenComparingInt(e -> e.waitlistId);
+
+    /** One flight's mirrored queue and when it was read. */
+    private static final class Queue {
+        final NavigableSet<Entry> entries = new ConcurrentSkipListSet<>(QUEUE_COMPARATOR);
+        final long loadedAtNanos = System.nanoTime();
+    }
+
+    private final long ttlNanos;
+    private final Map<Integer, Queue> queues = new ConcurrentHashMap<>();
+
+    /**
+     * @param ttlMillis how long a flight's mirrored queue is used before it is read again
+     */
+    public Waitlist(long ttlMillis) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    public static Waitlist getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Adds a passenger to a flight's waitlist. Joining again with the same
+     * email returns the existing entry.
+     */
+    public Entry join(int flightId, String passengerName, String passengerEmail, int priority) throws SQLException {
+        String sql = "INSERT INTO Waitlist (flightID, passengerName, passengerEmail, priority) VALUES (?, ?, ?, ?)";
+        try (Connection conn = DatabaseConnectivity.getConnection()) {
+            // The second attempt covers an existing entry promoted between the duplicate key and the read
+            for (int attempt = 0; ; attempt++) {
+                try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    ps.setInt(1, flightId);
+                    ps.setString(2, passengerName);
+                    ps.setString(3, passengerEmail);
+                    ps.setInt(4, priority);
+                    ps.executeUpdate();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        if (!keys.next()) throw new SQLException("Failed to create waitlist entry");
+                        Entry entry = new Entry(keys.getInt(1), flightId, passengerName, passengerEmail,
+                                priority, new Timestamp(System.currentTimeMillis()));
+                        Queue queue = queues.get(flightId);
+                        if (queue != null) queue.entries.add(entry);
+                        return entry;
+                    }
+                } catch (SQLException e) {
+                    if (e.getErrorCode() != DUPLICATE_KEY_ERROR || attempt > 0) throw e;
+                }
+                Entry existing = findWaiting(conn, flightId, passengerEmail);
+                if (existing != null) return existing;
+            }
+        }
+    }
+
+    private static Entry findWaiting(Connection conn, int flightId, String passengerEmail) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(COLUMNS +
+                "WHERE flightID = ? AND waitingEmail = ?")) {
+            ps.setInt(1, flightId);
+            ps.setString(2, passengerEmail);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? mapRow(rs) : null;
+            }
+        }
+    }
+
+    /**
+     * Takes a passenger off the waitlist.
+     * @return false if the entry was no longer waiting
+     */
+    public boolean leave(Entry entry) throws SQLException {
+        String sql = "UPDATE Waitlist SET status = 'REMOVED' WHERE waitlistID = ? AND status = 'WAITING'";
+        boolean removed;
+        try (Connection conn = DatabaseConnectivity.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, entry.waitlistId);
+            removed = ps.executeUpdate() > 0;
+        }
+        removeFromMirror(List.of(entry));
+        return removed;
+    }
+
+    /**
+     * @return the flight's waiting passengers, head first
+     */
+    public List<Entry> getQueue(int flightId) throws SQLException {
+        return new ArrayList<>(queue(flightId).entries);
+    }
+
+    public int size(int flightId) throws SQLException {
+        return queue(flightId).entries.size();
+    }
+
+    /**
+     * @return 1 for the head of the queue, or 0 if the entry is not waiting
+     */
+    public int position(Entry entry) throws SQLException {
+        NavigableSet<Entry> queue = queue(entry.flightId).entries;
+        if (!queue.contains(entry)) return 0;
+        return queue.headSet(entry, false).size() + 1;
+    }
+
+    /**
+     * Locks up to count waiting entries at the head of a flight's queue on the
+     * caller's connection, for promotion in the caller's transaction.
+     */
+    public List<Entry> lockHead(Connection conn, int flightId, int count) throws SQLException {
+        List<Entry> head = new ArrayList<>();
+        if (count <= 0) return head;
+        try (PreparedStatement ps = conn.prepareStatement(LOCK_HEAD_SQL)) {
+            ps.setInt(1, flightId);
+            ps.setInt(2, count);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    head.add(mapRow(rs));
+                }
+            }
+        }
+        return head;
+    }
+
+    /**
+     * Records on the caller's connection that an entry got a booking.
+     */
+    public void markPromoted(Connection conn, Entry entry, int bookingId) throws SQLException {
+        String sql = "UPDATE Waitlist SET status = 'PROMOTED', bookingID = ?, promotedAt = CURRENT_TIMESTAMP " +
+                     "WHERE waitlistID = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, bookingId);
+            ps.setInt(2, entry.waitlistId);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Applies committed promotions to the mirror.
+     */
+    public void promoted(Collection<Entry> entries) {
+        removeFromMirror(entries);
+    }
+
+    /**
+     * Drops a flight's mirror so the next read reloads it.
+     */
+    public void invalidate(int flightId) {
+        queues.remove(flightId);
+    }
+
+    private void removeFromMirror(Collection<Entry> entries) {
+        for (Entry e : entries) {
+            Queue queue = queues.get(e.flightId);
+            if (queue != null) queue.entries.remove(e);
+        }
+    }
+
+    private Queue queue(int flightId) throws SQLException {
+        Queue cached = queues.get(flightId);
+        if (cached != null && System.nanoTime() - cached.loadedAtNanos < ttlNanos) {
+            return cached;
+        }
+        Queue loaded = new Queue();
+        try (Connection conn = DatabaseConnectivity.getConnection();
+             PreparedStatement ps = conn.prepareStatement(QUEUE_SQL)) {
+            ps.setInt(1, flightId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    loaded.entries.add(mapRow(rs));
+                }
+            }
+        }
+        // Another thread may have reloaded it meanwhile; keep whichever got there first
+        Queue existing = cached == null ? queues.putIfAbsent(flightId, loaded)
+                : queues.replace(flightId, cached, loaded) ? null : queues.get(flightId);
+        return existing != null ? existing : loaded;
+    }
+
+    private static Entry mapRow(ResultSet rs) throws SQLException {
+        return new Entry(rs.getInt("waitlistID"), rs.getInt("flightID"), rs.getString("passengerName"),
+                rs.getString("passengerEmail"), rs.getInt("priority"), rs.getTimestamp("createdAt"));
+    }
+}
@@ -0,0 +1,317 @@
+package database;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded JDBC connection pool.
+ * Connections handed out are proxies: calling close() returns the physical
+ * connection to the pool instead of closing it, so DAOs can keep using
+ * try-with-resources exactly as before.
+ */
+public class ConnectionPool {
+
+    // Skip the isValid() round trip for connections returned very recently
+    private static final long VALIDATION_BYPASS_MILLIS = 500;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long HOUSEKEEPING_PERIOD_MILLIS = 30_000;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minIdle;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long borrowTimeoutMillis;
+    private final long leakThresholdMillis;
+
+    // LIFO: the most recently returned connection is the most likely to still be alive
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Map<PooledConnection, Boolean> active = new ConcurrentHashMap<>();
+    private final Semaphore permits;
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean shutdown;
+
+    // Metrics
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicInteger total = new AtomicInteger();
+
+    public ConnectionPool(String url, String user, String password,
+                          int minIdle, int maxSize,
+                          long idleTimeoutMillis, long borrowTimeoutMillis,
+                          long leakThresholdMillis) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize must be positive");
+        if (minIdle < 0 || minIdle > maxSize) throw new IllegalArgumentException("minIdle must be between 0 and maxSize");
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minIdle = minIdle;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep,
+                HOUSEKEEPING_PERIOD_MILLIS, HOUSEKEEPING_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the borrow timeout if the pool is exhausted.
+     * @return a pooled connection; close() hands it back to the pool
+     * @throws SQLException if no connection became available in time or the database is unreachable
+     */
+    public Connection getConnection() throws SQLException {
+        if (shutdown) throw new SQLException("Connection pool has been shut down");
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLException("Timed out after " + borrowTimeoutMillis
+                        + " ms waiting for a database connection (pool size " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pooled = takeValidIdle();
+            if (pooled == null) {
+                pooled = new PooledConnection(DriverManager.getConnection(url, user, password));
+                createdCount.incrementAndGet();
+                total.incrementAndGet();
+            }
+            recordWait(System.nanoTime() - start);
+
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.borrowSite = leakThresholdMillis > 0 ? new Throwable("Connection borrowed here") : null;
+            pooled.leakReported = false;
+            active.put(pooled, Boolean.TRUE);
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeValidIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (isUsable(pooled)) {
+                return pooled;
+            }
+            discard(pooled);
+        }
+        return null;
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        if (System.currentTimeMillis() - pooled.lastReturnedAt < VALIDATION_BYPASS_MILLIS) {
+            return true;
+        }
+        try {
+            return pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void recordWait(long nanos) {
+        borrowCount.incrementAndGet();
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private void release(PooledConnection pooled) {
+        active.remove(pooled);
+        boolean reusable = !shutdown;
+        try {
+            if (reusable && pooled.physical.isClosed()) {
+                reusable = false;
+            }
+            if (reusable && !pooled.physical.getAutoCommit()) {
+                // Never hand an open transaction to the next borrower
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            reusable = false;
+        }
+
+        if (reusable) {
+            pooled.lastReturnedAt = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } else {
+            discard(pooled);
+        }
+        permits.release();
+    }
+
+    private void discard(PooledConnection pooled) {
+        total.decrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException ignored) {
+            // Connection is being thrown away anyway
+        }
+    }
+
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+
+        // Evict connections idle for too long, oldest first, keeping minIdle around
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext() && idle.size() > minIdle) {
+            PooledConnection pooled = it.next();
+            if (now - pooled.lastReturnedAt > idleTimeoutMillis && idle.remove(pooled)) {
+                evictedCount.incrementAndGet();
+                discard(pooled);
+            }
+        }
+
+        if (leakThresholdMillis > 0) {
+            for (PooledConnection pooled : active.keySet()) {
+                if (!pooled.leakReported && now - pooled.borrowedAt > leakThresholdMillis) {
+                    pooled.leakReported = true;
+                    leakCount.incrementAndGet();
+                    System.err.println("Possible connection leak: connection held for "
+                            + (now - pooled.borrowedAt) + " ms");
+                    if (pooled.borrowSite != null) {
+                        pooled.borrowSite.printStackTrace();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes all idle connections and stops handing out new ones.
+     * Borrowed connections are closed as they are returned.
+     */
+    public void shutdown() {
+        shutdown = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    public PoolMetrics getMetrics() {
+        int activeNow = active.size();
+        int idleNow = idle.size();
+        long borrows = borrowCount.get();
+        return new PoolMetrics(
+                activeNow,
+                idleNow,
+                total.get(),
+                maxSize,
+                permits.getQueueLength(),
+                borrows,
+                borrows == 0 ? 0 : totalWaitNanos.get() / borrows,
+                maxWaitNanos.get(),
+                timeoutCount.get(),
+                createdCount.get(),
+                evictedCount.get(),
+                leakCount.get()
+        );
+    }
+
+    /**
+     * Physical connection plus the bookkeeping the pool needs.
+     */
+    private final class PooledConnection {
+        private final Connection physical;
+        private volatile long borrowedAt;
+        private volatile long lastReturnedAt;
+        private volatile Throwable borrowSite;
+        private volatile boolean leakReported;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.lastReturnedAt = System.currentTimeMillis();
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Handle(this));
+        }
+    }
+
+    /**
+     * One handle per borrow, so a stale reference closed twice cannot return
+     * a connection that already belongs to someone else.
+     */
+    private final class Handle implements InvocationHandler {
+        private PooledConnection pooled;
+
+        Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    synchronized (this) {
+                        if (pooled != null) {
+                            PooledConnection p = pooled;
+                            pooled = null;
+                            release(p);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return pooled == null || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + (pooled == null ? "closed" : pooled.physical) + "]";
+                default:
+                    break;
+            }
+
+            PooledConnection p = pooled;
+            if (p == null) {
+                throw new SQLException("Connection is closed");
+            }
+            try {
+                return method.invoke(p.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -1,16 +1,25 @@
 package database;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class DatabaseConnectivity {
 
-    // Change these to match your MySQL setup
+    // Change these to match your MySQL setup.
+    // rewriteBatchedStatements turns JDBC batches into multi-row INSERTs (bulk imports, write-behind).
     private static final String DB_URL =
-            "jdbc:mysql://localhost:3306/flightdb?useSSL=false&serverTimezone=UTC";
+            "jdbc:mysql://localhost:3306/flightdb?useSSL=false&serverTimezone=UTC&rewriteBatchedStatements=true";
     private static final String DB_USER = "root";
     private static final String DB_PASSWORD = "admin";
 
+    // Connection pool settings
+    private static final int POOL_MIN_IDLE = 2;
+    private static final int POOL_MAX_SIZE = 10;
+    private static final long POOL_IDLE_TIMEOUT_MS = 5 * 60_000;
+    private static final long POOL_BORROW_TIMEOUT_MS = 10_000;
+    private static final long POOL_LEAK_THRESHOLD_MS = 60_000;
+
+    private static final ConnectionPool POOL;
+
     static {
         try {
             // MySQL 8+ driver
@@ -18,9 +27,20 @@ public class DatabaseConnectivity {
         } catch (ClassNotFoundException e) {
             throw new RuntimeException("MySQL JDBC Driver not found.", e);
         }
+        POOL = new ConnectionPool(DB_URL, DB_USER, DB_PASSWORD,
+                POOL_MIN_IDLE, POOL_MAX_SIZE,
+                POOL_IDLE_TIMEOUT_MS, POOL_BORROW_TIMEOUT_MS, POOL_LEAK_THRESHOLD_MS);
     }
 
+    /**
+     * Borrows a connection from the shared pool.
+     * Closing the returned connection gives it back to the pool.
+     */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        return POOL.getConnection();
+    }
+
+    public static PoolMetrics getPoolMetrics() {
+        return POOL.getMetrics();
     }
 }
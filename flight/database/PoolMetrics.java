@@ -0,0 +1,62 @@
+package database;
+
+/**
+ * Point-in-time snapshot of connection pool statistics, for monitoring.
+ */
+public class PoolMetrics {
+
+    private final int activeConnections;
+    private final int idleConnections;
+    private final int totalConnections;
+    private final int maxPoolSize;
+    private final int waitingThreads;
+    private final long borrowCount;
+    private final long averageBorrowWaitNanos;
+    private final long maxBorrowWaitNanos;
+    private final long borrowTimeouts;
+    private final long connectionsCreated;
+    private final long connectionsEvicted;
+    private final long leaksDetected;
+
+    public PoolMetrics(int activeConnections, int idleConnections, int totalConnections,
+                       int maxPoolSize, int waitingThreads,
+                       long borrowCount, long averageBorrowWaitNanos, long maxBorrowWaitNanos,
+                       long borrowTimeouts, long connectionsCreated, long connectionsEvicted,
+                       long leaksDetected) {
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.totalConnections = totalConnections;
+        this.maxPoolSize = maxPoolSize;
+        this.waitingThreads = waitingThreads;
+        this.borrowCount = borrowCount;
+        this.averageBorrowWaitNanos = averageBorrowWaitNanos;
+        this.maxBorrowWaitNanos = maxBorrowWaitNanos;
+        this.borrowTimeouts = borrowTimeouts;
+        this.connectionsCreated = connectionsCreated;
+        this.connectionsEvicted = connectionsEvicted;
+        this.leaksDetected = leaksDetected;
+    }
+
+    public int getActiveConnections() { return activeConnections; }
+    public int getIdleConnections() { return idleConnections; }
+    public int getTotalConnections() { return totalConnections; }
+    public int getMaxPoolSize() { return maxPoolSize; }
+    public int getWaitingThreads() { return waitingThreads; }
+    public long getBorrowCount() { return borrowCount; }
+    public long getAverageBorrowWaitNanos() { return averageBorrowWaitNanos; }
+    public long getMaxBorrowWaitNanos() { return maxBorrowWaitNanos; }
+    public long getBorrowTimeouts() { return borrowTimeouts; }
+    public long getConnectionsCreated() { return connectionsCreated; }
+    public long getConnectionsEvicted() { return connectionsEvicted; }
+    public long getLeaksDetected() { return leaksDetected; }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "active=%d idle=%d total=%d/%d waiting=%d borrows=%d avgWait=%.3fms maxWait=%.3fms " +
+                "timeouts=%d created=%d evicted=%d leaks=%d",
+                activeConnections, idleConnections, totalConnections, maxPoolSize, waitingThreads,
+                borrowCount, averageBorrowWaitNanos / 1_000_000.0, maxBorrowWaitNanos / 1_000_000.0,
+                borrowTimeouts, connectionsCreated, connectionsEvicted, leaksDetected);
+    }
+}
@@ -0,0 +1,347 @@
+package database;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Brings an existing database up to the current schema at startup.
+ *
+ * Migrations are numbered and listed in MIGRATIONS; each applied one is recorded
+ * in SchemaVersion with a checksum of its SQL. Never edit a migration that has
+ * shipped: a checksum mismatch stops startup. Add a new one instead. MySQL
+ * commits DDL implicitly, so every step is written to be safe to re-run
+ * (CREATE TABLE IF NOT EXISTS, columns and indexes added only when missing,
+ * backfills that replace rather than add). A half-applied migration is simply
+ * finished on the next start, and a database created from database.sql just
+ * gets its versions recorded. Migrations 2 to 7 bring a database created from
+ * the original schema up to the one the DAOs expect.
+ */
+public class SchemaMigrator {
+
+    private static final String LOCK_NAME = "flightdb_schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 30;
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Customers table for CustomerDAO",
+                    sql("CREATE TABLE IF NOT EXISTS Customers (" +
+                        "customerID INT PRIMARY KEY AUTO_INCREMENT, " +
+                        "fullName VARCHAR(100) NOT NULL, " +
+                        "email VARCHAR(100) NOT NULL, " +
+                        "phone VARCHAR(20), " +
+                        "address VARCHAR(255), " +
+                        "dateOfBirth DATE, " +
+                        "createdAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                        "INDEX idx_customers_name (fullName), " +
+                        "INDEX idx_customers_email (email), " +
+                        "INDEX idx_customers_phone (phone))")),
+            new Migration(2, "Bookings.seatCount and bookingRef for BookingService",
+                    column("Bookings", "seatCount", "INT NOT NULL DEFAULT 1 AFTER seatNumber"),
+                    column("Bookings", "bookingRef", "CHAR(36) AFTER seatCount"),
+                    uniqueIndex("Bookings", "uq_bookings_ref", "bookingRef")),
+            new Migration(3, "One active booking per seat and the email lookup index",
+                    column("Bookings", "passengerEmailKey", "VARCHAR(100) COLLATE utf8mb4_0900_ai_ci " +
+                           "GENERATED ALWAYS AS (LOWER(TRIM(passengerEmail))) STORED"),
+                    column("Bookings", "activeSeatNumber", "INT " +
+                           "GENERATED ALWAYS AS (CASE WHEN status <> 'CANCELLED' THEN seatNumber END) STORED"),
+                    // Fails if two active bookings already share a seat; cancel one and restart
+                    uniqueIndex("Bookings", "uq_bookings_flight_seat", "flightID, activeSeatNumber"),
+                    index("Bookings", "idx_bookings_email", "passengerEmailKey, bookingID, flightID, " +
+                          "bookingTime, status, passengerName, passengerEmail")),
+            new Migration(4, "SeatHolds table for checkout seat holds",
+                    sql("CREATE TABLE IF NOT EXISTS SeatHolds (" +
+                        "flightID INT NOT NULL, " +
+                        "seatNumber INT NOT NULL, " +
+                        "holdToken CHAR(36) NOT NULL, " +
+                        "expiresAt TIMESTAMP NOT NULL, " +
+                        "PRIMARY KEY (flightID, seatNumber), " +
+                        "INDEX idx_seatholds_expires (expiresAt), " +
+                        "FOREIGN KEY (flightID) REFERENCES Flights(flightID) ON DELETE CASCADE)")),
+            new Migration(5, "Flights.bookedSeats counter",
+                    column("Flights", "bookedSeats", "INT NOT NULL DEFAULT 0"),
+                    sql("UPDATE Flights f SET f.bookedSeats = (" +
+                        "SELECT COALESCE(SUM(b.seatCount), 0) FROM Bookings b " +
+                        "WHERE b.flightID = f.flightID AND b.status <> 'CANCELLED')")),
+            new Migration(6, "Revenue rollup tables",
+                    sql("CREATE TABLE IF NOT EXISTS RevenueByFlight (" +
+                        "flightID INT PRIMARY KEY, " +
+                        "paymentCount INT NOT NULL DEFAULT 0, " +
+                        "totalAmount DECIMAL(14,2) NOT NULL DEFAULT 0)"),
+                    sql("CREATE TABLE IF NOT EXISTS RevenueByAirline (" +
+                        "airlineID INT PRIMARY KEY, " +
+                        "paymentCount INT NOT NULL DEFAULT 0, " +
+                        "totalAmount DECIMAL(14,2) NOT NULL DEFAULT 0)"),
+                    sql("CREATE TABLE IF NOT EXISTS RevenueByDay (" +
+                        "revenueDate DATE PRIMARY KEY, " +
+                        "paymentCount INT NOT NULL DEFAULT 0, " +
+                        "totalAmount DECIMAL(14,2) NOT NULL DEFAULT 0)"),
+                    // Same totals as RevenueDAO.rebuild(); replaced, so a re-run does not double them
+                    sql("DELETE FROM RevenueByFlight"),
+                    sql("INSERT INTO RevenueByFlight (flightID, paymentCount, totalAmount) " +
+                        "SELECT b.flightID, COUNT(*), SUM(p.amount) FROM Payments p " +
+                        "JOIN Bookings b ON b.bookingID = p.bookingID " +
+                        "JOIN Flights f ON f.flightID = b.flightID " +
+                        "WHERE p.status = 'PAID' GROUP BY b.flightID"),
+                    sql("DELETE FROM RevenueByAirline"),
+                    sql("INSERT INTO RevenueByAirline (airlineID, paymentCount, totalAmount) " +
+                        "SELECT f.airlineID, COUNT(*), SUM(p.amount) FROM Payments p " +
+                        "JOIN Bookings b ON b.bookingID = p.bookingID " +
+                        "JOIN Flights f ON f.flightID = b.flightID " +
+                        "WHERE p.status = 'PAID' AND f.airlineID IS NOT NULL GROUP BY f.airlineID"),
+                    sql("DELETE FROM RevenueByDay"),
+                    sql("INSERT INTO RevenueByDay (revenueDate, paymentCount, totalAmount) " +
+                        "SELECT DATE(p.transactionTime), COUNT(*), SUM(p.amount) FROM Payments p " +
+                        "JOIN Bookings b ON b.bookingID = p.bookingID " +
+                        "JOIN Flights f ON f.flightID = b.flightID " +
+                        "WHERE p.status = 'PAID' GROUP BY DATE(p.transactionTime)")),
+            new Migration(7, "Users.password wide enough for PBKDF2 hashes",
+                    sql("ALTER TABLE Users MODIFY password VARCHAR(255) NOT NULL")),
+            new Migration(8, "Indexes for booking, payment and flight lookups",
+                    // Seat recount and per-flight booking lists; seatCount makes SUM(seatCount) index-only
+                    index("Bookings", "idx_bookings_flight_status", "flightID, status, seatCount"),
+                    index("Payments", "idx_payments_booking_status", "bookingID, status"),
+                    index("Flights", "idx_flights_route_departure", "origin, destination, departureTime, flightID"),
+                    index("Flights", "idx_flights_departure", "departureTime, flightID")),
+            new Migration(9, "Waitlist table for flight.Waitlist",
+                    sql("CREATE TABLE IF NOT EXISTS Waitlist (" +
+                        "waitlistID INT PRIMARY KEY AUTO_INCREMENT, " +
+                        "flightID INT NOT NULL, " +
+                        "passengerName VARCHAR(100) NOT NULL, " +
+                        "passengerEmail VARCHAR(100) NOT NULL, " +
+                        "priority INT NOT NULL DEFAULT 0, " +
+                        "status VARCHAR(20) NOT NULL DEFAULT 'WAITING', " +
+                        "bookingID INT, " +
+                        "createdAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                        "promotedAt TIMESTAMP NULL, " +
+                        "INDEX idx_waitlist_queue (flightID, status, priority DESC, waitlistID), " +
+                        "FOREIGN KEY (flightID) REFERENCES Flights(flightID) ON DELETE CASCADE)")),
+            new Migration(10, "NotificationOutbox table for booking messages",
+                    sql("CREATE TABLE IF NOT EXISTS NotificationOutbox (" +
+                        "outboxID BIGINT PRIMARY KEY AUTO_INCREMENT, " +
+                        "eventType VARCHAR(40) NOT NULL, " +
+                        "recipient VARCHAR(100) NOT NULL, " +
+                        "payload TEXT NOT NULL, " +
+                        "status VARCHAR(20) NOT NULL DEFAULT 'PENDING', " +
+                        "attempts INT NOT NULL DEFAULT 0, " +
+                        "nextAttemptAt TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3), " +
+                        "createdAt TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3), " +
+                        "sentAt TIMESTAMP(3) NULL, " +
+                        "lastError VARCHAR(255), " +
+                        "INDEX idx_outbox_due (status, nextAttemptAt, outboxID))")),
+            new Migration(11, "One waiting Waitlist entry per passenger and flight",
+                    // Keep the oldest of any duplicates, or the unique index cannot be built
+                    sql("UPDATE Waitlist w JOIN (" +
+                        "SELECT flightID, passengerEmail, MIN(waitlistID) AS keepID FROM Waitlist " +
+                        "WHERE status = 'WAITING' GROUP BY flightID, passengerEmail HAVING COUNT(*) > 1) d " +
+                        "ON d.flightID = w.flightID AND d.passengerEmail = w.passengerEmail " +
+                        "SET w.status = 'REMOVED' WHERE w.status = 'WAITING' AND w.waitlistID > d.keepID"),
+                    column("Waitlist", "waitingEmail", "VARCHAR(100) " +
+                           "GENERATED ALWAYS AS (CASE WHEN status = 'WAITING' THEN passengerEmail END) STORED"),
+                    uniqueIndex("Waitlist", "uq_waitlist_waiting", "flightID, waitingEmail")),
+            new Migration(12, "NotificationOutbox.dedupeKey for replayed booking changes",
+                    column("NotificationOutbox", "dedupeKey", "VARCHAR(64) NULL AFTER lastError"),
+                    uniqueIndex("NotificationOutbox", "uq_outbox_dedupe", "dedupeKey"))
+    );
+
+    public static class Migration {
+        private final int version;
+        private final String description;
+        private final List<Step> steps;
+
+        Migration(int version, String description, Step... steps) {
+            this.version = version;
+            this.description = description;
+            this.steps = List.of(steps);
+        }
+
+        public int getVersion() { return version; }
+        public String getDescription() { return description; }
+
+        String checksum() {
+            StringBuilder text = new StringBuilder();
+            for (Step step : steps) {
+                text.append(step.text).append(";\n");
+            }
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256")
+                        .digest(text.toString().getBytes(StandardCharsets.UTF_8));
+                StringBuilder hex = new StringBuilder();
+                for (byte b : digest) {
+                    hex.append(String.format("%02x", b));
+                }
+                return hex.toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 unavailable", e);
+            }
+        }
+    }
+
+    private static class Step {
+        final String text;
+        // Set for index and column steps: skipped if the table already has one of this name
+        final String table;
+        final String indexName;
+        final String columnName;
+
+        Step(String text, String table, String indexName, String columnName) {
+            this.text = text;
+            this.table = table;
+            this.indexName = indexName;
+            this.columnName = columnName;
+        }
+    }
+
+    private static Step sql(String text) {
+        return new Step(text, null, null, null);
+    }
+
+    private static Step index(String table, String name, String columns) {
+        return new Step("CREATE INDEX " + name + " ON " + table + " (" + columns + ")", table, name, null);
+    }
+
+    private static Step uniqueIndex(String table, String name, String columns) {
+        return new Step("CREATE UNIQUE INDEX " + name + " ON " + table + " (" + columns + ")", table, name, null);
+    }
+
+    private static Step column(String table, String name, String definition) {
+        return new Step("ALTER TABLE " + table + " ADD COLUMN " + name + " " + definition, table, null, name);
+    }
+
+    /**
+     * Applies all pending migrations. Safe to call from several processes at
+     * once; a named lock lets one of them do the work.
+     * @return the migrations applied by this call, oldest first
+     * @throws SQLException if a migration fails or an applied one has been changed
+     */
+    public static List<Migration> migrate() throws SQLException {
+        try (Connection conn = DatabaseConnectivity.getConnection()) {
+            try (Statement st = conn.createStatement()) {
+                st.executeUpdate("CREATE TABLE IF NOT EXISTS SchemaVersion (" +
+                                 "version INT PRIMARY KEY, " +
+                                 "description VARCHAR(200) NOT NULL, " +
+                                 "checksum CHAR(64) NOT NULL, " +
+                                 "appliedAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            }
+
+            acquireLock(conn);
+            try {
+                Map<Integer, String> applied = appliedChecksums(conn);
+                List<Migration> done = new ArrayList<>();
+                for (Migration m : MIGRATIONS) {
+                    String checksum = m.checksum();
+                    String recorded = applied.get(m.version);
+                    if (recorded != null) {
+                        if (!recorded.equals(checksum)) {
+                            throw new SQLException("Schema migration " + m.version + " (" + m.description +
+                                    ") was changed after it was applied; add a new migration instead");
+                        }
+                        continue;
+                    }
+                    apply(conn, m, checksum);
+                    done.add(m);
+                }
+                return done;
+            } finally {
+                releaseLock(conn);
+            }
+        }
+    }
+
+    /**
+     * @return version to checksum of every migration recorded in the database
+     */
+    private static Map<Integer, String> appliedChecksums(Connection conn) throws SQLException {
+        Map<Integer, String> applied = new HashMap<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT version, checksum FROM SchemaVersion")) {
+            while (rs.next()) {
+                applied.put(rs.getInt(1), rs.getString(2));
+            }
+        }
+        return applied;
+    }
+
+    private static void apply(Connection conn, Migration m, String checksum) throws SQLException {
+        for (Step step : m.steps) {
+            if (step.indexName != null && indexExists(conn, step.table, step.indexName)) {
+                continue;
+            }
+            if (step.columnName != null && columnExists(conn, step.table, step.columnName)) {
+                continue;
+            }
+            try (Statement st = conn.createStatement()) {
+                st.executeUpdate(step.text);
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO SchemaVersion (version, description, checksum) VALUES (?, ?, ?)")) {
+            ps.setInt(1, m.version);
+            ps.setString(2, m.description);
+            ps.setString(3, checksum);
+            ps.executeUpdate();
+        }
+        System.out.println("Applied schema migration " + m.version + ": " + m.description);
+    }
+
+    private static boolean indexExists(Connection conn, String table, String indexName) throws SQLException {
+        String sql = "SELECT 1 FROM information_schema.STATISTICS " +
+                     "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ? LIMIT 1";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, table);
+            ps.setString(2, indexName);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static boolean columnExists(Connection conn, String table, String columnName) throws SQLException {
+        String sql = "SELECT 1 FROM information_schema.COLUMNS " +
+                     "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ? LIMIT 1";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, table);
+            ps.setString(2, columnName);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static void acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for another process to finish schema migrations");
+                }
+            }
+        }
+    }
+
+    private static void releaseLock(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.executeQuery().close();
+        }
+    }
+
+    /**
+     * Applies pending migrations and prints the schema version.
+     */
+    public static void main(String[] args) throws Exception {
+        List<Migration> applied = migrate();
+        int latest = MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+        System.out.println(applied.isEmpty()
+                ? "Schema is up to date (version " + latest + ")"
+                : "Schema migrated to version " + latest);
+    }
+}
@@ -5,26 +5,14 @@ import java.sql.Timestamp;
 
 public class PaymentDAO {
 
+    private final RevenueDAO revenueDAO = new RevenueDAO();
+
     /**
-     * Total revenue for a given flight (summing successful payments).
-     * We join Payments -> Bookings -> Flights using bookingID and flightID.
+     * Total revenue for a given flight (sum of PAID payments), read from the
+     * RevenueByFlight rollup. See RevenueDAO for reports over many flights.
      */
     public double getTotalRevenueForFlight(int flightId) throws SQLException {
-        String sql = "SELECT COALESCE(SUM(p.amount), 0) AS total " +
-                     "FROM Payments p " +
-                     "JOIN Bookings b ON p.bookingID = b.bookingID " +
-                     "WHERE b.flightID = ? AND p.status = 'SUCCESS'";
-
-        try (Connection conn = DatabaseConnectivity.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setInt(1, flightId);
-
-            try (ResultSet rs = ps.executeQuery()) {
-                rs.next();
-                return rs.getDouble("total");
-            }
-        }
+        return revenueDAO.getRevenueForFlight(flightId);
     }
 
     /**
@@ -37,6 +25,37 @@ public class PaymentDAO {
      * @throws SQLException if database error occurs
      */
     public Payment recordPayment(int bookingId, double amount, PaymentMethod method, String cardNumber) throws SQLException {
+        // TIMESTAMP columns keep whole seconds; truncate so the returned value matches the stored one
+        Timestamp transactionTime = new Timestamp(System.currentTimeMillis() / 1000 * 1000);
+
+        try (Connection conn = DatabaseConnectivity.getConnection()) {
+            // The payment and its revenue rollups commit together
+            conn.setAutoCommit(false);
+            try {
+                Payment payment = recordPayment(conn, bookingId, amount, method, cardNumber, transactionTime);
+                conn.commit();
+                return payment;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Records a payment on the caller's connection, so it can share a transaction
+     * with the booking it pays for. The transaction time is written explicitly,
+     * which avoids reading the row back just to learn its timestamp. PAID payments
+     * are also added to the revenue rollups on the same connection.
+     * @param conn The connection (and transaction) to use
+     * @param transactionTime The timestamp to store as transactionTime
+     * @return The created Payment object
+     * @throws SQLException if database error occurs
+     */
+    public Payment recordPayment(Connection conn, int bookingId, double amount, PaymentMethod method,
+                                 String cardNumber, Timestamp transactionTime) throws SQLException {
         // Extract last 4 digits of card number
         String cardLast4 = cardNumber != null && cardNumber.length() >= 4 
             ? cardNumber.substring(cardNumber.length() - 4) 
@@ -44,42 +63,35 @@ public class PaymentDAO {
 
         // Determine payment status (simplified: always PAID for now)
         PaymentStatus status = PaymentStatus.PAID;
-        String statusStr = "PAID";
 
-        String sql = "INSERT INTO Payments (bookingID, amount, method, status, cardLast4) " +
-                     "VALUES (?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO Payments (bookingID, amount, method, status, cardLast4, transactionTime) " +
+                     "VALUES (?, ?, ?, ?, ?, ?)";
 
-        try (Connection conn = DatabaseConnectivity.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             ps.setInt(1, bookingId);
             ps.setDouble(2, amount);
             ps.setString(3, method.toString());
-            ps.setString(4, statusStr);
+            ps.setString(4, status.toString());
             ps.setString(5, cardLast4);
+            ps.setTimestamp(6, transactionTime);
 
             ps.executeUpdate();
 
             // Get the generated payment ID
+            int paymentId = 0;
             try (ResultSet rs = ps.getGeneratedKeys()) {
                 if (rs.next()) {
-                    int paymentId = rs.getInt(1);
-
-                    // Retrieve the full payment record with timestamp
-                    String selectSql = "SELECT transactionTime FROM Payments WHERE paymentID = ?";
-                    try (PreparedStatement selectPs = conn.prepareStatement(selectSql)) {
-                        selectPs.setInt(1, paymentId);
-                        try (ResultSet selectRs = selectPs.executeQuery()) {
-                            if (selectRs.next()) {
-                                Timestamp transactionTime = selectRs.getTimestamp("transactionTime");
-                                return new Payment(paymentId, bookingId, amount, method, status, cardLast4, transactionTime);
-                            }
-                        }
-                    }
+                    paymentId = rs.getInt(1);
                 }
             }
+            if (paymentId == 0) {
+                throw new SQLException("Failed to create payment record");
+            }
+            if (status == PaymentStatus.PAID) {
+                revenueDAO.addPayment(conn, bookingId, amount, transactionTime);
+            }
+            return new Payment(paymentId, bookingId, amount, method, status, cardLast4, transactionTime);
         }
-
-        throw new SQLException("Failed to create payment record");
     }
 }
@@ -0,0 +1,333 @@
+package payment;
+import database.DatabaseConnectivity;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Revenue reporting from pre-aggregated rollup tables (RevenueByFlight,
+ * RevenueByAirline, RevenueByDay). PaymentDAO adds every PAID payment to the
+ * rollups in the same transaction that inserts it, so reports never scan
+ * Payments. rebuild() recomputes all rollups from Payments, e.g. after the
+ * tables were first created or rows were edited by hand.
+ *
+ * Revenue belongs to the flight a booking is on now, which is what rebuild()
+ * joins on: BookingDAO calls moveBooking() when a booking changes flight.
+ */
+public class RevenueDAO {
+
+    // Ids per IN (...) list in getRevenueForFlights
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
+    // Public so QueryPlanCheck can EXPLAIN the exact statements
+    public static final String PAID_BY_BOOKING_SQL =
+            "SELECT COUNT(*), COALESCE(SUM(amount), 0) FROM Payments WHERE bookingID = ? AND status = ?";
+    public static final String REVENUE_BY_DAY_SQL =
+            "SELECT revenueDate, totalAmount FROM RevenueByDay WHERE revenueDate BETWEEN ? AND ? ORDER BY revenueDate";
+
+    /**
+     * Result of a rollup rebuild.
+     */
+    public static class RebuildResult {
+        private final long payments;
+        private final int flights;
+        private final int airlines;
+        private final int days;
+        private final long elapsedMillis;
+
+        RebuildResult(long payments, int flights, int airlines, int days, long elapsedMillis) {
+            this.payments = payments;
+            this.flights = flights;
+            this.airlines = airlines;
+            this.days = days;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public long getPayments() { return payments; }
+        public int getFlights() { return flights; }
+        public int getAirlines() { return airlines; }
+        public int getDays() { return days; }
+        public long getElapsedMillis() { return elapsedMillis; }
+
+        @Override
+        public String toString() {
+            return String.format("Rebuilt revenue rollups from %d payments (%d flights, %d airlines, %d days) in %d ms",
+                    payments, flights, airlines, days, elapsedMillis);
+        }
+    }
+
+    /**
+     * Adds one PAID payment to all rollups on the caller's connection; call it in
+     * the transaction that inserts the payment.
+     */
+    void addPayment(Connection conn, int bookingId, double amount, Timestamp transactionTime) throws SQLException {
+        String lookupSql = "SELECT b.flightID, f.airlineID FROM Bookings b " +
+                           "JOIN Flights f ON f.flightID = b.flightID WHERE b.bookingID = ?";
+        int flightId;
+        int airlineId;
+        try (PreparedStatement ps = conn.prepareStatement(lookupSql)) {
+            ps.setInt(1, bookingId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) throw new SQLException("No flight found for booking " + bookingId);
+                flightId = rs.getInt("flightID");
+                airlineId = rs.getInt("airlineID");
+            }
+        }
+
+        BigDecimal total = BigDecimal.valueOf(amount);
+        add(conn, "INSERT INTO RevenueByFlight (flightID, paymentCount, totalAmount) VALUES (?, ?, ?) ",
+                flightId, 1, total);
+        add(conn, "INSERT INTO RevenueByAirline (airlineID, paymentCount, totalAmount) VALUES (?, ?, ?) ",
+                airlineId, 1, total);
+        // DATE() on the server, so the day matches what rebuild() computes
+        add(conn, "INSERT INTO RevenueByDay (revenueDate, paymentCount, totalAmount) VALUES (DATE(?), ?, ?) ",
+                transactionTime, 1, total);
+    }
+
+    /**
+     * Moves a booking's PAID payments from one flight's totals, and its airline's,
+     * to another's, on the caller's connection. Call it in the transaction that
+     * moves the booking. The day totals do not change.
+     */
+    public void moveBooking(Connection conn, int bookingId, int fromFlightId, int toFlightId) throws SQLException {
+        if (fromFlightId == toFlightId) return;
+        int count;
+        BigDecimal amount;
+        try (PreparedStatement ps = conn.prepareStatement(PAID_BY_BOOKING_SQL)) {
+            ps.setInt(1, bookingId);
+            ps.setString(2, PaymentStatus.PAID.name());
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                count = rs.getInt(1);
+                amount = rs.getBigDecimal(2);
+            }
+        }
+        if (count == 0) return;
+
+        Map<Integer, Integer> airlines = new HashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT flightID, airlineID FROM Flights WHERE flightID IN (?, ?)")) {
+            ps.setInt(1, fromFlightId);
+            ps.setInt(2, toFlightId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    airlines.put(rs.getInt("flightID"), rs.getInt("airlineID"));
+                }
+            }
+        }
+        Integer fromAirline = airlines.get(fromFlightId);
+        Integer toAirline = airlines.get(toFlightId);
+        if (fromAirline == null || toAirline == null) {
+            throw new SQLException("No flight found for booking " + bookingId);
+        }
+
+        String flightSql = "INSERT INTO RevenueByFlight (flightID, paymentCount, totalAmount) VALUES (?, ?, ?) ";
+        add(conn, flightSql, fromFlightId, -count, amount.negate());
+        add(conn, flightSql, toFlightId, count, amount);
+        if (!fromAirline.equals(toAirline)) {
+            String airlineSql = "INSERT INTO RevenueByAirline (airlineID, paymentCount, totalAmount) VALUES (?, ?, ?) ";
+            add(conn, airlineSql, fromAirline, -count, amount.negate());
+            add(conn, airlineSql, toAirline, count, amount);
+        }
+        // rebuild() writes no row for a flight or airline without payments
+        deleteEmpty(conn, "RevenueByFlight", "flightID", fromFlightId);
+        deleteEmpty(conn, "RevenueByAirline", "airlineID", fromAirline);
+    }
+
+    private static void add(Connection conn, String insertSql, Object key, int count, BigDecimal amount)
+            throws SQLException {
+        String sql = insertSql + "ON DUPLICATE KEY UPDATE paymentCount = paymentCount + VALUES(paymentCount), " +
+                     "totalAmount = totalAmount + VALUES(totalAmount)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setObject(1, key);
+            ps.setInt(2, count);
+            ps.setBigDecimal(3, amount);
+            ps.executeUpdate();
+        }
+    }
+
+    private static void deleteEmpty(Connection conn, String table, String keyColumn, Object key) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "DELETE FROM " + table + " WHERE " + keyColumn + " = ? AND paymentCount <= 0")) {
+            ps.setObject(1, key);
+            ps.executeUpdate();
+        }
+    }
+
+    public double getRevenueForFlight(int flightId) throws SQLException {
+        String sql = "SELECT totalAmount FROM RevenueByFlight WHERE flightID = ?";
+        try (Connection conn = DatabaseConnectivity.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, flightId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getDouble("totalAmount") : 0;
+            }
+        }
+    }
+
+    /**
+     * Revenue for many flights with one query per 1000 ids.
+     * @return revenue by flight id; flights without payments map to 0
+     */
+    public Map<Integer, Double> getRevenueForFlights(Collection<Integer> flightIds) throws SQLException {
+        Map<Integer, Double> revenue = new HashMap<>();
+        List<Integer> ids = new ArrayList<>(flightIds);
+        for (int id : ids) {
+            revenue.put(id, 0.0);
+        }
+        if (ids.isEmpty()) return revenue;
+
+        try (Connection conn = DatabaseConnectivity.getConnection()) {
+            for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+                List<Integer> chunk = ids.subList(from, Math.min(from + MAX_IDS_PER_QUERY, ids.size()));
+                String sql = "SELECT flightID, totalAmount FROM RevenueByFlight WHERE flightID IN (" +
+                             String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        ps.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            revenue.put(rs.getInt("flightID"), rs.getDouble("totalAmount"));
+                        }
+                    }
+                }
+            }
+        }
+        return revenue;
+    }
+
+    public Map<Integer, Double> getRevenueByAirline() throws SQLException {
+        String sql = "SELECT airlineID, totalAmount FROM RevenueByAirline";
+        try (Connection conn = DatabaseConnectivity.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            Map<Integer, Double> revenue = new HashMap<>();
+            while (rs.next()) {
+                revenue.put(rs.getInt("airlineID"), rs.getDouble("totalAmount"));
+            }
+            return revenue;
+        }
+    }
+
+    /**
+     * Daily revenue for an inclusive date range, in date order. Days without payments are absent.
+     */
+    public Map<LocalDate, Double> getRevenueByDay(LocalDate from, LocalDate to) throws SQLException {
+        try (Connection conn = DatabaseConnectivity.getConnection();
+             PreparedStatement ps = conn.prepareStatement(REVENUE_BY_DAY_SQL)) {
+            ps.setDate(1, Date.valueOf(from));
+            ps.setDate(2, Date.valueOf(to));
+            try (ResultSet rs = ps.executeQuery()) {
+                Map<LocalDate, Double> revenue = new TreeMap<>();
+                while (rs.next()) {
+                    revenue.put(rs.getDate("revenueDate").toLocalDate(), rs.getDouble("totalAmount"));
+                }
+                return revenue;
+            }
+        }
+    }
+
+    /**
+     * Recomputes every rollup from Payments. PAID payments are streamed row by row
+     * and summed in memory, so memory grows with the number of flights, airlines and
+     * days rather than payments. The scan takes shared locks, so new payments wait
+     * until the rebuild commits instead of being lost from the fresh totals.
+     */
+    public RebuildResult rebuild() throws SQLException {
+        long start = System.currentTimeMillis();
+        String scanSql = "SELECT b.flightID, f.airlineID, DATE(p.transactionTime) AS revenueDate, p.amount " +
+                         "FROM Payments p " +
+                         "JOIN Bookings b ON b.bookingID = p.bookingID " +
+                         "JOIN Flights f ON f.flightID = b.flightID " +
+                         "WHERE p.status = ? FOR SHARE";
+
+        Map<Integer, Total> byFlight = new HashMap<>();
+        Map<Integer, Total> byAirline = new HashMap<>();
+        Map<Date, Total> byDay = new HashMap<>();
+        long payments = 0;
+
+        try (Connection conn = DatabaseConnectivity.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement ps = conn.prepareStatement(scanSql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    // MySQL Connector/J streams rows one at a time with this fetch size
+                    ps.setFetchSize(Integer.MIN_VALUE);
+                    ps.setString(1, PaymentStatus.PAID.name());
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            BigDecimal amount = rs.getBigDecimal("amount");
+                            byFlight.computeIfAbsent(rs.getInt("flightID"), k -> new Total()).add(amount);
+                            byAirline.computeIfAbsent(rs.getInt("airlineID"), k -> new Total()).add(amount);
+                            byDay.computeIfAbsent(rs.getDate("revenueDate"), k -> new Total()).add(amount);
+                            payments++;
+                        }
+                    }
+                }
+
+                replace(conn, "RevenueByFlight", "flightID", byFlight);
+                replace(conn, "RevenueByAirline", "airlineID", byAirline);
+                replace(conn, "RevenueByDay", "revenueDate", byDay);
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        return new RebuildResult(payments, byFlight.size(), byAirline.size(), byDay.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    private static void replace(Connection conn, String table, String keyColumn, Map<?, Total> totals)
+            throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate("DELETE FROM " + table);
+        }
+        String sql = "INSERT INTO " + table + " (" + keyColumn + ", paymentCount, totalAmount) VALUES (?, ?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (Map.Entry<?, Total> e : totals.entrySet()) {
+                ps.setObject(1, e.getKey());
+                ps.setInt(2, e.getValue().count);
+                ps.setBigDecimal(3, e.getValue().amount);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static class Total {
+        int count;
+        BigDecimal amount = BigDecimal.ZERO;
+
+        void add(BigDecimal value) {
+            count++;
+            amount = amount.add(value);
+        }
+    }
+
+    /**
+     * Command line: java payment.RevenueDAO rebuild
+     */
+    public static void main(String[] args) {
+        if (args.length != 1 || !args[0].equals("rebuild")) {
+            System.err.println("Usage: java payment.RevenueDAO rebuild");
+            System.exit(2);
+        }
+        try {
+            System.out.println(new RevenueDAO().rebuild());
+        } catch (SQLException e) {
+            System.err.println("Rebuild failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -33,7 +33,7 @@ if errorlevel 1 goto :error
 
 REM Compile auth package
 echo [4/6] Compiling authentication package...
-javac -cp ".;mysql-connector-j-9.5.0\mysql-connector-j-9.5.0.jar;flight;payment" -encoding UTF-8 auth\UserDAO.java
+javac -cp ".;mysql-connector-j-9.5.0\mysql-connector-j-9.5.0.jar;flight;payment" -encoding UTF-8 auth\*.java
 if errorlevel 1 goto :error
 
 REM Compile booking DAO